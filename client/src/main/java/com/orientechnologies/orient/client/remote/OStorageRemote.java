@@ -125,7 +125,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   private Map<String, Object>              connectionOptions;
   private final String                     clientId;
 
-  private final int                        maxReadQueue;
+  private final int                        maxInFlight;
 
   public OStorageRemote(final String iClientId, final String iURL, final String iMode) throws IOException {
     super(iURL, iURL, iMode);
@@ -140,7 +140,7 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
     asynchExecutor = Executors.newSingleThreadScheduledExecutor();
 
-    maxReadQueue = Runtime.getRuntime().availableProcessors() - 1;
+    maxInFlight = clientConfiguration.getValueAsInteger(OGlobalConfiguration.CLIENT_CHANNEL_MAX_IN_FLIGHT);
   }
 
   public int getSessionId() {
@@ -480,6 +480,86 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
     } while (true);
   }
 
+  @Override
+  public Map<ORecordId, ORawBuffer> readRecords(final Collection<ORecordId> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    checkConnection();
+
+    final Map<ORecordId, ORawBuffer> result = new HashMap<ORecordId, ORawBuffer>();
+    if (iRids.isEmpty() || OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting)
+      // PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+      return result;
+
+    final short srvProtocolVersion;
+    synchronized (networkPool) {
+      srvProtocolVersion = networkPool.isEmpty() ? OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION : networkPool.get(0)
+          .getSrvProtocolVersion();
+    }
+    if (srvProtocolVersion < 16)
+      // @COMPATIBILITY 1.3.0: SERVER DOESN'T SUPPORT MULTIPLE LOADS, ONE REQUEST PER RECORD
+      return super.readRecords(iRids, iFetchPlan, iIgnoreCache);
+
+    // BIG LOADS ARE SPLIT IN MORE REQUESTS TO BOUND THE SIZE OF THE RESPONSES
+    final int maxRecords = Math.max(1, OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.getValueAsInteger());
+    final List<ORecordId> rids = new ArrayList<ORecordId>(iRids);
+    for (int i = 0; i < rids.size(); i += maxRecords)
+      readRecords(rids.subList(i, Math.min(i + maxRecords, rids.size())), iFetchPlan, iIgnoreCache, result);
+    return result;
+  }
+
+  /**
+   * Reads a batch of records with a single request, putting them in the result.
+   */
+  private void readRecords(final List<ORecordId> iRids, final String iFetchPlan, final boolean iIgnoreCache,
+      final Map<ORecordId, ORawBuffer> iResult) {
+    final Map<ORecordId, ORawBuffer> batch = new HashMap<ORecordId, ORawBuffer>();
+    do {
+      try {
+
+        OChannelBinaryClient network = null;
+        try {
+          network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI);
+          network.writeInt(iRids.size());
+          for (ORecordId rid : iRids)
+            network.writeRID(rid);
+          network.writeString(iFetchPlan != null ? iFetchPlan : "");
+          network.writeByte((byte) (iIgnoreCache ? 1 : 0));
+        } finally {
+          endRequest(network);
+        }
+
+        try {
+          beginResponse(network);
+
+          // THE RECORDS ARE SENT IN THE SAME ORDER OF THE REQUEST
+          for (ORecordId rid : iRids)
+            if (network.readByte() == 1)
+              batch.put(rid, new ORawBuffer(network.readBytes(), network.readVersion(), network.readByte()));
+
+          final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+          ORecordInternal<?> record;
+          while (network.readByte() == 2) {
+            record = (ORecordInternal<?>) OChannelBinaryProtocol.readIdentifiable(network);
+
+            if (database != null)
+              // PUT IN THE CLIENT LOCAL CACHE
+              database.getLevel1Cache().updateRecord(record);
+          }
+          iResult.putAll(batch);
+          return;
+
+        } finally {
+          endResponse(network);
+        }
+
+      } catch (Exception e) {
+        batch.clear();
+        handleException("Error on read records " + iRids, e);
+
+      }
+    } while (true);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, int iMode, final ORecordCallback<ORecordVersion> iCallback) {
     checkConnection();
@@ -1747,7 +1827,9 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   }
 
   /**
-   * Acquire a network channel from the pool. Don't lock the write stream since the connection usage is exclusive.
+   * Acquire a network channel from the pool and lock its write stream until the request is sent. Requests are pipelined, so the
+   * channel with less responses pending is preferred and a new one is created only when all of them have too many requests in
+   * flight.
    * 
    * @param iCommand
    * @return
@@ -1761,8 +1843,6 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
 
     // FIND THE FIRST FREE CHANNEL AVAILABLE
     synchronized (networkPool) {
-      final int beginCursor = networkPoolCursor;
-
       while (network == null) {
         if (networkPool.size() == 0)
           openRemoteDatabase();
@@ -1770,51 +1850,60 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
         if (networkPool.size() == 0)
           throw new ONetworkProtocolException("Connection pool closed");
 
-        if (networkPoolCursor >= networkPool.size())
-          // RESTART FROM THE FIRST ONE
-          networkPoolCursor = 0;
+        for (int i = 0; i < networkPool.size(); ++i) {
+          if (networkPoolCursor >= networkPool.size())
+            // RESTART FROM THE FIRST ONE
+            networkPoolCursor = 0;
 
-        network = networkPool.get(networkPoolCursor);
-
-        networkPoolCursor++;
-        if (network.getLockWrite().tryLock())
-          break;
+          final OChannelBinaryClient candidate = networkPool.get(networkPoolCursor++);
+          if (network != null && candidate.getPendingResponses() >= network.getPendingResponses())
+            continue;
 
-        network = null;
+          if (candidate.getLockWrite().tryLock()) {
+            if (network != null)
+              network.getLockWrite().unlock();
+            network = candidate;
 
-        if (networkPoolCursor == beginCursor) {
-          // COMPLETE ROUND AND NOT FREE CONNECTIONS FOUND
+            if (network.getPendingResponses() == 0)
+              break;
+          }
+        }
 
-          if (networkPool.size() < maxPool) {
-            // CREATE NEW CONNECTION
-            network = createNetworkConnection();
-            network.getLockWrite().lock();
-            networkPool.add(network);
+        if ((network == null || network.getPendingResponses() >= maxInFlight) && networkPool.size() < maxPool) {
+          // ALL THE CHANNELS ARE BUSY: CREATE NEW CONNECTION
+          if (network != null)
+            network.getLockWrite().unlock();
 
-            if (debug)
-              System.out.println("Created new connection " + networkPool.size());
-          } else {
-            if (debug)
-              System.out.println("-> req (waiting) : " + getSessionId());
+          network = createNetworkConnection();
+          network.getLockWrite().lock();
+          networkPool.add(network);
 
-            final long startToWait = System.currentTimeMillis();
-            try {
-              networkPool.wait(5000);
-            } catch (InterruptedException e) {
-              // THREAD INTERRUPTED: RETURN EXCEPTION
-              Thread.currentThread().interrupt();
-              throw new OStorageException("Cannot acquire a connection because the thread has been interrupted");
-            }
+          if (debug)
+            System.out.println("Created new connection " + networkPool.size());
+        }
 
-            final long elapsed = Orient
-                .instance()
-                .getProfiler()
-                .stopChrono("system.network.connectionPool.waitingTime", "Waiting for a free connection from the pool of channels",
-                    startToWait);
+        if (network == null) {
+          // NO FREE CHANNELS AND POOL FULL: WAIT FOR A WRITER TO RELEASE ONE
+          if (debug)
+            System.out.println("-> req (waiting) : " + getSessionId());
 
-            if (debug)
-              System.out.println("Waiting for connection = elapsed: " + elapsed);
+          final long startToWait = System.currentTimeMillis();
+          try {
+            networkPool.wait(5000);
+          } catch (InterruptedException e) {
+            // THREAD INTERRUPTED: RETURN EXCEPTION
+            Thread.currentThread().interrupt();
+            throw new OStorageException("Cannot acquire a connection because the thread has been interrupted");
           }
+
+          final long elapsed = Orient
+              .instance()
+              .getProfiler()
+              .stopChrono("system.network.connectionPool.waitingTime", "Waiting for a free connection from the pool of channels",
+                  startToWait);
+
+          if (debug)
+            System.out.println("Waiting for connection = elapsed: " + elapsed);
         }
       }
     }
@@ -1876,15 +1965,6 @@ public class OStorageRemote extends OStorageAbstract implements OStorageProxy {
   protected void beginResponse(final OChannelBinaryClient iNetwork) throws IOException {
     iNetwork.beginResponse(getSessionId());
 
-    if (iNetwork.getLockRead().getQueueLength() + 1 >= maxReadQueue)
-      synchronized (networkPool) {
-        if (networkPool.size() < maxPool) {
-          // CREATE NEW CONNECTION
-          final OChannelBinaryClient network = createNetworkConnection();
-          networkPool.add(network);
-        }
-      }
-
     if (debug)
       System.out.println("-> res: " + getSessionId());
   }
@@ -153,6 +153,12 @@ public class OStorageRemoteThread implements OStorageProxy {
     return delegate.readRecord(iRid, iFetchPlan, iIgnoreCache, null, loadTombstones);
   }
 
+  public Map<ORecordId, ORawBuffer> readRecords(final Collection<ORecordId> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    delegate.setSessionId(sessionId);
+    return delegate.readRecords(iRids, iFetchPlan, iIgnoreCache);
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, ORecordCallback<ORecordVersion> iCallback) {
     delegate.setSessionId(sessionId);
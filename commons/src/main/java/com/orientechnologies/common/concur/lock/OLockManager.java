@@ -15,10 +15,21 @@
  */
 package com.orientechnologies.common.concur.lock;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Manages a lock per resource. The locks live in a concurrent map only while they are used: each one counts its users and the last
+ * user to leave removes it. Finding or creating the lock doesn't block, so threads working on different resources never contend.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
 public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   public enum LOCK {
     SHARED, EXCLUSIVE
@@ -28,17 +39,42 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   protected long                                                  acquireTimeout;
   protected final ConcurrentHashMap<RESOURCE_TYPE, CountableLock> map;
   private final boolean                                           enabled;
-  private final int                                               shift;
-  private final int                                               mask;
-  private final Object[]                                          locks;
 
   @SuppressWarnings("serial")
   protected static class CountableLock extends ReentrantReadWriteLock {
-    protected int countLocks = 0;
+    private static final int RETIRED = -1;
+
+    /**
+     * Number of threads that hold or wait for the lock. RETIRED once the last one left: the lock is being removed from the map and
+     * can't be used anymore.
+     */
+    protected final AtomicInteger countLocks = new AtomicInteger();
 
     public CountableLock(final boolean iFair) {
       super(false);
     }
+
+    protected boolean retain() {
+      while (true) {
+        final int count = countLocks.get();
+        if (count == RETIRED)
+          return false;
+        if (countLocks.compareAndSet(count, count + 1))
+          return true;
+      }
+    }
+
+    /**
+     * Returns true if the caller was the last user and retired the lock.
+     */
+    protected boolean release() {
+      return countLocks.decrementAndGet() == 0 && countLocks.compareAndSet(0, RETIRED);
+    }
+
+    protected String getOwnerName() {
+      final Thread owner = getOwner();
+      return owner != null ? owner.getName() : null;
+    }
   }
 
   public OLockManager(final boolean iEnabled, final int iAcquireTimeout) {
@@ -46,22 +82,7 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
   }
 
   public OLockManager(final boolean iEnabled, final int iAcquireTimeout, final int concurrencyLevel) {
-    int cL = 1;
-
-    int sh = 0;
-    while (cL < concurrencyLevel) {
-      cL <<= 1;
-      sh++;
-    }
-
-    shift = 32 - sh;
-    mask = cL - 1;
-
-    map = new ConcurrentHashMap<RESOURCE_TYPE, CountableLock>(cL);
-    locks = new Object[cL];
-    for (int i = 0; i < locks.length; i++) {
-      locks[i] = new Object();
-    }
+    map = new ConcurrentHashMap<RESOURCE_TYPE, CountableLock>(concurrencyLevel, 0.75f, concurrencyLevel);
 
     acquireTimeout = iAcquireTimeout;
     enabled = iEnabled;
@@ -75,18 +96,7 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     if (!enabled)
       return;
 
-    CountableLock lock;
-    final Object internalLock = internalLock(iResourceId);
-    synchronized (internalLock) {
-      lock = map.get(iResourceId);
-      if (lock == null) {
-        final CountableLock newLock = new CountableLock(iTimeout > 0);
-        lock = map.putIfAbsent(getImmutableResourceId(iResourceId), newLock);
-        if (lock == null)
-          lock = newLock;
-      }
-      lock.countLocks++;
-    }
+    final CountableLock lock = retainLock(iResourceId, iTimeout);
 
     try {
       if (iTimeout <= 0) {
@@ -96,27 +106,24 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
           lock.writeLock().lock();
       } else {
         try {
-          if (iLockType == LOCK.SHARED) {
-            if (!lock.readLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
-              throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
-          } else {
-            if (!lock.writeLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
-              throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
-          }
+          final boolean locked;
+          if (iLockType == LOCK.SHARED)
+            locked = lock.readLock().tryLock(iTimeout, TimeUnit.MILLISECONDS);
+          else
+            locked = lock.writeLock().tryLock(iTimeout, TimeUnit.MILLISECONDS);
+
+          if (!locked)
+            throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread"
+                + describeContention(lock));
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
           throw new OLockException("Thread interrupted while waiting for resource '" + iResourceId + "'");
         }
       }
     } catch (RuntimeException e) {
-      synchronized (internalLock) {
-        lock.countLocks--;
-        if (lock.countLocks == 0)
-          map.remove(iResourceId);
-      }
+      releaseLock(iResourceId, lock);
       throw e;
     }
-
   }
 
   public void releaseLock(final REQUESTER_TYPE iRequester, final RESOURCE_TYPE iResourceId, final LOCK iLockType)
@@ -124,23 +131,18 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     if (!enabled)
       return;
 
-    final CountableLock lock;
-    final Object internalLock = internalLock(iResourceId);
-    synchronized (internalLock) {
-      lock = map.get(iResourceId);
-      if (lock == null)
-        throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
-            + "' against the resource: '" + iResourceId + "'");
-
-      lock.countLocks--;
-      if (lock.countLocks == 0)
-        map.remove(iResourceId);
-    }
+    final CountableLock lock = map.get(iResourceId);
+    if (lock == null)
+      throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
+          + "' against the resource: '" + iResourceId + "'");
+
+    // UNLOCK BEFORE LEAVING: ONCE THE LOCK IS REMOVED FROM THE MAP A NEW ONE CAN BE CREATED FOR THE SAME RESOURCE
     if (iLockType == LOCK.SHARED)
       lock.readLock().unlock();
     else
       lock.writeLock().unlock();
 
+    releaseLock(iResourceId, lock);
   }
 
   public void clear() {
@@ -156,10 +158,60 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
     return iResourceId;
   }
 
-  private Object internalLock(final RESOURCE_TYPE iResourceId) {
-    final int hashCode = iResourceId.hashCode();
-    final int index = (hashCode >>> shift) & mask;
-    return locks[index];
+  /**
+   * Returns the lock of the resource registered as used by the current thread, creating it if nobody is using it.
+   */
+  private CountableLock retainLock(final RESOURCE_TYPE iResourceId, final long iTimeout) {
+    while (true) {
+      CountableLock lock = map.get(iResourceId);
+      if (lock == null) {
+        final CountableLock newLock = new CountableLock(iTimeout > 0);
+        lock = map.putIfAbsent(getImmutableResourceId(iResourceId), newLock);
+        if (lock == null)
+          lock = newLock;
+      }
+
+      if (lock.retain())
+        return lock;
+
+      // RETIRED BY ITS LAST USER: HELP REMOVING IT AND RETRY
+      map.remove(iResourceId, lock);
+    }
+  }
+
+  private void releaseLock(final RESOURCE_TYPE iResourceId, final CountableLock iLock) {
+    if (iLock.release())
+      map.remove(iResourceId, iLock);
+  }
+
+  /**
+   * Describes who holds the lock. Called only on timeout, so the deadlock check of the JVM doesn't cost anything in the normal path.
+   */
+  private static String describeContention(final CountableLock iLock) {
+    final StringBuilder buffer = new StringBuilder();
+
+    buffer.append(". Waiting threads: ").append(iLock.getQueueLength());
+
+    final String owner = iLock.getOwnerName();
+    if (owner != null)
+      buffer.append(", exclusive owner: '").append(owner).append('\'');
+    else if (iLock.getReadLockCount() > 0)
+      buffer.append(", shared holds: ").append(iLock.getReadLockCount());
+
+    try {
+      final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      final long[] deadlocked = threads.isSynchronizerUsageSupported() ? threads.findDeadlockedThreads() : null;
+      if (deadlocked != null) {
+        buffer.append(". Deadlocked threads:");
+        for (ThreadInfo info : threads.getThreadInfo(deadlocked))
+          if (info != null)
+            buffer.append(" '").append(info.getThreadName()).append("' waiting for ").append(info.getLockName()).append(';');
+      }
+    } catch (SecurityException e) {
+      // DIAGNOSTICS NOT ALLOWED
+    }
+
+    return buffer.toString();
   }
 
   private static int defaultConcurrency() {
@@ -0,0 +1,103 @@
+package com.orientechnologies.common.concur.lock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+
+@Test
+public class OLockManagerTest {
+  private static final int THREADS    = 8;
+  private static final int ITERATIONS = 20000;
+  private static final int RESOURCES  = 4;
+
+  public void testExclusiveLocksUnderContention() throws Exception {
+    final OLockManager<Integer, Object> lockManager = new OLockManager<Integer, Object>(true, 0);
+    final int[] counters = new int[RESOURCES];
+    final List<Throwable> errors = new ArrayList<Throwable>();
+
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < THREADS; ++t)
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < ITERATIONS; ++i) {
+              final Integer resource = i % RESOURCES;
+              lockManager.acquireLock(this, resource, LOCK.EXCLUSIVE);
+              try {
+                counters[resource]++;
+              } finally {
+                lockManager.releaseLock(this, resource, LOCK.EXCLUSIVE);
+              }
+            }
+          } catch (Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      });
+
+    for (Thread t : threads)
+      t.start();
+    for (Thread t : threads)
+      t.join();
+
+    Assert.assertTrue(errors.isEmpty(), errors.toString());
+    for (int counter : counters)
+      Assert.assertEquals(counter, THREADS * ITERATIONS / RESOURCES);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+
+  public void testReentrantSharedLocks() {
+    final OLockManager<String, Object> lockManager = new OLockManager<String, Object>(true, 0);
+
+    lockManager.acquireLock(this, "a", LOCK.SHARED);
+    lockManager.acquireLock(this, "a", LOCK.SHARED);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 1);
+
+    lockManager.releaseLock(this, "a", LOCK.SHARED);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 1);
+    lockManager.releaseLock(this, "a", LOCK.SHARED);
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+
+  public void testTimeoutReportsTheOwner() throws Exception {
+    final OLockManager<String, Object> lockManager = new OLockManager<String, Object>(true, 100);
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+
+    final Thread owner = new Thread("lockOwner") {
+      @Override
+      public void run() {
+        lockManager.acquireLock(this, "a", LOCK.EXCLUSIVE);
+        locked.countDown();
+        try {
+          done.await();
+        } catch (InterruptedException e) {
+        } finally {
+          lockManager.releaseLock(this, "a", LOCK.EXCLUSIVE);
+        }
+      }
+    };
+    owner.start();
+    locked.await();
+
+    try {
+      lockManager.acquireLock(this, "a", LOCK.SHARED);
+      Assert.fail("Lock acquired while held by another thread");
+    } catch (OLockException e) {
+      Assert.assertTrue(e.getMessage().contains("lockOwner"), e.getMessage());
+    } finally {
+      done.countDown();
+      owner.join();
+    }
+
+    Assert.assertEquals(lockManager.getCountCurrentLocks(), 0);
+  }
+}
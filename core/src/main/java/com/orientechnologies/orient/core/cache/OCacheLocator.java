@@ -15,8 +15,11 @@
  */
 package com.orientechnologies.orient.core.cache;
 
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL1_IMPL;
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL1_MAX_MEMORY;
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL1_SIZE;
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL2_IMPL;
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL2_MAX_MEMORY;
 import static com.orientechnologies.orient.core.config.OGlobalConfiguration.CACHE_LEVEL2_SIZE;
 
 import java.lang.reflect.Constructor;
@@ -28,23 +31,33 @@ import com.orientechnologies.common.log.OLogManager;
  */
 public class OCacheLocator {
   public OCache primaryCache() {
-    return new ODefaultCache(null, CACHE_LEVEL1_SIZE.getValueAsInteger());
+    return createCache(CACHE_LEVEL1_IMPL.getValueAsString(), null, CACHE_LEVEL1_SIZE.getValueAsInteger(),
+        CACHE_LEVEL1_MAX_MEMORY.getValueAsLong());
   }
 
   public OCache secondaryCache(final String iStorageName) {
-    String cacheClassName = CACHE_LEVEL2_IMPL.getValueAsString();
+    return createCache(CACHE_LEVEL2_IMPL.getValueAsString(), iStorageName, CACHE_LEVEL2_SIZE.getValueAsInteger(),
+        CACHE_LEVEL2_MAX_MEMORY.getValueAsLong());
+  }
+
+  private OCache createCache(final String cacheClassName, final String iStorageName, final int iLimit, final long iMaxMemory) {
     try {
       Class<?> cacheClass = findByCanonicalName(cacheClassName);
       checkThatImplementsCacheInterface(cacheClass);
-      Constructor<?> cons = getPublicConstructorWithLimitParameter(cacheClass);
 
-      return (OCache) cons.newInstance(iStorageName, CACHE_LEVEL2_SIZE.getValueAsInteger());
+      try {
+        // IMPLEMENTATIONS SIZED IN BYTES
+        return (OCache) cacheClass.getConstructor(String.class, int.class, long.class).newInstance(iStorageName, iLimit, iMaxMemory);
+      } catch (NoSuchMethodException e) {
+        Constructor<?> cons = getPublicConstructorWithLimitParameter(cacheClass);
+        return (OCache) cons.newInstance(iStorageName, iLimit);
+      }
     } catch (Exception e) {
       OLogManager.instance().error(this,
           "Cannot initialize cache with implementation class [%s]. %s. Using default implementation [%s]", cacheClassName,
           e.getMessage(), ODefaultCache.class.getCanonicalName());
     }
-    return new ODefaultCache(null, CACHE_LEVEL2_SIZE.getValueAsInteger());
+    return new ODefaultCache(null, iLimit);
   }
 
   private void checkThatImplementsCacheInterface(final Class<?> cacheClass) {
@@ -0,0 +1,567 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Concurrent implementation of {@link OCache}. Records are spread across independently locked segments, so threads working on
+ * different records don't contend. Each segment follows the W-TinyLFU policy:
+ * <ul>
+ * <li>new records enter a small LRU window (1% of the capacity)</li>
+ * <li>records leaving the window are admitted to the main area only if accessed more often than the record they would evict, as
+ * estimated by a {@link OFrequencySketch}. This way a large scan can't push the hot records out</li>
+ * <li>the main area is a segmented LRU: records accessed again move from the probation to the protected part</li>
+ * </ul>
+ * The capacity is expressed in bytes when a maximum memory is set, estimating each record as its serialized size plus a fixed
+ * overhead, otherwise in number of records.
+ *
+ * @author agent
+ */
+public class OConcurrentCache implements OCache {
+  private static final int              ENTRY_OVERHEAD     = 128;
+  private static final int              MIN_SEGMENT_WEIGHT = 64;
+  private static final int              MAX_SEGMENTS       = 64;
+
+  private static final byte             WINDOW             = 0;
+  private static final byte             PROBATION          = 1;
+  private static final byte             PROTECTED          = 2;
+
+  private final String                  name;
+  private final int                     limit;
+  private final boolean                 weighByMemory;
+  private final Segment[]               segments;
+  private final int                     segmentMask;
+  private final AtomicBoolean           enabled            = new AtomicBoolean(false);
+  private String                        profilerPrefix;
+
+  protected OMemoryWatchDog.Listener    lowMemoryListener;
+
+  private static final class Entry {
+    private final ORID         key;
+    private final int          hash;
+    private ORecordInternal<?> record;
+    private int                weight;
+    private byte               queue;
+    private Entry              prev;
+    private Entry              next;
+
+    private Entry(final ORID iKey, final int iHash) {
+      key = iKey;
+      hash = iHash;
+    }
+  }
+
+  /**
+   * Doubly linked list of entries, from the least to the most recently used.
+   */
+  private static final class Queue {
+    private final Entry head = new Entry(null, 0);
+    private long        weight;
+
+    private Queue() {
+      head.prev = head.next = head;
+    }
+
+    private boolean isEmpty() {
+      return head.next == head;
+    }
+
+    private Entry first() {
+      return head.next;
+    }
+
+    private Entry last() {
+      return head.prev;
+    }
+
+    private void addLast(final Entry iEntry) {
+      iEntry.prev = head.prev;
+      iEntry.next = head;
+      head.prev.next = iEntry;
+      head.prev = iEntry;
+      weight += iEntry.weight;
+    }
+
+    private void remove(final Entry iEntry) {
+      iEntry.prev.next = iEntry.next;
+      iEntry.next.prev = iEntry.prev;
+      iEntry.prev = iEntry.next = null;
+      weight -= iEntry.weight;
+    }
+
+    private void clear() {
+      head.prev = head.next = head;
+      weight = 0;
+    }
+  }
+
+  @SuppressWarnings("serial")
+  private final class Segment extends ReentrantLock {
+    private final HashMap<ORID, Entry> map            = new HashMap<ORID, Entry>();
+    private final Queue                window         = new Queue();
+    private final Queue                probation      = new Queue();
+    private final Queue                protectedQueue = new Queue();
+    private final OFrequencySketch     sketch;
+    private final long                 maxWeight;
+    private final long                 maxWindowWeight;
+    private final long                 maxProtectedWeight;
+
+    private volatile int               size;
+    private long                       hits;
+    private long                       misses;
+    private long                       evictions;
+
+    private Segment(final long iMaxWeight, final int iExpectedEntries) {
+      maxWeight = iMaxWeight;
+      maxWindowWeight = Math.max(1, iMaxWeight / 100);
+      maxProtectedWeight = (iMaxWeight - maxWindowWeight) * 8 / 10;
+      sketch = new OFrequencySketch(iExpectedEntries);
+    }
+
+    private ORecordInternal<?> get(final ORID iId, final int iHash) {
+      lock();
+      try {
+        sketch.increment(iHash);
+
+        final Entry entry = map.get(iId);
+        if (entry == null) {
+          misses++;
+          return null;
+        }
+
+        hits++;
+        onAccess(entry);
+        return entry.record;
+      } finally {
+        unlock();
+      }
+    }
+
+    private ORecordInternal<?> put(final ORID iId, final int iHash, final ORecordInternal<?> iRecord) {
+      lock();
+      try {
+        sketch.increment(iHash);
+
+        final int weight = weigh(iRecord);
+        Entry entry = map.get(iId);
+        if (entry != null) {
+          final ORecordInternal<?> previous = entry.record;
+          queueOf(entry).remove(entry);
+          entry.record = iRecord;
+          entry.weight = weight;
+          queueOf(entry).addLast(entry);
+          onAccess(entry);
+          evict();
+          return previous;
+        }
+
+        entry = new Entry(iId, iHash);
+        entry.record = iRecord;
+        entry.weight = weight;
+        entry.queue = WINDOW;
+        window.addLast(entry);
+        map.put(iId, entry);
+        size = map.size();
+
+        if (size > sketch.width())
+          sketch.resize(size << 1);
+
+        evict();
+        return null;
+      } finally {
+        unlock();
+      }
+    }
+
+    private ORecordInternal<?> remove(final ORID iId) {
+      lock();
+      try {
+        final Entry entry = map.remove(iId);
+        if (entry == null)
+          return null;
+
+        queueOf(entry).remove(entry);
+        size = map.size();
+        return entry.record;
+      } finally {
+        unlock();
+      }
+    }
+
+    private void clear() {
+      lock();
+      try {
+        map.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        sketch.clear();
+        size = 0;
+      } finally {
+        unlock();
+      }
+    }
+
+    private void keys(final Collection<ORID> iKeys) {
+      lock();
+      try {
+        iKeys.addAll(map.keySet());
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Evicts the passed percentage of the entries, starting from the less valuable ones.
+     */
+    private void shrink(final float iPercentage) {
+      lock();
+      try {
+        int toEvict = (int) Math.ceil(map.size() * iPercentage);
+        final Queue[] queues = { window, probation, protectedQueue };
+        for (Queue queue : queues)
+          while (toEvict > 0 && !queue.isEmpty()) {
+            evict(queue.first());
+            toEvict--;
+          }
+      } finally {
+        unlock();
+      }
+    }
+
+    private void onAccess(final Entry iEntry) {
+      if (iEntry.queue == PROBATION) {
+        // ACCESSED AGAIN: PROMOTE TO THE PROTECTED AREA
+        probation.remove(iEntry);
+        iEntry.queue = PROTECTED;
+        protectedQueue.addLast(iEntry);
+
+        while (protectedQueue.weight > maxProtectedWeight && protectedQueue.first() != iEntry) {
+          final Entry demoted = protectedQueue.first();
+          protectedQueue.remove(demoted);
+          demoted.queue = PROBATION;
+          probation.addLast(demoted);
+        }
+      } else {
+        // MOVE TO THE MOST RECENTLY USED POSITION
+        final Queue queue = queueOf(iEntry);
+        queue.remove(iEntry);
+        queue.addLast(iEntry);
+      }
+    }
+
+    private void evict() {
+      if (maxWeight <= 0)
+        return;
+
+      // RECORDS LEAVING THE WINDOW COMPETE WITH THE LEAST VALUABLE RECORD OF THE MAIN AREA
+      while (window.weight > maxWindowWeight) {
+        final Entry candidate = window.first();
+        window.remove(candidate);
+        candidate.queue = PROBATION;
+        probation.addLast(candidate);
+
+        if (totalWeight() > maxWeight) {
+          final Entry victim = probation.first() != candidate ? probation.first() : null;
+          if (victim == null || sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash))
+            evict(candidate);
+          else
+            evict(victim);
+        }
+      }
+
+      while (totalWeight() > maxWeight) {
+        if (!probation.isEmpty())
+          evict(probation.first());
+        else if (!protectedQueue.isEmpty())
+          evict(protectedQueue.first());
+        else if (window.first() != window.last())
+          evict(window.first());
+        else
+          // KEEP AT LEAST THE LAST RECORD
+          break;
+      }
+    }
+
+    private void evict(final Entry iEntry) {
+      queueOf(iEntry).remove(iEntry);
+      map.remove(iEntry.key);
+      size = map.size();
+      evictions++;
+    }
+
+    private long totalWeight() {
+      return window.weight + probation.weight + protectedQueue.weight;
+    }
+
+    private Queue queueOf(final Entry iEntry) {
+      switch (iEntry.queue) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      default:
+        return protectedQueue;
+      }
+    }
+  }
+
+  public OConcurrentCache(final String iName, final int iLimit) {
+    this(iName, iLimit, -1);
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param iName
+   *          name of the storage, used to register the profiler metrics. Can be null
+   * @param iLimit
+   *          maximum number of records, -1 means no limit. Ignored if the maximum memory is set
+   * @param iMaxMemory
+   *          maximum memory in bytes, -1 means no limit
+   */
+  public OConcurrentCache(final String iName, final int iLimit, final long iMaxMemory) {
+    name = iName;
+    limit = iLimit;
+    weighByMemory = iMaxMemory > 0;
+
+    final long maxWeight = weighByMemory ? iMaxMemory : iLimit;
+    final long minSegmentWeight = weighByMemory ? MIN_SEGMENT_WEIGHT * ENTRY_OVERHEAD : MIN_SEGMENT_WEIGHT;
+
+    int segmentCount = 1;
+    while (segmentCount < Runtime.getRuntime().availableProcessors() * 4 && segmentCount < MAX_SEGMENTS)
+      segmentCount <<= 1;
+    if (maxWeight > 0)
+      while (segmentCount > 1 && maxWeight / segmentCount < minSegmentWeight)
+        segmentCount >>= 1;
+
+    segments = new Segment[segmentCount];
+    segmentMask = segmentCount - 1;
+
+    final long segmentWeight = maxWeight > 0 ? Math.max(1, maxWeight / segmentCount) : -1;
+    final int expectedEntries = (int) Math.min(1 << 20, segmentWeight > 0 ? (weighByMemory ? segmentWeight / 1024 : segmentWeight)
+        : 1024);
+    for (int i = 0; i < segmentCount; ++i)
+      segments[i] = new Segment(segmentWeight, expectedEntries);
+  }
+
+  public void startup() {
+    lowMemoryListener = Orient.instance().getMemoryWatchDog().addListener(new OLowMemoryListener());
+    registerProfilerHooks();
+    enable();
+  }
+
+  public void shutdown() {
+    Orient.instance().getMemoryWatchDog().removeListener(lowMemoryListener);
+    unregisterProfilerHooks();
+    disable();
+  }
+
+  public boolean isEnabled() {
+    return enabled.get();
+  }
+
+  public boolean enable() {
+    return enabled.compareAndSet(false, true);
+  }
+
+  public boolean disable() {
+    clear();
+    return enabled.compareAndSet(true, false);
+  }
+
+  public ORecordInternal<?> get(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final int hash = ORecordId.spreadHash(id);
+    return segmentFor(hash).get(id, hash);
+  }
+
+  public ORecordInternal<?> put(final ORecordInternal<?> record) {
+    if (!isEnabled())
+      return null;
+
+    final ORID id = record.getIdentity();
+    final int hash = ORecordId.spreadHash(id);
+    return segmentFor(hash).put(id, hash, record);
+  }
+
+  public ORecordInternal<?> remove(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    return segmentFor(ORecordId.spreadHash(id)).remove(id);
+  }
+
+  public void clear() {
+    if (!isEnabled())
+      return;
+
+    for (Segment s : segments)
+      s.clear();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment s : segments)
+      size += s.size;
+    return size;
+  }
+
+  public int limit() {
+    return limit;
+  }
+
+  public Collection<ORID> keys() {
+    final List<ORID> keys = new ArrayList<ORID>(size());
+    for (Segment s : segments)
+      s.keys(keys);
+    return keys;
+  }
+
+  public void lock(final ORID id) {
+    segmentFor(ORecordId.spreadHash(id)).lock();
+  }
+
+  public void unlock(final ORID id) {
+    segmentFor(ORecordId.spreadHash(id)).unlock();
+  }
+
+  public long getHits() {
+    long total = 0;
+    for (Segment s : segments) {
+      s.lock();
+      try {
+        total += s.hits;
+      } finally {
+        s.unlock();
+      }
+    }
+    return total;
+  }
+
+  public long getMisses() {
+    long total = 0;
+    for (Segment s : segments) {
+      s.lock();
+      try {
+        total += s.misses;
+      } finally {
+        s.unlock();
+      }
+    }
+    return total;
+  }
+
+  public long getEvictions() {
+    long total = 0;
+    for (Segment s : segments) {
+      s.lock();
+      try {
+        total += s.evictions;
+      } finally {
+        s.unlock();
+      }
+    }
+    return total;
+  }
+
+  private int weigh(final ORecordInternal<?> iRecord) {
+    return weighByMemory ? ENTRY_OVERHEAD + iRecord.getSize() : 1;
+  }
+
+  private Segment segmentFor(final int iHash) {
+    return segments[(iHash >>> 16) & segmentMask];
+  }
+
+  /**
+   * Exposes the counters to the profiler. The values are summed only when the profiler reads them, so the hot path only updates
+   * fields of the segment it already holds locked. The level-1 caches have no name and aren't registered.
+   */
+  private void registerProfilerHooks() {
+    if (name == null)
+      return;
+
+    profilerPrefix = "db." + name + ".cache.concurrent.";
+    final String metadataPrefix = "db.*.cache.concurrent.";
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "hits", "Records found in cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getHits();
+          }
+        }, metadataPrefix + "hits");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "misses", "Records not found in cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getMisses();
+          }
+        }, metadataPrefix + "misses");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "evictions", "Records evicted from cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getEvictions();
+          }
+        }, metadataPrefix + "evictions");
+  }
+
+  private void unregisterProfilerHooks() {
+    if (profilerPrefix == null)
+      return;
+
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "hits");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "misses");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "evictions");
+    profilerPrefix = null;
+  }
+
+  class OLowMemoryListener implements OMemoryWatchDog.Listener {
+    public void memoryUsageLow(final long freeMemory, final long freeMemoryPercentage) {
+      try {
+        final int oldSize = size();
+        if (oldSize == 0)
+          return;
+
+        final float percentage = freeMemoryPercentage < 10 ? 1f : 0.1f;
+        for (Segment s : segments)
+          s.shrink(percentage);
+
+        OLogManager.instance().debug(this, "Low memory (%d%%): reducing cached records number from %d to %d",
+            freeMemoryPercentage, oldSize, size());
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error occurred during concurrent cache cleanup", e);
+      }
+    }
+  }
+}
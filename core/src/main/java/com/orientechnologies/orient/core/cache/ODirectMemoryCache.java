@@ -0,0 +1,634 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * {@link OCache} implementation that keeps the records out of the Java heap. Only the serialized content of the record is stored,
+ * together with its identity, version and type, in memory allocated through {@link ODirectMemory}. Also the hash index of the
+ * RIDs lives there, so the heap doesn't grow with the size of the cache and the GC never scans the cached records. A record is
+ * deserialized on every hit into a new instance.<br/>
+ * <br/>
+ * Records are spread across independently locked segments. Each segment has an open addressing table of pointers to the entries
+ * and evicts the least recently used records once the memory or the number of records is over its share of the limit. Useful as
+ * level-2 cache: set "cache.level2.impl" to this class and "cache.level2.maxMemory" to the bytes to use.
+ *
+ * @author agent
+ */
+public class ODirectMemoryCache implements OCache {
+  private static final int     MAX_SEGMENTS       = 64;
+  private static final int     MIN_SEGMENT_MEMORY = 1024 * 1024;
+  private static final int     INITIAL_CAPACITY   = 1024;
+
+  // ENTRY LAYOUT: PREV AND NEXT IN LRU ORDER, HASH, ALLOCATED SIZE, RID/VERSION/CONTENT LENGTHS, RECORD TYPE, THEN THE BYTES
+  private static final int     PREV_OFFSET        = 0;
+  private static final int     NEXT_OFFSET        = 8;
+  private static final int     HASH_OFFSET        = 16;
+  private static final int     SIZE_OFFSET        = 20;
+  private static final int     RID_LENGTH_OFFSET  = 24;
+  private static final int     VER_LENGTH_OFFSET  = 26;
+  private static final int     TYPE_OFFSET        = 28;
+  private static final int     CONTENT_LEN_OFFSET = 29;
+  private static final int     HEADER_SIZE        = 33;
+
+  private final ODirectMemory  memory;
+  private final String         name;
+  private final int            limit;
+  private final Segment[]      segments;
+  private final int            segmentMask;
+  private final AtomicBoolean  enabled            = new AtomicBoolean(false);
+  private String               profilerPrefix;
+
+  @SuppressWarnings("serial")
+  private final class Segment extends ReentrantLock {
+    private final long maxMemory;
+    private final int  maxEntries;
+
+    private long       table;
+    private int        capacity;
+    private int        threshold;
+    private volatile int size;
+    private volatile long usedMemory;
+
+    // MOST AND LEAST RECENTLY USED ENTRIES
+    private long       head;
+    private long       tail;
+
+    private long       hits;
+    private long       misses;
+    private long       evictions;
+
+    private Segment(final long iMaxMemory, final int iMaxEntries) {
+      maxMemory = iMaxMemory;
+      maxEntries = iMaxEntries;
+    }
+
+    private ORecordInternal<?> get(final ORID iId, final byte[] iKey, final int iHash) {
+      lock();
+      try {
+        final int slot = find(iKey, iHash);
+        if (slot < 0) {
+          misses++;
+          return null;
+        }
+
+        hits++;
+        final long entry = memory.getLong(slotPointer(slot));
+        moveToHead(entry);
+        return read(iId, entry);
+      } finally {
+        unlock();
+      }
+    }
+
+    private void put(final byte[] iKey, final int iHash, final byte[] iVersion, final byte iType, final byte[] iContent) {
+      lock();
+      try {
+        final int entrySize = HEADER_SIZE + iKey.length + iVersion.length + iContent.length;
+        if (maxMemory > 0 && entrySize > maxMemory) {
+          // TOO BIG TO BE CACHED
+          remove(iKey, iHash);
+          return;
+        }
+
+        final long entry = memory.allocate(entrySize);
+        if (entry == ODirectMemory.NULL_POINTER) {
+          remove(iKey, iHash);
+          return;
+        }
+
+        memory.setInt(entry + HASH_OFFSET, iHash);
+        memory.setInt(entry + SIZE_OFFSET, entrySize);
+        memory.setShort(entry + RID_LENGTH_OFFSET, (short) iKey.length);
+        memory.setShort(entry + VER_LENGTH_OFFSET, (short) iVersion.length);
+        memory.setByte(entry + TYPE_OFFSET, iType);
+        memory.setInt(entry + CONTENT_LEN_OFFSET, iContent.length);
+
+        long pointer = entry + HEADER_SIZE;
+        memory.set(pointer, iKey, iKey.length);
+        pointer += iKey.length;
+        memory.set(pointer, iVersion, iVersion.length);
+        pointer += iVersion.length;
+        memory.set(pointer, iContent, iContent.length);
+
+        if (table == ODirectMemory.NULL_POINTER)
+          allocateTable(INITIAL_CAPACITY);
+
+        final int slot = find(iKey, iHash);
+        if (slot >= 0) {
+          // REPLACE THE OLD ENTRY
+          final long old = memory.getLong(slotPointer(slot));
+          unlink(old);
+          free(old);
+          memory.setLong(slotPointer(slot), entry);
+        } else {
+          memory.setLong(slotPointer(-slot - 1), entry);
+          size++;
+        }
+
+        usedMemory += entrySize;
+        linkAtHead(entry);
+
+        if (size > threshold)
+          allocateTable(capacity << 1);
+
+        evict();
+      } finally {
+        unlock();
+      }
+    }
+
+    private ORecordInternal<?> remove(final ORID iId, final byte[] iKey, final int iHash) {
+      lock();
+      try {
+        final int slot = find(iKey, iHash);
+        if (slot < 0)
+          return null;
+
+        final long entry = memory.getLong(slotPointer(slot));
+        final ORecordInternal<?> record = read(iId, entry);
+        removeSlot(slot);
+        return record;
+      } finally {
+        unlock();
+      }
+    }
+
+    private void remove(final byte[] iKey, final int iHash) {
+      final int slot = find(iKey, iHash);
+      if (slot >= 0)
+        removeSlot(slot);
+    }
+
+    private void clear() {
+      lock();
+      try {
+        long entry = head;
+        while (entry != ODirectMemory.NULL_POINTER) {
+          final long next = memory.getLong(entry + NEXT_OFFSET);
+          memory.free(entry);
+          entry = next;
+        }
+        head = tail = ODirectMemory.NULL_POINTER;
+
+        if (table != ODirectMemory.NULL_POINTER) {
+          memory.free(table);
+          table = ODirectMemory.NULL_POINTER;
+        }
+        capacity = threshold = 0;
+        size = 0;
+        usedMemory = 0;
+      } finally {
+        unlock();
+      }
+    }
+
+    private void keys(final Collection<ORID> iKeys) {
+      lock();
+      try {
+        for (long entry = head; entry != ODirectMemory.NULL_POINTER; entry = memory.getLong(entry + NEXT_OFFSET))
+          iKeys.add(new ORecordId().fromStream(memory.get(entry + HEADER_SIZE, memory.getShort(entry + RID_LENGTH_OFFSET))));
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Returns the slot of the key, or -(free slot + 1) if not found. The hash is compared before the bytes of the RID, so only the
+     * right entry is usually read.
+     */
+    private int find(final byte[] iKey, final int iHash) {
+      if (table == ODirectMemory.NULL_POINTER)
+        return -1;
+
+      final int mask = capacity - 1;
+      int slot = iHash & mask;
+      while (true) {
+        final long entry = memory.getLong(slotPointer(slot));
+        if (entry == ODirectMemory.NULL_POINTER)
+          return -slot - 1;
+
+        if (memory.getInt(entry + HASH_OFFSET) == iHash && memory.getShort(entry + RID_LENGTH_OFFSET) == iKey.length
+            && Arrays.equals(memory.get(entry + HEADER_SIZE, iKey.length), iKey))
+          return slot;
+
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    /**
+     * Frees the entry in the slot and shifts back the following entries of the same cluster of slots, so the table doesn't need
+     * tombstones.
+     */
+    private void removeSlot(int iSlot) {
+      final long entry = memory.getLong(slotPointer(iSlot));
+      unlink(entry);
+      free(entry);
+      size--;
+
+      final int mask = capacity - 1;
+      int next = iSlot;
+      while (true) {
+        next = (next + 1) & mask;
+        final long moving = memory.getLong(slotPointer(next));
+        if (moving == ODirectMemory.NULL_POINTER)
+          break;
+
+        final int home = memory.getInt(moving + HASH_OFFSET) & mask;
+        // MOVE IT ONLY IF ITS HOME SLOT IS NOT BETWEEN THE HOLE AND ITS CURRENT POSITION
+        if (iSlot <= next ? (home <= iSlot || home > next) : (home <= iSlot && home > next)) {
+          memory.setLong(slotPointer(iSlot), moving);
+          iSlot = next;
+        }
+      }
+      memory.setLong(slotPointer(iSlot), ODirectMemory.NULL_POINTER);
+    }
+
+    private void allocateTable(final int iCapacity) {
+      final long newTable = memory.allocate((long) iCapacity * 8);
+      if (newTable == ODirectMemory.NULL_POINTER)
+        throw new OutOfMemoryError("Cannot allocate the index of the direct memory cache");
+
+      for (int i = 0; i < iCapacity; ++i)
+        memory.setLong(newTable + i * 8L, ODirectMemory.NULL_POINTER);
+
+      final long oldTable = table;
+      final int oldCapacity = capacity;
+
+      table = newTable;
+      capacity = iCapacity;
+      threshold = iCapacity * 3 / 4;
+
+      if (oldTable != ODirectMemory.NULL_POINTER) {
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; ++i) {
+          final long entry = memory.getLong(oldTable + i * 8L);
+          if (entry == ODirectMemory.NULL_POINTER)
+            continue;
+
+          int slot = memory.getInt(entry + HASH_OFFSET) & mask;
+          while (memory.getLong(slotPointer(slot)) != ODirectMemory.NULL_POINTER)
+            slot = (slot + 1) & mask;
+          memory.setLong(slotPointer(slot), entry);
+        }
+        memory.free(oldTable);
+      }
+    }
+
+    private void evict() {
+      while (size > 1 && ((maxMemory > 0 && usedMemory > maxMemory) || (maxEntries > 0 && size > maxEntries))) {
+        final long victim = tail;
+        final int length = memory.getShort(victim + RID_LENGTH_OFFSET);
+        remove(memory.get(victim + HEADER_SIZE, length), memory.getInt(victim + HASH_OFFSET));
+        evictions++;
+      }
+    }
+
+    private ORecordInternal<?> read(final ORID iId, final long iEntry) {
+      final int ridLength = memory.getShort(iEntry + RID_LENGTH_OFFSET);
+      final int versionLength = memory.getShort(iEntry + VER_LENGTH_OFFSET);
+      final int contentLength = memory.getInt(iEntry + CONTENT_LEN_OFFSET);
+
+      final long versionPointer = iEntry + HEADER_SIZE + ridLength;
+      final ORecordVersion version = OVersionFactory.instance().createVersion();
+      version.fromStream(memory.get(versionPointer, versionLength));
+
+      final byte[] content = memory.get(versionPointer + versionLength, contentLength);
+
+      final ORecordInternal<?> record = Orient.instance().getRecordFactoryManager()
+          .newInstance(memory.getByte(iEntry + TYPE_OFFSET));
+      record.fill(iId, version, content, false);
+      return record;
+    }
+
+    private void free(final long iEntry) {
+      usedMemory -= memory.getInt(iEntry + SIZE_OFFSET);
+      memory.free(iEntry);
+    }
+
+    private void linkAtHead(final long iEntry) {
+      memory.setLong(iEntry + PREV_OFFSET, ODirectMemory.NULL_POINTER);
+      memory.setLong(iEntry + NEXT_OFFSET, head);
+      if (head != ODirectMemory.NULL_POINTER)
+        memory.setLong(head + PREV_OFFSET, iEntry);
+      head = iEntry;
+      if (tail == ODirectMemory.NULL_POINTER)
+        tail = iEntry;
+    }
+
+    private void unlink(final long iEntry) {
+      final long prev = memory.getLong(iEntry + PREV_OFFSET);
+      final long next = memory.getLong(iEntry + NEXT_OFFSET);
+
+      if (prev != ODirectMemory.NULL_POINTER)
+        memory.setLong(prev + NEXT_OFFSET, next);
+      else
+        head = next;
+
+      if (next != ODirectMemory.NULL_POINTER)
+        memory.setLong(next + PREV_OFFSET, prev);
+      else
+        tail = prev;
+    }
+
+    private void moveToHead(final long iEntry) {
+      if (head == iEntry)
+        return;
+      unlink(iEntry);
+      linkAtHead(iEntry);
+    }
+
+    private long slotPointer(final int iSlot) {
+      return table + iSlot * 8L;
+    }
+  }
+
+  public ODirectMemoryCache(final String iName, final int iLimit) {
+    this(iName, iLimit, -1);
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param iName
+   *          name of the storage, used to register the profiler metrics. Can be null
+   * @param iLimit
+   *          maximum number of records, -1 means no limit
+   * @param iMaxMemory
+   *          maximum off-heap memory in bytes used by the records, -1 means no limit
+   * @throws IllegalStateException
+   *           if direct memory is not available on this JVM
+   */
+  public ODirectMemoryCache(final String iName, final int iLimit, final long iMaxMemory) {
+    memory = ODirectMemoryFactory.INSTANCE.directMemory();
+    if (memory == null)
+      throw new IllegalStateException("Direct memory is not available on this JVM");
+
+    name = iName;
+    limit = iLimit;
+
+    int segmentCount = 1;
+    while (segmentCount < Runtime.getRuntime().availableProcessors() * 4 && segmentCount < MAX_SEGMENTS)
+      segmentCount <<= 1;
+    if (iMaxMemory > 0)
+      while (segmentCount > 1 && iMaxMemory / segmentCount < MIN_SEGMENT_MEMORY)
+        segmentCount >>= 1;
+    if (iLimit > 0)
+      while (segmentCount > 1 && iLimit / segmentCount < INITIAL_CAPACITY)
+        segmentCount >>= 1;
+
+    segments = new Segment[segmentCount];
+    segmentMask = segmentCount - 1;
+
+    final long segmentMemory = iMaxMemory > 0 ? Math.max(1, iMaxMemory / segmentCount) : -1;
+    final int segmentEntries = iLimit > 0 ? Math.max(1, iLimit / segmentCount) : -1;
+    for (int i = 0; i < segmentCount; ++i)
+      segments[i] = new Segment(segmentMemory, segmentEntries);
+  }
+
+  public void startup() {
+    registerProfilerHooks();
+    enable();
+  }
+
+  public void shutdown() {
+    unregisterProfilerHooks();
+    disable();
+  }
+
+  public boolean isEnabled() {
+    return enabled.get();
+  }
+
+  public boolean enable() {
+    return enabled.compareAndSet(false, true);
+  }
+
+  public boolean disable() {
+    clear();
+    return enabled.compareAndSet(true, false);
+  }
+
+  /**
+   * Returns a new instance of the record deserialized from the cached content.
+   */
+  public ORecordInternal<?> get(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final byte[] key = id.toStream();
+    final int hash = hash(key);
+    return segmentFor(hash).get(id, key, hash);
+  }
+
+  /**
+   * Stores the serialized content of the record. The record instance is not kept, so the caller is free to change it.
+   *
+   * @return always null: the previous content is dropped without deserializing it
+   */
+  public ORecordInternal<?> put(final ORecordInternal<?> record) {
+    if (!isEnabled())
+      return null;
+
+    final byte[] key = record.getIdentity().toStream();
+    final int hash = hash(key);
+
+    final byte[] content;
+    try {
+      content = record.toStream();
+    } catch (Exception e) {
+      // NOT SERIALIZABLE OUTSIDE ITS DATABASE: DON'T CACHE IT
+      OLogManager.instance().debug(this, "Cannot serialize record %s for the direct memory cache", e, record.getIdentity());
+      segmentFor(hash).remove(record.getIdentity(), key, hash);
+      return null;
+    }
+
+    if (content == null) {
+      segmentFor(hash).remove(record.getIdentity(), key, hash);
+      return null;
+    }
+
+    segmentFor(hash).put(key, hash, record.getRecordVersion().toStream(), record.getRecordType(), content);
+    return null;
+  }
+
+  public ORecordInternal<?> remove(final ORID id) {
+    if (!isEnabled())
+      return null;
+
+    final byte[] key = id.toStream();
+    final int hash = hash(key);
+    return segmentFor(hash).remove(id, key, hash);
+  }
+
+  public void clear() {
+    for (Segment s : segments)
+      s.clear();
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment s : segments)
+      size += s.size;
+    return size;
+  }
+
+  public int limit() {
+    return limit;
+  }
+
+  public Collection<ORID> keys() {
+    final List<ORID> keys = new ArrayList<ORID>(size());
+    for (Segment s : segments)
+      s.keys(keys);
+    return keys;
+  }
+
+  public void lock(final ORID id) {
+    segmentFor(hash(id.toStream())).lock();
+  }
+
+  public void unlock(final ORID id) {
+    segmentFor(hash(id.toStream())).unlock();
+  }
+
+  /**
+   * Returns the off-heap bytes used by the cached records, excluding the hash index.
+   */
+  public long getUsedMemory() {
+    long total = 0;
+    for (Segment s : segments)
+      total += s.usedMemory;
+    return total;
+  }
+
+  public long getHits() {
+    long total = 0;
+    for (Segment s : segments) {
+      s.lock();
+      try {
+        total += s.hits;
+      } finally {
+        s.unlock();
+      }
+    }
+    return total;
+  }
+
+  public long getMisses() {
+    long total = 0;
+    for (Segment s : segments) {
+      s.lock();
+      try {
+        total += s.misses;
+      } finally {
+        s.unlock();
+      }
+    }
+    return total;
+  }
+
+  public long getEvictions() {
+    long total = 0;
+    for (Segment s : segments) {
+      s.lock();
+      try {
+        total += s.evictions;
+      } finally {
+        s.unlock();
+      }
+    }
+    return total;
+  }
+
+  private Segment segmentFor(final int iHash) {
+    return segments[(iHash >>> 16) & segmentMask];
+  }
+
+  private static int hash(final byte[] iKey) {
+    int h = 1;
+    for (byte b : iKey)
+      h = 31 * h + b;
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private void registerProfilerHooks() {
+    if (name == null)
+      return;
+
+    profilerPrefix = "db." + name + ".cache.directMemory.";
+    final String metadataPrefix = "db.*.cache.directMemory.";
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "hits", "Records found in cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getHits();
+          }
+        }, metadataPrefix + "hits");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "misses", "Records not found in cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getMisses();
+          }
+        }, metadataPrefix + "misses");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "evictions", "Records evicted from cache", METRIC_TYPE.COUNTER, new OProfilerHookValue() {
+          public Object getValue() {
+            return getEvictions();
+          }
+        }, metadataPrefix + "evictions");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "usedMemory", "Off-heap memory used by the cached records", METRIC_TYPE.SIZE,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return getUsedMemory();
+              }
+            }, metadataPrefix + "usedMemory");
+  }
+
+  private void unregisterProfilerHooks() {
+    if (profilerPrefix == null)
+      return;
+
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "hits");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "misses");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "evictions");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "usedMemory");
+    profilerPrefix = null;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.Arrays;
+
+/**
+ * Approximate access frequency of keys (count-min sketch). Every key is counted in 4 rows of small saturating counters and the
+ * estimate is the minimum among them. All the counters are halved every 10 x width increments, so the old popularity fades away.
+ * Not thread safe: the caller must synchronize the access.
+ *
+ * @author agent
+ */
+class OFrequencySketch {
+  private static final int   DEPTH     = 4;
+  private static final int   MAX_COUNT = 15;
+  private static final int[] SEEDS     = { 0x97cb3127, 0x5bd1e995, 0x27d4eb2f, 0x165667b1 };
+
+  private final byte[][]     rows      = new byte[DEPTH][];
+  private int                mask;
+  private int                additions;
+  private int                sampleSize;
+
+  OFrequencySketch(final int iExpectedKeys) {
+    resize(iExpectedKeys);
+  }
+
+  /**
+   * Resizes the sketch for the number of keys expected. The collected frequencies are kept, halved as by an aging: the index of a
+   * key in a row is made of the lowest bits of its hash, so a grown row repeats the old counters and a shrunk row takes the
+   * maximum of the old counters folded on the same index.
+   */
+  public void resize(final int iExpectedKeys) {
+    int width = 64;
+    while (width < iExpectedKeys && width < (1 << 24))
+      width <<= 1;
+
+    final int newMask = width - 1;
+    for (int i = 0; i < DEPTH; ++i) {
+      final byte[] oldRow = rows[i];
+      final byte[] newRow = new byte[width];
+      if (oldRow != null) {
+        if (width >= oldRow.length)
+          for (int j = 0; j < width; ++j)
+            newRow[j] = oldRow[j & mask];
+        else
+          for (int j = 0; j < oldRow.length; ++j)
+            if (oldRow[j] > newRow[j & newMask])
+              newRow[j & newMask] = oldRow[j];
+
+        for (int j = 0; j < width; ++j)
+          newRow[j] >>>= 1;
+      }
+      rows[i] = newRow;
+    }
+    mask = newMask;
+    additions >>>= 1;
+    sampleSize = 10 * width;
+    if (additions >= sampleSize)
+      reset();
+  }
+
+  public int width() {
+    return mask + 1;
+  }
+
+  public void increment(final int iHash) {
+    boolean added = false;
+    for (int i = 0; i < DEPTH; ++i) {
+      final int index = index(iHash, i);
+      if (rows[i][index] < MAX_COUNT) {
+        rows[i][index]++;
+        added = true;
+      }
+    }
+
+    if (added && ++additions >= sampleSize)
+      reset();
+  }
+
+  public int frequency(final int iHash) {
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < DEPTH; ++i)
+      frequency = Math.min(frequency, rows[i][index(iHash, i)]);
+    return frequency;
+  }
+
+  public void clear() {
+    for (byte[] row : rows)
+      Arrays.fill(row, (byte) 0);
+    additions = 0;
+  }
+
+  private void reset() {
+    for (byte[] row : rows)
+      for (int i = 0; i < row.length; ++i)
+        row[i] >>>= 1;
+    additions >>>= 1;
+  }
+
+  private int index(final int iHash, final int iRow) {
+    int h = (iHash ^ SEEDS[iRow]) * 0x9E3779B9;
+    h ^= h >>> 15;
+    return h & mask;
+  }
+}
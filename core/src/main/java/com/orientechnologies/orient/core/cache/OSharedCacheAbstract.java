@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.concurrent.Callable;
+
+import com.orientechnologies.common.concur.resource.OCloseable;
+import com.orientechnologies.common.profiler.OProfiler.METRIC_TYPE;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Base class of the caches shared by all the instances of a database, kept as resources of the storage. Counts hits and misses,
+ * published with the profiler, and keeps a version incremented by every {@link #clear()}: the items built before a clear must not
+ * be put in cache. The subclasses synchronize on the cache instance.
+ *
+ * @author agent
+ */
+public abstract class OSharedCacheAbstract implements OCloseable {
+  private final OGlobalConfiguration sizeSetting;
+  private final String               profilerPrefix;
+  private long                       version;
+  private long                       hits;
+  private long                       misses;
+
+  /**
+   * @param iDatabaseName
+   *          Name of the database, part of the names of the profiler metrics
+   * @param iCacheName
+   *          Name of the cache in the profiler metrics
+   * @param iSizeSetting
+   *          Setting of the maximum size of the cache, 0 disables it
+   * @param iDescriptions
+   *          Descriptions of the profiler metrics: hits, misses and current size
+   */
+  protected OSharedCacheAbstract(final String iDatabaseName, final String iCacheName, final OGlobalConfiguration iSizeSetting,
+      final String[] iDescriptions) {
+    sizeSetting = iSizeSetting;
+    profilerPrefix = "db." + iDatabaseName + "." + iCacheName + ".";
+    registerProfilerHooks("db.*." + iCacheName + ".", iDescriptions);
+  }
+
+  /**
+   * Returns the cache of the database, creating it the first time. The cache class must have a public constructor with the name of
+   * the database as argument.
+   */
+  protected static <T extends OSharedCacheAbstract> T getInstance(final OStorage iStorage, final Class<T> iClass) {
+    return iStorage.getResource(iClass.getSimpleName(), new Callable<T>() {
+      public T call() throws Exception {
+        return iClass.getConstructor(String.class).newInstance(iStorage.getName());
+      }
+    });
+  }
+
+  protected static boolean isEnabled(final OGlobalConfiguration iSizeSetting) {
+    return iSizeSetting.getValueAsInteger() > 0;
+  }
+
+  /**
+   * Removes all the items. Items built before the call are not put in cache.
+   */
+  public synchronized void clear() {
+    clearItems();
+    version++;
+  }
+
+  public abstract int getSize();
+
+  public synchronized long getVersion() {
+    return version;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public void close() {
+    clear();
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "hits");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "misses");
+    Orient.instance().getProfiler().unregisterHookValue(profilerPrefix + "current");
+  }
+
+  /**
+   * Removes all the items, called by {@link #clear()} with the lock of the cache.
+   */
+  protected abstract void clearItems();
+
+  protected int getMaxSize() {
+    return sizeSetting.getValueAsInteger();
+  }
+
+  protected synchronized void onHit() {
+    hits++;
+  }
+
+  protected synchronized void onMiss() {
+    misses++;
+  }
+
+  private void registerProfilerHooks(final String iMetadataPrefix, final String[] iDescriptions) {
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "hits", iDescriptions[0], METRIC_TYPE.COUNTER,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return getHits();
+              }
+            }, iMetadataPrefix + "hits");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "misses", iDescriptions[1], METRIC_TYPE.COUNTER,
+            new OProfilerHookValue() {
+              public Object getValue() {
+                return getMisses();
+              }
+            }, iMetadataPrefix + "misses");
+
+    Orient.instance().getProfiler()
+        .registerHookValue(profilerPrefix + "current", iDescriptions[2], METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          public Object getValue() {
+            return getSize();
+          }
+        }, iMetadataPrefix + "current");
+  }
+}
@@ -19,11 +19,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
+import com.orientechnologies.common.util.OCallable;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandExecutorAbstract;
@@ -41,7 +43,8 @@ import com.orientechnologies.orient.core.metadata.function.OFunction;
  * 
  */
 public class OCommandExecutorFunction extends OCommandExecutorAbstract {
-  protected OCommandFunction request;
+  private static final String PARAM_VARIABLE = "__param";
+  protected OCommandFunction  request;
 
   public OCommandExecutorFunction() {
   }
@@ -68,6 +71,27 @@ public class OCommandExecutorFunction extends OCommandExecutorAbstract {
 
     final OScriptManager scriptManager = Orient.instance().getScriptManager();
     final ScriptEngine scriptEngine = scriptManager.getEngine(f.getLanguage());
+
+    final CompiledScript compiledScript = getCompiledScript(db, scriptManager, scriptEngine, f, iArgs);
+    if (compiledScript != null) {
+      // EXECUTE THE LIBRARY AND THE INVOCATION COMPILED TOGETHER WITH BINDINGS OF ITS OWN
+      final Bindings binding = scriptManager.bind(compiledScript.getEngine().createBindings(), (ODatabaseRecordTx) db, iContext,
+          iArgs);
+      if (iArgs != null) {
+        // BIND EVERY ARGUMENT AS A VARIABLE: THE ENGINE CONVERTS IT AS IT DOES WITH THE ARGUMENTS OF AN INVOKED FUNCTION
+        int i = 0;
+        for (Object arg : iArgs.values())
+          binding.put(PARAM_VARIABLE + i++, arg);
+      }
+      try {
+        return compiledScript.eval(binding);
+      } catch (ScriptException e) {
+        throw new OCommandScriptException("Error on execution of the script", request.getText(), e.getColumnNumber(), e);
+      } finally {
+        scriptManager.unbind(binding);
+      }
+    }
+
     final Bindings binding = scriptManager.bind(scriptEngine.getBindings(ScriptContext.ENGINE_SCOPE), (ODatabaseRecordTx) db,
         iContext, iArgs);
 
@@ -111,6 +135,38 @@ public class OCommandExecutorFunction extends OCommandExecutorAbstract {
     }
   }
 
+  /**
+   * Returns the library of functions followed by the invocation of the function, compiled once for every number of arguments. The
+   * arguments are read from the variables bound at every execution, in the order of the arguments. The elements of the
+   * <code>params</code> array are not used because some engines don't convert them to native types, like strings.
+   * 
+   * @return The compiled script, or null if the engine cannot compile scripts or the cache is disabled
+   */
+  protected CompiledScript getCompiledScript(final ODatabaseRecord iDatabase, final OScriptManager iScriptManager,
+      final ScriptEngine iScriptEngine, final OFunction iFunction, final Map<Object, Object> iArgs) {
+    final int argCount = iArgs != null ? iArgs.size() : 0;
+
+    final OCallable<String, String> scriptText = new OCallable<String, String>() {
+      public String call(final String iKey) {
+        final Object[] args = new Object[argCount];
+        for (int i = 0; i < argCount; ++i)
+          args[i] = PARAM_VARIABLE + i;
+
+        final String lib = iScriptManager.getLibrary(iDatabase, iFunction.getLanguage());
+        final String invoke = iScriptManager.getFunctionInvoke(iFunction, args);
+        return lib != null ? lib + invoke : invoke;
+      }
+    };
+
+    try {
+      return OScriptCache.getInstance(iDatabase.getStorage()).getCompiledScript(iScriptEngine,
+          "function:" + iFunction.getName().toUpperCase() + ":" + argCount, scriptText);
+    } catch (ScriptException e) {
+      iScriptManager.getErrorMessage(e, scriptText.call(null));
+      return null;
+    }
+  }
+
   public boolean isIdempotent() {
     return false;
   }
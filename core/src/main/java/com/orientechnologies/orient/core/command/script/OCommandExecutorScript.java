@@ -23,6 +23,7 @@ import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
+import com.orientechnologies.common.util.OCallable;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandExecutorAbstract;
@@ -66,19 +67,26 @@ public class OCommandExecutorScript extends OCommandExecutorAbstract {
     CompiledScript compiledScript = request.getCompiledScript();
 
     if (compiledScript == null) {
-      ScriptEngine scriptEngine = scriptManager.getEngine(language);
-      // COMPILE FUNCTION LIBRARY
-      String lib = scriptManager.getLibrary(db, language);
-      if (lib == null)
-        lib = "";
+      final ScriptEngine scriptEngine = scriptManager.getEngine(language);
+      final ODatabaseRecord database = db;
+      final OCallable<String, String> scriptText = new OCallable<String, String>() {
+        public String call(final String iKey) {
+          // COMPILE FUNCTION LIBRARY
+          final String lib = scriptManager.getLibrary(database, language);
+          return lib != null ? lib + request.getText() : request.getText();
+        }
+      };
 
-      parserText = lib + parserText;
-
-      Compilable c = (Compilable) scriptEngine;
       try {
-        compiledScript = c.compile(parserText);
+        if (db != null)
+          // THE LIBRARY IS THE SAME UNTIL THE FUNCTIONS CHANGE: THE TEXT OF THE REQUEST IS ENOUGH AS KEY
+          compiledScript = OScriptCache.getInstance(db.getStorage()).getCompiledScript(scriptEngine,
+              language.toLowerCase() + ":" + request.getText(), scriptText);
+
+        if (compiledScript == null)
+          compiledScript = ((Compilable) scriptEngine).compile(scriptText.call(null));
       } catch (ScriptException e) {
-        scriptManager.getErrorMessage(e, lib);
+        scriptManager.getErrorMessage(e, scriptText.call(null));
       }
 
       request.setCompiledScript(compiledScript);
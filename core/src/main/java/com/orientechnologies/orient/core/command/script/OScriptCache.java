@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.command.script;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import com.orientechnologies.common.util.OCallable;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.cache.OSharedCacheAbstract;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Per database cache of compiled scripts. Scripts are compiled by the first engine that executes them and are bound to it: execute
+ * them with {@link CompiledScript#eval(javax.script.Bindings)} and bindings created by {@link CompiledScript#getEngine()}, or with
+ * the context of an engine of the same kind. The least recently used scripts are evicted when they exceed
+ * {@link OGlobalConfiguration#SCRIPT_CACHE_SIZE}. Scripts can include the library of stored functions, so the cache is cleared
+ * every time the function library changes.
+ * 
+ * @author agent
+ */
+public class OScriptCache extends OSharedCacheAbstract {
+  private final Map<String, CompiledScript> scripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true);
+  private final String                      databaseName;
+
+  public OScriptCache(final String iDatabaseName) {
+    super(iDatabaseName, "scriptCache", OGlobalConfiguration.SCRIPT_CACHE_SIZE, new String[] { "Scripts found compiled in cache",
+        "Scripts compiled because not found in cache", "Compiled scripts in cache" });
+    databaseName = iDatabaseName;
+  }
+
+  public static OScriptCache getInstance(final OStorage iStorage) {
+    return getInstance(iStorage, OScriptCache.class);
+  }
+
+  /**
+   * Removes the compiled scripts of the database after a change of the function library.
+   */
+  public static void invalidate(final OStorage iStorage) {
+    getInstance(iStorage).clear();
+  }
+
+  public static boolean isEnabled() {
+    return isEnabled(OGlobalConfiguration.SCRIPT_CACHE_SIZE);
+  }
+
+  /**
+   * Returns the compiled script cached with the key, compiling it the first time.
+   * 
+   * @param iEngine
+   *          Engine that compiles the script when it is not in cache
+   * @param iKey
+   *          Key of the script. The language must be part of the key
+   * @param iText
+   *          Builds the text of the script from the key, called only to compile it
+   * @return The compiled script, or null if the cache is disabled or the engine cannot compile scripts
+   * @throws ScriptException
+   *           On compilation error
+   */
+  public CompiledScript getCompiledScript(final ScriptEngine iEngine, final String iKey, final OCallable<String, String> iText)
+      throws ScriptException {
+    if (!isEnabled() || !(iEngine instanceof Compilable))
+      return null;
+
+    final long currentVersion;
+    synchronized (this) {
+      final CompiledScript script = scripts.get(iKey);
+      if (script != null) {
+        onHit();
+        return script;
+      }
+      onMiss();
+      currentVersion = getVersion();
+    }
+
+    // COMPILE OUTSIDE THE LOCK: CONCURRENT COMPILATIONS OF THE SAME SCRIPT KEEP THE LAST ONE
+    final long timer = Orient.instance().getProfiler().startChrono();
+    final CompiledScript script = ((Compilable) iEngine).compile(iText.call(iKey));
+    Orient.instance().getProfiler()
+        .stopChrono("db." + databaseName + ".script.compile", "Time to compile a script", timer, "db.*.script.compile");
+
+    synchronized (this) {
+      if (currentVersion == getVersion()) {
+        scripts.put(iKey, script);
+
+        if (scripts.size() > getMaxSize())
+          // EVICT THE LEAST RECENTLY USED SCRIPT
+          scripts.remove(scripts.keySet().iterator().next());
+      }
+    }
+    return script;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return scripts.size();
+  }
+
+  @Override
+  protected void clearItems() {
+    scripts.clear();
+  }
+}
@@ -27,7 +27,9 @@ import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.cache.OConcurrentCache;
 import com.orientechnologies.orient.core.cache.ODefaultCache;
+import com.orientechnologies.orient.core.cache.ODirectMemoryCache;
 import com.orientechnologies.orient.core.storage.fs.OMMapManagerOld;
 
 /**
@@ -62,12 +64,31 @@ public enum OGlobalConfiguration {
       + "this queue is used to accumulate all pages that "
       + "should be written to the disk and then flush them in batch mode to minimize random IO overhead.", Integer.class, 15000),
 
+  DISK_CACHE_CONCURRENT("storage.diskCache.concurrent", "Use a disk cache that loads pages of different threads in parallel "
+      + "and writes the evicted dirty pages in background, instead of the 2Q cache with a global lock", Boolean.class, false),
+
   DISK_PAGE_CACHE_LOCK_TIMEOUT("storage.diskPageCache.lockTimeOut",
       "Timeout till page lock will wait in case of multi threading operations", Integer.class, 1000),
 
   PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY("storage.lowestFreeListBound", "The minimal amount of free space (in kb)"
       + " in page which is tracked in paginated storage", Integer.class, 16),
 
+  USE_WAL("storage.useWAL", "Whether WAL should be used in paginated storage. Without WAL transactions are committed record by "
+      + "record and a failed commit is not reverted", Boolean.class, true),
+
+  WAL_MAX_SEGMENT_SIZE("storage.wal.maxSegmentSize", "Maximum size of single WAL segment in megabytes", Integer.class, 64),
+
+  WAL_MAX_SIZE("storage.wal.maxSize", "Maximum size of WAL on disk in megabytes, "
+      + "when this size is exceeded checkpoint is performed and log is truncated", Integer.class, 1024),
+
+  WAL_FSYNC_MODE("storage.wal.fsyncMode", "Policy of WAL flushes on commit: 'commit' - log is forced to the disk on every commit "
+      + "(commits which are executed concurrently share the same fsync), 'periodic' - log is written on commit "
+      + "but forced to the disk every storage.wal.fsyncInterval ms, 'none' - forcing of log is left to the OS", String.class,
+      "commit"),
+
+  WAL_FSYNC_INTERVAL("storage.wal.fsyncInterval", "Interval in milliseconds between WAL fsyncs in 'periodic' mode",
+      Integer.class, 100),
+
   USE_NODE_ID_CLUSTER_POSITION("storage.cluster.useNodeIdAsClusterPosition", "Indicates whether cluster position should be"
       + " treated as node id not as long value.", Boolean.class, Boolean.FALSE),
 
@@ -84,11 +105,22 @@ public enum OGlobalConfiguration {
   STORAGE_USE_TOMBSTONES("storage.useTombstones", "When record will be deleted its cluster"
       + " position will not be freed but tombstone will be placed instead", Boolean.class, false),
 
+  STORAGE_MEMORY_DIRECT("storage.memory.directMemory", "Keep the records and the clusters of memory databases out of the"
+      + " Java heap, in pages of direct memory. Ignored when direct memory is not available", Boolean.class, false),
+
   // CACHE
   CACHE_LEVEL1_ENABLED("cache.level1.enabled", "Use the level-1 cache", Boolean.class, true),
 
   CACHE_LEVEL1_SIZE("cache.level1.size", "Size of the cache that keeps the record in memory", Integer.class, -1),
 
+  CACHE_LEVEL1_IMPL("cache.level1.impl", "Actual implementation of primary cache", String.class, ODefaultCache.class
+      .getCanonicalName()),
+
+  CACHE_LEVEL1_MAX_MEMORY("cache.level1.maxMemory",
+      "Maximum memory in bytes of the primary cache, estimated from the record sizes. Supported only by "
+          + OConcurrentCache.class.getSimpleName() + ", where it takes precedence over the size. -1 means no limit", Long.class,
+      -1L),
+
   CACHE_LEVEL2_ENABLED("cache.level2.enabled", "Use the level-2 cache", Boolean.class, true),
 
   CACHE_LEVEL2_SIZE("cache.level2.size", "Size of the cache that keeps the record in memory", Integer.class, -1),
@@ -96,6 +128,11 @@ public enum OGlobalConfiguration {
   CACHE_LEVEL2_IMPL("cache.level2.impl", "Actual implementation of secondary cache", String.class, ODefaultCache.class
       .getCanonicalName()),
 
+  CACHE_LEVEL2_MAX_MEMORY("cache.level2.maxMemory",
+      "Maximum memory in bytes of the secondary cache. Supported only by " + OConcurrentCache.class.getSimpleName()
+          + ", which estimates it from the record sizes and ignores the size, and by " + ODirectMemoryCache.class.getSimpleName()
+          + ", which allocates it off-heap. -1 means no limit", Long.class, -1L),
+
   CACHE_LEVEL2_STRATEGY("cache.level2.strategy",
       "Strategy to use when a database requests a record: 0 = pop the record, 1 = copy the record", Integer.class, 0,
       new OConfigurationChangeCallback() {
@@ -122,6 +159,10 @@ public enum OGlobalConfiguration {
   DB_USE_DISTRIBUTED_VERSION("db.use.distributedVersion", "Use extended version that is safe in distributed environment",
       Boolean.class, Boolean.FALSE),
 
+  DB_DOCUMENT_SERIALIZER("db.document.serializer",
+      "Record format used to store documents of new databases. Existing databases keep the format they were created with. "
+          + "Supported values are 'ORecordDocument2csv' and 'ORecordDocument2binary'", String.class, "ORecordDocument2csv"),
+
   // SETTINGS OF NON-TRANSACTIONAL MODE
   NON_TX_RECORD_UPDATE_SYNCH("nonTX.recordUpdate.synch",
       "Executes a synch against the file-system at every record operation. This slows down records updates "
@@ -149,6 +190,36 @@ public enum OGlobalConfiguration {
   BLUEPRINTS_TX_MODE("blueprints.graph.txMode",
       "Transaction mode used in TinkerPop Blueprints implementation. 0 = Automatic (default), 1 = Manual", Integer.class, 0),
 
+  GRAPH_PATH_MAX_DEPTH("graph.path.maxDepth",
+      "Maximum number of edges of the paths searched by the dijkstra() and shortestPath() functions. -1 means no limit",
+      Integer.class, -1),
+
+  GRAPH_PATH_MAX_VISITED("graph.path.maxVisited",
+      "Maximum number of vertices visited by the dijkstra() and shortestPath() functions before giving up. -1 means no limit",
+      Integer.class, -1),
+
+  // QUERY
+  QUERY_PARALLEL_THREADS("query.parallel.threads",
+      "Number of threads scanning the clusters of SELECT ... PARALLEL queries", Integer.class, Runtime.getRuntime()
+          .availableProcessors()),
+
+  QUERY_PARALLEL_MIN_RANGE("query.parallel.minRange",
+      "Minimum number of records of the position ranges in which the clusters are split by SELECT ... PARALLEL queries",
+      Integer.class, 10000),
+
+  QUERY_PARALLEL_ORDERED("query.parallel.ordered", "Returns the records found by SELECT ... PARALLEL queries in the order of"
+      + " the sequential scan. When false the records are returned as soon as they are found", Boolean.class, true),
+
+  QUERY_INDEX_COST_BASED("query.index.costBased", "Chooses between full scan, single index and combinations of indexes by"
+      + " the estimated cost. When false the most specific index is always used", Boolean.class, true),
+
+  QUERY_STATEMENT_CACHE_SIZE("query.statementCache.size", "Maximum number of parsed SELECT statements kept per database to"
+      + " execute them again without parsing. 0 disables the cache", Integer.class, 500),
+
+  // SCRIPT
+  SCRIPT_CACHE_SIZE("script.cache.size", "Maximum number of compiled scripts, stored functions and Gremlin commands kept per"
+      + " database to execute them again without compiling. 0 disables the cache", Integer.class, 500),
+
   // INDEX
   HASH_TABLE_SPLIT_BUCKETS_BUFFER_LENGTH("hashTable.slitBucketsBuffer.length", "Length of buffer (in pages) where buckets "
       + "that were splited but not flushed to the disk are kept. This buffer is used to minimize random IO overhead.",
@@ -157,6 +228,19 @@ public enum OGlobalConfiguration {
   INDEX_AUTO_REBUILD_AFTER_NOTSOFTCLOSE("index.auto.rebuildAfterNotSoftClose",
       "Auto rebuild all automatic indexes after upon database open when wasn't closed properly", Boolean.class, true),
 
+  INDEX_REBUILD_BULK("index.rebuild.bulk", "Rebuilds automatic indexes by extracting the keys of the records with many threads,"
+      + " sorting them and putting them in the index in ascending order. When false the records are indexed one by one",
+      Boolean.class, true),
+
+  INDEX_REBUILD_THREADS("index.rebuild.threads", "Number of threads extracting the keys of the records on bulk rebuild of indexes",
+      Integer.class, Runtime.getRuntime().availableProcessors()),
+
+  INDEX_REBUILD_SORT_BUFFER("index.rebuild.sortBuffer", "Number of keys sorted in memory by every thread on bulk rebuild of"
+      + " indexes. Larger sets of keys are sorted in runs written to temporary files", Integer.class, 100000),
+
+  INDEX_REBUILD_MERGE_FILES("index.rebuild.mergeFiles", "Maximum number of temporary files read at the same time to merge the"
+      + " sorted keys on bulk rebuild of indexes. More files are merged in more passes", Integer.class, 64),
+
   INDEX_AUTO_LAZY_UPDATES(
       "index.auto.lazyUpdates",
       "Configure the TreeMaps for automatic indexes as buffered or not. -1 means buffered until tx.commit() or db.close() are called",
@@ -166,6 +250,12 @@ public enum OGlobalConfiguration {
       "Configure the TreeMaps for manual indexes as buffered or not. -1 means buffered until tx.commit() or db.close() are called",
       Integer.class, 1),
 
+  INDEX_STATISTICS_BUCKETS("index.statistics.buckets",
+      "Number of buckets of the histogram kept on the keys of the indexes to estimate the size of ranges", Integer.class, 64),
+
+  INDEX_STATISTICS_REFRESH_RATIO("index.statistics.refreshRatio",
+      "Ratio of index entries changed after which the statistics of the index are collected again", Float.class, 0.3f),
+
   // TREEMAP
   MVRBTREE_TIMEOUT("mvrbtree.timeout", "Maximum timeout to get lock against the OMVRB-Tree", Integer.class, 5000),
 
@@ -305,6 +395,35 @@ public enum OGlobalConfiguration {
 
   NETWORK_BINARY_DEBUG("network.binary.debug", "Debug mode: print all data incoming on the binary channel", Boolean.class, false),
 
+  NETWORK_BINARY_NIO_ENABLED("network.binary.nio.enabled",
+      "Serves binary connections with a few selector threads and a pool of workers instead of a thread per connection",
+      Boolean.class, false),
+
+  NETWORK_BINARY_NIO_IO_THREADS("network.binary.nio.ioThreads",
+      "Number of threads multiplexing the socket I/O of all the binary connections. Used only if network.binary.nio.enabled is true",
+      Integer.class, 2),
+
+  NETWORK_BINARY_NIO_WORKER_THREADS("network.binary.nio.workerThreads",
+      "Maximum number of threads executing binary requests. Used only if network.binary.nio.enabled is true", Integer.class, 32),
+
+  NETWORK_BINARY_NIO_WORKER_QUEUE("network.binary.nio.workerQueue",
+      "Maximum number of connections with pending requests waiting for a worker thread. When full the I/O threads stop reading",
+      Integer.class, 1024),
+
+  NETWORK_BINARY_NIO_MAX_BUFFERED("network.binary.nio.maxBuffered",
+      "Maximum bytes buffered per connection before the I/O threads suspend reading from its socket", Integer.class, 1048576),
+
+  NETWORK_BINARY_FETCH_MAX_RECORDS("network.binary.fetch.maxRecords",
+      "Maximum number of linked records sent to the client by a request with a fetch plan. The others are loaded by the client when used",
+      Integer.class, 10000),
+
+  NETWORK_BINARY_FETCH_MAX_BYTES("network.binary.fetch.maxBytes",
+      "Maximum bytes of linked records sent to the client by a request with a fetch plan. -1 means no limit", Integer.class, 16777216),
+
+  NETWORK_BINARY_LOAD_MAX_RECORDS("network.binary.load.maxRecords",
+      "Maximum number of records requested to the server by a single load of more records. Bigger loads are split in more requests, bigger requests are refused by the server",
+      Integer.class, 100),
+
   NETWORK_HTTP_MAX_CONTENT_LENGTH("network.http.maxLength", "TCP/IP max content length in bytes for HTTP requests", Integer.class,
       1000000),
 
@@ -360,6 +479,10 @@ public enum OGlobalConfiguration {
 
   CLIENT_CHANNEL_MAX_POOL("client.channel.maxPool", "Maximum channel pool size", Integer.class, 5),
 
+  CLIENT_CHANNEL_MAX_IN_FLIGHT("client.channel.maxInFlight",
+      "Requests waiting for a response on the same channel before a new channel is created, until the maximum pool size is reached",
+      Integer.class, 4),
+
   CLIENT_CONNECT_POOL_WAIT_TIMEOUT("client.connectionPool.waitTimeout",
       "Maximum time which client should wait connection from the pool", Integer.class, 5000),
 
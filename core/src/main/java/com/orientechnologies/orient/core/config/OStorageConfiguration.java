@@ -31,6 +31,7 @@ import com.orientechnologies.orient.core.id.OImmutableRecordId;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.version.OVersionFactory;
@@ -53,7 +54,7 @@ public class OStorageConfiguration implements OSerializableStream {
   public static final String                DEFAULT_TIMEZONE = "UTC";
   public static final String                DEFAULT_CHARSET  = "UTF-8";
 
-  public static final int                   CURRENT_VERSION  = 5;
+  public static final int                   CURRENT_VERSION  = 6;
 
   public int                                version          = -1;
   public String                             name;
@@ -67,6 +68,7 @@ public class OStorageConfiguration implements OSerializableStream {
   public String                             dateTimeFormat   = "yyyy-MM-dd HH:mm:ss";
   private TimeZone                          timeZone         = TimeZone.getTimeZone(DEFAULT_TIMEZONE);
   private String                            charset          = DEFAULT_CHARSET;
+  private String                            recordSerializer = OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.getValueAsString();
 
   public OStorageSegmentConfiguration       fileTemplate;
 
@@ -176,6 +178,12 @@ public class OStorageConfiguration implements OSerializableStream {
       charset = read(values[index++]);
     }
 
+    // @COMPATIBILTY 1.4.0: OLDER DATABASES ALWAYS STORE DOCUMENTS AS CSV
+    if (version >= 6)
+      recordSerializer = read(values[index++]);
+    else
+      recordSerializer = ORecordSerializerSchemaAware2CSV.NAME;
+
     // @COMPATIBILTY
     if (version > 1)
       index = phySegmentFromStream(values, index, fileTemplate);
@@ -280,6 +288,7 @@ public class OStorageConfiguration implements OSerializableStream {
 
     write(buffer, timeZone.getID());
     write(buffer, charset);
+    write(buffer, recordSerializer);
 
     phySegmentToStream(buffer, fileTemplate);
 
@@ -469,6 +478,17 @@ public class OStorageConfiguration implements OSerializableStream {
     this.charset = charset;
   }
 
+  /**
+   * Returns the name of the record serializer used to store the documents of this database.
+   */
+  public String getRecordSerializer() {
+    return recordSerializer;
+  }
+
+  public void setRecordSerializer(final String iRecordSerializer) {
+    recordSerializer = iRecordSerializer;
+  }
+
   public void setLocaleLanguage(final String iValue) {
     localeLanguage = iValue;
     localeInstance = null;
@@ -23,7 +23,11 @@ import java.util.WeakHashMap;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.metadata.security.OUser;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 
 /**
  * Factory to create high-level ODatabase instances. The global instance is managed by Orient class.
@@ -113,4 +117,43 @@ public class ODatabaseFactory {
   public ODatabaseDocumentTx createDocumentDatabase(final String url) {
     return new ODatabaseDocumentTx(url);
   }
+
+  /**
+   * Tells if {@link #openWorkerDatabase(ODatabaseRecord)} can open instances of a database. Only embedded storages can be opened
+   * without checking the password again: the parallel tasks on other storages must fall back to a single thread.
+   */
+  public boolean isWorkerDatabaseSupported(final ODatabaseRecord iOwner) {
+    return iOwner.getStorage() instanceof OStorageEmbedded;
+  }
+
+  /**
+   * Opens a new instance of a database for a thread working on behalf of another one, such as the workers of a parallel task:
+   * database instances are not thread safe, so every thread needs its own. The new instance shares the storage and acts as the
+   * user of the owner without checking the password again, with its own copy of the user. It's bound to the current thread and
+   * must be closed by it.
+   * 
+   * @param iOwner
+   *          Database of the thread that started the work, on an embedded storage
+   * @see #isWorkerDatabaseSupported(ODatabaseRecord)
+   */
+  public ODatabaseDocumentTx openWorkerDatabase(final ODatabaseRecord iOwner) {
+    if (!isWorkerDatabaseSupported(iOwner))
+      throw new ODatabaseException("Cannot open a worker instance of the database " + iOwner.getName()
+          + ": supported only by embedded storages");
+
+    final OUser user = iOwner.getUser();
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(iOwner.getURL());
+
+    // THE OWNER ALREADY AUTHENTICATED THE USER: OPEN WITHOUT SECURITY, THEN RESTORE IT FOR THE SAME USER
+    db.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+    db.open(user != null ? user.getName() : OUser.ADMIN, "");
+    db.setProperty(ODatabase.OPTIONS.SECURITY.toString(), null);
+    db.getMetadata().load();
+    if (user != null)
+      // USER INSTANCES ARE NOT THREAD SAFE: READ IT AGAIN FOR THIS DATABASE
+      db.setUser(db.getMetadata().getSecurity().getUser(user.getName()));
+    else
+      db.setUser(null);
+    return db;
+  }
 }
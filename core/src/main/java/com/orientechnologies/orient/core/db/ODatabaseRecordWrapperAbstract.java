@@ -15,7 +15,9 @@
  */
 package com.orientechnologies.orient.core.db;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandRequest;
@@ -216,6 +218,15 @@ public abstract class ODatabaseRecordWrapperAbstract<DB extends ODatabaseRecord>
     return this;
   }
 
+  public Map<ORID, ORecordInternal<?>> loadRecords(final Collection<? extends OIdentifiable> iRecordIds) {
+    return underlying.loadRecords(iRecordIds);
+  }
+
+  public Map<ORID, ORecordInternal<?>> loadRecords(final Collection<? extends OIdentifiable> iRecordIds, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    return underlying.loadRecords(iRecordIds, iFetchPlan, iIgnoreCache);
+  }
+
   public <RET extends ORecordInternal<?>> RET load(final ORID iRecordId) {
     return (RET) underlying.load(iRecordId);
   }
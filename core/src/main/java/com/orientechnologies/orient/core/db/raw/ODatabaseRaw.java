@@ -257,6 +257,17 @@ public class ODatabaseRaw implements ODatabase {
     }
   }
 
+  public Map<ORecordId, ORawBuffer> read(final Collection<ORecordId> iRids, final String iFetchPlan, final boolean iIgnoreCache) {
+    OFetchHelper.checkFetchPlanValid(iFetchPlan);
+
+    try {
+      return storage.readRecords(iRids, iFetchPlan, iIgnoreCache);
+
+    } catch (Throwable t) {
+      throw new ODatabaseException("Error on retrieving records " + iRids, t);
+    }
+  }
+
   public OStorageOperationResult<ORecordVersion> save(final int iDataSegmentId, final ORecordId iRid, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, boolean iForceCreate,
       final ORecordCallback<? extends Number> iRecordCreatedCallback, final ORecordCallback<ORecordVersion> iRecordUpdatedCallback) {
@@ -15,9 +15,13 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.Collection;
+import java.util.Map;
+
 import com.orientechnologies.orient.core.db.ODataSegmentStrategy;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 
@@ -63,6 +67,25 @@ public interface ODatabaseRecord extends ODatabaseComplex<ORecordInternal<?>> {
    */
   public <RET extends ORecordInternal<?>> RET getRecord(OIdentifiable iIdentifiable);
 
+  /**
+   * Loads a set of records at once. The records already in the current transaction or in the level1 cache are taken from there,
+   * all the others are read with a single storage operation: against a remote database this costs one network round trip instead
+   * of one per record.
+   * 
+   * @param iRecordIds
+   *          Identities of the records to load
+   * @return The records loaded by identity. Records not found are not contained in the map
+   */
+  public Map<ORID, ORecordInternal<?>> loadRecords(Collection<? extends OIdentifiable> iRecordIds);
+
+  /**
+   * Loads a set of records at once using a fetch plan.
+   * 
+   * @see #loadRecords(Collection)
+   */
+  public Map<ORID, ORecordInternal<?>> loadRecords(Collection<? extends OIdentifiable> iRecordIds, String iFetchPlan,
+      boolean iIgnoreCache);
+
   /**
    * Returns the default record type for this kind of database.
    */
@@ -16,8 +16,12 @@
 package com.orientechnologies.orient.core.db.record;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -298,6 +302,65 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return (RET) executeReadRecord((ORecordId) iRecordId, null, iFetchPlan, iIgnoreCache, loadTombstone);
   }
 
+  public Map<ORID, ORecordInternal<?>> loadRecords(final Collection<? extends OIdentifiable> iRecordIds) {
+    return loadRecords(iRecordIds, null, false);
+  }
+
+  public Map<ORID, ORecordInternal<?>> loadRecords(final Collection<? extends OIdentifiable> iRecordIds, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    checkOpeness();
+
+    final Map<ORID, ORecordInternal<?>> result = new HashMap<ORID, ORecordInternal<?>>();
+    final Set<ORecordId> toRead = new LinkedHashSet<ORecordId>();
+
+    for (OIdentifiable id : iRecordIds) {
+      if (id == null)
+        continue;
+
+      final ORecordId rid = (ORecordId) id.getIdentity();
+      if (result.containsKey(rid) || toRead.contains(rid))
+        continue;
+
+      if (!rid.isPersistent() || getTransaction().getRecord(rid) != null
+          || (!iIgnoreCache && getLevel1Cache().findRecord(rid) != null)) {
+        // ALREADY AVAILABLE LOCALLY, OR NOT IN THE STORAGE AT ALL
+        final ORecordInternal<?> record = load(rid, iFetchPlan, iIgnoreCache);
+        if (record != null)
+          result.put(rid, record);
+      } else
+        toRead.add(rid);
+    }
+
+    if (toRead.isEmpty())
+      return result;
+
+    final Set<Integer> clusterIds = new HashSet<Integer>();
+    for (ORecordId rid : toRead)
+      if (clusterIds.add(rid.getClusterId()))
+        checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(rid.getClusterId()));
+
+    try {
+      final Map<ORecordId, ORawBuffer> buffers = underlying.read(toRead, iFetchPlan, iIgnoreCache);
+
+      for (ORecordId rid : toRead) {
+        final ORawBuffer buffer = buffers.get(rid);
+        if (buffer != null) {
+          final ORecordInternal<?> record = fillRecord(rid, null, buffer, iIgnoreCache);
+          if (record != null)
+            result.put(rid, record);
+        }
+      }
+    } catch (OException e) {
+      // RE-THROW THE EXCEPTION
+      throw e;
+
+    } catch (Exception e) {
+      // WRAP IT AS ODATABASE EXCEPTION
+      OLogManager.instance().exception("Error on retrieving records " + toRead, e, ODatabaseException.class);
+    }
+    return result;
+  }
+
   /**
    * Updates the record without checking the version.
    */
@@ -663,26 +726,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
       if (recordBuffer == null)
         return null;
 
-      if (iRecord == null || iRecord.getRecordType() != recordBuffer.recordType)
-        // NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
-        iRecord = Orient.instance().getRecordFactoryManager().newInstance(recordBuffer.recordType);
-
-      iRecord.fill(iRid, recordBuffer.version, recordBuffer.buffer, false);
-
-      if (iRecord.getRecordVersion().isTombstone())
-        return (RET) iRecord;
-
-      if (callbackHooks(TYPE.BEFORE_READ, iRecord) == RESULT.SKIP)
-        return null;
-
-      iRecord.fromStream(recordBuffer.buffer);
-
-      callbackHooks(TYPE.AFTER_READ, iRecord);
-
-      if (!iIgnoreCache)
-        getLevel1Cache().updateRecord(iRecord);
-
-      return (RET) iRecord;
+      return (RET) fillRecord(iRid, iRecord, recordBuffer, iIgnoreCache);
     } catch (OException e) {
       // RE-THROW THE EXCEPTION
       throw e;
@@ -694,6 +738,35 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
     return null;
   }
 
+  /**
+   * Fills the record with the buffer read from the storage, calling the read hooks and updating the level1 cache.
+   * 
+   * @return The record, or null if a hook skipped it
+   */
+  private ORecordInternal<?> fillRecord(final ORecordId iRid, ORecordInternal<?> iRecord, final ORawBuffer iBuffer,
+      final boolean iIgnoreCache) {
+    if (iRecord == null || iRecord.getRecordType() != iBuffer.recordType)
+      // NO SAME RECORD TYPE: CAN'T REUSE OLD ONE BUT CREATE A NEW ONE FOR IT
+      iRecord = Orient.instance().getRecordFactoryManager().newInstance(iBuffer.recordType);
+
+    iRecord.fill(iRid, iBuffer.version, iBuffer.buffer, false);
+
+    if (iRecord.getRecordVersion().isTombstone())
+      return iRecord;
+
+    if (callbackHooks(TYPE.BEFORE_READ, iRecord) == RESULT.SKIP)
+      return null;
+
+    iRecord.fromStream(iBuffer.buffer);
+
+    callbackHooks(TYPE.AFTER_READ, iRecord);
+
+    if (!iIgnoreCache)
+      getLevel1Cache().updateRecord(iRecord);
+
+    return iRecord;
+  }
+
   public <RET extends ORecordInternal<?>> RET executeSaveRecord(final ORecordInternal<?> iRecord, String iClusterName,
       final ORecordVersion iVersion, final byte iRecordType, final boolean iCallTriggers, final OPERATION_MODE iMode,
       boolean iForceCreate, final ORecordCallback<? extends Number> iRecordCreatedCallback,
@@ -15,8 +15,10 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -129,12 +131,48 @@ public class ORecordLazyMap extends OTrackedMap<OIdentifiable> implements ORecor
 		if (status == MULTIVALUE_CONTENT_TYPE.ALL_RECORDS || !autoConvertToRecord)
 			// PRECONDITIONS
 			return;
+
+		preloadRecords();
+
 		for (Object k : keySet())
 			convertLink2Record(k);
 
 		status = MULTIVALUE_CONTENT_TYPE.ALL_RECORDS;
 	}
 
+	/**
+	 * Loads all the linked records with one call to the database, so remote storages fetch them with a request for every batch of
+	 * records, limited by {@link com.orientechnologies.orient.core.config.OGlobalConfiguration#NETWORK_BINARY_LOAD_MAX_RECORDS}.
+	 */
+	private void preloadRecords() {
+		final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+		if (database == null)
+			return;
+
+		final List<OIdentifiable> rids = new ArrayList<OIdentifiable>();
+		for (OIdentifiable v : super.values())
+			if (v instanceof ORID && ((ORID) v).isPersistent())
+				rids.add(v);
+
+		if (rids.size() < 2)
+			// NOTHING TO SAVE
+			return;
+
+		final Map<ORID, ORecordInternal<?>> records = database.loadRecords(rids);
+
+		marshalling = true;
+		try {
+			for (Map.Entry<Object, OIdentifiable> entry : super.entrySet())
+				if (entry.getValue() instanceof ORID) {
+					final ORecordInternal<?> record = records.get(entry.getValue());
+					if (record != null)
+						super.put(entry.getKey(), record);
+				}
+		} finally {
+			marshalling = false;
+		}
+	}
+
 	public boolean convertRecords2Links() {
 		if (status == MULTIVALUE_CONTENT_TYPE.ALL_RIDS)
 			// PRECONDITIONS
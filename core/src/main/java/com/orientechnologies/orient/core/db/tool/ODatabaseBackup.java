@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.storage.fs.OFileChangeTracker;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
+
+/**
+ * Hot backup of a local database at file level. The first backup of a database after the start of the JVM copies all the files;
+ * the next ones copy only the pages changed since the previous backup, so their cost depends on the changes and not on the size of
+ * the database. The files are copied while the database works, then the database is frozen only to copy again the pages changed in
+ * the meantime: the backup is consistent to that moment. Restore the backups with {@link ODatabaseRestore}.<br/>
+ * <br/>
+ * Backup file structure:<br/>
+ * <br/>
+ * +-------+---------+-----------+----------+---------+<br/>
+ * | MAGIC | VERSION | TIMESTAMP | COMPLETE | ENTRIES |<br/>
+ * | int . | int ... | long .... | boolean  | ....... |<br/>
+ * +-------+---------+-----------+----------+---------+<br/>
+ * <br/>
+ * Every entry begins with its type: PAGE (file name, offset, length, content), FILES (number of files, then name and length of
+ * every file of the database at the moment of the backup) or END.
+ *
+ * @author agent
+ */
+public class ODatabaseBackup {
+  public static final String             EXTENSION   = ".obk";
+
+  static final int                       MAGIC       = 0x4F424B50;
+  static final int                       VERSION     = 1;
+  static final byte                      ENTRY_END   = 0;
+  static final byte                      ENTRY_PAGE  = 1;
+  static final byte                      ENTRY_FILES = 2;
+
+  private final ODatabaseDocument        database;
+  private final String                   fileName;
+  private final OCommandOutputListener   listener;
+  private boolean                        incremental = true;
+  private long                           copiedPages;
+  private final byte[]                   page        = new byte[OFileChangeTracker.PAGE_SIZE];
+
+  public ODatabaseBackup(final ODatabaseDocument iDatabase, final String iFileName, final OCommandOutputListener iListener) {
+    if (!(iDatabase.getStorage() instanceof OStorageLocal))
+      throw new ODatabaseBackupException("Cannot backup the database '" + iDatabase.getName()
+          + "': the file backup is supported only by local databases");
+
+    database = iDatabase;
+    fileName = iFileName.indexOf('.') == -1 ? iFileName + EXTENSION : iFileName;
+    listener = iListener;
+  }
+
+  /**
+   * Sets if the backup copies only the pages changed since the previous one. Default is true. When the changes are not known, as
+   * for the first backup after the start, all the pages are copied anyway.
+   */
+  public ODatabaseBackup setIncremental(final boolean iIncremental) {
+    incremental = iIncremental;
+    return this;
+  }
+
+  /**
+   * Executes the backup.
+   *
+   * @return true if all the files have been copied, so the backup doesn't need the previous ones to be restored
+   */
+  public boolean backup() {
+    final File directory = new File(((OStorageLocal) database.getStorage()).getStoragePath());
+
+    listener.onMessage("\nStarted backup of database '" + database.getName() + "' to " + fileName + "...");
+    final long time = System.currentTimeMillis();
+
+    // START TO RECORD THE CHANGES BEFORE COPYING THE PAGES
+    final Map<File, BitSet> changedPages = new LinkedHashMap<File, BitSet>();
+    boolean complete = true;
+    for (File f : listFiles(directory)) {
+      final BitSet changed = OFileChangeTracker.getInstance(f).swap();
+      changedPages.put(f, incremental ? changed : null);
+      complete &= !incremental || changed == null;
+    }
+
+    try {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeBoolean(complete);
+
+        listener.onMessage("\nCopying " + (complete ? "all the pages" : "the changed pages") + " of " + changedPages.size()
+            + " files...");
+        for (Map.Entry<File, BitSet> entry : changedPages.entrySet())
+          copyPages(out, entry.getKey(), entry.getValue(), false);
+        listener.onMessage("OK (" + copiedPages + " pages)");
+
+        // COPY AGAIN THE PAGES CHANGED DURING THE COPY WHILE THE DATABASE IS FROZEN
+        listener.onMessage("\nCopying the pages changed during the backup...");
+        final long pagesBeforeFreeze = copiedPages;
+        final long freezeTime = System.currentTimeMillis();
+
+        database.freeze(false);
+        try {
+          final File[] files = listFiles(directory);
+          for (File f : files)
+            copyPages(out, f, OFileChangeTracker.getInstance(f).swap(), true);
+
+          out.writeByte(ENTRY_FILES);
+          out.writeInt(files.length);
+          for (File f : files) {
+            out.writeUTF(f.getName());
+            out.writeLong(f.length());
+          }
+        } finally {
+          database.release();
+        }
+        listener.onMessage("OK (" + (copiedPages - pagesBeforeFreeze) + " pages, database frozen for "
+            + (System.currentTimeMillis() - freezeTime) + "ms)");
+
+        out.writeByte(ENTRY_END);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      forgetChanges(directory);
+      throw new ODatabaseBackupException("Error on backup of database '" + database.getName() + "' to: " + fileName, e);
+    } catch (RuntimeException e) {
+      forgetChanges(directory);
+      throw e;
+    }
+
+    listener.onMessage("\n\nDatabase " + (complete ? "full" : "incremental") + " backup completed in "
+        + (System.currentTimeMillis() - time) + "ms");
+    return complete;
+  }
+
+  /**
+   * Copies the pages of a file.
+   *
+   * @param iPages
+   *          Pages to copy, null to copy all the file
+   * @param iHeader
+   *          Copies also the first page, with the header of the file, that is not tracked
+   */
+  private void copyPages(final DataOutputStream out, final File iFile, final BitSet iPages, final boolean iHeader)
+      throws IOException {
+    final RandomAccessFile file;
+    try {
+      file = new RandomAccessFile(iFile, "r");
+    } catch (IOException e) {
+      // DELETED IN THE MEANTIME
+      return;
+    }
+
+    try {
+      final long length = file.length();
+      final int pageCount = (int) ((length + page.length - 1) / page.length);
+
+      for (int i = 0; i < pageCount; ++i) {
+        if (iPages != null && !iPages.get(i) && !(iHeader && i == 0))
+          continue;
+
+        final long offset = (long) i * page.length;
+        final int size = (int) Math.min(page.length, length - offset);
+        file.seek(offset);
+        try {
+          file.readFully(page, 0, size);
+        } catch (EOFException e) {
+          // TRUNCATED IN THE MEANTIME: THE LENGTH OF THE FILES IS WRITTEN WHILE THE DATABASE IS FROZEN
+          break;
+        }
+
+        out.writeByte(ENTRY_PAGE);
+        out.writeUTF(iFile.getName());
+        out.writeLong(offset);
+        out.writeInt(size);
+        out.write(page, 0, size);
+        copiedPages++;
+      }
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * Makes the next backup copy all the files, since the changes collected for this one have been lost.
+   */
+  private static void forgetChanges(final File iDirectory) {
+    for (File f : listFiles(iDirectory))
+      OFileChangeTracker.getInstance(f).reset();
+  }
+
+  private static File[] listFiles(final File iDirectory) {
+    final File[] files = iDirectory.listFiles(new FileFilter() {
+      public boolean accept(final File iFile) {
+        return iFile.isFile();
+      }
+    });
+    return files != null ? files : new File[0];
+  }
+}
@@ -0,0 +1,21 @@
+package com.orientechnologies.orient.core.db.tool;
+
+@SuppressWarnings("serial")
+public class ODatabaseBackupException extends RuntimeException {
+
+	public ODatabaseBackupException() {
+		super();
+	}
+
+	public ODatabaseBackupException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public ODatabaseBackupException(String message) {
+		super(message);
+	}
+
+	public ODatabaseBackupException(Throwable cause) {
+		super(cause);
+	}
+}
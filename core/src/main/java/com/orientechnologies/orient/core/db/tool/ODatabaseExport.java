@@ -15,15 +15,26 @@
  */
 package com.orientechnologies.orient.core.db.tool;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
 import com.orientechnologies.common.io.OIOException;
@@ -32,7 +43,12 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexManagerProxy;
@@ -47,7 +63,9 @@ import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeMapProvider;
 
 /**
@@ -56,9 +74,105 @@ import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeMapProvider
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  */
 public class ODatabaseExport extends ODatabaseImpExpAbstract {
-  private OJSONWriter     writer;
-  private long            recordExported;
-  public static final int VERSION = 6;
+  private OJSONWriter         writer;
+  private long                recordExported;
+  private boolean             parallel            = false;
+  private int                 parallelThreads     = Runtime.getRuntime().availableProcessors();
+  public static final int     VERSION             = 6;
+
+  private static final int    PARALLEL_RANGE_SIZE = 20000;
+  private static final String RECORD_FORMAT       = "rid,type,version,class,attribSameRow,indent:4,keepTypes";
+
+  // OUTPUT OF THE EXPORT TO FILE, NULL WHEN STREAMING
+  private OGZIPMembersOutputStream members;
+
+  /**
+   * Position range of a cluster exported by a thread.
+   */
+  private static class OExportRange {
+    private final int              clusterId;
+    private final String           clusterName;
+    private final OClusterPosition begin;
+    private final OClusterPosition end;
+    private final long             clusterRecords;
+    private boolean                firstOfCluster;
+    private boolean                lastOfCluster;
+
+    private OExportRange(final int iClusterId, final String iClusterName, final OClusterPosition iBegin,
+        final OClusterPosition iEnd, final long iClusterRecords) {
+      clusterId = iClusterId;
+      clusterName = iClusterName;
+      begin = iBegin;
+      end = iEnd;
+      clusterRecords = iClusterRecords;
+    }
+  }
+
+  /**
+   * Records of a range serialized as JSON.
+   */
+  private static class OExportChunk {
+    private StringBuilder text = new StringBuilder();
+    private byte[]        compressed;
+    private long          records;
+  }
+
+  /**
+   * Export file made of consecutive GZIP members, so the records compressed by the threads of the parallel export are copied as
+   * they are. The text written by the exporter goes to a member opened at the first write.
+   */
+  private static class OGZIPMembersOutputStream extends OutputStream {
+    private final OutputStream out;
+    private GZIPOutputStream   member;
+
+    private OGZIPMembersOutputStream(final OutputStream iOut) {
+      out = iOut;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      getMember().write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      getMember().write(b, off, len);
+    }
+
+    /**
+     * Appends a complete GZIP member after the text written so far.
+     */
+    public void writeMember(final byte[] iMember) throws IOException {
+      finishMember();
+      out.write(iMember);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (member != null)
+        member.flush();
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      finishMember();
+      out.close();
+    }
+
+    private GZIPOutputStream getMember() throws IOException {
+      if (member == null)
+        member = new GZIPOutputStream(out);
+      return member;
+    }
+
+    private void finishMember() throws IOException {
+      if (member != null) {
+        member.finish();
+        member = null;
+      }
+    }
+  }
 
   public ODatabaseExport(final ODatabaseRecord iDatabase, final String iFileName, final OCommandOutputListener iListener)
       throws IOException {
@@ -72,7 +186,8 @@ public class ODatabaseExport extends ODatabaseImpExpAbstract {
     if (f.exists())
       f.delete();
 
-    writer = new OJSONWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(fileName))));
+    members = new OGZIPMembersOutputStream(new FileOutputStream(fileName));
+    writer = new OJSONWriter(new OutputStreamWriter(members));
     writer.beginObject();
     iDatabase.getLevel1Cache().setEnable(false);
     iDatabase.getLevel2Cache().setEnable(false);
@@ -88,9 +203,38 @@ public class ODatabaseExport extends ODatabaseImpExpAbstract {
     iDatabase.getLevel2Cache().setEnable(false);
   }
 
+  /**
+   * Supports, in addition to the common options:
+   * <ul>
+   * <li><code>-parallel=true</code> to export the records of the clusters with many threads. Every cluster is split in position
+   * ranges read, serialized and compressed by a pool of threads; the ranges are written in order, so the content is the same of
+   * the sequential export. The export file is made of many GZIP members, one per range. Local databases are frozen while their
+   * records are exported: writes wait until the end of the export of the records. Memory databases can't be frozen, so the records
+   * changed during the export can be exported with their old or their new content and the records created after its start are
+   * not exported. Remote databases are exported sequentially</li>
+   * <li><code>-parallelThreads=&lt;n&gt;</code> to set the number of threads of the parallel export. Default is the number of
+   * available processors</li>
+   * </ul>
+   */
   @Override
   public ODatabaseExport setOptions(final String s) {
     super.setOptions(s);
+
+    if (s != null)
+      for (String o : OStringSerializerHelper.smartSplit(s, ' ')) {
+        final int sep = o.indexOf('=');
+        if (sep == -1)
+          continue;
+
+        final String option = o.substring(0, sep);
+        final String value = o.substring(sep + 1);
+
+        if (option.equalsIgnoreCase("-parallel"))
+          parallel = Boolean.parseBoolean(value);
+        else if (option.equalsIgnoreCase("-parallelThreads"))
+          parallelThreads = Math.max(1, Integer.parseInt(value));
+      }
+
     return this;
   }
 
@@ -109,8 +253,12 @@ public class ODatabaseExport extends ODatabaseImpExpAbstract {
         exportClusters();
       if (includeSchema)
         exportSchema();
-      if (includeRecords)
-        exportRecords();
+      if (includeRecords) {
+        if (parallel && Orient.instance().getDatabaseFactory().isWorkerDatabaseSupported(database))
+          exportRecordsInParallel();
+        else
+          exportRecords();
+      }
       if (includeIndexDefinitions)
         exportIndexDefinitions();
       if (includeManualIndexes)
@@ -171,18 +319,7 @@ public class ODatabaseExport extends ODatabaseImpExpAbstract {
           for (ORecordIteratorCluster<ORecordInternal<?>> it = database.browseCluster(clusterName); it.hasNext();) {
 
             rec = it.next();
-            if (rec instanceof ODocument) {
-              // CHECK IF THE CLASS OF THE DOCUMENT IS INCLUDED
-              ODocument doc = (ODocument) rec;
-              final String className = doc.getClassName() != null ? doc.getClassName().toUpperCase() : null;
-              if (includeClasses != null) {
-                if (!includeClasses.contains(className))
-                  continue;
-              } else if (excludeClasses != null) {
-                if (excludeClasses.contains(className))
-                  continue;
-              }
-            } else if (includeClasses != null && !includeClasses.isEmpty())
+            if (!isClassIncluded(rec))
               continue;
 
             if (exportRecord(clusterExportedRecordsTot, clusterExportedRecordsCurrent, rec))
@@ -222,6 +359,123 @@ public class ODatabaseExport extends ODatabaseImpExpAbstract {
     return totalFoundRecords;
   }
 
+  /**
+   * Exports the records with many threads, freezing local databases until all the records are exported. The position ranges of the
+   * clusters are planned before starting, so the records created during the export are left out. Every range is read, serialized
+   * and, when exporting to a file, compressed by a thread of the pool with its own database; this thread writes the ranges in order
+   * to the single output stream, keeping at most two ranges per thread in memory.
+   */
+  public long exportRecordsInParallel() throws IOException {
+    // WITHOUT A SNAPSHOT, THE STORAGE IS FROZEN TO EXPORT A CONSISTENT CONTENT
+    final boolean frozen = database.getStorage() instanceof OStorageLocalAbstract;
+    if (frozen)
+      database.freeze(false);
+
+    try {
+      return exportRangesInParallel();
+    } finally {
+      if (frozen)
+        database.release();
+    }
+  }
+
+  private long exportRangesInParallel() throws IOException {
+    long totalFoundRecords = 0;
+    long totalExportedRecords = 0;
+
+    int level = 1;
+    listener.onMessage("\nExporting records with " + parallelThreads + " threads...");
+
+    writer.beginCollection(level, true, "records");
+
+    final List<OExportRange> ranges = splitClusters();
+
+    // EVERY THREAD OF THE POOL OPENS ITS OWN DATABASE AT THE FIRST RANGE AND CLOSES IT WHEN THE POOL IS SHUT DOWN
+    final ThreadLocal<ODatabaseDocumentTx> exporterDatabase = new ThreadLocal<ODatabaseDocumentTx>();
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ExecutorService exporters = Executors.newFixedThreadPool(parallelThreads, new ThreadFactory() {
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(new Runnable() {
+          public void run() {
+            try {
+              r.run();
+            } finally {
+              final ODatabaseDocumentTx db = exporterDatabase.get();
+              if (db != null)
+                db.close();
+              ODatabaseRecordThreadLocal.INSTANCE.remove();
+            }
+          }
+        }, "OrientDB Export " + threadCounter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
+    try {
+      final LinkedList<Future<OExportChunk>> submitted = new LinkedList<Future<OExportChunk>>();
+      int nextRange = 0;
+      long clusterExportedRecordsCurrent = 0;
+
+      for (OExportRange range : ranges) {
+        while (nextRange < ranges.size() && submitted.size() < parallelThreads * 2) {
+          final OExportRange toExport = ranges.get(nextRange++);
+          submitted.add(exporters.submit(new Callable<OExportChunk>() {
+            public OExportChunk call() throws Exception {
+              if (exporterDatabase.get() == null) {
+                final ODatabaseDocumentTx db = Orient.instance().getDatabaseFactory().openWorkerDatabase(database);
+                db.getLevel1Cache().setEnable(false);
+                exporterDatabase.set(db);
+              }
+              return exportRange(toExport, ODatabaseRecordThreadLocal.INSTANCE.get());
+            }
+          }));
+        }
+
+        if (range.firstOfCluster)
+          listener.onMessage("\n- Cluster " + (range.clusterName != null ? "'" + range.clusterName + "'" : "NULL") + " (id="
+              + range.clusterId + ")...");
+
+        final OExportChunk chunk = getChunk(submitted.removeFirst());
+        if (chunk.records > 0) {
+          if (recordExported > 0)
+            writer.append(",");
+
+          if (chunk.compressed != null) {
+            writer.flush();
+            members.writeMember(chunk.compressed);
+          } else
+            writer.append(chunk.text.toString());
+
+          recordExported += chunk.records;
+          clusterExportedRecordsCurrent += chunk.records;
+        }
+
+        if (range.lastOfCluster) {
+          listener.onMessage("OK (records=" + clusterExportedRecordsCurrent + "/" + range.clusterRecords + ")");
+
+          totalExportedRecords += clusterExportedRecordsCurrent;
+          totalFoundRecords += range.clusterRecords;
+          clusterExportedRecordsCurrent = 0;
+        }
+      }
+    } finally {
+      exporters.shutdownNow();
+      try {
+        // THE DATABASES OF THE THREADS ARE CLOSED BEFORE RETURNING
+        exporters.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    writer.endCollection(level, true);
+
+    listener.onMessage("\n\nDone. Exported " + totalExportedRecords + " of total " + totalFoundRecords + " records\n");
+
+    return totalFoundRecords;
+  }
+
   public void close() {
     database.declareIntent(null);
 
@@ -478,6 +732,143 @@ public class ODatabaseExport extends ODatabaseImpExpAbstract {
     listener.onMessage("OK (" + s.getClasses().size() + " classes)");
   }
 
+  /**
+   * Splits the included clusters in ranges of positions, from the positions they have now. Clusters without records get an empty
+   * range, so they are listed in the output as in the sequential export.
+   */
+  private List<OExportRange> splitClusters() {
+    final boolean splittable = OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong;
+    final List<OExportRange> ranges = new ArrayList<OExportRange>();
+
+    final int maxClusterId = getMaxClusterId();
+    for (int clusterId = 0; clusterId <= maxClusterId; ++clusterId) {
+      final String clusterName = database.getClusterNameById(clusterId);
+
+      long clusterRecords = 0;
+      final int firstRange = ranges.size();
+
+      if (clusterName != null) {
+        // CHECK IF THE CLUSTER IS INCLUDED
+        if (includeClusters != null) {
+          if (!includeClusters.contains(clusterName.toUpperCase()))
+            continue;
+        } else if (excludeClusters != null) {
+          if (excludeClusters.contains(clusterName.toUpperCase()))
+            continue;
+        }
+
+        clusterRecords = database.countClusterElements(clusterName);
+
+        final OClusterPosition[] dataRange = database.getStorage().getClusterDataRange(clusterId);
+        final OClusterPosition first = dataRange[0];
+        final OClusterPosition last = dataRange[1];
+
+        if (clusterRecords > 0 && first.isValid() && last.isValid() && first.compareTo(last) <= 0) {
+          if (!splittable)
+            ranges.add(new OExportRange(clusterId, clusterName, first, last, clusterRecords));
+          else
+            for (long begin = first.longValue(); begin <= last.longValue(); begin += PARALLEL_RANGE_SIZE) {
+              final long end = Math.min(begin + PARALLEL_RANGE_SIZE - 1, last.longValue());
+              ranges.add(new OExportRange(clusterId, clusterName, OClusterPositionFactory.INSTANCE.valueOf(begin),
+                  OClusterPositionFactory.INSTANCE.valueOf(end), clusterRecords));
+            }
+        }
+      } else if (includeClusters != null && !includeClusters.isEmpty())
+        continue;
+
+      if (ranges.size() == firstRange)
+        // NOTHING TO EXPORT
+        ranges.add(new OExportRange(clusterId, clusterName, null, null, clusterRecords));
+
+      ranges.get(firstRange).firstOfCluster = true;
+      ranges.get(ranges.size() - 1).lastOfCluster = true;
+    }
+    return ranges;
+  }
+
+  /**
+   * Serializes the records of a range. Called by the threads of the parallel export.
+   */
+  private OExportChunk exportRange(final OExportRange iRange, final ODatabaseRecord iDatabase) throws IOException {
+    final OExportChunk chunk = new OExportChunk();
+    if (iRange.begin == null)
+      return chunk;
+
+    ORecordInternal<?> rec = null;
+    try {
+      for (ORecordIteratorCluster<ORecordInternal<?>> it = iDatabase.browseCluster(iRange.clusterName, iRange.begin, iRange.end,
+          false); it.hasNext();) {
+        rec = it.next();
+        if (!isClassIncluded(rec))
+          continue;
+
+        try {
+          final String json = rec.toJSON(RECORD_FORMAT);
+          if (chunk.records > 0)
+            chunk.text.append(",");
+          chunk.text.append(json);
+          chunk.records++;
+        } catch (Throwable t) {
+          logCorruptedRecord(rec, t);
+        }
+      }
+    } catch (OIOException e) {
+      OLogManager.instance().error(this, "\nError on exporting record %s because of I/O problems", e,
+          rec != null ? rec.getIdentity() : null);
+      throw e;
+    }
+
+    if (members != null && chunk.records > 0) {
+      // COMPRESS THE RECORDS IN THIS THREAD: THEY ARE WRITTEN AS A GZIP MEMBER OF THEIR OWN
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream(chunk.text.length() / 4);
+      final Writer out = new OutputStreamWriter(new GZIPOutputStream(buffer));
+      out.append(chunk.text);
+      out.close();
+      chunk.compressed = buffer.toByteArray();
+      chunk.text = null;
+    }
+
+    return chunk;
+  }
+
+  private OExportChunk getChunk(final Future<OExportChunk> iFuture) throws IOException {
+    try {
+      return iFuture.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ODatabaseExportException("Export of records interrupted", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new ODatabaseExportException("Error on exporting records", cause);
+    }
+  }
+
+  private boolean isClassIncluded(final ORecordInternal<?> iRecord) {
+    if (iRecord instanceof ODocument) {
+      // CHECK IF THE CLASS OF THE DOCUMENT IS INCLUDED
+      final String className = ((ODocument) iRecord).getClassName() != null ? ((ODocument) iRecord).getClassName().toUpperCase()
+          : null;
+      if (includeClasses != null)
+        return includeClasses.contains(className);
+      if (excludeClasses != null)
+        return !excludeClasses.contains(className);
+      return true;
+    }
+    return includeClasses == null || includeClasses.isEmpty();
+  }
+
+  private void logCorruptedRecord(final ORecordInternal<?> iRecord, final Throwable iError) {
+    final byte[] buffer = iRecord.toStream();
+
+    OLogManager.instance().error(this,
+        "\nError on exporting record %s. It seems corrupted; size: %d bytes, raw content (as string):\n==========\n%s\n==========",
+        iError, iRecord.getIdentity(), buffer.length, new String(buffer));
+  }
+
   private boolean exportRecord(long recordTot, long recordNum, ORecordInternal<?> rec) throws IOException {
     if (rec != null)
       try {
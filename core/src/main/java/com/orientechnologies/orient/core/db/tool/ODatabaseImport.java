@@ -20,6 +20,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -28,11 +29,26 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.ODatabase.STATUS;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.OClassTrigger;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -40,7 +56,9 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OSchemaException;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OClassIndexManager;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexManagerProxy;
@@ -80,6 +98,35 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
   private boolean                    hashClustersAreUsed = false;
   private ORID                       schemaRecordId;
   private ORID                       indexMgrRecordId;
+  private boolean                    bulk                = false;
+  private int                        bulkThreads         = Runtime.getRuntime().availableProcessors();
+  private Map<Integer, Long>         nextClusterPositions;
+
+  private static final int           BULK_BATCH_SIZE     = 500;
+
+  /**
+   * Reads the files made of many GZIP members written by the parallel export. After the end of the first member GZIPInputStream
+   * reports no available bytes, that the JSON reader takes for the end of the file: here the next byte is read to tell.
+   */
+  private static class OGZIPMembersInputStream extends PushbackInputStream {
+    private OGZIPMembersInputStream(final InputStream iIn) {
+      super(iIn);
+    }
+
+    @Override
+    public int available() throws IOException {
+      final int available = super.available();
+      if (available > 0)
+        return available;
+
+      final int next = read();
+      if (next == -1)
+        return 0;
+
+      unread(next);
+      return 1;
+    }
+  }
 
   public ODatabaseImport(final ODatabaseDocument database, final String iFileName, final OCommandOutputListener iListener)
       throws IOException {
@@ -89,7 +136,7 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     final BufferedInputStream bf = new BufferedInputStream(new FileInputStream(fileName));
     bf.mark(1024);
     try {
-      inStream = new GZIPInputStream(bf);
+      inStream = new OGZIPMembersInputStream(new GZIPInputStream(bf));
     } catch (Exception e) {
       bf.reset();
       inStream = bf;
@@ -106,10 +153,35 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     database.declareIntent(new OIntentMassiveInsert());
   }
 
+  /**
+   * Supports, in addition to the common options:
+   * <ul>
+   * <li><code>-bulk=true</code> to import the records in bulk: the records are deserialized by a pool of threads while the next
+   * ones are parsed, and written by a single thread in the original order. The automatic indexes are not updated during the
+   * import of the records and are rebuilt at the end. Remote databases are imported sequentially</li>
+   * <li><code>-bulkThreads=&lt;n&gt;</code> to set the number of threads that deserialize the records in bulk mode. Default is the
+   * number of available processors</li>
+   * </ul>
+   */
   @Override
   public ODatabaseImport setOptions(String iOptions) {
     super.setOptions(iOptions);
 
+    if (iOptions != null)
+      for (String o : OStringSerializerHelper.smartSplit(iOptions, ' ')) {
+        final int sep = o.indexOf('=');
+        if (sep == -1)
+          continue;
+
+        final String option = o.substring(0, sep);
+        final String value = o.substring(sep + 1);
+
+        if (option.equalsIgnoreCase("-bulk"))
+          bulk = Boolean.parseBoolean(value);
+        else if (option.equalsIgnoreCase("-bulkThreads"))
+          bulkThreads = Math.max(1, Integer.parseInt(value));
+      }
+
     return this;
   }
 
@@ -140,8 +212,12 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
           importClusters();
         else if (tag.equals("schema"))
           importSchema();
-        else if (tag.equals("records"))
-          importRecords();
+        else if (tag.equals("records")) {
+          if (bulk && Orient.instance().getDatabaseFactory().isWorkerDatabaseSupported(database))
+            importRecordsInBulk();
+          else
+            importRecords();
+        }
         else if (tag.equals("indexes"))
           importIndexes();
         else if (tag.equals("manualIndexes"))
@@ -654,67 +730,224 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     return total;
   }
 
-  private ORID importRecord() throws Exception {
-    String value = jsonReader.readString(OJSONReader.END_OBJECT, true);
+  /**
+   * Imports the records in a pipeline. The current thread parses the JSON content in batches of records, a pool of threads
+   * deserializes the batches, and a single writer thread stores the records in the original order, so the cluster positions are
+   * preserved. The next position of every cluster is kept in memory instead of being read from the storage for every record. The
+   * automatic indexes are not updated during the load and are rebuilt at the end.
+   */
+  private long importRecordsInBulk() throws Exception {
+    jsonReader.readNext(OJSONReader.BEGIN_COLLECTION);
 
-    // JUMP EMPTY RECORDS
-    while (!value.isEmpty() && value.charAt(0) != '{') {
-      value = value.substring(1);
-    }
+    listener.onMessage("\nImporting records in bulk with " + bulkThreads + " threads...");
+
+    final ORecordHook indexHook = disableIndexMaintenance();
+    nextClusterPositions = new HashMap<Integer, Long>();
+
+    // EVERY DESERIALIZER OPENS ITS OWN DATABASE AT THE FIRST BATCH AND CLOSES IT WHEN THE POOL IS SHUT DOWN: THE DATABASE OF THE
+    // IMPORT IS USED ONLY BY THE WRITER
+    final ThreadLocal<ODatabaseDocumentTx> deserializerDatabase = new ThreadLocal<ODatabaseDocumentTx>();
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ExecutorService deserializers = Executors.newFixedThreadPool(bulkThreads, new ThreadFactory() {
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(new Runnable() {
+          public void run() {
+            try {
+              r.run();
+            } finally {
+              final ODatabaseDocumentTx db = deserializerDatabase.get();
+              if (db != null)
+                db.close();
+              ODatabaseRecordThreadLocal.INSTANCE.remove();
+            }
+          }
+        }, "OrientDB Import Deserializer " + threadCounter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
+    // THE QUEUE BOUNDS THE BATCHES IN MEMORY WHEN THE WRITER IS SLOWER THAN THE PARSING
+    final BlockingQueue<Future<List<ORecordInternal<?>>>> batches = new ArrayBlockingQueue<Future<List<ORecordInternal<?>>>>(
+        bulkThreads * 2);
+    final Future<List<ORecordInternal<?>>> end = new FutureTask<List<ORecordInternal<?>>>(
+        new Callable<List<ORecordInternal<?>>>() {
+          public List<ORecordInternal<?>> call() {
+            return null;
+          }
+        });
+
+    final OBulkRecordWriter writer = new OBulkRecordWriter(batches, end);
+    writer.start();
 
-    record = null;
     try {
-      record = ORecordSerializerJSON.INSTANCE.fromString(value, record, null);
+      List<String> batch = new ArrayList<String>(BULK_BATCH_SIZE);
+      while (jsonReader.lastChar() != ']') {
+        batch.add(readRecord());
+        jsonReader.readNext(OJSONReader.NEXT_IN_ARRAY);
 
-      if (schemaImported && record.getIdentity().equals(schemaRecordId)) {
-        // JUMP THE SCHEMA
-        return null;
-      }
+        if (batch.size() >= BULK_BATCH_SIZE || jsonReader.lastChar() == ']') {
+          final List<String> toDeserialize = batch;
+          if (!enqueue(batches, deserializers.submit(new Callable<List<ORecordInternal<?>>>() {
+            public List<ORecordInternal<?>> call() {
+              if (deserializerDatabase.get() == null) {
+                final ODatabaseDocumentTx db = Orient.instance().getDatabaseFactory().openWorkerDatabase(database);
+                db.getLevel1Cache().setEnable(false);
+                deserializerDatabase.set(db);
+              }
+
+              final List<ORecordInternal<?>> records = new ArrayList<ORecordInternal<?>>(toDeserialize.size());
+              for (String value : toDeserialize)
+                records.add(ORecordSerializerJSON.INSTANCE.fromString(value, null, null));
+              return records;
+            }
+          }), writer))
+            // THE WRITER STOPPED ON ERROR
+            break;
 
-      // CHECK IF THE CLUSTER IS INCLUDED
-      if (includeClusters != null) {
-        if (!includeClusters.contains(database.getClusterNameById(record.getIdentity().getClusterId()))) {
-          jsonReader.readNext(OJSONReader.NEXT_IN_ARRAY);
-          return null;
+          batch = new ArrayList<String>(BULK_BATCH_SIZE);
         }
-      } else if (excludeClusters != null) {
-        if (excludeClusters.contains(database.getClusterNameById(record.getIdentity().getClusterId())))
-          return null;
       }
 
-      if (record.getIdentity().getClusterId() == 0 && record.getIdentity().getClusterPosition().longValue() == 1)
-        // JUMP INTERNAL RECORDS
-        return null;
+      enqueue(batches, end, writer);
+      writer.join();
+    } finally {
+      // ON ERROR THE WRITER STOPS AT THE BATCHES NOT DESERIALIZED YET OR AT THE END OF THE QUEUE
+      for (Runnable pending : deserializers.shutdownNow())
+        ((Future<?>) pending).cancel(false);
+      batches.clear();
+      batches.offer(end);
+
+      // THE HOOKS ARE RESTORED ONLY WHEN NO OTHER THREAD USES THE DATABASE
+      try {
+        deserializers.awaitTermination(1, TimeUnit.MINUTES);
+        writer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      ODatabaseRecordThreadLocal.INSTANCE.set(database);
+      nextClusterPositions = null;
+      if (indexHook != null)
+        database.registerHook(indexHook, ORecordHook.HOOK_POSITION.LAST);
+    }
+
+    if (writer.error != null) {
+      if (writer.error instanceof Exception)
+        throw (Exception) writer.error;
+      throw new ODatabaseExportException("Error on importing records", writer.error);
+    }
+
+    if (indexHook != null)
+      rebuildAutomaticIndexes();
+
+    listener.onMessage("\n\nDone. Imported " + writer.totalRecords + " records\n");
+
+    jsonReader.readNext(OJSONReader.COMMA_SEPARATOR);
+
+    return writer.totalRecords;
+  }
+
+  /**
+   * Puts a batch in the queue of the writer, waiting while the queue is full.
+   * 
+   * @return false if the writer is not running anymore
+   */
+  private boolean enqueue(final BlockingQueue<Future<List<ORecordInternal<?>>>> iQueue,
+      final Future<List<ORecordInternal<?>>> iBatch, final Thread iWriter) throws InterruptedException {
+    while (!iQueue.offer(iBatch, 1, TimeUnit.SECONDS))
+      if (!iWriter.isAlive())
+        return false;
+    return true;
+  }
 
-      if (exporterVersion >= 3) {
-        int oridsId = database.getClusterIdByName(OMVRBTreeRIDProvider.PERSISTENT_CLASS_NAME);
-        int indexId = database.getClusterIdByName(OMetadata.CLUSTER_INDEX_NAME);
+  private ORecordHook disableIndexMaintenance() {
+    for (ORecordHook hook : database.getHooks())
+      if (hook instanceof OClassIndexManager) {
+        database.unregisterHook(hook);
+        return hook;
+      }
+    return null;
+  }
 
-        if (record.getIdentity().getClusterId() == indexId || record.getIdentity().getClusterId() == oridsId)
-          // JUMP INDEX RECORDS
-          return null;
+  private void rebuildAutomaticIndexes() {
+    listener.onMessage("\nRebuilding automatic indexes...");
+    for (OIndex<?> index : database.getMetadata().getIndexManager().getIndexes())
+      if (index.isAutomatic()) {
+        listener.onMessage("\n- Index '" + index.getName() + "'...");
+        index.rebuild();
+        listener.onMessage("OK");
       }
+  }
+
+  /**
+   * Writer of the records imported in bulk. Takes the deserialized batches in the order they were parsed.
+   */
+  private class OBulkRecordWriter extends Thread {
+    private final BlockingQueue<Future<List<ORecordInternal<?>>>> batches;
+    private final Future<List<ORecordInternal<?>>>                end;
+    private volatile Throwable                                    error;
+    private long                                                  totalRecords;
+
+    private OBulkRecordWriter(final BlockingQueue<Future<List<ORecordInternal<?>>>> iBatches,
+        final Future<List<ORecordInternal<?>>> iEnd) {
+      super("OrientDB Import Writer");
+      setDaemon(true);
+      batches = iBatches;
+      end = iEnd;
+    }
 
-      final int manualIndexCluster = database.getClusterIdByName(OMetadata.CLUSTER_MANUAL_INDEX_NAME);
-      final int internalCluster = database.getClusterIdByName(OMetadata.CLUSTER_INTERNAL_NAME);
-      final int indexCluster = database.getClusterIdByName(OMetadata.CLUSTER_INDEX_NAME);
+    @Override
+    public void run() {
+      ODatabaseRecordThreadLocal.INSTANCE.set(database);
+
+      int lastClusterId = -1;
+      long clusterRecords = 0;
+      ORecordInternal<?> current = null;
+      try {
+        Future<List<ORecordInternal<?>>> batch;
+        while ((batch = batches.take()) != end) {
+          for (ORecordInternal<?> r : batch.get()) {
+            current = r;
+            final ORID rid = storeRecord(r);
+            if (rid == null)
+              continue;
+
+            if (rid.getClusterId() != lastClusterId) {
+              if (lastClusterId > -1)
+                dumpClusterStatistics(lastClusterId, clusterRecords);
+              lastClusterId = rid.getClusterId();
+              clusterRecords = 0;
+            }
+            ++clusterRecords;
+            ++totalRecords;
+          }
+        }
+        if (lastClusterId > -1)
+          dumpClusterStatistics(lastClusterId, clusterRecords);
 
-      if (exporterVersion >= 4) {
-        if (record.getIdentity().getClusterId() == manualIndexCluster)
-          // JUMP INDEX RECORDS
-          return null;
+      } catch (Throwable t) {
+        error = t instanceof ExecutionException ? t.getCause() : t;
+        if (current != null)
+          OLogManager.instance().error(this, "Error importing record %s", error, current.getIdentity());
       }
+    }
 
-      final String rid = record.getIdentity().toString();
-      final int clusterId = record.getIdentity().getClusterId();
+    private void dumpClusterStatistics(final int iClusterId, final long iRecords) {
+      listener.onMessage("\n- Imported records into cluster '" + database.getClusterNameById(iClusterId) + "' (id=" + iClusterId
+          + "): " + iRecords + " records");
+    }
+  }
 
-      if (hashClustersAreUsed && (clusterId != manualIndexCluster && clusterId != internalCluster && clusterId != indexCluster))
-        storeHashClusterRecord(new ORecordId(rid));
-      else
-        storeLocalClusterRecord();
+  private ORID importRecord() throws Exception {
+    final String value = readRecord();
 
-      if (!record.getIdentity().toString().equals(rid))
-        throw new OSchemaException("Imported record '" + record.getIdentity() + "' has rid different from the original: " + rid);
+    record = null;
+    try {
+      record = ORecordSerializerJSON.INSTANCE.fromString(value, record, null);
+
+      if (storeRecord(record) == null)
+        return null;
     } catch (Exception t) {
       if (record != null)
         System.err.println("Error importing record " + record.getIdentity() + ". Source line " + jsonReader.getLineNumber()
@@ -731,8 +964,85 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
     return record.getIdentity();
   }
 
-  private void storeLocalClusterRecord() {
-    long nextAvailablePos = database.getStorage().getClusterDataRange(record.getIdentity().getClusterId())[1].longValue() + 1;
+  /**
+   * Reads the JSON content of the next record.
+   */
+  private String readRecord() throws IOException, ParseException {
+    String value = jsonReader.readString(OJSONReader.END_OBJECT, true);
+
+    // JUMP EMPTY RECORDS
+    while (!value.isEmpty() && value.charAt(0) != '{') {
+      value = value.substring(1);
+    }
+    return value;
+  }
+
+  /**
+   * Stores an imported record with its original identity.
+   * 
+   * @return The identity of the record, or null if the record has been skipped
+   */
+  private ORID storeRecord(final ORecordInternal<?> iRecord) {
+    if (schemaImported && iRecord.getIdentity().equals(schemaRecordId)) {
+      // JUMP THE SCHEMA
+      return null;
+    }
+
+    // CHECK IF THE CLUSTER IS INCLUDED
+    if (includeClusters != null) {
+      if (!includeClusters.contains(database.getClusterNameById(iRecord.getIdentity().getClusterId())))
+        return null;
+    } else if (excludeClusters != null) {
+      if (excludeClusters.contains(database.getClusterNameById(iRecord.getIdentity().getClusterId())))
+        return null;
+    }
+
+    if (iRecord.getIdentity().getClusterId() == 0 && iRecord.getIdentity().getClusterPosition().longValue() == 1)
+      // JUMP INTERNAL RECORDS
+      return null;
+
+    if (exporterVersion >= 3) {
+      int oridsId = database.getClusterIdByName(OMVRBTreeRIDProvider.PERSISTENT_CLASS_NAME);
+      int indexId = database.getClusterIdByName(OMetadata.CLUSTER_INDEX_NAME);
+
+      if (iRecord.getIdentity().getClusterId() == indexId || iRecord.getIdentity().getClusterId() == oridsId)
+        // JUMP INDEX RECORDS
+        return null;
+    }
+
+    final int manualIndexCluster = database.getClusterIdByName(OMetadata.CLUSTER_MANUAL_INDEX_NAME);
+    final int internalCluster = database.getClusterIdByName(OMetadata.CLUSTER_INTERNAL_NAME);
+    final int indexCluster = database.getClusterIdByName(OMetadata.CLUSTER_INDEX_NAME);
+
+    if (exporterVersion >= 4) {
+      if (iRecord.getIdentity().getClusterId() == manualIndexCluster)
+        // JUMP INDEX RECORDS
+        return null;
+    }
+
+    final String rid = iRecord.getIdentity().toString();
+    final int clusterId = iRecord.getIdentity().getClusterId();
+
+    if (hashClustersAreUsed && (clusterId != manualIndexCluster && clusterId != internalCluster && clusterId != indexCluster))
+      storeHashClusterRecord(iRecord, new ORecordId(rid));
+    else
+      storeLocalClusterRecord(iRecord);
+
+    if (!iRecord.getIdentity().toString().equals(rid))
+      throw new OSchemaException("Imported record '" + iRecord.getIdentity() + "' has rid different from the original: " + rid);
+
+    return iRecord.getIdentity();
+  }
+
+  private void storeLocalClusterRecord(final ORecordInternal<?> record) {
+    final int clusterId = record.getIdentity().getClusterId();
+
+    final long nextAvailablePos;
+    if (nextClusterPositions != null && nextClusterPositions.containsKey(clusterId))
+      // BULK MODE: THE NEXT POSITION IS KEPT IN MEMORY
+      nextAvailablePos = nextClusterPositions.get(clusterId);
+    else
+      nextAvailablePos = database.getStorage().getClusterDataRange(clusterId)[1].longValue() + 1;
 
     // SAVE THE RECORD
     if (record.getIdentity().getClusterPosition().longValue() < nextAvailablePos) {
@@ -764,10 +1074,13 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
         record.save(clusterName);
       else
         ((ODatabaseRecord) database.getUnderlying()).save(record, clusterName);
+
+      if (nextClusterPositions != null)
+        nextClusterPositions.put(clusterId, record.getIdentity().getClusterPosition().longValue() + 1);
     }
   }
 
-  private void storeHashClusterRecord(final ORecordId rid) {
+  private void storeHashClusterRecord(final ORecordInternal<?> record, final ORecordId rid) {
     ORecordInternal<?> recordInternal = database.load(rid);
     if (recordInternal != null)
       recordInternal.delete();
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+
+/**
+ * Restores a local database from the backups written by {@link ODatabaseBackup}: the last full backup is applied, then all the
+ * incremental backups written after it. The database must be closed.
+ *
+ * @author agent
+ */
+public class ODatabaseRestore {
+  private final File                   storageDirectory;
+  private final List<File>             backups;
+  private final OCommandOutputListener listener;
+
+  private static class OBackupInfo {
+    private final File    file;
+    private final long    timestamp;
+    private final boolean complete;
+
+    private OBackupInfo(final File iFile, final long iTimestamp, final boolean iComplete) {
+      file = iFile;
+      timestamp = iTimestamp;
+      complete = iComplete;
+    }
+  }
+
+  /**
+   * @param iStoragePath
+   *          Directory of the database to restore
+   * @param iBackupFiles
+   *          Backup files of the database, or directories that contain them. Other files are ignored
+   */
+  public ODatabaseRestore(final String iStoragePath, final List<File> iBackupFiles, final OCommandOutputListener iListener) {
+    storageDirectory = new File(iStoragePath);
+    backups = iBackupFiles;
+    listener = iListener;
+  }
+
+  public ODatabaseRestore(final String iStoragePath, final String iBackupDirectory, final OCommandOutputListener iListener) {
+    this(iStoragePath, Collections.singletonList(new File(iBackupDirectory)), iListener);
+  }
+
+  public void restore() {
+    final List<OBackupInfo> chain = getChain();
+
+    listener.onMessage("\nStarted restore of database in " + storageDirectory + " from " + chain.size() + " backups...");
+    final long time = System.currentTimeMillis();
+
+    storageDirectory.mkdirs();
+
+    for (OBackupInfo backup : chain) {
+      listener.onMessage("\n- " + (backup.complete ? "Full" : "Incremental") + " backup " + backup.file.getName() + "...");
+      try {
+        final long pages = apply(backup.file);
+        listener.onMessage("OK (" + pages + " pages)");
+      } catch (IOException e) {
+        throw new ODatabaseBackupException("Error on restoring the backup " + backup.file + " in " + storageDirectory, e);
+      }
+    }
+
+    listener.onMessage("\n\nDatabase restore completed in " + (System.currentTimeMillis() - time) + "ms");
+  }
+
+  /**
+   * Returns the backups to apply in order: the last full backup and the incremental backups after it.
+   */
+  private List<OBackupInfo> getChain() {
+    final List<OBackupInfo> infos = new ArrayList<OBackupInfo>();
+    for (File f : backups)
+      if (f.isDirectory()) {
+        final File[] files = f.listFiles();
+        if (files != null)
+          for (File child : files)
+            addBackup(infos, child);
+      } else
+        addBackup(infos, f);
+
+    Collections.sort(infos, new Comparator<OBackupInfo>() {
+      public int compare(final OBackupInfo o1, final OBackupInfo o2) {
+        return o1.timestamp < o2.timestamp ? -1 : o1.timestamp > o2.timestamp ? 1 : 0;
+      }
+    });
+
+    for (int i = infos.size() - 1; i >= 0; --i)
+      if (infos.get(i).complete)
+        return infos.subList(i, infos.size());
+
+    throw new ODatabaseBackupException("Cannot restore the database: no full backup found in " + backups);
+  }
+
+  private static void addBackup(final List<OBackupInfo> iInfos, final File iFile) {
+    if (!iFile.isFile())
+      return;
+
+    try {
+      final DataInputStream in = new DataInputStream(new FileInputStream(iFile));
+      try {
+        if (iFile.length() > 8 && in.readInt() == ODatabaseBackup.MAGIC && in.readInt() == ODatabaseBackup.VERSION)
+          iInfos.add(new OBackupInfo(iFile, in.readLong(), in.readBoolean()));
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      // NOT A BACKUP
+    }
+  }
+
+  private long apply(final File iBackup) throws IOException {
+    final Map<String, RandomAccessFile> files = new HashMap<String, RandomAccessFile>();
+    long pages = 0;
+
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(iBackup)));
+    try {
+      // SKIP THE HEADER
+      in.readInt();
+      in.readInt();
+      in.readLong();
+      in.readBoolean();
+
+      byte[] buffer = new byte[0];
+      byte entry;
+      while ((entry = in.readByte()) != ODatabaseBackup.ENTRY_END) {
+        if (entry == ODatabaseBackup.ENTRY_PAGE) {
+          final RandomAccessFile file = getFile(files, in.readUTF());
+          final long offset = in.readLong();
+          final int size = in.readInt();
+          if (buffer.length < size)
+            buffer = new byte[size];
+          in.readFully(buffer, 0, size);
+
+          file.seek(offset);
+          file.write(buffer, 0, size);
+          pages++;
+
+        } else if (entry == ODatabaseBackup.ENTRY_FILES) {
+          // RESIZE THE FILES AND DELETE THE ONES THAT DIDN'T EXIST AT THE TIME OF THE BACKUP
+          final Set<String> names = new HashSet<String>();
+          final int count = in.readInt();
+          for (int i = 0; i < count; ++i) {
+            final String name = in.readUTF();
+            names.add(name);
+            getFile(files, name).setLength(in.readLong());
+          }
+
+          final File[] existent = storageDirectory.listFiles();
+          if (existent != null)
+            for (File f : existent)
+              if (f.isFile() && !names.contains(f.getName())) {
+                final RandomAccessFile file = files.remove(f.getName());
+                if (file != null)
+                  file.close();
+                if (!f.delete())
+                  throw new IOException("Cannot delete the file " + f);
+              }
+
+        } else
+          throw new IOException("Invalid entry " + entry + ": the backup is corrupted");
+      }
+    } finally {
+      in.close();
+      for (RandomAccessFile file : files.values())
+        file.close();
+    }
+    return pages;
+  }
+
+  private RandomAccessFile getFile(final Map<String, RandomAccessFile> iFiles, final String iName) throws IOException {
+    RandomAccessFile file = iFiles.get(iName);
+    if (file == null) {
+      file = new RandomAccessFile(new File(storageDirectory, iName), "rw");
+      iFiles.put(iName, file);
+    }
+    return file;
+  }
+}
@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.core.fetch;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -24,6 +25,7 @@ import java.util.Map;
 
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
@@ -125,7 +127,7 @@ public class OFetchHelper {
 
   }
 
-  private static int getDepthLevel(final Map<String, Integer> iFetchPlan, final String iFieldPath) {
+  public static int getDepthLevel(final Map<String, Integer> iFetchPlan, final String iFieldPath) {
     Integer depthLevel = iFetchPlan.get(OFetchHelper.ROOT_FETCH);
 
     for (String fieldFetchDefinition : iFetchPlan.keySet()) {
@@ -224,10 +226,20 @@ public class OFetchHelper {
       final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords, final String iFieldPathFromRoot,
       final OFetchContext iContext) throws IOException {
     final Collection<OIdentifiable> linked = (Collection<OIdentifiable>) fieldValue;
+
+    // LOAD ALL THE LINKED RECORDS AT ONCE
+    final List<OIdentifiable> toLoad = new ArrayList<OIdentifiable>();
+    for (OIdentifiable d : linked)
+      if (d instanceof ORecordId)
+        toLoad.add(d);
+    final Map<ORID, ORecordInternal<?>> loaded = toLoad.isEmpty() ? null : iDatabase.loadRecords(toLoad);
+
     for (OIdentifiable d : linked) {
       // GO RECURSIVELY
-      if (d instanceof ORecordId)
-        d = iDatabase.load((ORecordId) d);
+      if (d instanceof ORecordId) {
+        final ORecordInternal<?> record = loaded.get(d);
+        d = record != null ? record : iDatabase.load((ORecordId) d);
+      }
 
       updateRidMap(iFetchPlan, (ODocument) d, iCurrentLevel, iLevelFromRoot, iFieldDepthLevel, parsedRecords, iFieldPathFromRoot,
           iContext);
@@ -451,12 +463,20 @@ public class OFetchHelper {
     } else
       throw new IllegalStateException("Unrecognized type: " + fieldValue.getClass());
 
-    final Iterator<?> iter;
-    if (linked instanceof ORecordLazyMultiValue)
-      iter = ((ORecordLazyMultiValue) linked).rawIterator();
-    else
-      iter = linked.iterator();
+    // LOAD ALL THE LINKED RECORDS TO FETCH AT ONCE
+    final List<OIdentifiable> toLoad = new ArrayList<OIdentifiable>();
+    for (Iterator<?> it = rawIterator(linked); it.hasNext();) {
+      final Object o = it.next();
+      if (o instanceof ORecordId) {
+        final Integer fieldDepthLevel = parsedRecords.get(o);
+        if (((ORecordId) o).isPersistent() && fieldDepthLevel != null && fieldDepthLevel.intValue() == iLevelFromRoot)
+          toLoad.add((ORecordId) o);
+      }
+    }
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    final Map<ORID, ORecordInternal<?>> loaded = toLoad.size() > 1 && database != null ? database.loadRecords(toLoad) : null;
 
+    final Iterator<?> iter = rawIterator(linked);
     while (iter.hasNext()) {
       final Object o = iter.next();
       if (o == null)
@@ -469,7 +489,8 @@ public class OFetchHelper {
         final Integer fieldDepthLevel = parsedRecords.get(d.getIdentity());
         if (!d.getIdentity().isValid() || (fieldDepthLevel != null && fieldDepthLevel.intValue() == iLevelFromRoot)) {
           removeParsedFromMap(parsedRecords, d);
-          d = d.getRecord();
+          final ORecordInternal<?> preloaded = loaded != null ? loaded.get(d.getIdentity()) : null;
+          d = preloaded != null ? preloaded : d.getRecord();
 
           if (!(d instanceof ODocument)) {
             iListener.processStandardField(null, d, fieldName, iContext, iUserObject);
@@ -499,6 +520,12 @@ public class OFetchHelper {
       iContext.onAfterMap(iRootRecord, fieldName, iUserObject);
   }
 
+  private static Iterator<?> rawIterator(final Collection<?> iCollection) {
+    if (iCollection instanceof ORecordLazyMultiValue)
+      return ((ORecordLazyMultiValue) iCollection).rawIterator();
+    return iCollection.iterator();
+  }
+
   private static void fetchDocument(final ORecordSchemaAware<?> iRootRecord, final Object iUserObject,
       final Map<String, Integer> iFetchPlan, final OIdentifiable fieldValue, final String fieldName, final int iCurrentLevel,
       final int iLevelFromRoot, final int iFieldDepthLevel, final Map<ORID, Integer> parsedRecords,
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.fetch.remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.fetch.OFetchHelper;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
+import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeRIDProvider;
+
+/**
+ * Walks the records linked by the fetch plan to send them to the remote client. Unlike {@link OFetchHelper} the records are
+ * browsed breadth first with a queue instead of recursion, every record is sent once per request even if it's linked by more
+ * records or by more results, and it's sent as soon as it's found. The walk stops when the configured number of records or bytes
+ * have been sent: the client loads the missing records when it uses them.<br/>
+ * <br/>
+ * Depth levels follow the fetch plan syntax of {@link OFetchHelper}: with "*:1" the records linked by the root are sent, with
+ * "field:2" also the records linked by the ones in "field", -1 means no limit and -2 excludes the field.
+ *
+ * @author agent
+ */
+public abstract class ORemoteFetchWalker {
+  // MAXIMUM LEVEL OF NESTED COLLECTIONS BROWSED TO FIND LINKS
+  private static final int           MAX_NESTING = 3;
+  // MAXIMUM RECORDS REMEMBERED AS SENT BETWEEN TWO ROOTS: BEYOND IT THEY ARE FORGOTTEN AND COULD BE SENT AGAIN
+  static final int                   MAX_VISITED = 10000;
+
+  private final Map<String, Integer> fetchPlan;
+  private final boolean              active;
+  private final int                  maxRecords;
+  private final long                 maxBytes;
+  private final Set<ORID>            visited     = new HashSet<ORID>();
+  private final LinkedList<OStep>    queue       = new LinkedList<OStep>();
+  private int                        fetchedRecords;
+  private long                       sentBytes;
+  private boolean                    exhausted;
+
+  private static class OStep {
+    private final ODocument record;
+    private final String    path;
+    private final int       level;
+    private final int       depthLevel;
+
+    private OStep(final ODocument iRecord, final String iPath, final int iLevel, final int iDepthLevel) {
+      record = iRecord;
+      path = iPath;
+      level = iLevel;
+      depthLevel = iDepthLevel;
+    }
+  }
+
+  public ORemoteFetchWalker(final String iFetchPlan) {
+    this(OFetchHelper.buildFetchPlan(iFetchPlan), OGlobalConfiguration.NETWORK_BINARY_FETCH_MAX_RECORDS.getValueAsInteger(),
+        OGlobalConfiguration.NETWORK_BINARY_FETCH_MAX_BYTES.getValueAsInteger());
+  }
+
+  /**
+   * @param iFetchPlan
+   *          Fetch plan as returned by {@link OFetchHelper#buildFetchPlan(String)}
+   * @param iMaxRecords
+   *          Maximum number of records to send, -1 means no limit
+   * @param iMaxBytes
+   *          Maximum bytes of the records to send, -1 means no limit
+   */
+  public ORemoteFetchWalker(final Map<String, Integer> iFetchPlan, final int iMaxRecords, final long iMaxBytes) {
+    fetchPlan = iFetchPlan;
+    active = iFetchPlan.size() > 1 || iFetchPlan.get(OFetchHelper.ROOT_FETCH).intValue() != 0;
+    maxRecords = iMaxRecords;
+    maxBytes = iMaxBytes;
+  }
+
+  /**
+   * Sends a linked record to the client.
+   *
+   * @param iRecord
+   *          Record to send
+   * @param iStream
+   *          Content of the record, already serialized to count its bytes
+   */
+  protected abstract void sendRecord(ODocument iRecord, byte[] iStream) throws IOException;
+
+  /**
+   * Marks a record as already sent, such as a record of the result set.
+   */
+  public void skip(final OIdentifiable iRecord) {
+    if (!iRecord.getIdentity().isValid())
+      return;
+
+    if (visited.size() >= MAX_VISITED)
+      // LONG RESULT SETS, SUCH AS THE ONES OF ASYNCHRONOUS COMMANDS, DON'T KEEP ALL THEIR RECORDS IN MEMORY
+      visited.clear();
+    visited.add(iRecord.getIdentity());
+  }
+
+  /**
+   * Sends the records linked by a record according to the fetch plan. The records sent by the previous calls are not sent again,
+   * unless more than {@link #MAX_VISITED} records have been sent or skipped since then.
+   */
+  public void fetch(final ORecord<?> iRoot) throws IOException {
+    if (!active || exhausted || !(iRoot instanceof ODocument))
+      return;
+
+    skip(iRoot);
+    queue.add(new OStep((ODocument) iRoot, "", 0, -1));
+    try {
+      while (!queue.isEmpty() && !exhausted)
+        processRecord(queue.removeFirst());
+    } finally {
+      queue.clear();
+    }
+
+    if (exhausted)
+      OLogManager.instance().debug(this, "Fetch plan of record %s truncated after %d records and %d bytes", iRoot.getIdentity(),
+          fetchedRecords, sentBytes);
+  }
+
+  public boolean isExhausted() {
+    return exhausted;
+  }
+
+  public long getSentBytes() {
+    return sentBytes;
+  }
+
+  private void processRecord(final OStep iStep) throws IOException {
+    final List<OIdentifiable> links = new ArrayList<OIdentifiable>();
+
+    for (String fieldName : iStep.record.fieldNames()) {
+      final String fieldPath = iStep.path.length() > 0 ? iStep.path + "." + fieldName : fieldName;
+      final int depthLevel = iStep.depthLevel > -1 ? iStep.depthLevel : OFetchHelper.getDepthLevel(fetchPlan, fieldPath);
+      if (depthLevel == -2)
+        continue;
+
+      final Integer explicitLevel = fetchPlan.get(fieldPath);
+      if (explicitLevel == null && depthLevel > -1 && iStep.level >= depthLevel)
+        // MAX DEPTH REACHED: STOP TO FETCH THIS FIELD
+        continue;
+
+      links.clear();
+      collectLinks(iStep.record.field(fieldName), links, 0);
+      if (links.isEmpty())
+        continue;
+
+      // A FIELD EXPRESSED IN THE FETCH PLAN STARTS A NEW COUNT OF THE LEVELS
+      final int level = explicitLevel != null ? 1 : iStep.level + 1;
+      final int childDepthLevel = explicitLevel != null ? explicitLevel.intValue() : iStep.depthLevel;
+
+      final List<OIdentifiable> toLoad = new ArrayList<OIdentifiable>();
+      for (OIdentifiable link : links) {
+        final ORID rid = link.getIdentity();
+        if (!rid.isValid()) {
+          // EMBEDDED: BROWSE ITS LINKS AT THE SAME LEVEL OF THE OWNER
+          if (link instanceof ODocument)
+            queue.add(new OStep((ODocument) link, fieldPath, level - 1, childDepthLevel));
+          continue;
+        }
+
+        if (visited.contains(rid))
+          continue;
+
+        if (maxRecords > -1 && fetchedRecords >= maxRecords) {
+          exhausted = true;
+          break;
+        }
+        visited.add(rid);
+        fetchedRecords++;
+        toLoad.add(link);
+      }
+
+      if (!toLoad.isEmpty())
+        sendRecords(toLoad, fieldPath, level, childDepthLevel);
+
+      if (exhausted)
+        return;
+    }
+  }
+
+  /**
+   * Sends the records, loading at once the ones not loaded yet, and schedules them to be browsed.
+   */
+  private void sendRecords(final List<OIdentifiable> iLinks, final String iPath, final int iLevel, final int iDepthLevel)
+      throws IOException {
+    Map<ORID, ORecordInternal<?>> loaded = null;
+    if (iLinks.size() > 1) {
+      final List<OIdentifiable> ids = new ArrayList<OIdentifiable>();
+      for (OIdentifiable link : iLinks)
+        if (!(link instanceof ORecord<?>))
+          ids.add(link);
+
+      final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+      if (ids.size() > 1 && database != null)
+        loaded = database.loadRecords(ids);
+    }
+
+    for (OIdentifiable link : iLinks) {
+      OIdentifiable record = loaded != null ? loaded.get(link.getIdentity()) : null;
+      if (record == null)
+        record = link.getRecord();
+
+      if (!(record instanceof ODocument))
+        continue;
+
+      final ODocument doc = (ODocument) record;
+      final byte[] stream = doc.toStream();
+      if (maxBytes > -1 && sentBytes + stream.length > maxBytes) {
+        exhausted = true;
+        return;
+      }
+
+      sendRecord(doc, stream);
+      sentBytes += stream.length;
+      queue.add(new OStep(doc, iPath, iLevel, iDepthLevel));
+    }
+  }
+
+  private static void collectLinks(final Object iValue, final List<OIdentifiable> iLinks, final int iNesting) {
+    if (iValue == null)
+      return;
+
+    if (iValue instanceof OIdentifiable) {
+      if (iValue instanceof ODocument && OMVRBTreeRIDProvider.PERSISTENT_CLASS_NAME.equals(((ODocument) iValue).getClassName())) {
+        // RID SET SERIALIZED AS DOCUMENT
+        if (iNesting < MAX_NESTING)
+          collectLinks(new OMVRBTreeRIDSet().fromDocument((ODocument) iValue), iLinks, iNesting + 1);
+      } else
+        iLinks.add((OIdentifiable) iValue);
+
+    } else if (iNesting < MAX_NESTING) {
+      final Iterator<?> it;
+      if (iValue instanceof ORecordLazyMultiValue)
+        // DON'T LOAD THE RECORDS WHILE BROWSING
+        it = ((ORecordLazyMultiValue) iValue).rawIterator();
+      else if (OMultiValue.isMultiValue(iValue))
+        it = OMultiValue.getMultiValueIterator(iValue);
+      else
+        return;
+
+      while (it.hasNext())
+        collectLinks(it.next(), iLinks, iNesting + 1);
+    }
+  }
+}
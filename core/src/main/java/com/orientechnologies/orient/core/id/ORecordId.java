@@ -143,6 +143,15 @@ public class ORecordId implements ORID {
     return result;
   }
 
+  /**
+   * Returns the hash code of a RID with the bits spread, for hash tables that use the lowest bits: the hash codes of the RIDs of
+   * the same cluster differ only in the lowest ones.
+   */
+  public static int spreadHash(final ORID iRid) {
+    final int h = iRid.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
   public int compareTo(final OIdentifiable iOther) {
     if (iOther == this)
       return 0;
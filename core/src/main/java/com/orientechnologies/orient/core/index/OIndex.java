@@ -183,6 +183,50 @@ public interface OIndex<T> extends OKeyValueIndex<T> {
 
   public Collection<ODocument> getEntriesBetween(Object iRangeFrom, Object iRangeTo);
 
+  /**
+   * Returns a cursor over the entries with key between the range passed as parameter, in key order. Unlike
+   * {@link #getEntriesBetween(Object, Object, boolean)} the entries are read from the index while the cursor moves, so nothing is
+   * fetched past the point where the caller stops.
+   *
+   * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as values boundaries.
+   *
+   * @param iRangeFrom
+   *          Starting range
+   * @param iFromInclusive
+   *          Indicates whether start range boundary is included in result.
+   * @param iRangeTo
+   *          Ending range
+   * @param iToInclusive
+   *          Indicates whether end range boundary is included in result.
+   * @return Iterator of entries (key, record id), one per record id
+   */
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesBetween(Object iRangeFrom, boolean iFromInclusive, Object iRangeTo,
+      boolean iToInclusive);
+
+  /**
+   * Returns a cursor over the entries with key greater than the passed parameter, in key order.
+   *
+   * @param fromKey
+   *          Starting key.
+   * @param isInclusive
+   *          Indicates whether record with passed key will be included.
+   * @return Iterator of entries (key, record id), one per record id
+   * @see #iterateEntriesBetween(Object, boolean, Object, boolean)
+   */
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMajor(Object fromKey, boolean isInclusive);
+
+  /**
+   * Returns a cursor over the entries with key less than the passed parameter, in key order.
+   *
+   * @param toKey
+   *          Ending key.
+   * @param isInclusive
+   *          Indicates whether record with passed key will be included.
+   * @return Iterator of entries (key, record id), one per record id
+   * @see #iterateEntriesBetween(Object, boolean, Object, boolean)
+   */
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMinor(Object toKey, boolean isInclusive);
+
   /**
    * Returns the Record Identity of the index if persistent.
    * 
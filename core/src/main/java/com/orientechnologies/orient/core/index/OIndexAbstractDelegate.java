@@ -126,6 +126,19 @@ public class OIndexAbstractDelegate<T> implements OIndex<T> {
     return delegate.getEntriesBetween(iRangeFrom, iRangeTo);
   }
 
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesBetween(final Object iRangeFrom, final boolean iFromInclusive,
+      final Object iRangeTo, final boolean iToInclusive) {
+    return delegate.iterateEntriesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive);
+  }
+
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMajor(final Object fromKey, final boolean isInclusive) {
+    return delegate.iterateEntriesMajor(fromKey, isInclusive);
+  }
+
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMinor(final Object toKey, final boolean isInclusive) {
+    return delegate.iterateEntriesMinor(toKey, isInclusive);
+  }
+
   public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive) {
     return delegate.getValuesMajor(fromKey, isInclusive);
   }
@@ -0,0 +1,513 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Loads an index with the keys of all the records of its clusters. The keys are extracted by a pool of threads, each one browsing a
+ * range of positions of a cluster. Every thread sorts the keys it finds in runs of {@link OGlobalConfiguration#INDEX_REBUILD_SORT_BUFFER}
+ * entries, written to temporary files when they don't fit in memory. The runs are then merged, at most
+ * {@link OGlobalConfiguration#INDEX_REBUILD_MERGE_FILES} at a time, and the keys are put in the index in ascending order, so the
+ * tree is always updated on the same few pages.<br/>
+ * The caller browses the ranges with its own database too, while every other thread opens a database for the user of the caller:
+ * the ranges are never waited for a thread that cannot open it yet, as when the index is rebuilt during the opening of the
+ * database. The records are read out of transactions.
+ *
+ * @author agent
+ */
+public class OIndexBulkLoader {
+  private static final int                  MIN_RANGE          = 10000;
+  private static final Comparator<OEntry>   KEY_COMPARATOR     = new Comparator<OEntry>() {
+                                                                 public int compare(final OEntry iFirst, final OEntry iSecond) {
+                                                                   return ODefaultComparator.INSTANCE.compare(iFirst.key,
+                                                                       iSecond.key);
+                                                                 }
+                                                               };
+
+  private final OIndexMVRBTreeAbstract<?>   index;
+  private final ODatabaseRecord             database;
+  private final OIndexDefinition            indexDefinition;
+  private final OBinarySerializer<Object>   keySerializer;
+  private final OProgressListener           progressListener;
+  private final int                         threads;
+  private final int                         sortBuffer;
+  private final int                         mergeFiles;
+  private final List<ORun>                  runs               = Collections.synchronizedList(new ArrayList<ORun>());
+  private final AtomicLong                  documentsRead      = new AtomicLong();
+  private final AtomicLong                  documentsIndexed   = new AtomicLong();
+  private final AtomicLong                  entriesSorted      = new AtomicLong();
+  private final AtomicLong                  entriesInMemory    = new AtomicLong();
+  private final AtomicInteger               nextRange          = new AtomicInteger();
+  private volatile Throwable                error;
+  private volatile boolean                  closed             = false;
+
+  private static class OEntry {
+    private final Object key;
+    private final ORID   rid;
+
+    private OEntry(final Object iKey, final ORID iRid) {
+      key = iKey;
+      rid = iRid;
+    }
+  }
+
+  /**
+   * Sorted sequence of entries.
+   */
+  private interface ORun {
+    /**
+     * @return The next entry, or null at the end of the run
+     */
+    OEntry next() throws IOException;
+
+    void close();
+  }
+
+  private static class OMemoryRun implements ORun {
+    private final Iterator<OEntry> iterator;
+
+    private OMemoryRun(final List<OEntry> iEntries) {
+      iterator = iEntries.iterator();
+    }
+
+    public OEntry next() {
+      return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    public void close() {
+    }
+  }
+
+  private class OFileRun implements ORun {
+    private final File       file;
+    private DataOutputStream out;
+    private DataInputStream  in;
+
+    private OFileRun() throws IOException {
+      file = File.createTempFile("orientdb-index-", ".run");
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+    }
+
+    private void write(final OEntry iEntry) throws IOException {
+      final byte[] key = new byte[keySerializer.getObjectSize(iEntry.key)];
+      keySerializer.serialize(iEntry.key, key, 0);
+      out.writeInt(key.length);
+      out.write(key);
+      iEntry.rid.toStream(out);
+    }
+
+    private void endWrite() throws IOException {
+      out.close();
+      out = null;
+    }
+
+    public OEntry next() throws IOException {
+      if (in == null)
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+
+      final int keySize;
+      try {
+        keySize = in.readInt();
+      } catch (EOFException e) {
+        // END OF THE RUN
+        return null;
+      }
+
+      final byte[] key = new byte[keySize];
+      in.readFully(key);
+      return new OEntry(keySerializer.deserialize(key, 0), new ORecordId().fromStream(in));
+    }
+
+    public void close() {
+      try {
+        if (out != null)
+          out.close();
+        if (in != null)
+          in.close();
+      } catch (IOException e) {
+        // IGNORE IT
+      }
+      if (!file.delete())
+        OLogManager.instance().warn(this, "Cannot delete the temporary file %s", file);
+    }
+  }
+
+  /**
+   * Current entry of a run during the merge.
+   */
+  private static class OCursor implements Comparable<OCursor> {
+    private final ORun run;
+    private OEntry     entry;
+
+    private OCursor(final ORun iRun) throws IOException {
+      run = iRun;
+      entry = iRun.next();
+    }
+
+    public int compareTo(final OCursor iOther) {
+      return KEY_COMPARATOR.compare(entry, iOther.entry);
+    }
+  }
+
+  private class ORange {
+    private final int              clusterId;
+    private final OClusterPosition begin;
+    private final OClusterPosition end;
+
+    private ORange(final int iClusterId, final OClusterPosition iBegin, final OClusterPosition iEnd) {
+      clusterId = iClusterId;
+      begin = iBegin;
+      end = iEnd;
+    }
+
+    /**
+     * Extracts the keys of the range with the database of the current thread. The range is always counted as done, also when the
+     * extraction fails or has been stopped.
+     */
+    private void extract(final ODatabaseRecord iDatabase, final CountDownLatch iPendingRanges) {
+      try {
+        if (closed || error != null)
+          return;
+
+        List<OEntry> entries = new ArrayList<OEntry>();
+
+        final ORecordIteratorCluster<ORecordInternal<?>> iterator = new ORecordIteratorCluster<ORecordInternal<?>>(iDatabase,
+            (ODatabaseRecordAbstract) iDatabase, clusterId, begin, end, false, false);
+
+        try {
+          while (!closed && error == null && iterator.hasNext()) {
+            final ORecordInternal<?> record = iterator.next();
+            documentsRead.incrementAndGet();
+
+            if (record instanceof ODocument) {
+              final Object fieldValue = indexDefinition.getDocumentValueToIndex((ODocument) record);
+
+              if (fieldValue != null) {
+                final ORID rid = record.getIdentity().copy();
+                if (fieldValue instanceof Collection) {
+                  for (final Object fieldValueItem : (Collection<?>) fieldValue)
+                    entries.add(new OEntry(fieldValueItem, rid));
+                } else
+                  entries.add(new OEntry(fieldValue, rid));
+
+                documentsIndexed.incrementAndGet();
+              }
+            }
+
+            if (entries.size() >= sortBuffer) {
+              addRun(entries, true);
+              entries = new ArrayList<OEntry>();
+            }
+          }
+        } catch (NoSuchElementException e) {
+          // END OF CLUSTER REACHED, IGNORE IT
+        }
+
+        if (!closed && !entries.isEmpty())
+          // KEEP THE LAST RUN IN MEMORY IF THERE IS ROOM
+          addRun(entries, entriesInMemory.addAndGet(entries.size()) > (long) sortBuffer * threads);
+
+      } catch (IOException e) {
+        setError(new OIndexException("Cannot write the keys of index '" + index.getName() + "' to a temporary file", e));
+      } catch (Throwable t) {
+        setError(t);
+      } finally {
+        iPendingRanges.countDown();
+      }
+    }
+  }
+
+  /**
+   * Thread of the pool: opens its own database and browses the ranges not taken yet.
+   */
+  private class OWorker implements Runnable {
+    private final List<ORange>   ranges;
+    private final CountDownLatch pendingRanges;
+
+    private OWorker(final List<ORange> iRanges, final CountDownLatch iPendingRanges) {
+      ranges = iRanges;
+      pendingRanges = iPendingRanges;
+    }
+
+    public void run() {
+      ODatabaseDocumentTx db = null;
+      try {
+        db = Orient.instance().getDatabaseFactory().openWorkerDatabase(database);
+        if (closed)
+          return;
+
+        final ODatabaseRecord workerDatabase = ODatabaseRecordThreadLocal.INSTANCE.get();
+        int i;
+        while ((i = nextRange.getAndIncrement()) < ranges.size())
+          ranges.get(i).extract(workerDatabase, pendingRanges);
+
+      } catch (Throwable t) {
+        // THE RANGES NOT TAKEN YET ARE BROWSED BY THE OTHER THREADS
+        OLogManager.instance().warn(this, "Cannot open the database to extract the keys of index '%s'", t, index.getName());
+      } finally {
+        try {
+          if (db != null)
+            db.close();
+        } finally {
+          ODatabaseRecordThreadLocal.INSTANCE.remove();
+        }
+      }
+    }
+  }
+
+  public OIndexBulkLoader(final OIndexMVRBTreeAbstract<?> iIndex, final ODatabaseRecord iDatabase,
+      final OBinarySerializer<Object> iKeySerializer, final OProgressListener iProgressListener) {
+    index = iIndex;
+    database = iDatabase;
+    indexDefinition = iIndex.getDefinition();
+    keySerializer = iKeySerializer;
+    progressListener = iProgressListener;
+    threads = Math.max(1, OGlobalConfiguration.INDEX_REBUILD_THREADS.getValueAsInteger());
+    sortBuffer = Math.max(1, OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.getValueAsInteger());
+    mergeFiles = Math.max(2, OGlobalConfiguration.INDEX_REBUILD_MERGE_FILES.getValueAsInteger());
+  }
+
+  /**
+   * Puts the keys of all the records of the clusters in the index. Progress is reported as the documents read in the first half and
+   * as the keys put in the index in the second half.
+   *
+   * @return The number of documents indexed
+   */
+  public long load(final Collection<String> iClusterNames, final long iDocumentTotal) {
+    try {
+      extract(iClusterNames, iDocumentTotal);
+      merge();
+    } catch (IOException e) {
+      throw new OIndexException("Cannot read the keys of index '" + index.getName() + "' from a temporary file", e);
+    } finally {
+      for (ORun run : runs)
+        run.close();
+      runs.clear();
+    }
+
+    return documentsIndexed.get();
+  }
+
+  private void extract(final Collection<String> iClusterNames, final long iDocumentTotal) {
+    final List<ORange> ranges = split(iClusterNames);
+    if (ranges.isEmpty())
+      return;
+
+    final CountDownLatch pendingRanges = new CountDownLatch(ranges.size());
+
+    // THE CALLER IS ONE OF THE EXTRACTING THREADS, THE ONLY ONE IF THE OTHERS CAN'T OPEN THE DATABASE
+    final int workers = Orient.instance().getDatabaseFactory().isWorkerDatabaseSupported(database) ? Math.min(threads,
+        ranges.size()) - 1 : 0;
+    ThreadPoolExecutor pool = null;
+    if (workers > 0) {
+      final AtomicInteger threadId = new AtomicInteger();
+      pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+          final Thread thread = new Thread(Orient.getThreadGroup(), r, "OrientDB Index Rebuild " + index.getName() + " "
+              + threadId.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    try {
+      for (int i = 0; i < workers; ++i)
+        pool.execute(new OWorker(ranges, pendingRanges));
+
+      int i;
+      while ((i = nextRange.getAndIncrement()) < ranges.size()) {
+        ranges.get(i).extract(database, pendingRanges);
+        reportExtraction(iDocumentTotal);
+      }
+
+      // WAIT FOR THE RANGES TAKEN BY THE OTHER THREADS
+      while (!pendingRanges.await(1, TimeUnit.SECONDS))
+        reportExtraction(iDocumentTotal);
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OIndexException("Rebuild of index '" + index.getName() + "' has been interrupted", e);
+
+    } finally {
+      closed = true;
+      if (pool != null)
+        pool.shutdownNow();
+    }
+
+    if (error instanceof OIndexException)
+      throw (OIndexException) error;
+    if (error != null)
+      throw new OIndexException("Error on extracting the keys of index '" + index.getName() + "'", error);
+  }
+
+  /**
+   * Merges the sorted runs and puts the entries in the index in ascending order of key. When there are too many runs to read them
+   * at once, groups of runs are merged in new runs first.
+   */
+  private void merge() throws IOException {
+    while (runs.size() > mergeFiles) {
+      final List<ORun> group = new ArrayList<ORun>(runs.subList(0, mergeFiles));
+      final OFileRun merged = new OFileRun();
+      runs.add(merged);
+      mergeRuns(group, merged);
+      merged.endWrite();
+
+      runs.removeAll(group);
+      for (ORun run : group)
+        run.close();
+    }
+
+    mergeRuns(runs, null);
+  }
+
+  /**
+   * Merges the runs in a new run, or in the index if the target is null.
+   */
+  private void mergeRuns(final List<ORun> iRuns, final OFileRun iTarget) throws IOException {
+    final PriorityQueue<OCursor> cursors = new PriorityQueue<OCursor>(Math.max(1, iRuns.size()));
+    for (ORun run : iRuns) {
+      final OCursor cursor = new OCursor(run);
+      if (cursor.entry != null)
+        cursors.add(cursor);
+    }
+
+    final long entriesTotal = entriesSorted.get();
+    long entriesLoaded = 0;
+    while (!cursors.isEmpty()) {
+      final OCursor cursor = cursors.poll();
+      if (iTarget != null)
+        iTarget.write(cursor.entry);
+      else {
+        index.put(cursor.entry.key, cursor.entry.rid);
+
+        if (progressListener != null && ++entriesLoaded % MIN_RANGE == 0)
+          progressListener.onProgress(index, documentsRead.get(), 50f + entriesLoaded * 50f / entriesTotal);
+      }
+
+      cursor.entry = cursor.run.next();
+      if (cursor.entry != null)
+        cursors.add(cursor);
+    }
+  }
+
+  private void reportExtraction(final long iDocumentTotal) {
+    if (progressListener != null)
+      progressListener.onProgress(index, documentsRead.get(), iDocumentTotal > 0 ? documentsRead.get() * 50f / iDocumentTotal : 0);
+  }
+
+  private synchronized void setError(final Throwable iError) {
+    if (error == null)
+      error = iError;
+  }
+
+  private void addRun(final List<OEntry> iEntries, final boolean iToFile) throws IOException {
+    Collections.sort(iEntries, KEY_COMPARATOR);
+    entriesSorted.addAndGet(iEntries.size());
+    if (!iToFile) {
+      runs.add(new OMemoryRun(iEntries));
+      return;
+    }
+
+    final OFileRun run = new OFileRun();
+    runs.add(run);
+    for (OEntry entry : iEntries)
+      run.write(entry);
+    run.endWrite();
+  }
+
+  /**
+   * Splits the clusters in ranges of positions, up to one per thread for every cluster.
+   */
+  private List<ORange> split(final Collection<String> iClusterNames) {
+    final List<ORange> ranges = new ArrayList<ORange>();
+    final boolean splittable = OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong;
+
+    for (String clusterName : iClusterNames) {
+      final int clusterId = database.getClusterIdByName(clusterName);
+      if (clusterId < 0)
+        continue;
+
+      final OClusterPosition[] dataRange = database.getStorage().getClusterDataRange(clusterId);
+      final OClusterPosition first = dataRange[0];
+      final OClusterPosition last = dataRange[1];
+      if (!first.isValid() || !last.isValid() || first.compareTo(last) > 0)
+        continue;
+
+      final long records = database.countClusterElements(clusterId);
+      if (records == 0)
+        continue;
+
+      final int parts = splittable ? (int) Math.min(threads, Math.max(1, records / MIN_RANGE)) : 1;
+      final long step = (last.longValue() - first.longValue() + 1) / parts;
+      if (parts == 1 || step == 0) {
+        ranges.add(new ORange(clusterId, first, last));
+        continue;
+      }
+
+      long begin = first.longValue();
+      for (int i = 0; i < parts; ++i) {
+        final long end = i == parts - 1 ? last.longValue() : begin + step - 1;
+        ranges.add(new ORange(clusterId, OClusterPositionFactory.INSTANCE.valueOf(begin), OClusterPositionFactory.INSTANCE
+            .valueOf(end)));
+        begin = end + 1;
+      }
+    }
+    return ranges;
+  }
+}
@@ -43,8 +43,11 @@ public class OIndexDictionary extends OIndexOneValue {
 
         final OIdentifiable value = map.get(iKey);
 
-        if (value == null || !value.equals(iSingleValue))
+        if (value == null || !value.equals(iSingleValue)) {
           map.put(iKey, iSingleValue);
+          if (value == null)
+            statistics.onPut(iKey, true);
+        }
 
         return this;
 
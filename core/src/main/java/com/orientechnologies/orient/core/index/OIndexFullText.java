@@ -110,15 +110,17 @@ public class OIndexFullText extends OIndexMultiValues {
 
           // SEARCH FOR THE WORD
           refs = map.get(word);
+          final boolean newWord = refs == null;
 
-          if (refs == null) {
+          if (newWord) {
             // WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
             refs = new OMVRBTreeRIDSet();
             ((OMVRBTreeRIDSet) refs).setAutoConvertToRecord(false);
           }
 
           // ADD THE CURRENT DOCUMENT AS REF FOR THAT WORD
-          refs.add(iSingleValue);
+          if (refs.add(iSingleValue))
+            statistics.onPut(word, newWord);
 
           // SAVE THE INDEX ENTRY
           map.put(word, refs);
@@ -163,6 +165,7 @@ public class OIndexFullText extends OIndexMultiValues {
                 map.remove(word);
               else
                 map.put(word, recs);
+              statistics.onRemove(word, 1, recs.isEmpty());
               removed = true;
             }
           }
@@ -89,6 +89,13 @@ public interface OIndexInternal<T> extends OIndex<T>, Iterable<Entry<Object, T>>
    */
   public boolean canBeUsedInEqualityOperators();
 
+  /**
+   * Returns the statistics of the keys used by the query planner to estimate the cost of the index lookups.
+   * 
+   * @return The statistics, or null if the index does not collect them or they are not available yet
+   */
+  public OIndexStatistics getStatistics();
+
   /**
    * Prohibit index modifications. Only index read commands are allowed after this call.
    * 
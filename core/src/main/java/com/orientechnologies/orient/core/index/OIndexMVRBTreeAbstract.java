@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.index;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -26,9 +27,13 @@ import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TimerTask;
 
 import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.common.collection.OMVRBTree;
+import com.orientechnologies.common.collection.OMVRBTreeEntry;
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
@@ -41,6 +46,7 @@ import com.orientechnologies.orient.core.annotation.ODocumentInstance;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
@@ -61,6 +67,7 @@ import com.orientechnologies.orient.core.serialization.serializer.stream.OStream
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeDatabaseLazySave;
+import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeMapProvider;
 import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeProviderAbstract;
 
 /**
@@ -74,6 +81,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 
   protected static final String                  CONFIG_MAP_RID   = "mapRid";
   protected static final String                  CONFIG_CLUSTERS  = "clusters";
+  protected static final String                  CONFIG_STATISTICS = "statistics";
   protected String                               name;
   protected String                               type;
   protected OMVRBTreeDatabaseLazySave<Object, T> map;
@@ -81,6 +89,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
   protected OIndexDefinition                     indexDefinition;
   protected final String                         databaseName;
   protected int                                  maxUpdatesBeforeSave;
+  protected final OIndexStatistics               statistics       = new OIndexStatistics();
 
   @ODocumentInstance
   protected ODocument                            configuration;
@@ -235,6 +244,10 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
       map = new OMVRBTreeDatabaseLazySave<Object, T>(getDatabase(), rid, maxUpdatesBeforeSave);
       try {
         map.load();
+
+        final ODocument storedStatistics = configuration.field(CONFIG_STATISTICS);
+        if (storedStatistics != null)
+          statistics.fromDocument(storedStatistics, map.size());
       } catch (Exception e) {
         if (onCorruptionRepairDatabase(null, "load", "Index will be rebuilt")) {
           if (isAutomatic())
@@ -320,6 +333,25 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     return getEntriesMinor(toKey, isInclusive, -1);
   }
 
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesBetween(final Object iRangeFrom, final boolean iFromInclusive,
+      final Object iRangeTo, final boolean iToInclusive) {
+    final Object from = convertKey(iRangeFrom);
+    final Object to = convertKey(iRangeTo);
+
+    if (from != null && to != null && ODefaultComparator.INSTANCE.compare(from, to) > 0)
+      return Collections.<Entry<Object, OIdentifiable>> emptyList().iterator();
+
+    return new OIndexEntriesCursor(from, iFromInclusive, to, iToInclusive);
+  }
+
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMajor(final Object fromKey, final boolean isInclusive) {
+    return new OIndexEntriesCursor(convertKey(fromKey), isInclusive, null, false);
+  }
+
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMinor(final Object toKey, final boolean isInclusive) {
+    return new OIndexEntriesCursor(null, false, convertKey(toKey), isInclusive);
+  }
+
   /**
    * Returns a set of records with key between the range passed as parameter.
    * <p/>
@@ -363,6 +395,8 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 
   /**
    * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+   * Indexes with a definition are loaded in bulk by {@link OIndexBulkLoader} unless {@link OGlobalConfiguration#INDEX_REBUILD_BULK}
+   * is false.
    */
   public long rebuild(final OProgressListener iProgressListener) {
     long documentIndexed = 0;
@@ -376,6 +410,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
       } catch (Exception e) {
         // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
       }
+      statistics.clear();
 
       int documentNum = 0;
       long documentTotal = 0;
@@ -386,37 +421,42 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
       if (iProgressListener != null)
         iProgressListener.onBegin(this, documentTotal);
 
-      for (final String clusterName : clustersToIndex)
-        try {
-          for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
-            if (record instanceof ODocument) {
-              final ODocument doc = (ODocument) record;
-
-              if (indexDefinition == null)
-                throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
-                    + indexDefinition + ")");
-
-              final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
-
-              if (fieldValue != null) {
-                if (fieldValue instanceof Collection) {
-                  for (final Object fieldValueItem : (Collection<?>) fieldValue) {
-                    put(fieldValueItem, doc);
-                  }
-                } else
-                  put(fieldValue, doc);
-
-                ++documentIndexed;
+      final OBinarySerializer<Object> keySerializer = getBulkLoadKeySerializer();
+      if (keySerializer != null)
+        documentIndexed = new OIndexBulkLoader(this, getDatabase(), keySerializer, iProgressListener).load(clustersToIndex,
+            documentTotal);
+      else
+        for (final String clusterName : clustersToIndex)
+          try {
+            for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
+              if (record instanceof ODocument) {
+                final ODocument doc = (ODocument) record;
+
+                if (indexDefinition == null)
+                  throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
+                      + indexDefinition + ")");
+
+                final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+                if (fieldValue != null) {
+                  if (fieldValue instanceof Collection) {
+                    for (final Object fieldValueItem : (Collection<?>) fieldValue) {
+                      put(fieldValueItem, doc);
+                    }
+                  } else
+                    put(fieldValue, doc);
+
+                  ++documentIndexed;
+                }
               }
-            }
-            documentNum++;
+              documentNum++;
 
-            if (iProgressListener != null)
-              iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+              if (iProgressListener != null)
+                iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+            }
+          } catch (NoSuchElementException e) {
+            // END OF CLUSTER REACHED, IGNORE IT
           }
-        } catch (NoSuchElementException e) {
-          // END OF CLUSTER REACHED, IGNORE IT
-        }
 
       lazySave();
 
@@ -432,6 +472,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
       } catch (Exception e2) {
         // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
       }
+      statistics.clear();
 
       throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
 
@@ -445,6 +486,19 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     return documentIndexed;
   }
 
+  /**
+   * Returns the serializer of the keys used by the bulk rebuild to write them to temporary files, or null if the index must be rebuilt
+   * record by record.
+   */
+  @SuppressWarnings("unchecked")
+  protected OBinarySerializer<Object> getBulkLoadKeySerializer() {
+    if (!OGlobalConfiguration.INDEX_REBUILD_BULK.getValueAsBoolean() || indexDefinition == null
+        || getDatabase().getTransaction().isActive() || !(map.getProvider() instanceof OMVRBTreeMapProvider))
+      return null;
+
+    return ((OMVRBTreeMapProvider<Object, ?>) map.getProvider()).getKeySerializer();
+  }
+
   public boolean remove(final Object iKey, final OIdentifiable iValue) {
     modificationLock.requestModificationLock();
     try {
@@ -462,7 +516,12 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
       acquireExclusiveLock();
       try {
 
-        return map.remove(key) != null;
+        final T removed = map.remove(key);
+        if (removed == null)
+          return false;
+
+        statistics.onRemove(key, removed instanceof Collection<?> ? ((Collection<?>) removed).size() : 1, true);
+        return true;
 
       } finally {
         releaseExclusiveLock();
@@ -480,6 +539,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
       try {
 
         map.clear();
+        statistics.clear();
         return this;
 
       } finally {
@@ -537,6 +597,91 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     }
   }
 
+  /**
+   * Returns the statistics of the keys. The caller never waits for them: when they are missing or stale they are collected by the
+   * shared timer of {@link Orient} and the last ones, if any, are returned meanwhile. When the timer can't open the database they
+   * are collected by the caller.
+   * 
+   * @return The statistics, or null if they have not been collected yet
+   */
+  public OIndexStatistics getStatistics() {
+    if (statistics.isStale() && statistics.beginCollection()) {
+      final ODatabaseRecord owner = getDatabase();
+      if (Orient.instance().getDatabaseFactory().isWorkerDatabaseSupported(owner))
+        Orient.getTimer().schedule(new TimerTask() {
+          @Override
+          public void run() {
+            ODatabaseDocumentTx db = null;
+            try {
+              db = Orient.instance().getDatabaseFactory().openWorkerDatabase(owner);
+              collectAndSaveStatistics(db);
+            } catch (Exception e) {
+              OLogManager.instance().error(this, "Error on opening the database to collect the statistics of index '%s'", e, name);
+              statistics.endCollection();
+            } finally {
+              if (db != null)
+                db.close();
+            }
+          }
+        }, 0);
+      else
+        collectAndSaveStatistics(owner);
+    }
+    return statistics.isCollected() ? statistics : null;
+  }
+
+  private void collectAndSaveStatistics(final ODatabaseRecord iDatabase) {
+    try {
+      collectStatistics();
+      iDatabase.getMetadata().getIndexManager().save();
+    } catch (Exception e) {
+      OLogManager.instance().error(this, "Error on collecting the statistics of index '%s'", e, name);
+    } finally {
+      statistics.endCollection();
+    }
+  }
+
+  /**
+   * Collects the statistics browsing all the entries. The exclusive lock is held only for a batch of entries at a time, so the
+   * index stays available meanwhile.
+   */
+  public void collectStatistics() {
+    final int batchSize = 1000;
+    final OIndexStatistics.OCollector collector;
+    Iterator<Entry<Object, T>> it;
+
+    acquireExclusiveLock();
+    try {
+      collector = statistics.newCollector(map.size());
+      it = map.entrySet().iterator();
+    } finally {
+      releaseExclusiveLock();
+    }
+
+    Object lastKey = null;
+    while (true) {
+      acquireExclusiveLock();
+      try {
+        if (lastKey != null)
+          // THE INDEX COULD BE CHANGED SINCE THE LAST BATCH: START AGAIN AFTER THE LAST KEY
+          it = map.tailMap(lastKey, false).entrySet().iterator();
+
+        for (int i = 0; i < batchSize && it.hasNext(); ++i) {
+          final Entry<Object, T> entry = it.next();
+          collector.add(entry.getKey(), entry.getValue());
+          lastKey = entry.getKey();
+        }
+
+        if (!it.hasNext() || lastKey == null) {
+          collector.apply();
+          return;
+        }
+      } finally {
+        releaseExclusiveLock();
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public Iterator<Entry<Object, T>> inverseIterator() {
 
@@ -654,6 +799,13 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
         configuration.field(CONFIG_CLUSTERS, clustersToIndex, OType.EMBEDDEDSET);
         configuration.field(CONFIG_MAP_RID, ((OMVRBTreeProviderAbstract<Object, ?>) map.getProvider()).getRecord().getIdentity());
 
+        final ODocument statisticsDocument = statistics.toDocument();
+        if (statisticsDocument != null) {
+          statisticsDocument.addOwner(configuration);
+          configuration.field(CONFIG_STATISTICS, statisticsDocument, OType.EMBEDDED);
+        } else
+          configuration.removeField(CONFIG_STATISTICS);
+
       } finally {
         configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
       }
@@ -955,4 +1107,102 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
     return isAutomatic() ? OGlobalConfiguration.INDEX_AUTO_LAZY_UPDATES.getValueAsInteger()
         : OGlobalConfiguration.INDEX_MANUAL_LAZY_UPDATES.getValueAsInteger();
   }
+
+  private Object convertKey(final Object iKey) {
+    if (iKey != null && getDefinition() != null) {
+      final OType[] types = getDefinition().getTypes();
+      if (types.length == 1)
+        return OType.convert(iKey, types[0].getDefaultJavaType());
+    }
+    return iKey;
+  }
+
+  /**
+   * Cursor over a range of the index. The entries are fetched in small batches of keys under the index lock: every batch restarts
+   * from the last key read, so the cursor survives changes to the tree between two batches.
+   */
+  private class OIndexEntriesCursor implements Iterator<Entry<Object, OIdentifiable>> {
+    private static final int                         BATCH_KEYS = 256;
+
+    private final Object                             from;
+    private final boolean                            fromInclusive;
+    private final Object                             to;
+    private final boolean                            toInclusive;
+    private final List<Entry<Object, OIdentifiable>> batch      = new ArrayList<Entry<Object, OIdentifiable>>();
+    private int                                      batchPosition;
+    private Object                                   lastKey;
+    private boolean                                  ended;
+
+    private OIndexEntriesCursor(final Object iFrom, final boolean iFromInclusive, final Object iTo, final boolean iToInclusive) {
+      from = iFrom;
+      fromInclusive = iFromInclusive;
+      to = iTo;
+      toInclusive = iToInclusive;
+    }
+
+    public boolean hasNext() {
+      while (batchPosition >= batch.size()) {
+        if (ended)
+          return false;
+        fetchNextBatch();
+      }
+      return true;
+    }
+
+    public Entry<Object, OIdentifiable> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      return batch.get(batchPosition++);
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private void fetchNextBatch() {
+      batch.clear();
+      batchPosition = 0;
+
+      acquireExclusiveLock();
+      try {
+        OMVRBTreeEntry<Object, T> entry;
+        if (lastKey != null)
+          entry = map.getHigherEntry(lastKey);
+        else if (from != null)
+          entry = fromInclusive ? map.getCeilingEntry(from, OMVRBTree.PartialSearchMode.LOWEST_BOUNDARY) : map.getHigherEntry(from);
+        else if (!map.isEmpty())
+          entry = map.getCeilingEntry(map.firstKey(), OMVRBTree.PartialSearchMode.NONE);
+        else
+          entry = null;
+
+        for (int keys = 0; entry != null && keys < BATCH_KEYS; ++keys) {
+          final Object key = entry.getKey();
+          if (to != null) {
+            final int cmp = ODefaultComparator.INSTANCE.compare(key, to);
+            if (cmp > 0 || cmp == 0 && !toInclusive) {
+              // OUT OF RANGE
+              entry = null;
+              break;
+            }
+          }
+
+          final T value = entry.getValue();
+          if (value instanceof Collection<?>) {
+            for (Object o : (Collection<?>) value)
+              batch.add(new OSimpleImmutableEntry<Object, OIdentifiable>(key, ((OIdentifiable) o).getIdentity()));
+          } else if (value != null)
+            batch.add(new OSimpleImmutableEntry<Object, OIdentifiable>(key, ((OIdentifiable) value).getIdentity()));
+
+          lastKey = key;
+          entry = OMVRBTree.next(entry);
+        }
+
+        if (entry == null)
+          ended = true;
+
+      } finally {
+        releaseExclusiveLock();
+      }
+    }
+  }
 }
@@ -76,6 +76,13 @@ public class OIndexManagerProxy extends OProxedResource<OIndexManager> implement
     return delegate.getConfiguration();
   }
 
+  /**
+   * Saves the configuration of the indexes.
+   */
+  public void save() {
+    ((OIndexManagerAbstract) delegate).save();
+  }
+
   public OIndexManager dropIndex(final String iIndexName) {
     return delegate.dropIndex(iIndexName);
   }
@@ -29,6 +29,7 @@ import com.orientechnologies.orient.core.db.record.ORecordTrackedSet;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 
 /**
  * Manages indexes at database level. A single instance is shared among multiple databases. Contentions are managed by r/w locks.
@@ -84,6 +85,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
 
       setDirty();
       save();
+      OSQLStatementCache.invalidate(getDatabase().getStorage());
 
       return getIndexInstance(index);
     } finally {
@@ -104,6 +106,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
         idx.delete();
         setDirty();
         save();
+        OSQLStatementCache.invalidate(getDatabase().getStorage());
       }
       return this;
     } finally {
@@ -144,6 +147,8 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
   protected void fromStream() {
     acquireExclusiveLock();
     try {
+      OSQLStatementCache.invalidate(getDatabase().getStorage());
+
       final Collection<ODocument> idxs = document.field(CONFIG_INDEXES);
 
       if (idxs != null) {
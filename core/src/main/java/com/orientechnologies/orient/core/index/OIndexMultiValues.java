@@ -91,8 +91,9 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
         checkForKeyType(iKey);
 
         Set<OIdentifiable> values = map.get(iKey);
+        final boolean newKey = values == null;
 
-        if (values == null) {
+        if (newKey) {
           values = new OMVRBTreeRIDSet();
           ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
         }
@@ -100,7 +101,8 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
         if (!iSingleValue.getIdentity().isValid())
           ((ORecord<?>) iSingleValue).save();
 
-        values.add(iSingleValue.getIdentity());
+        if (values.add(iSingleValue.getIdentity()))
+          statistics.onPut(iKey, newKey);
 
         map.put(iKey, values);
         return this;
@@ -131,6 +133,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
             map.remove(iKey);
           else
             map.put(iKey, recs);
+          statistics.onRemove(iKey, 1, recs.isEmpty());
           return true;
         }
         return false;
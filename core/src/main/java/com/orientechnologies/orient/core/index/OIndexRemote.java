@@ -15,12 +15,17 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
@@ -189,6 +194,38 @@ public abstract class OIndexRemote<T> implements OIndex<T> {
     return (Collection<ODocument>) getDatabase().command(cmd).execute(toKey);
   }
 
+  /**
+   * The remote index has no server side cursor: the range is fetched with one query and then browsed.
+   */
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesBetween(final Object iRangeFrom, final boolean iFromInclusive,
+      final Object iRangeTo, final boolean iToInclusive) {
+    final List<Entry<Object, OIdentifiable>> result = new ArrayList<Entry<Object, OIdentifiable>>();
+    for (ODocument d : getEntriesBetween(iRangeFrom, iRangeTo)) {
+      final Object key = d.field("key");
+      if (!iFromInclusive && ODefaultComparator.INSTANCE.compare(key, iRangeFrom) == 0 || !iToInclusive
+          && ODefaultComparator.INSTANCE.compare(key, iRangeTo) == 0)
+        // EXCLUDED BOUNDARY
+        continue;
+      result.add(new OSimpleImmutableEntry<Object, OIdentifiable>(key, (OIdentifiable) d.field("rid", OType.LINK)));
+    }
+    return result.iterator();
+  }
+
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMajor(final Object fromKey, final boolean isInclusive) {
+    return toEntries(getEntriesMajor(fromKey, isInclusive)).iterator();
+  }
+
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMinor(final Object toKey, final boolean isInclusive) {
+    return toEntries(getEntriesMinor(toKey, isInclusive)).iterator();
+  }
+
+  private static List<Entry<Object, OIdentifiable>> toEntries(final Collection<ODocument> iDocuments) {
+    final List<Entry<Object, OIdentifiable>> result = new ArrayList<Entry<Object, OIdentifiable>>(iDocuments.size());
+    for (ODocument d : iDocuments)
+      result.add(new OSimpleImmutableEntry<Object, OIdentifiable>(d.field("key"), (OIdentifiable) d.field("rid", OType.LINK)));
+    return result;
+  }
+
   public boolean contains(final Object iKey) {
     final OCommandRequest cmd = formatCommand(QUERY_CONTAINS, name);
     final List<ODocument> result = getDatabase().command(cmd).execute(iKey);
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Statistics of the keys of an index used by the query planner: number of keys, number of entries and a histogram of the entries
+ * per key range. The statistics are collected browsing the index in background, then they are updated at every change and saved
+ * with the index configuration. The bounds of the histogram do not move with the changes, so the statistics are collected again
+ * when the changed entries exceed {@link OGlobalConfiguration#INDEX_STATISTICS_REFRESH_RATIO}.
+ *
+ * @author agent
+ */
+public class OIndexStatistics {
+  private static final int MIN_CHANGES_TO_REFRESH = 100;
+
+  private boolean          collected              = false;
+  private boolean          outdated               = false;
+  private boolean          collecting             = false;
+  private long             keys;
+  private long             entries;
+  private long             changes;
+  private Object[]         bounds;
+  private long[]           counts;
+
+  /**
+   * Tells if the statistics must be collected again before to be used.
+   */
+  public synchronized boolean isStale() {
+    return !collected
+        || outdated
+        || changes > Math.max(MIN_CHANGES_TO_REFRESH,
+            (long) (entries * OGlobalConfiguration.INDEX_STATISTICS_REFRESH_RATIO.getValueAsFloat()));
+  }
+
+  /**
+   * Tells if the statistics have been collected or loaded at least once, so the number of keys and entries can be used.
+   */
+  public synchronized boolean isCollected() {
+    return collected;
+  }
+
+  /**
+   * Reserves the collection of the statistics to the caller.
+   *
+   * @return false if another collection is running
+   */
+  public synchronized boolean beginCollection() {
+    if (collecting)
+      return false;
+    collecting = true;
+    return true;
+  }
+
+  public synchronized void endCollection() {
+    collecting = false;
+  }
+
+  /**
+   * Creates a collector to be fed with all the entries in ascending order. Every bucket of the histogram gets the same number of
+   * keys. The entries can be added in more steps while the index changes: the statistics are replaced only by
+   * {@link OCollector#apply()}.
+   *
+   * @param iKeys
+   *          Number of keys in the index, used to size the buckets
+   */
+  public OCollector newCollector(final long iKeys) {
+    return new OCollector(iKeys);
+  }
+
+  public class OCollector {
+    private final long         keysPerBucket;
+    private final List<Object> newBounds;
+    private final long[]       newCounts;
+    private final long         changesAtStart;
+    private long               k;
+    private long               e;
+
+    private OCollector(final long iKeys) {
+      final int buckets = (int) Math.max(1, Math.min(OGlobalConfiguration.INDEX_STATISTICS_BUCKETS.getValueAsInteger(), iKeys));
+      keysPerBucket = Math.max(1, (iKeys + buckets - 1) / buckets);
+      newBounds = new ArrayList<Object>(buckets);
+      newCounts = new long[buckets + 1];
+      synchronized (OIndexStatistics.this) {
+        changesAtStart = changes;
+      }
+    }
+
+    public void add(final Object iKey, final Object iValue) {
+      final long size = sizeOf(iValue);
+
+      if (k % keysPerBucket == 0 && newBounds.size() < newCounts.length)
+        newBounds.add(iKey);
+      newCounts[newBounds.size() - 1] += size;
+
+      k++;
+      e += size;
+    }
+
+    public void apply() {
+      synchronized (OIndexStatistics.this) {
+        if (!collected || outdated) {
+          keys = k;
+          entries = e;
+        }
+        // ELSE THE COUNTERS UPDATED BY THE CHANGES ARE MORE PRECISE THAN THE ONES OF THE COLLECTION, DONE WHILE THE INDEX CHANGED
+
+        changes = Math.max(0, changes - changesAtStart);
+        bounds = newBounds.toArray();
+        counts = Arrays.copyOf(newCounts, newBounds.size());
+        collected = true;
+        outdated = false;
+      }
+    }
+  }
+
+  /**
+   * Returns the statistics to store in the index configuration, null if they have not been collected yet. The histogram is stored
+   * only if its bounds are simple values.
+   */
+  public synchronized ODocument toDocument() {
+    if (!collected)
+      return null;
+
+    final ODocument doc = new ODocument();
+    doc.field("keys", keys);
+    doc.field("entries", entries);
+    doc.field("changes", changes);
+    if (bounds != null && isStorable(bounds)) {
+      doc.field("bounds", new ArrayList<Object>(Arrays.asList(bounds)), OType.EMBEDDEDLIST);
+      final List<Long> countList = new ArrayList<Long>(counts.length);
+      for (long c : counts)
+        countList.add(c);
+      doc.field("counts", countList, OType.EMBEDDEDLIST);
+    }
+    return doc;
+  }
+
+  /**
+   * Loads the statistics stored in the index configuration.
+   *
+   * @param iKeys
+   *          Current number of keys of the index: if it doesn't match the stored statistics are used but collected again
+   */
+  public synchronized void fromDocument(final ODocument iDocument, final long iKeys) {
+    final Number storedKeys = iDocument.field("keys");
+    final Number storedEntries = iDocument.field("entries");
+    final Number storedChanges = iDocument.field("changes");
+    if (storedKeys == null || storedEntries == null)
+      return;
+
+    keys = iKeys;
+    entries = storedEntries.longValue();
+    changes = storedChanges != null ? storedChanges.longValue() : 0;
+    outdated = storedKeys.longValue() != iKeys;
+
+    final List<Object> storedBounds = iDocument.field("bounds");
+    final List<Number> storedCounts = iDocument.field("counts");
+    if (storedBounds != null && storedCounts != null && storedCounts.size() == storedBounds.size()) {
+      bounds = storedBounds.toArray();
+      counts = new long[storedCounts.size()];
+      for (int i = 0; i < counts.length; ++i)
+        counts[i] = storedCounts.get(i).longValue();
+    } else {
+      bounds = null;
+      counts = null;
+    }
+    collected = true;
+  }
+
+  public synchronized void onPut(final Object iKey, final boolean iNewKey) {
+    entries++;
+    if (iNewKey)
+      keys++;
+    changes++;
+
+    final int bucket = getBucket(iKey);
+    if (bucket > -1)
+      counts[bucket]++;
+  }
+
+  public synchronized void onRemove(final Object iKey, final long iRemovedEntries, final boolean iKeyRemoved) {
+    entries = Math.max(0, entries - iRemovedEntries);
+    if (iKeyRemoved)
+      keys = Math.max(0, keys - 1);
+    changes += iRemovedEntries;
+
+    final int bucket = getBucket(iKey);
+    if (bucket > -1)
+      counts[bucket] = Math.max(0, counts[bucket] - iRemovedEntries);
+  }
+
+  /**
+   * Resets the statistics of an empty index.
+   */
+  public synchronized void clear() {
+    keys = 0;
+    entries = 0;
+    changes = 0;
+    bounds = null;
+    counts = null;
+    collected = true;
+    outdated = false;
+  }
+
+  public synchronized long getKeys() {
+    return keys;
+  }
+
+  public synchronized long getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the average number of entries per key.
+   */
+  public synchronized double estimateEquals() {
+    return keys == 0 ? 0 : (double) entries / keys;
+  }
+
+  /**
+   * Estimates the entries between two keys using the histogram. Buckets partially contained in the range count for the half.
+   *
+   * @param iFrom
+   *          Lower key, null means no lower bound
+   * @param iTo
+   *          Upper key, null means no upper bound
+   * @return The estimated entries, or -1 if the histogram cannot be used with these keys
+   */
+  public synchronized double estimateRange(final Object iFrom, final Object iTo) {
+    if (bounds == null || bounds.length == 0)
+      return -1;
+
+    try {
+      double result = 0;
+      for (int i = 0; i < bounds.length; ++i) {
+        final Object lower = bounds[i];
+        final Object upper = i < bounds.length - 1 ? bounds[i + 1] : null;
+
+        if (iTo != null && compare(lower, iTo) > 0)
+          // BUCKET AFTER THE RANGE
+          break;
+        if (iFrom != null && upper != null && compare(upper, iFrom) <= 0)
+          // BUCKET BEFORE THE RANGE
+          continue;
+
+        final boolean fromCovered = iFrom == null || compare(iFrom, lower) <= 0;
+        final boolean toCovered = iTo == null || (upper != null && compare(upper, iTo) <= 0);
+        result += fromCovered && toCovered ? counts[i] : counts[i] / 2d;
+      }
+      return result;
+    } catch (RuntimeException e) {
+      // KEYS NOT COMPARABLE WITH THE ONES IN THE INDEX
+      return -1;
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "keys=" + keys + ", entries=" + entries + ", buckets=" + (bounds != null ? bounds.length : 0);
+  }
+
+  private int getBucket(final Object iKey) {
+    if (bounds == null || bounds.length == 0 || iKey == null)
+      return -1;
+
+    try {
+      // LAST BOUND LOWER OR EQUAL THAN THE KEY
+      int low = 0;
+      int high = bounds.length - 1;
+      while (low < high) {
+        final int mid = (low + high + 1) >>> 1;
+        if (compare(bounds[mid], iKey) <= 0)
+          low = mid;
+        else
+          high = mid - 1;
+      }
+      return low;
+    } catch (RuntimeException e) {
+      return -1;
+    }
+  }
+
+  private static int compare(final Object iFirst, final Object iSecond) {
+    return ODefaultComparator.INSTANCE.compare(iFirst, iSecond);
+  }
+
+  private static boolean isStorable(final Object[] iKeys) {
+    for (Object key : iKeys)
+      if (!(key instanceof String || key instanceof Number || key instanceof Date || key instanceof Boolean))
+        return false;
+    return true;
+  }
+
+  private static long sizeOf(final Object iValue) {
+    if (iValue instanceof Collection<?>)
+      return ((Collection<?>) iValue).size();
+    return iValue != null ? 1 : 0;
+  }
+}
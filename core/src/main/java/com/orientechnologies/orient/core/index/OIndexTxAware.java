@@ -15,7 +15,16 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -107,4 +116,162 @@ public abstract class OIndexTxAware<T> extends OIndexAbstractDelegate<T> {
     database.getTransaction().clearIndexEntries();
     super.unload();
   }
+
+  @Override
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesBetween(final Object iRangeFrom, final boolean iFromInclusive,
+      final Object iRangeTo, final boolean iToInclusive) {
+    final OTransactionIndexChanges indexChanges = database.getTransaction().getIndexChanges(delegate.getName());
+    if (indexChanges == null)
+      return super.iterateEntriesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive);
+
+    final Iterator<Entry<Object, OIdentifiable>> underlying = indexChanges.cleared ? null : super.iterateEntriesBetween(iRangeFrom,
+        iFromInclusive, iRangeTo, iToInclusive);
+    return new OTxCursor(indexChanges, underlying, iRangeFrom, iFromInclusive, iRangeTo, iToInclusive);
+  }
+
+  @Override
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMajor(final Object fromKey, final boolean isInclusive) {
+    final OTransactionIndexChanges indexChanges = database.getTransaction().getIndexChanges(delegate.getName());
+    if (indexChanges == null)
+      return super.iterateEntriesMajor(fromKey, isInclusive);
+
+    final Iterator<Entry<Object, OIdentifiable>> underlying = indexChanges.cleared ? null : super.iterateEntriesMajor(fromKey,
+        isInclusive);
+    return new OTxCursor(indexChanges, underlying, fromKey, isInclusive, null, false);
+  }
+
+  @Override
+  public Iterator<Entry<Object, OIdentifiable>> iterateEntriesMinor(final Object toKey, final boolean isInclusive) {
+    final OTransactionIndexChanges indexChanges = database.getTransaction().getIndexChanges(delegate.getName());
+    if (indexChanges == null)
+      return super.iterateEntriesMinor(toKey, isInclusive);
+
+    final Iterator<Entry<Object, OIdentifiable>> underlying = indexChanges.cleared ? null : super.iterateEntriesMinor(toKey,
+        isInclusive);
+    return new OTxCursor(indexChanges, underlying, null, false, toKey, isInclusive);
+  }
+
+  /**
+   * Applies the changes of the current transaction to the values of a key.
+   * 
+   * @param indexChanges
+   *          Changes of the transaction to this index
+   * @param iKey
+   *          Key of the values
+   * @param iValues
+   *          Values stored in the index for the key, empty if the key is not in the index
+   * @return The values for the key as seen by the transaction
+   */
+  protected abstract Collection<OIdentifiable> filterKeyValues(OTransactionIndexChanges indexChanges, Object iKey,
+      Collection<OIdentifiable> iValues);
+
+  /**
+   * Cursor that merges, in key order, the underlying cursor with the keys changed by the current transaction. Only the values of
+   * the keys touched by the transaction are buffered.
+   */
+  private class OTxCursor implements Iterator<Entry<Object, OIdentifiable>> {
+    private final OTransactionIndexChanges               indexChanges;
+    private final Iterator<Entry<Object, OIdentifiable>> underlying;
+    private final List<Object>                           txKeys  = new ArrayList<Object>();
+    private final List<Entry<Object, OIdentifiable>>     buffer  = new ArrayList<Entry<Object, OIdentifiable>>();
+    private int                                          txKeyPosition;
+    private int                                          bufferPosition;
+    private Entry<Object, OIdentifiable>                 nextUnderlying;
+
+    private OTxCursor(final OTransactionIndexChanges iIndexChanges, final Iterator<Entry<Object, OIdentifiable>> iUnderlying,
+        final Object iFrom, final boolean iFromInclusive, final Object iTo, final boolean iToInclusive) {
+      indexChanges = iIndexChanges;
+      underlying = iUnderlying;
+
+      // THE KEYS ARE ALREADY SORTED
+      for (Object key : iIndexChanges.changesPerKey.keySet()) {
+        if (iFrom != null) {
+          final int cmp = ODefaultComparator.INSTANCE.compare(key, iFrom);
+          if (cmp < 0 || cmp == 0 && !iFromInclusive)
+            continue;
+        }
+        if (iTo != null) {
+          final int cmp = ODefaultComparator.INSTANCE.compare(key, iTo);
+          if (cmp > 0 || cmp == 0 && !iToInclusive)
+            continue;
+        }
+        txKeys.add(key);
+      }
+    }
+
+    public boolean hasNext() {
+      while (bufferPosition >= buffer.size())
+        if (!fillBuffer())
+          return false;
+      return true;
+    }
+
+    public Entry<Object, OIdentifiable> next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      return buffer.get(bufferPosition++);
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+
+    private boolean fillBuffer() {
+      buffer.clear();
+      bufferPosition = 0;
+
+      final Entry<Object, OIdentifiable> current = peekUnderlying();
+      final Object txKey = txKeyPosition < txKeys.size() ? txKeys.get(txKeyPosition) : null;
+
+      if (current == null && txKey == null)
+        return false;
+
+      final int cmp;
+      if (current == null)
+        cmp = 1;
+      else if (txKey == null)
+        cmp = -1;
+      else
+        cmp = ODefaultComparator.INSTANCE.compare(current.getKey(), txKey);
+
+      if (cmp < 0) {
+        // KEY NOT CHANGED IN TRANSACTION: ONLY THE CHANGES CROSS KEY CAN APPLY
+        nextUnderlying = null;
+        if (indexChanges.containsChangesCrossKey())
+          addToBuffer(current.getKey(), Collections.singletonList(current.getValue()));
+        else
+          buffer.add(current);
+
+      } else if (cmp == 0) {
+        // KEY CHANGED IN TRANSACTION: MERGE ALL ITS VALUES
+        final List<OIdentifiable> values = new ArrayList<OIdentifiable>();
+        Entry<Object, OIdentifiable> e;
+        while ((e = peekUnderlying()) != null && ODefaultComparator.INSTANCE.compare(e.getKey(), txKey) == 0) {
+          values.add(e.getValue());
+          nextUnderlying = null;
+        }
+        txKeyPosition++;
+        addToBuffer(txKey, values);
+
+      } else {
+        // KEY CREATED IN TRANSACTION
+        txKeyPosition++;
+        addToBuffer(txKey, new ArrayList<OIdentifiable>());
+      }
+      return true;
+    }
+
+    private void addToBuffer(final Object iKey, final Collection<OIdentifiable> iValues) {
+      final Collection<OIdentifiable> values = filterKeyValues(indexChanges, iKey, iValues);
+      if (values != null)
+        for (OIdentifiable v : values)
+          buffer.add(new OSimpleImmutableEntry<Object, OIdentifiable>(iKey, v.getIdentity()));
+    }
+
+    private Entry<Object, OIdentifiable> peekUnderlying() {
+      if (nextUnderlying == null && underlying != null && underlying.hasNext())
+        nextUnderlying = underlying.next();
+      return nextUnderlying;
+    }
+  }
 }
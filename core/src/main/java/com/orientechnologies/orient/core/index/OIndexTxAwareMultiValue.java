@@ -160,6 +160,12 @@ public class OIndexTxAwareMultiValue extends OIndexTxAware<Collection<OIdentifia
     return result;
   }
 
+  @Override
+  protected Collection<OIdentifiable> filterKeyValues(final OTransactionIndexChanges indexChanges, final Object iKey,
+      final Collection<OIdentifiable> iValues) {
+    return filterIndexChanges(indexChanges, iKey, new TreeSet<OIdentifiable>(iValues));
+  }
+
   protected Collection<OIdentifiable> filterIndexChanges(final OTransactionIndexChanges indexChanges, final Object key,
       final Collection<OIdentifiable> keyResult) {
     if (indexChanges == null)
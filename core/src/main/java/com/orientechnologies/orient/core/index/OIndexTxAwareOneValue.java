@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.index;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -145,6 +146,13 @@ public class OIndexTxAwareOneValue extends OIndexTxAware<OIdentifiable> {
     return result;
   }
 
+  @Override
+  protected Collection<OIdentifiable> filterKeyValues(final OTransactionIndexChanges indexChanges, final Object iKey,
+      final Collection<OIdentifiable> iValues) {
+    final OIdentifiable result = filterIndexChanges(indexChanges, iKey, iValues.isEmpty() ? null : iValues.iterator().next(), null);
+    return result != null ? Collections.singletonList(result) : Collections.<OIdentifiable> emptyList();
+  }
+
   protected OIdentifiable filterIndexChanges(final OTransactionIndexChanges indexChanges, final Object key, OIdentifiable iValue,
       final Set<Object> keysToRemove) {
     if (indexChanges == null)
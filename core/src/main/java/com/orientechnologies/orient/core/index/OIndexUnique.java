@@ -58,6 +58,7 @@ public class OIndexUnique extends OIndexOneValue {
           ((ORecord<?>) iSingleValue.getRecord()).save();
 
         map.put(iKey, iSingleValue.getIdentity());
+        statistics.onPut(iKey, true);
         return this;
 
       } finally {
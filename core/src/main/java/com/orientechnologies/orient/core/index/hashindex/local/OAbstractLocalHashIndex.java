@@ -40,6 +40,7 @@ import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexException;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
 import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
 import com.orientechnologies.orient.core.index.OSimpleKeyIndexDefinition;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
@@ -240,6 +241,22 @@ public abstract class OAbstractLocalHashIndex<T> extends OSharedResourceAdaptive
     throw new UnsupportedOperationException("getValuesBetween");
   }
 
+  @Override
+  public Iterator<Map.Entry<Object, OIdentifiable>> iterateEntriesBetween(Object iRangeFrom, boolean iFromInclusive,
+      Object iRangeTo, boolean iToInclusive) {
+    throw new UnsupportedOperationException("iterateEntriesBetween");
+  }
+
+  @Override
+  public Iterator<Map.Entry<Object, OIdentifiable>> iterateEntriesMajor(Object fromKey, boolean isInclusive) {
+    throw new UnsupportedOperationException("iterateEntriesMajor");
+  }
+
+  @Override
+  public Iterator<Map.Entry<Object, OIdentifiable>> iterateEntriesMinor(Object toKey, boolean isInclusive) {
+    throw new UnsupportedOperationException("iterateEntriesMinor");
+  }
+
   @Override
   public Collection<OIdentifiable> getValuesMajor(Object fromKey, boolean isInclusive) {
     throw new UnsupportedOperationException("getValuesMajor");
@@ -642,6 +659,10 @@ public abstract class OAbstractLocalHashIndex<T> extends OSharedResourceAdaptive
     return true;
   }
 
+  public OIndexStatistics getStatistics() {
+    return null;
+  }
+
   @Override
   public void freeze(boolean throwException) {
     throw new UnsupportedOperationException("freeze");
@@ -28,6 +28,10 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageSegmentConfiguration;
 import com.orientechnologies.orient.core.storage.impl.local.OMultiFileSegment;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnit;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OPageChanges;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 
 /**
  * @author Artem Loginov
@@ -56,8 +60,21 @@ public class O2QCache implements ODiskCache {
   private final boolean                      syncOnPageFlush;
   private long                               fileCounter = 1;
 
+  private final OWriteAheadLog               writeAheadLog;
+
   public O2QCache(long maxMemory, ODirectMemory directMemory, int pageSize, OStorageLocalAbstract storageLocal,
       boolean syncOnPageFlush) {
+    this(maxMemory, directMemory, pageSize, storageLocal, syncOnPageFlush, null);
+  }
+
+  /**
+   * @param writeAheadLog
+   *          If not <code>null</code> changes of pages which are done inside of atomic units are logged and pages are not written
+   *          to the disk before log records which contain their changes.
+   */
+  public O2QCache(long maxMemory, ODirectMemory directMemory, int pageSize, OStorageLocalAbstract storageLocal,
+      boolean syncOnPageFlush, OWriteAheadLog writeAheadLog) {
+    this.writeAheadLog = writeAheadLog;
     this.directMemory = directMemory;
     this.pageSize = pageSize;
     this.storageLocal = storageLocal;
@@ -126,23 +143,50 @@ public class O2QCache implements ODiskCache {
 
       if (lruEntry != null) {
         lruEntry.isDirty = true;
+        logPageChanges(fileId, pageIndex, lruEntry.dataPointer);
         return;
       }
 
       lruEntry = am.get(fileId, pageIndex);
-      if (lruEntry != null)
+      if (lruEntry != null) {
         lruEntry.isDirty = true;
-      else
+        logPageChanges(fileId, pageIndex, lruEntry.dataPointer);
+      } else
         throw new IllegalStateException("Requested page number " + pageIndex + " for file " + files.get(fileId).getName()
             + " is not in cache");
     }
   }
 
+  private void logPageChanges(long fileId, long pageIndex, long dataPointer) {
+    if (writeAheadLog == null)
+      return;
+
+    final OOperationUnit operationUnit = writeAheadLog.getCurrentUnit();
+    if (operationUnit == null)
+      return;
+
+    final OPageChanges pageChanges = operationUnit.pageChanged(fileId, pageIndex, dataPointer, pageSize, directMemory);
+    if (pageChanges.isEmpty())
+      return;
+
+    final OUpdatePageRecord updatePageRecord = new OUpdatePageRecord(operationUnit.getUnitId(), files.get(fileId).getName(),
+        pageIndex, pageChanges);
+    writeAheadLog.log(updatePageRecord);
+    operationUnit.addUpdateRecord(fileId, updatePageRecord);
+  }
+
   @Override
   public long load(long fileId, long pageIndex) throws IOException {
     synchronized (syncObject) {
       final LRUEntry lruEntry = updateCache(fileId, pageIndex);
       lruEntry.usageCounter++;
+
+      if (writeAheadLog != null) {
+        final OOperationUnit operationUnit = writeAheadLog.getCurrentUnit();
+        if (operationUnit != null)
+          operationUnit.pageLoaded(fileId, pageIndex, lruEntry.dataPointer, pageSize, directMemory);
+      }
+
       return lruEntry.dataPointer;
     }
   }
@@ -154,6 +198,12 @@ public class O2QCache implements ODiskCache {
       lruEntry.usageCounter--;
     else
       throw new IllegalStateException("record should be released is already free!");
+
+    if (writeAheadLog != null) {
+      final OOperationUnit operationUnit = writeAheadLog.getCurrentUnit();
+      if (operationUnit != null)
+        operationUnit.pageReleased(fileId, pageIndex);
+    }
   }
 
   @Override
@@ -428,8 +478,23 @@ public class O2QCache implements ODiskCache {
 
   }
 
+  @Override
+  public long findFileId(String fileName) {
+    synchronized (syncObject) {
+      for (Map.Entry<Long, OMultiFileSegment> entry : files.entrySet())
+        if (entry.getValue().getName().equals(fileName))
+          return entry.getKey();
+
+      return -1;
+    }
+  }
+
   @Override
   public void flushData(final long fileId, final long pageIndex, final long dataPointer) throws IOException {
+    if (writeAheadLog != null)
+      // PAGE CAN NOT BE WRITTEN BEFORE LOG RECORDS WHICH CONTAIN ITS CHANGES
+      writeAheadLog.flush();
+
     final byte[] content = directMemory.get(dataPointer, pageSize);
 
     final OMultiFileSegment multiFileSegment = files.get(fileId);
@@ -0,0 +1,877 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageSegmentConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.OMultiFileSegment;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnit;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OPageChanges;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+
+/**
+ * Disk cache for concurrent access. Unlike {@link O2QCache} there is no global lock:
+ * <ul>
+ * <li>pages are spread across stripes, each one with its own lock and its own 2Q lists, so threads loading different pages run in
+ * parallel</li>
+ * <li>a page is pinned between {@link #load(long, long)} and {@link #release(long, long)}: pinned pages are never evicted nor
+ * flushed, so their content can be changed without further locks</li>
+ * <li>files are read under a shared lock and written under an exclusive one</li>
+ * <li>dirty pages evicted from a stripe are not written by the evicting thread, but queued to a background thread that writes
+ * them ordered by file and position. A page loaded again before being written is taken back from the queue. The evicting thread
+ * waits only if the queue reached {@link OGlobalConfiguration#DISK_CACHE_WRITE_QUEUE_LENGTH} pages</li>
+ * </ul>
+ *
+ * @author agent
+ */
+public class OConcurrentDiskCache implements ODiskCache {
+  private static final int                   MAX_STRIPES       = 64;
+  private static final int                   MIN_STRIPE_PAGES  = 64;
+  private static final int                   COALESCE_INTERVAL = 100;
+
+  private final int                          pageSize;
+  private final ODirectMemory                directMemory;
+  private final OStorageLocalAbstract        storageLocal;
+  private final boolean                      syncOnPageFlush;
+  private final OWriteAheadLog               writeAheadLog;
+
+  private final ConcurrentHashMap<Long, OFileEntry> files       = new ConcurrentHashMap<Long, OFileEntry>();
+  private final AtomicLong                   fileCounter       = new AtomicLong(1);
+
+  private final Stripe[]                     stripes;
+  private final int                          stripeMask;
+
+  // PAGES EVICTED DIRTY, ORDERED BY FILE AND POSITION, AND PAGES THE FLUSHER IS WRITING
+  private final TreeMap<PageKey, Long>       writeQueue        = new TreeMap<PageKey, Long>();
+  private final Map<PageKey, Long>           inFlight          = new HashMap<PageKey, Long>();
+  private final ReentrantLock                writeQueueLock    = new ReentrantLock();
+  private final Condition                    queueNotEmpty     = writeQueueLock.newCondition();
+  private final Condition                    queueNotFull      = writeQueueLock.newCondition();
+  private final Condition                    pagesWritten      = writeQueueLock.newCondition();
+  private final int                          writeQueueLength;
+  private volatile boolean                   flusherRunning;
+  private final Thread                       flusher;
+
+  private static final class OFileEntry {
+    private final OMultiFileSegment      segment;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private OFileEntry(final OMultiFileSegment iSegment) {
+      segment = iSegment;
+    }
+  }
+
+  private static final class PageKey implements Comparable<PageKey> {
+    private final long fileId;
+    private final long pageIndex;
+
+    private PageKey(final long iFileId, final long iPageIndex) {
+      fileId = iFileId;
+      pageIndex = iPageIndex;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof PageKey))
+        return false;
+
+      final PageKey other = (PageKey) o;
+      return fileId == other.fileId && pageIndex == other.pageIndex;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (fileId ^ (fileId >>> 32));
+      return 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
+    }
+
+    public int compareTo(final PageKey other) {
+      if (fileId != other.fileId)
+        return fileId < other.fileId ? -1 : 1;
+      if (pageIndex != other.pageIndex)
+        return pageIndex < other.pageIndex ? -1 : 1;
+      return 0;
+    }
+  }
+
+  /**
+   * Part of the cache with its own lock and 2Q lists: hot pages (am), pages seen once (a1in) and the identities of the pages
+   * recently evicted from a1in (a1out).
+   */
+  @SuppressWarnings("serial")
+  private final class Stripe extends ReentrantLock {
+    private final LRUList am    = new LRUList();
+    private final LRUList a1in  = new LRUList();
+    private final LRUList a1out = new LRUList();
+    private final int     maxSize;
+    private final int     kIn;
+    private final int     kOut;
+
+    private Stripe(final int iMaxSize) {
+      maxSize = iMaxSize;
+      kIn = iMaxSize >> 2;
+      kOut = iMaxSize >> 1;
+    }
+
+    private LRUEntry get(final long fileId, final long pageIndex) {
+      final LRUEntry lruEntry = am.get(fileId, pageIndex);
+      if (lruEntry != null)
+        return lruEntry;
+      return a1in.get(fileId, pageIndex);
+    }
+
+    private LRUEntry updateCache(final long fileId, final long pageIndex) throws IOException {
+      LRUEntry lruEntry = am.get(fileId, pageIndex);
+      if (lruEntry != null)
+        return am.putToMRU(fileId, pageIndex, lruEntry.dataPointer, lruEntry.isDirty);
+
+      lruEntry = a1out.get(fileId, pageIndex);
+      if (lruEntry != null) {
+        // SEEN AGAIN AFTER ITS EVICTION FROM A1IN: IT'S HOT
+        removeColdestPageIfNeeded();
+
+        a1out.remove(fileId, pageIndex);
+        final LRUEntry loaded = cacheFileContent(fileId, pageIndex);
+        return am.putToMRU(fileId, pageIndex, loaded.dataPointer, loaded.isDirty);
+      }
+
+      lruEntry = a1in.get(fileId, pageIndex);
+      if (lruEntry != null)
+        return lruEntry;
+
+      removeColdestPageIfNeeded();
+
+      final LRUEntry loaded = cacheFileContent(fileId, pageIndex);
+      return a1in.putToMRU(fileId, pageIndex, loaded.dataPointer, loaded.isDirty);
+    }
+
+    private void removeColdestPageIfNeeded() throws IOException {
+      if (am.size() + a1in.size() < maxSize)
+        return;
+
+      if (a1in.size() > kIn) {
+        final LRUEntry removed = removeLRU(a1in);
+        if (removed != null) {
+          evictFileContent(removed);
+          a1out.putToMRU(removed.fileId, removed.pageIndex, ODirectMemory.NULL_POINTER, false);
+          if (a1out.size() > kOut)
+            a1out.remove(a1out.getLRU().fileId, a1out.getLRU().pageIndex);
+          return;
+        }
+      }
+
+      final LRUEntry removed = removeLRU(am);
+      if (removed != null)
+        evictFileContent(removed);
+      // ELSE ALL THE PAGES ARE PINNED: GROW OVER THE LIMIT
+    }
+
+    private LRUEntry removeLRU(final LRUList iList) {
+      LRUEntry entry = iList.getLRU();
+      while (entry != null && entry.usageCounter != 0)
+        entry = entry.after;
+
+      return entry != null ? iList.remove(entry.fileId, entry.pageIndex) : null;
+    }
+
+    /**
+     * Removes the pages of the file. Pinned pages are left, as in {@link O2QCache}.
+     */
+    private List<LRUEntry> removeFilePages(final long fileId) {
+      final List<LRUEntry> removed = new ArrayList<LRUEntry>();
+      for (LRUList list : new LRUList[] { am, a1in, a1out }) {
+        final List<LRUEntry> toRemove = new ArrayList<LRUEntry>();
+        for (LRUEntry entry : list)
+          if (entry.fileId == fileId && entry.usageCounter == 0)
+            toRemove.add(entry);
+
+        for (LRUEntry entry : toRemove)
+          removed.add(list.remove(entry.fileId, entry.pageIndex));
+      }
+      return removed;
+    }
+
+    private void flushDirtyPages(final long fileId, final boolean allFiles) throws IOException {
+      for (LRUList list : new LRUList[] { am, a1in })
+        for (LRUEntry entry : list)
+          if (entry.isDirty && entry.usageCounter == 0 && (allFiles || entry.fileId == fileId)) {
+            flushData(entry.fileId, entry.pageIndex, entry.dataPointer);
+            entry.isDirty = false;
+          }
+    }
+
+    private void clear() {
+      for (LRUList list : new LRUList[] { am, a1in })
+        for (LRUEntry entry : list)
+          if (entry.dataPointer != ODirectMemory.NULL_POINTER)
+            directMemory.free(entry.dataPointer);
+
+      am.clear();
+      a1in.clear();
+      a1out.clear();
+    }
+  }
+
+  public OConcurrentDiskCache(final long maxMemory, final ODirectMemory directMemory, final int pageSize,
+      final OStorageLocalAbstract storageLocal, final boolean syncOnPageFlush) {
+    this(maxMemory, directMemory, pageSize, storageLocal, syncOnPageFlush, null);
+  }
+
+  /**
+   * @param writeAheadLog
+   *          If not <code>null</code> changes of pages which are done inside of atomic units are logged and pages are not written
+   *          to the disk before log records which contain their changes.
+   */
+  public OConcurrentDiskCache(final long maxMemory, final ODirectMemory directMemory, final int pageSize,
+      final OStorageLocalAbstract storageLocal, final boolean syncOnPageFlush, final OWriteAheadLog writeAheadLog) {
+    this.directMemory = directMemory;
+    this.pageSize = pageSize;
+    this.storageLocal = storageLocal;
+    this.syncOnPageFlush = syncOnPageFlush;
+    this.writeAheadLog = writeAheadLog;
+    this.writeQueueLength = Math.max(1, OGlobalConfiguration.DISK_CACHE_WRITE_QUEUE_LENGTH.getValueAsInteger());
+
+    final long maxPages = Math.min(Integer.MAX_VALUE, maxMemory / pageSize);
+
+    int stripeCount = 1;
+    while (stripeCount < Runtime.getRuntime().availableProcessors() * 4 && stripeCount < MAX_STRIPES)
+      stripeCount <<= 1;
+    while (stripeCount > 1 && maxPages / stripeCount < MIN_STRIPE_PAGES)
+      stripeCount >>= 1;
+
+    stripes = new Stripe[stripeCount];
+    stripeMask = stripeCount - 1;
+    for (int i = 0; i < stripeCount; ++i)
+      stripes[i] = new Stripe((int) Math.max(1, maxPages / stripeCount));
+
+    flusherRunning = true;
+    flusher = new Thread(Orient.getThreadGroup(), new Runnable() {
+      public void run() {
+        flushQueueInBackground();
+      }
+    }, "OrientDB DiskCache Flusher (" + storageLocal.getName() + ")");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  @Override
+  public long openFile(final OStorageSegmentConfiguration fileConfiguration, final String fileExtension) throws IOException {
+    final long fileId = fileCounter.getAndIncrement();
+
+    final OMultiFileSegment multiFileSegment = new OMultiFileSegment(storageLocal, fileConfiguration, fileExtension, pageSize);
+    if (multiFileSegment.getFile(0).exists())
+      multiFileSegment.open();
+    else
+      multiFileSegment.create(pageSize);
+
+    files.put(fileId, new OFileEntry(multiFileSegment));
+    return fileId;
+  }
+
+  @Override
+  public void markDirty(final long fileId, final long pageIndex) {
+    final Stripe stripe = stripeFor(fileId, pageIndex);
+    stripe.lock();
+    try {
+      final LRUEntry lruEntry = stripe.get(fileId, pageIndex);
+      if (lruEntry == null)
+        throw new IllegalStateException("Requested page number " + pageIndex + " for file " + file(fileId).segment.getName()
+            + " is not in cache");
+
+      lruEntry.isDirty = true;
+      logPageChanges(fileId, pageIndex, lruEntry.dataPointer);
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  @Override
+  public long load(final long fileId, final long pageIndex) throws IOException {
+    final Stripe stripe = stripeFor(fileId, pageIndex);
+    stripe.lock();
+    try {
+      final LRUEntry lruEntry = stripe.updateCache(fileId, pageIndex);
+      lruEntry.usageCounter++;
+
+      if (writeAheadLog != null) {
+        final OOperationUnit operationUnit = writeAheadLog.getCurrentUnit();
+        if (operationUnit != null)
+          operationUnit.pageLoaded(fileId, pageIndex, lruEntry.dataPointer, pageSize, directMemory);
+      }
+
+      return lruEntry.dataPointer;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  @Override
+  public void release(final long fileId, final long pageIndex) {
+    final Stripe stripe = stripeFor(fileId, pageIndex);
+    stripe.lock();
+    try {
+      final LRUEntry lruEntry = stripe.get(fileId, pageIndex);
+      if (lruEntry != null)
+        lruEntry.usageCounter--;
+      else
+        throw new IllegalStateException("record should be released is already free!");
+    } finally {
+      stripe.unlock();
+    }
+
+    if (writeAheadLog != null) {
+      final OOperationUnit operationUnit = writeAheadLog.getCurrentUnit();
+      if (operationUnit != null)
+        operationUnit.pageReleased(fileId, pageIndex);
+    }
+  }
+
+  @Override
+  public long getFilledUpTo(final long fileId) throws IOException {
+    final OFileEntry file = file(fileId);
+    file.lock.readLock().lock();
+    try {
+      return file.segment.getFilledUpTo() / pageSize;
+    } finally {
+      file.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void flushFile(final long fileId) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return;
+
+    for (Stripe stripe : stripes) {
+      stripe.lock();
+      try {
+        stripe.flushDirtyPages(fileId, false);
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    writeQueuedPages(fileId, false);
+    synch(file);
+  }
+
+  @Override
+  public void closeFile(final long fileId) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return;
+
+    for (Stripe stripe : stripes) {
+      stripe.lock();
+      try {
+        for (LRUEntry entry : stripe.removeFilePages(fileId))
+          if (entry.dataPointer != ODirectMemory.NULL_POINTER) {
+            flushData(fileId, entry.pageIndex, entry.dataPointer);
+            directMemory.free(entry.dataPointer);
+          }
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    writeQueuedPages(fileId, false);
+
+    file.lock.writeLock().lock();
+    try {
+      file.segment.close();
+    } finally {
+      file.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void deleteFile(final long fileId) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return;
+
+    truncateFile(fileId);
+
+    file.lock.writeLock().lock();
+    try {
+      file.segment.delete();
+    } finally {
+      file.lock.writeLock().unlock();
+    }
+
+    files.remove(fileId);
+  }
+
+  @Override
+  public void truncateFile(final long fileId) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return;
+
+    for (Stripe stripe : stripes) {
+      stripe.lock();
+      try {
+        for (LRUEntry entry : stripe.removeFilePages(fileId))
+          if (entry.dataPointer != ODirectMemory.NULL_POINTER)
+            directMemory.free(entry.dataPointer);
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    discardQueuedPages(fileId);
+
+    file.lock.writeLock().lock();
+    try {
+      file.segment.truncate();
+    } finally {
+      file.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void renameFile(final long fileId, final String oldFileName, final String newFileName) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return;
+
+    file.lock.writeLock().lock();
+    try {
+      file.segment.rename(oldFileName, newFileName);
+    } finally {
+      file.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    for (Stripe stripe : stripes) {
+      stripe.lock();
+      try {
+        stripe.flushDirtyPages(-1, true);
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    writeQueuedPages(-1, true);
+
+    for (OFileEntry file : files.values())
+      synch(file);
+  }
+
+  @Override
+  public void clear() throws IOException {
+    flushBuffer();
+
+    for (Stripe stripe : stripes) {
+      stripe.lock();
+      try {
+        stripe.clear();
+      } finally {
+        stripe.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    stopFlusher();
+
+    clear();
+
+    for (OFileEntry file : files.values()) {
+      file.lock.writeLock().lock();
+      try {
+        file.segment.synch();
+        file.segment.close();
+      } finally {
+        file.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean wasSoftlyClosed(final long fileId) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return false;
+
+    file.lock.readLock().lock();
+    try {
+      return file.segment.wasSoftlyClosedAtPreviousTime();
+    } finally {
+      file.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void setSoftlyClosed(final long fileId, final boolean softlyClosed) throws IOException {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      return;
+
+    file.lock.writeLock().lock();
+    try {
+      file.segment.setSoftlyClosed(softlyClosed);
+    } finally {
+      file.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void flushData(final long fileId, final long pageIndex, final long dataPointer) throws IOException {
+    if (writeAheadLog != null)
+      // PAGE CAN NOT BE WRITTEN BEFORE LOG RECORDS WHICH CONTAIN ITS CHANGES
+      writeAheadLog.flush();
+
+    writePage(file(fileId), pageIndex, dataPointer);
+  }
+
+  @Override
+  public long findFileId(final String fileName) {
+    for (Map.Entry<Long, OFileEntry> entry : files.entrySet())
+      if (entry.getValue().segment.getName().equals(fileName))
+        return entry.getKey();
+
+    return -1;
+  }
+
+  /**
+   * Returns the number of dirty pages evicted but not written yet.
+   */
+  public int getWriteQueueSize() {
+    writeQueueLock.lock();
+    try {
+      return writeQueue.size() + inFlight.size();
+    } finally {
+      writeQueueLock.unlock();
+    }
+  }
+
+  private LRUEntry cacheFileContent(final long fileId, final long pageIndex) throws IOException {
+    final LRUEntry loaded = new LRUEntry();
+
+    final PageKey key = new PageKey(fileId, pageIndex);
+    writeQueueLock.lock();
+    try {
+      // THE DISK IS NOT UP TO DATE UNTIL THE FLUSHER HAS WRITTEN THE PAGE
+      while (inFlight.containsKey(key))
+        pagesWritten.awaitUninterruptibly();
+
+      final Long queued = writeQueue.remove(key);
+      if (queued != null) {
+        queueNotFull.signalAll();
+        loaded.dataPointer = queued;
+        loaded.isDirty = true;
+        return loaded;
+      }
+    } finally {
+      writeQueueLock.unlock();
+    }
+
+    final OFileEntry file = file(fileId);
+    final long startPosition = pageIndex * pageSize;
+    final long endPosition = startPosition + pageSize;
+
+    final byte[] content = new byte[pageSize];
+    boolean read = false;
+
+    file.lock.readLock().lock();
+    try {
+      if (file.segment.getFilledUpTo() >= endPosition) {
+        file.segment.readContinuously(startPosition, content, content.length);
+        read = true;
+      }
+    } finally {
+      file.lock.readLock().unlock();
+    }
+
+    if (!read) {
+      file.lock.writeLock().lock();
+      try {
+        if (file.segment.getFilledUpTo() >= endPosition)
+          file.segment.readContinuously(startPosition, content, content.length);
+        else
+          file.segment.allocateSpaceContinuously((int) (endPosition - file.segment.getFilledUpTo()));
+      } finally {
+        file.lock.writeLock().unlock();
+      }
+    }
+
+    loaded.dataPointer = directMemory.allocate(content);
+    return loaded;
+  }
+
+  private void evictFileContent(final LRUEntry iEntry) throws IOException {
+    if (!iEntry.isDirty) {
+      directMemory.free(iEntry.dataPointer);
+      return;
+    }
+
+    writeQueueLock.lock();
+    try {
+      if (flusherRunning) {
+        while (writeQueue.size() + inFlight.size() >= writeQueueLength && flusherRunning) {
+          // TOO MANY PAGES TO WRITE: WAIT FOR THE FLUSHER INSTEAD OF GROWING THE QUEUE
+          queueNotEmpty.signal();
+          queueNotFull.awaitUninterruptibly();
+        }
+
+        if (flusherRunning) {
+          writeQueue.put(new PageKey(iEntry.fileId, iEntry.pageIndex), iEntry.dataPointer);
+          if (writeQueue.size() == 1 || writeQueue.size() >= writeQueueLength / 2)
+            queueNotEmpty.signal();
+          return;
+        }
+      }
+    } finally {
+      writeQueueLock.unlock();
+    }
+
+    // CLOSING
+    flushData(iEntry.fileId, iEntry.pageIndex, iEntry.dataPointer);
+    directMemory.free(iEntry.dataPointer);
+  }
+
+  private void flushQueueInBackground() {
+    while (true) {
+      try {
+        writeQueueLock.lock();
+        try {
+          while (writeQueue.isEmpty() && flusherRunning)
+            queueNotEmpty.await();
+
+          if (!flusherRunning)
+            return;
+
+          if (writeQueue.size() < writeQueueLength / 2)
+            // GIVE TIME TO COLLECT MORE PAGES AND TO RELOAD THE ONES STILL IN USE
+            queueNotEmpty.await(COALESCE_INTERVAL, TimeUnit.MILLISECONDS);
+        } finally {
+          writeQueueLock.unlock();
+        }
+
+        writeQueuedPages(-1, true);
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable t) {
+        OLogManager.instance().error(this, "Error on writing the evicted pages of the disk cache", t);
+        try {
+          Thread.sleep(COALESCE_INTERVAL);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the queued pages of the file, or of all the files, ordered by file and position. While written the pages stay visible
+   * as in flight, so a thread loading them waits for the write to end instead of reading the old content from the disk.
+   */
+  private void writeQueuedPages(final long fileId, final boolean allFiles) throws IOException {
+    final List<PageKey> keys = new ArrayList<PageKey>();
+    final List<Long> pointers = new ArrayList<Long>();
+
+    writeQueueLock.lock();
+    try {
+      for (Iterator<Map.Entry<PageKey, Long>> it = writeQueue.entrySet().iterator(); it.hasNext();) {
+        final Map.Entry<PageKey, Long> entry = it.next();
+        if (allFiles || entry.getKey().fileId == fileId) {
+          keys.add(entry.getKey());
+          pointers.add(entry.getValue());
+          inFlight.put(entry.getKey(), entry.getValue());
+          it.remove();
+        }
+      }
+
+      if (keys.isEmpty()) {
+        // ANOTHER THREAD COULD BE WRITING PAGES OF THE SAME FILE
+        waitForInFlightPages(fileId, allFiles);
+        return;
+      }
+    } finally {
+      writeQueueLock.unlock();
+    }
+
+    int written = 0;
+    try {
+      if (writeAheadLog != null)
+        // PAGES CAN NOT BE WRITTEN BEFORE LOG RECORDS WHICH CONTAIN THEIR CHANGES
+        writeAheadLog.flush();
+
+      for (int i = 0; i < keys.size(); ++i) {
+        final OFileEntry file = files.get(keys.get(i).fileId);
+        if (file != null)
+          writePage(file, keys.get(i).pageIndex, pointers.get(i));
+        written++;
+      }
+    } finally {
+      writeQueueLock.lock();
+      try {
+        for (int i = 0; i < keys.size(); ++i) {
+          inFlight.remove(keys.get(i));
+          if (i < written)
+            directMemory.free(pointers.get(i));
+          else
+            // NOT WRITTEN BECAUSE OF AN ERROR: QUEUE IT AGAIN
+            writeQueue.put(keys.get(i), pointers.get(i));
+        }
+
+        pagesWritten.signalAll();
+        queueNotFull.signalAll();
+
+        waitForInFlightPages(fileId, allFiles);
+      } finally {
+        writeQueueLock.unlock();
+      }
+    }
+  }
+
+  private void waitForInFlightPages(final long fileId, final boolean allFiles) {
+    while (hasInFlightPages(fileId, allFiles))
+      pagesWritten.awaitUninterruptibly();
+  }
+
+  private boolean hasInFlightPages(final long fileId, final boolean allFiles) {
+    if (allFiles)
+      return !inFlight.isEmpty();
+
+    for (PageKey key : inFlight.keySet())
+      if (key.fileId == fileId)
+        return true;
+    return false;
+  }
+
+  private void discardQueuedPages(final long fileId) {
+    writeQueueLock.lock();
+    try {
+      waitForInFlightPages(fileId, false);
+
+      for (Iterator<Map.Entry<PageKey, Long>> it = writeQueue.entrySet().iterator(); it.hasNext();) {
+        final Map.Entry<PageKey, Long> entry = it.next();
+        if (entry.getKey().fileId == fileId) {
+          directMemory.free(entry.getValue());
+          it.remove();
+        }
+      }
+
+      queueNotFull.signalAll();
+    } finally {
+      writeQueueLock.unlock();
+    }
+  }
+
+  private void stopFlusher() throws IOException {
+    writeQueueLock.lock();
+    try {
+      flusherRunning = false;
+      queueNotEmpty.signalAll();
+      queueNotFull.signalAll();
+    } finally {
+      writeQueueLock.unlock();
+    }
+
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    writeQueuedPages(-1, true);
+  }
+
+  private void writePage(final OFileEntry iFile, final long pageIndex, final long dataPointer) throws IOException {
+    final byte[] content = directMemory.get(dataPointer, pageSize);
+
+    iFile.lock.writeLock().lock();
+    try {
+      iFile.segment.writeContinuously(pageIndex * pageSize, content);
+
+      if (syncOnPageFlush)
+        iFile.segment.synch();
+    } finally {
+      iFile.lock.writeLock().unlock();
+    }
+  }
+
+  private void synch(final OFileEntry iFile) throws IOException {
+    iFile.lock.writeLock().lock();
+    try {
+      iFile.segment.synch();
+    } finally {
+      iFile.lock.writeLock().unlock();
+    }
+  }
+
+  private void logPageChanges(final long fileId, final long pageIndex, final long dataPointer) {
+    if (writeAheadLog == null)
+      return;
+
+    final OOperationUnit operationUnit = writeAheadLog.getCurrentUnit();
+    if (operationUnit == null)
+      return;
+
+    final OPageChanges pageChanges = operationUnit.pageChanged(fileId, pageIndex, dataPointer, pageSize, directMemory);
+    if (pageChanges.isEmpty())
+      return;
+
+    final OUpdatePageRecord updatePageRecord = new OUpdatePageRecord(operationUnit.getUnitId(), file(fileId).segment.getName(),
+        pageIndex, pageChanges);
+    writeAheadLog.log(updatePageRecord);
+    operationUnit.addUpdateRecord(fileId, updatePageRecord);
+  }
+
+  private OFileEntry file(final long fileId) {
+    final OFileEntry file = files.get(fileId);
+    if (file == null)
+      throw new IllegalStateException("File with id " + fileId + " is not opened in the disk cache");
+    return file;
+  }
+
+  private Stripe stripeFor(final long fileId, final long pageIndex) {
+    // ADJACENT PAGES GO TO DIFFERENT STRIPES, SO THREADS SCANNING THE SAME FILE DON'T CONTEND
+    long h = fileId * 0x9E3779B97F4A7C15L + pageIndex;
+    h ^= h >>> 32;
+    h *= 0x9E3779B97F4A7C15L;
+    return stripes[(int) (h >>> 40) & stripeMask];
+  }
+}
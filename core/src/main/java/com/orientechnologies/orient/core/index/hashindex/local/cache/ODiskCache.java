@@ -40,4 +40,9 @@ public interface ODiskCache {
   void close() throws IOException;
 
   void flushData(long fileId, long pageIndex, long dataPointer) throws IOException;
+
+  /**
+   * @return Id of opened file with passed in name or <code>-1</code> if such file is not opened.
+   */
+  long findFileId(String fileName);
 }
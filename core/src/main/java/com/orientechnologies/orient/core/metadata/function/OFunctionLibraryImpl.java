@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.orientechnologies.orient.core.command.OCommandManager;
+import com.orientechnologies.orient.core.command.script.OScriptCache;
 import com.orientechnologies.orient.core.command.script.OCommandExecutorFunction;
 import com.orientechnologies.orient.core.command.script.OCommandFunction;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -56,6 +57,10 @@ public class OFunctionLibraryImpl implements OFunctionLibrary {
 
     // LOAD ALL THE FUNCTIONS IN MEMORY
     final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.get();
+
+    // COMPILED SCRIPTS INCLUDE THE OLD FUNCTIONS
+    OScriptCache.invalidate(db.getStorage());
+
     if (db.getMetadata().getSchema().existsClass("OFunction")) {
       List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from OFunction order by name"));
       for (ODocument d : result) {
@@ -78,6 +83,7 @@ public class OFunctionLibraryImpl implements OFunctionLibrary {
 
     final OFunction f = new OFunction().setName(iName);
     functions.put(iName.toUpperCase(), f);
+    OScriptCache.invalidate(ODatabaseRecordThreadLocal.INSTANCE.get().getStorage());
 
     return f;
   }
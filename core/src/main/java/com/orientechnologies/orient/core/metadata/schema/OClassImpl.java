@@ -1057,6 +1057,10 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
     }
   }
 
+  /**
+   * Adds the property to the class and assigns its name an id in the field name dictionary of the schema. Callers must save the
+   * schema before any record refers to the new id.
+   */
   public OPropertyImpl addPropertyInternal(final String iName, final OType iType, final OType iLinkedType, final OClass iLinkedClass) {
     if (iName == null || iName.length() == 0)
       throw new OSchemaException("Found property name null");
@@ -1078,6 +1082,8 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
       prop.setLinkedTypeInternal(iLinkedType);
     else if (iLinkedClass != null)
       prop.setLinkedClassInternal(iLinkedClass);
+
+    owner.registerFieldName(prop.getName());
     return prop;
   }
 
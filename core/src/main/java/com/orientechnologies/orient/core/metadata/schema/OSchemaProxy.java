@@ -175,6 +175,18 @@ public class OSchemaProxy extends OProxedResource<OSchemaShared> implements OSch
     return delegate.getIdentity();
   }
 
+  public int getFieldNameId(final String iFieldName) {
+    return delegate.getFieldNameId(iFieldName);
+  }
+
+  public String getFieldName(final int iFieldNameId) {
+    return delegate.getFieldName(iFieldNameId);
+  }
+
+  public int registerFieldName(final String iFieldName) {
+    return delegate.registerFieldName(iFieldName);
+  }
+
   public void close() {
   }
 
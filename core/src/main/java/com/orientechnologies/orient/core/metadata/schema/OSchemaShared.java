@@ -15,12 +15,16 @@
  */
 package com.orientechnologies.orient.core.metadata.schema;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.orientechnologies.common.concur.resource.OCloseable;
 import com.orientechnologies.common.log.OLogManager;
@@ -41,6 +45,7 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
@@ -60,6 +65,10 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
   private static final String   DROP_INDEX_QUERY       = "drop index ";
   protected Map<String, OClass> classes                = new HashMap<String, OClass>();
 
+  // FIELD NAME DICTIONARY USED BY THE BINARY RECORD FORMAT. IDS ARE NEVER REUSED, SO NAMES ARE ONLY APPENDED
+  private final List<String>    fieldNames             = new CopyOnWriteArrayList<String>();
+  private final Map<String, Integer> fieldNameIds        = new ConcurrentHashMap<String, Integer>();
+
   public OSchemaShared(final int schemaClusterId) {
     super(new ODocument());
   }
@@ -440,6 +449,40 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
     return cls;
   }
 
+  /**
+   * Returns the id of a field name in the schema dictionary.
+   * 
+   * @return The id or -1 if the name has not been registered
+   */
+  public int getFieldNameId(final String iFieldName) {
+    final Integer id = fieldNameIds.get(iFieldName);
+    return id != null ? id.intValue() : -1;
+  }
+
+  /**
+   * Returns the field name registered in the schema dictionary with the given id, or null if unknown.
+   */
+  public String getFieldName(final int iFieldNameId) {
+    return iFieldNameId < fieldNames.size() ? fieldNames.get(iFieldNameId) : null;
+  }
+
+  /**
+   * Registers a field name in the schema dictionary. The new entry is persisted with the next schema save, so callers must save
+   * the schema before any record refers to the returned id.
+   * 
+   * @return The id assigned to the name
+   */
+  public synchronized int registerFieldName(final String iFieldName) {
+    final Integer id = fieldNameIds.get(iFieldName);
+    if (id != null)
+      return id.intValue();
+
+    fieldNames.add(iFieldName);
+    final int newId = fieldNames.size() - 1;
+    fieldNameIds.put(iFieldName, newId);
+    return newId;
+  }
+
   public void changeClassName(String iOldName, String iNewName) {
     OClass clazz = classes.remove(iOldName.toLowerCase());
     classes.put(iNewName.toLowerCase(), clazz);
@@ -465,6 +508,15 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
           "Database schema is different. Please export your old database with the previous version of OrientDB and reimport it using the current one.");
     }
 
+    // LOAD THE FIELD NAME DICTIONARY: IT'S APPEND-ONLY, SO ON RELOAD ONLY THE NEW NAMES ARE ADDED
+    final List<String> storedFieldNames = document.field("fieldNames");
+    if (storedFieldNames != null)
+      for (String f : storedFieldNames)
+        registerFieldName(f);
+
+    // PARSED STATEMENTS REFER TO THE OLD CLASSES
+    OSQLStatementCache.invalidate(getDatabase().getStorage());
+
     // REGISTER ALL THE CLASSES
     classes.clear();
     OClassImpl cls;
@@ -515,6 +567,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
         cc.add(((OClassImpl) c).toStream());
 
       document.field("classes", cc, OType.EMBEDDEDSET);
+      document.field("fieldNames", new ArrayList<String>(fieldNames), OType.EMBEDDEDLIST);
 
     } finally {
       document.setInternalStatus(ORecordElement.STATUS.LOADED);
@@ -646,11 +699,14 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
   public void close() {
     classes.clear();
+    fieldNames.clear();
+    fieldNameIds.clear();
     document.clear();
   }
 
   private void saveInternal(final String iClusterName) {
     document.setDirty();
     super.save(OMetadata.CLUSTER_INTERNAL_NAME);
+    OSQLStatementCache.invalidate(getDatabase().getStorage());
   }
 }
@@ -389,6 +389,10 @@ public enum OType {
     return iValue;
   }
 
+  public int getId() {
+    return id;
+  }
+
   public Class<?> getDefaultJavaType() {
     return javaTypes.length > 0 ? javaTypes[0] : null;
   }
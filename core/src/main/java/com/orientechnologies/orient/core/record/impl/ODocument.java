@@ -67,7 +67,9 @@ import com.orientechnologies.orient.core.record.ORecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAwareAbstract;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializedFields;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
 /**
@@ -91,6 +93,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   protected boolean                                                      _lazyLoad        = true;
 
   protected transient List<WeakReference<ORecordElement>>                _owners          = null;
+  protected transient OSerializedFields                                  _serializedFields;
 
   protected static final String[]                                        EMPTY_STRINGS    = new String[] {};
 
@@ -423,6 +426,18 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
   public byte[] toStream() {
     if (_recordFormat == null)
       setup();
+
+    if (_source == null) {
+      // USE THE FORMAT CONFIGURED FOR THE CURRENT DATABASE, RESOLVED ONLY WHEN THE DOCUMENT IS SERIALIZED. RECORDS ARE READ BY
+      // EITHER FORMAT, SO A DOCUMENT SERIALIZED OUTSIDE A DATABASE CAN BE SAVED IN CSV EVEN IF THE DATABASE USES THE BINARY FORMAT
+      final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+      if (db != null && db.getStorage() != null && db.getStorage().getConfiguration() != null) {
+        final ORecordSerializer format = ORecordSerializerFactory.instance().getFormat(
+            db.getStorage().getConfiguration().getRecordSerializer());
+        if (format != null)
+          _recordFormat = format;
+      }
+    }
     return super.toStream();
   }
 
@@ -1173,6 +1188,20 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
     return this;
   }
 
+  /**
+   * Internal. Returns the fields of the content not unmarshalled yet, collected by the serializer on partial unmarshalling.
+   */
+  public OSerializedFields getSerializedFields() {
+    return _serializedFields;
+  }
+
+  /**
+   * Internal.
+   */
+  public void setSerializedFields(final OSerializedFields iSerializedFields) {
+    _serializedFields = iSerializedFields;
+  }
+
   public boolean isLazyLoad() {
     return _lazyLoad;
   }
@@ -1379,9 +1408,11 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 
       // NO FIELDS FOUND
       return false;
-    } else if (_source != null)
+    } else if (_source != null) {
       // FULL UNMARSHALLING
       _source = null;
+      _serializedFields = null;
+    }
 
     return true;
   }
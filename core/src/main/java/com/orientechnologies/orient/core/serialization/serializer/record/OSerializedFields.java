@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fields of a serialized record not unmarshalled yet. The serializer creates it the first time a single field is requested, by
+ * scanning the record once, so the next requests decode only their fields. Every field is bound to the part of the record that
+ * contains its value, in a form that depends on the serializer. Fields are removed once unmarshalled.
+ *
+ * @author agent
+ */
+public class OSerializedFields {
+  private final byte[]              source;
+  private final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+
+  public OSerializedFields(final byte[] iSource) {
+    source = iSource;
+  }
+
+  /**
+   * Tells if the fields have been collected from this content. Records loaded again get a new content.
+   */
+  public boolean isBuiltFrom(final byte[] iSource) {
+    return source == iSource;
+  }
+
+  public void put(final String iFieldName, final Object iValue) {
+    fields.put(iFieldName, iValue);
+  }
+
+  public boolean contains(final String iFieldName) {
+    return fields.containsKey(iFieldName);
+  }
+
+  /**
+   * Removes the field to unmarshall it.
+   *
+   * @return The part of the record with the value of the field, or null if not present or already unmarshalled
+   */
+  public Object remove(final String iFieldName) {
+    return fields.remove(iFieldName);
+  }
+
+  /**
+   * Returns the names of the fields not unmarshalled yet, in the order of the record.
+   */
+  public List<String> getFieldNames() {
+    return new ArrayList<String>(fields.keySet());
+  }
+
+  public boolean isEmpty() {
+    return fields.isEmpty();
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+/**
+ * Byte array with a read cursor, used to decode records in binary format without copying the source.
+ */
+public class OBytesContainer {
+  public final byte[] bytes;
+  public int          offset;
+
+  public OBytesContainer(final byte[] iBytes) {
+    this(iBytes, 0);
+  }
+
+  public OBytesContainer(final byte[] iBytes, final int iOffset) {
+    bytes = iBytes;
+    offset = iOffset;
+  }
+
+  public byte read() {
+    return bytes[offset++];
+  }
+
+  public OBytesContainer skip(final int iLength) {
+    offset += iLength;
+    return this;
+  }
+
+  public int remaining() {
+    return bytes.length - offset;
+  }
+}
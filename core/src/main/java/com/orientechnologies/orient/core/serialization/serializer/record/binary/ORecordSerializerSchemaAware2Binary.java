@@ -0,0 +1,602 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ORecordLazyList;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMap;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaProxy;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.profiler.OJVMProfiler;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationLongIdThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializedFields;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
+
+/**
+ * Schema-aware binary format for documents. The record starts with a header that contains the class name and a table with, for
+ * each field, its name, its type and the offset of its value. The values follow the header. This allows to unmarshall a single
+ * field by scanning the table and jumping to the value, without parsing the rest of the record.<br/>
+ * <br/>
+ * Layout:
+ * 
+ * <pre>
+ * MAGIC(1) VERSION(1) class-name(varint length + UTF-8) fields(varint)
+ *   field-table: [name-ref(varint) type(1) offset(varint)]*
+ * data-length(varint) data
+ * </pre>
+ * 
+ * The name reference is the id of the name in the schema's field name dictionary shifted by one bit, or the length of the name
+ * followed by the name itself when the lowest bit is set. Integers and dates are stored as zig-zag varints, links in binary form.
+ * Embedded values and collections are stored in the same text form used by {@link ORecordSerializerSchemaAware2CSV}.
+ */
+public class ORecordSerializerSchemaAware2Binary implements ORecordSerializer {
+  public static final String                              NAME      = "ORecordDocument2binary";
+  public static final ORecordSerializerSchemaAware2Binary INSTANCE  = new ORecordSerializerSchemaAware2Binary();
+
+  public static final byte                                MAGIC     = 0;
+  public static final byte                                VERSION   = 0;
+
+  private static final byte                               NULL_TYPE = -1;
+  private static final Charset                            UTF8      = Charset.forName("UTF-8");
+  private static final OJVMProfiler                       PROFILER  = Orient.instance().getProfiler();
+
+  /**
+   * Tells if a record content has been written by this serializer. Text records can never start with the MAGIC byte.
+   */
+  public static boolean isBinaryFormat(final byte[] iSource) {
+    return iSource != null && iSource.length > 1 && iSource[0] == MAGIC;
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+
+  public ORecordInternal<?> fromStream(final byte[] iSource, ORecordInternal<?> iRecord, final String[] iFields) {
+    if (iRecord == null)
+      iRecord = new ODocument();
+
+    if (iSource == null || iSource.length == 0)
+      return iRecord;
+
+    if (!isBinaryFormat(iSource))
+      // WRITTEN BEFORE THE DATABASE SWITCHED TO THE BINARY FORMAT
+      return ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    final long timer = PROFILER.startChrono();
+    try {
+      final ODocument record = (ODocument) iRecord;
+      final boolean partial = iFields != null && iFields.length > 0;
+
+      OSerializedFields serialized = record.getSerializedFields();
+      if (serialized == null || !serialized.isBuiltFrom(iSource)) {
+        final OBytesContainer in = new OBytesContainer(iSource, 1);
+
+        final byte version = in.read();
+        if (version > VERSION)
+          throw new OSerializationException("Record " + record.getIdentity() + " was written with binary format version "
+              + version + " but the supported version is " + VERSION);
+
+        record.setClassNameIfExists(readString(in));
+
+        if (partial && iFields.length == 1 && iFields[0].equals("@class"))
+          // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
+          return iRecord;
+
+        serialized = readFieldTable(in);
+        if (partial)
+          // KEEP THE FIELD TABLE FOR THE NEXT FIELDS
+          record.setSerializedFields(serialized);
+      }
+
+      for (String fieldName : partial ? Arrays.asList(iFields) : serialized.getFieldNames()) {
+        final int[] entry = (int[]) serialized.remove(fieldName);
+        if (entry == null)
+          // NOT PRESENT OR ALREADY UNMARSHALLED
+          continue;
+
+        if (record.containsField(fieldName))
+          // ALREADY UNMARSHALLED: DON'T OVERWRITE IT
+          continue;
+
+        if (entry[0] == NULL_TYPE) {
+          record.field(fieldName, (Object) null);
+          continue;
+        }
+
+        final OType type = OType.getById((byte) entry[0]);
+        final OProperty prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
+
+        try {
+          final Object value = readValue(record, new OBytesContainer(iSource, entry[1]), entry[2], type, prop, fieldName);
+
+          if (type.isMultiValue() || type == OType.EMBEDDED || prop == null && value != null
+              && OType.getTypeByClass(value.getClass()) != type)
+            // SAVE THE TYPE TO KEEP IT ON NEXT MARSHALLING
+            record.field(fieldName, value, type);
+          else
+            record.field(fieldName, value);
+
+        } catch (RuntimeException e) {
+          throw new OSerializationException("Error on unmarshalling field '" + fieldName + "' of type " + type + " in record "
+              + record.getIdentity(), e);
+        }
+      }
+
+      return iRecord;
+
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.fromStream"), "Deserialize record from binary stream",
+          timer);
+    }
+  }
+
+  public byte[] toStream(final ORecordInternal<?> iRecord, final boolean iOnlyDelta) {
+    if (!(iRecord instanceof ODocument))
+      throw new OSerializationException("Cannot marshall a record of type " + iRecord.getClass().getSimpleName());
+
+    final long timer = PROFILER.startChrono();
+    try {
+      final ODocument record = (ODocument) iRecord;
+      final OClass clazz = record.getSchemaClass();
+      final OSchemaProxy schema = getSchema();
+
+      final OMemoryStream table = new OMemoryStream(64);
+      final OMemoryStream data = new OMemoryStream(256);
+
+      final String[] fieldNames = iOnlyDelta && record.isTrackingChanges() ? record.getDirtyFields() : record.fieldNames();
+
+      int fieldCount = 0;
+      for (String fieldName : fieldNames) {
+        final Object fieldValue = record.rawField(fieldName);
+
+        // SEARCH FOR A CONFIGURED PROPERTY
+        final OProperty prop = clazz != null ? clazz.getProperty(fieldName) : null;
+        OType type;
+        OType linkedType = null;
+        OClass linkedClass = null;
+        if (prop != null) {
+          type = prop.getType();
+          linkedType = prop.getLinkedType();
+          linkedClass = prop.getLinkedClass();
+        } else {
+          type = record.fieldType(fieldName);
+          if (type == null)
+            type = getTypeByValue(fieldValue);
+        }
+
+        if (type == OType.TRANSIENT)
+          // TRANSIENT FIELD
+          continue;
+
+        writeFieldName(table, schema, fieldName);
+
+        final int offset = data.size();
+        if (fieldValue == null)
+          table.write(NULL_TYPE);
+        else {
+          if (type == null)
+            type = OType.EMBEDDED;
+          type = writeValue(data, record, fieldName, fieldValue, type, linkedType, linkedClass);
+          table.write(type.getId());
+        }
+        OVarIntSerializer.write(table, offset);
+        fieldCount++;
+      }
+
+      final OMemoryStream out = new OMemoryStream(table.size() + data.size() + 16);
+      out.write(MAGIC);
+      out.write(VERSION);
+      writeString(out, !iOnlyDelta && clazz != null ? clazz.getStreamableName() : null);
+      OVarIntSerializer.write(out, fieldCount);
+      out.write(table.getInternalBuffer(), 0, table.size());
+      OVarIntSerializer.write(out, data.size());
+      out.write(data.getInternalBuffer(), 0, data.size());
+
+      // GET THE OVERSIZE IF ANY
+      final int newSize;
+      if (record.hasOwners())
+        newSize = out.size();
+      else if (record.getSize() > out.size())
+        // FILL ALL THE AVAILABLE SPACE TO AVOID FRAGMENTATION: THE DATA LENGTH IN THE HEADER EXCLUDES THE PADDING
+        newSize = record.getSize();
+      else if (clazz != null && clazz.getOverSize() > 0)
+        newSize = (int) (out.size() * clazz.getOverSize());
+      else
+        newSize = out.size();
+
+      if (newSize > out.size())
+        out.fill(newSize - out.size(), (byte) 0);
+
+      return out.toByteArray();
+
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("serializer.record.binary.toStream"), "Serialize record to binary stream", timer);
+    }
+  }
+
+  protected OType writeValue(final OMemoryStream iOutput, final ODocument iRecord, final String iFieldName, final Object iValue,
+      final OType iType, final OType iLinkedType, final OClass iLinkedClass) {
+    switch (iType) {
+    case BOOLEAN:
+      iOutput.write(toBoolean(iValue) ? 1 : 0);
+      break;
+
+    case BYTE:
+      iOutput.write(((Number) convert(iValue, Byte.class)).byteValue());
+      break;
+
+    case SHORT:
+    case INTEGER:
+    case LONG:
+      OVarIntSerializer.writeSigned(iOutput, ((Number) convert(iValue, iType.getDefaultJavaType())).longValue());
+      break;
+
+    case FLOAT:
+      writeFixed(iOutput, Float.floatToIntBits(((Number) convert(iValue, Float.class)).floatValue()), 4);
+      break;
+
+    case DOUBLE:
+      writeFixed(iOutput, Double.doubleToLongBits(((Number) convert(iValue, Double.class)).doubleValue()), 8);
+      break;
+
+    case DATE:
+    case DATETIME:
+      OVarIntSerializer.writeSigned(iOutput,
+          iValue instanceof Date ? ((Date) iValue).getTime() : ((Number) convert(iValue, Long.class)).longValue());
+      break;
+
+    case STRING: {
+      final byte[] bytes = iValue.toString().getBytes(UTF8);
+      iOutput.write(bytes, 0, bytes.length);
+      break;
+    }
+
+    case BINARY: {
+      final byte[] bytes = (byte[]) iValue;
+      iOutput.write(bytes, 0, bytes.length);
+      break;
+    }
+
+    case DECIMAL: {
+      final BigDecimal decimal = (BigDecimal) convert(iValue, BigDecimal.class);
+      OVarIntSerializer.writeSigned(iOutput, decimal.scale());
+      final byte[] unscaled = decimal.unscaledValue().toByteArray();
+      iOutput.write(unscaled, 0, unscaled.length);
+      break;
+    }
+
+    case LINK: {
+      final ORID rid = getPersistentIdentity(iValue);
+      if (rid != null) {
+        writeLink(iOutput, rid);
+        break;
+      }
+
+      // NEW OR DIRTY RECORD: LET THE CSV SERIALIZER SAVE IT, OR EMBED IT IF IT CANNOT BE LINKED
+      final StringBuilder buffer = new StringBuilder();
+      fieldToString(buffer, iRecord, iFieldName, iValue, iType, iLinkedType, iLinkedClass);
+      if (buffer.length() > 0 && buffer.charAt(0) == OStringSerializerHelper.LINK) {
+        writeLink(iOutput, new ORecordId(buffer.toString()));
+        break;
+      }
+
+      writeText(iOutput, buffer, iLinkedType);
+      return OType.EMBEDDED;
+    }
+
+    default: {
+      // EMBEDDED VALUES AND COLLECTIONS ARE STORED IN TEXT FORM
+      final StringBuilder buffer = new StringBuilder();
+      fieldToString(buffer, iRecord, iFieldName, iValue, iType, iLinkedType, iLinkedClass);
+      writeText(iOutput, buffer, iLinkedType);
+    }
+    }
+
+    return iType;
+  }
+
+  protected Object readValue(final ODocument iRecord, final OBytesContainer iInput, final int iLength, final OType iType,
+      final OProperty iProperty, final String iFieldName) {
+    switch (iType) {
+    case BOOLEAN:
+      return iInput.read() != 0;
+
+    case BYTE:
+      return iInput.read();
+
+    case SHORT:
+      return (short) OVarIntSerializer.readSigned(iInput);
+
+    case INTEGER:
+      return (int) OVarIntSerializer.readSigned(iInput);
+
+    case LONG:
+      return OVarIntSerializer.readSigned(iInput);
+
+    case FLOAT:
+      return Float.intBitsToFloat((int) readFixed(iInput, 4));
+
+    case DOUBLE:
+      return Double.longBitsToDouble(readFixed(iInput, 8));
+
+    case DATE:
+    case DATETIME:
+      return new Date(OVarIntSerializer.readSigned(iInput));
+
+    case STRING:
+      return new String(iInput.bytes, iInput.offset, iLength, UTF8);
+
+    case BINARY:
+      return Arrays.copyOfRange(iInput.bytes, iInput.offset, iInput.offset + iLength);
+
+    case DECIMAL: {
+      final int start = iInput.offset;
+      final int scale = (int) OVarIntSerializer.readSigned(iInput);
+      final byte[] unscaled = Arrays.copyOfRange(iInput.bytes, iInput.offset, start + iLength);
+      return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    case LINK: {
+      final int clusterId = OVarIntSerializer.readAsInteger(iInput);
+      final OClusterPosition clusterPosition = OClusterPositionFactory.INSTANCE.fromStream(iInput.bytes, iInput.offset);
+      return new ORecordId(clusterId, clusterPosition);
+    }
+
+    default: {
+      final int start = iInput.offset;
+      final byte linkedTypeId = iInput.read();
+      final OType linkedType = linkedTypeId == NULL_TYPE ? null : OType.getById(linkedTypeId);
+      final String text = new String(iInput.bytes, iInput.offset, iLength - (iInput.offset - start), UTF8);
+
+      return ORecordSerializerSchemaAware2CSV.INSTANCE.fieldFromStream(iRecord, iType,
+          iProperty != null ? iProperty.getLinkedClass() : null, linkedType, iFieldName, text);
+    }
+    }
+  }
+
+  /**
+   * Determines the type of a field not declared in the schema by its value, as the CSV serializer does.
+   */
+  protected OType getTypeByValue(final Object iValue) {
+    if (iValue == null)
+      return null;
+
+    if (iValue instanceof byte[])
+      return OType.BINARY;
+
+    if (iValue instanceof ORecord<?>)
+      return iValue instanceof ODocument && ((ODocument) iValue).hasOwners() ? OType.EMBEDDED : OType.LINK;
+
+    if (iValue instanceof ORID)
+      return OType.LINK;
+
+    if (iValue instanceof Date)
+      return OType.DATETIME;
+
+    if (iValue instanceof BigInteger)
+      return OType.INTEGER;
+
+    // CHECK LAZY COLLECTIONS FIRST TO AVOID LOADING THEIR RECORDS
+    if (iValue instanceof ORecordLazyList)
+      return OType.LINKLIST;
+
+    if (iValue instanceof OMVRBTreeRIDSet)
+      return OType.LINKSET;
+
+    if (iValue instanceof ORecordLazyMap)
+      return OType.LINKMAP;
+
+    if (iValue instanceof Collection<?> || iValue.getClass().isArray()) {
+      final Object first = OMultiValue.getFirstValue(iValue);
+      if (isLink(first))
+        return iValue instanceof Set<?> ? OType.LINKSET : OType.LINKLIST;
+      return iValue instanceof Set<?> ? OType.EMBEDDEDSET : OType.EMBEDDEDLIST;
+    }
+
+    if (iValue instanceof Map<?, ?>) {
+      final Object first = OMultiValue.getFirstValue(iValue);
+      return first instanceof ODocument && isLink(first) ? OType.LINKMAP : OType.EMBEDDEDMAP;
+    }
+
+    final OType type = OType.getTypeByClass(iValue.getClass());
+    return type != null ? type : OType.EMBEDDED;
+  }
+
+  private static boolean isLink(final Object iValue) {
+    return iValue instanceof ORID || iValue instanceof ODocument && !((ODocument) iValue).isEmbedded();
+  }
+
+  private static ORID getPersistentIdentity(final Object iValue) {
+    if (iValue instanceof ORID) {
+      final ORID rid = (ORID) iValue;
+      return rid.isValid() && !rid.isNew() ? rid : null;
+    }
+
+    if (iValue instanceof ORecord<?>) {
+      final ORecord<?> record = (ORecord<?>) iValue;
+      final ORID rid = record.getIdentity();
+      return rid.isValid() && !rid.isNew() && !record.isDirty() ? rid : null;
+    }
+
+    return null;
+  }
+
+  private static void fieldToString(final StringBuilder iOutput, final ODocument iRecord, final String iFieldName,
+      final Object iValue, final OType iType, final OType iLinkedType, final OClass iLinkedClass) {
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    ORecordSerializerSchemaAware2CSV.INSTANCE.fieldToStream(iRecord, iOutput, db, iType, iLinkedClass, iLinkedType, iFieldName,
+        iValue, OSerializationLongIdThreadLocal.INSTANCE.get(), true);
+  }
+
+  private static void writeText(final OMemoryStream iOutput, final StringBuilder iText, final OType iLinkedType) {
+    iOutput.write(iLinkedType != null ? iLinkedType.getId() : NULL_TYPE);
+    final byte[] bytes = iText.toString().getBytes(UTF8);
+    iOutput.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeLink(final OMemoryStream iOutput, final ORID iRid) {
+    OVarIntSerializer.write(iOutput, iRid.getClusterId());
+    final byte[] position = iRid.getClusterPosition().toStream();
+    iOutput.write(position, 0, position.length);
+  }
+
+  private static void writeFieldName(final OMemoryStream iOutput, final OSchemaProxy iSchema, final String iFieldName) {
+    final int id = iSchema != null ? iSchema.getFieldNameId(iFieldName) : -1;
+    if (id > -1)
+      OVarIntSerializer.write(iOutput, (long) id << 1);
+    else {
+      final byte[] bytes = iFieldName.getBytes(UTF8);
+      OVarIntSerializer.write(iOutput, ((long) bytes.length << 1) | 1);
+      iOutput.write(bytes, 0, bytes.length);
+    }
+  }
+
+  private static String getFieldName(final OSchemaProxy iSchema, final int iId) {
+    if (iSchema == null)
+      throw new OSerializationException("Cannot resolve the field name with id " + iId + " without an open database");
+
+    String name = iSchema.getFieldName(iId);
+    if (name == null) {
+      // THE DICTIONARY COULD HAVE BEEN EXTENDED BY ANOTHER CLIENT: RELOAD IT ONCE
+      iSchema.reload();
+      name = iSchema.getFieldName(iId);
+      if (name == null)
+        throw new OSerializationException("Field name with id " + iId + " not found in the schema dictionary");
+    }
+    return name;
+  }
+
+  private static void writeString(final OMemoryStream iOutput, final String iValue) {
+    if (iValue == null) {
+      OVarIntSerializer.write(iOutput, 0);
+      return;
+    }
+
+    final byte[] bytes = iValue.getBytes(UTF8);
+    OVarIntSerializer.write(iOutput, bytes.length + 1);
+    iOutput.write(bytes, 0, bytes.length);
+  }
+
+  private static String readString(final OBytesContainer iInput) {
+    final int length = OVarIntSerializer.readAsInteger(iInput) - 1;
+    if (length < 0)
+      return null;
+
+    final String value = new String(iInput.bytes, iInput.offset, length, UTF8);
+    iInput.skip(length);
+    return value;
+  }
+
+  private static void writeFixed(final OMemoryStream iOutput, final long iValue, final int iBytes) {
+    for (int i = iBytes - 1; i >= 0; --i)
+      iOutput.write((int) (iValue >>> (i * 8)) & 0xFF);
+  }
+
+  private static long readFixed(final OBytesContainer iInput, final int iBytes) {
+    long value = 0;
+    for (int i = 0; i < iBytes; ++i)
+      value = (value << 8) | (iInput.read() & 0xFF);
+    return value;
+  }
+
+  private static boolean toBoolean(final Object iValue) {
+    if (iValue instanceof Boolean)
+      return (Boolean) iValue;
+    return Boolean.parseBoolean(iValue.toString());
+  }
+
+  private static Object convert(final Object iValue, final Class<?> iTargetClass) {
+    if (iTargetClass.isInstance(iValue))
+      return iValue;
+
+    final Object converted = OType.convert(iValue, iTargetClass);
+    if (!iTargetClass.isInstance(converted))
+      throw new OSerializationException("Cannot convert value '" + iValue + "' to " + iTargetClass.getSimpleName());
+    return converted;
+  }
+
+  /**
+   * Reads the field table only: values are decoded on demand. Every field is bound to its type, the position of its value in the
+   * record and the length of the value.
+   */
+  private static OSerializedFields readFieldTable(final OBytesContainer in) {
+    final int fieldCount = OVarIntSerializer.readAsInteger(in);
+    final String[] names = new String[fieldCount];
+    final byte[] types = new byte[fieldCount];
+    final int[] offsets = new int[fieldCount];
+
+    OSchemaProxy schema = null;
+    for (int i = 0; i < fieldCount; ++i) {
+      final long nameRef = OVarIntSerializer.read(in);
+      if ((nameRef & 1) == 1) {
+        final int length = (int) (nameRef >>> 1);
+        names[i] = new String(in.bytes, in.offset, length, UTF8);
+        in.skip(length);
+      } else {
+        if (schema == null)
+          schema = getSchema();
+        names[i] = getFieldName(schema, (int) (nameRef >>> 1));
+      }
+
+      types[i] = in.read();
+      offsets[i] = OVarIntSerializer.readAsInteger(in);
+    }
+
+    final int dataLength = OVarIntSerializer.readAsInteger(in);
+    final int dataStart = in.offset;
+
+    final OSerializedFields serialized = new OSerializedFields(in.bytes);
+    for (int i = 0; i < fieldCount; ++i) {
+      final int end = i < fieldCount - 1 ? offsets[i + 1] : dataLength;
+      serialized.put(names[i], new int[] { types[i], dataStart + offsets[i], end - offsets[i] });
+    }
+    return serialized;
+  }
+
+  private static OSchemaProxy getSchema() {
+    final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.getIfDefined();
+    if (db == null || db.isClosed() || db.getMetadata() == null)
+      return null;
+    return (OSchemaProxy) db.getMetadata().getSchema();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+
+/**
+ * Variable length encoding of integers: 7 bits per byte, the most significant bit set means that more bytes follow. Signed values
+ * are zig-zag encoded first so that small negative numbers take few bytes too.
+ */
+public class OVarIntSerializer {
+  private static final int MAX_BYTES = 10;
+
+  public static int write(final OMemoryStream iOutput, long iValue) {
+    int written = 1;
+    while ((iValue & 0xFFFFFFFFFFFFFF80L) != 0L) {
+      iOutput.write((int) ((iValue & 0x7F) | 0x80));
+      iValue >>>= 7;
+      written++;
+    }
+    iOutput.write((int) (iValue & 0x7F));
+    return written;
+  }
+
+  public static int writeSigned(final OMemoryStream iOutput, final long iValue) {
+    return write(iOutput, (iValue << 1) ^ (iValue >> 63));
+  }
+
+  public static long read(final OBytesContainer iInput) {
+    long value = 0L;
+    int shift = 0;
+    for (int i = 0; i < MAX_BYTES; ++i) {
+      final byte b = iInput.read();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+        return value;
+      shift += 7;
+    }
+    throw new OSerializationException("Variable length integer is longer than " + MAX_BYTES + " bytes");
+  }
+
+  public static int readAsInteger(final OBytesContainer iInput) {
+    return (int) read(iInput);
+  }
+
+  public static long readSigned(final OBytesContainer iInput) {
+    final long raw = read(iInput);
+    return (raw >>> 1) ^ -(raw & 1);
+  }
+}
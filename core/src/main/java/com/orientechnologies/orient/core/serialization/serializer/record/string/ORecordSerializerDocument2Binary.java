@@ -36,6 +36,11 @@ import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 
+/**
+ * @deprecated Never registered and incomplete: it doesn't support collections. Use
+ *             {@link com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary}
+ */
+@Deprecated
 public class ORecordSerializerDocument2Binary implements ORecordSerializer {
   public static final String NAME = "ORecordDocument2binary";
 
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.serialization.serializer.record.string
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -41,7 +42,10 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializedFields;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract {
@@ -362,15 +366,60 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
   }
 
   @Override
-  public ORecordInternal<?> fromString(String iContent, final ORecordInternal<?> iRecord, final String[] iFields) {
+  public ORecordInternal<?> fromString(final String iContent, final ORecordInternal<?> iRecord, final String[] iFields) {
+    final ODocument record = (ODocument) iRecord;
+
+    final OSerializedFields serialized = splitFields(iContent, record, null, iFields);
+    if (serialized != null)
+      unmarshallFields(record, serialized, iFields);
+
+    return iRecord;
+  }
+
+  @Override
+  public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+    if (ORecordSerializerSchemaAware2Binary.isBinaryFormat(iSource))
+      // THE DATABASE STORES DOCUMENTS IN BINARY FORMAT
+      return ORecordSerializerSchemaAware2Binary.INSTANCE.fromStream(iSource, iRecord, iFields);
+
+    final ODocument record = (ODocument) iRecord;
+    OSerializedFields serialized = record.getSerializedFields();
+    if (serialized != null && !serialized.isBuiltFrom(iSource))
+      serialized = null;
+
+    if (iFields == null || iFields.length == 0) {
+      if (serialized == null)
+        return super.fromStream(iSource, iRecord, iFields);
+
+      // UNMARSHALL THE FIELDS LEFT BY THE PREVIOUS PARTIAL UNMARSHALLING
+      unmarshallFields(record, serialized, iFields);
+      return iRecord;
+    }
+
+    if (serialized == null) {
+      // SPLIT THE RECORD ONLY ONCE AND KEEP THE FIELD VALUES FOR THE NEXT FIELDS
+      serialized = splitFields(OBinaryProtocol.bytes2string(iSource), record, iSource, iFields);
+      if (serialized == null)
+        return iRecord;
+      record.setSerializedFields(serialized);
+    }
+
+    unmarshallFields(record, serialized, iFields);
+    return iRecord;
+  }
+
+  /**
+   * Reads the class name and splits the fields without unmarshalling their values.
+   * 
+   * @return The fields bound to the text of their value, or null if there are no fields to unmarshall
+   */
+  private OSerializedFields splitFields(String iContent, final ODocument record, final byte[] iSource, final String[] iFields) {
     iContent = iContent.trim();
 
     if (iContent.length() == 0)
-      return iRecord;
+      return null;
 
     // UNMARSHALL THE CLASS NAME
-    final ODocument record = (ODocument) iRecord;
-
     final int posFirstValue = iContent.indexOf(OStringSerializerHelper.ENTRY_SEPARATOR);
     int pos = iContent.indexOf(OStringSerializerHelper.CLASS_SEPARATOR);
     if (pos > -1 && (pos < posFirstValue || posFirstValue == -1)) {
@@ -381,140 +430,138 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
     if (iFields != null && iFields.length == 1 && iFields[0].equals("@class"))
       // ONLY THE CLASS NAME HAS BEEN REQUESTED: RETURN NOW WITHOUT UNMARSHALL THE ENTIRE RECORD
-      return iRecord;
+      return null;
 
     final List<String> fields = OStringSerializerHelper.smartSplit(iContent, OStringSerializerHelper.RECORD_SEPARATOR, true);
 
-    String field;
-    String fieldName = null;
-    String fieldValue;
-    OType type = null;
-    OClass linkedClass;
-    OType linkedType;
-    OProperty prop;
-
-    // UNMARSHALL ALL THE FIELDS
+    final OSerializedFields serialized = new OSerializedFields(iSource);
     for (int i = 0; i < fields.size(); ++i) {
-      field = fields.get(i).trim();
-      boolean uncertainType = false;
-
-      try {
-        pos = field.indexOf(FIELD_VALUE_SEPARATOR);
-        if (pos > -1) {
-          // GET THE FIELD NAME
-          fieldName = field.substring(0, pos);
-
-          if (record.containsField(fieldName))
-            // ALREADY UNMARSHALLED: DON'T OVERWRITE IT
-            continue;
-
-          if (iFields != null && iFields.length > 0) {
-            // CHECK IF THE FIELS IS REQUESTED TO BEING UNMARSHALLED
-            boolean found = false;
-            for (String f : iFields)
-              if (f.equals(fieldName)) {
-                found = true;
-                break;
-              }
-
-            if (!found)
-              // SKIP IT
-              continue;
-          }
+      final String field = fields.get(i).trim();
 
-          // GET THE FIELD VALUE
-          fieldValue = field.length() > pos + 1 ? field.substring(pos + 1) : null;
-
-          boolean setFieldType = false;
-
-          // SEARCH FOR A CONFIGURED PROPERTY
-          prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
-          if (prop != null) {
-            // RECOGNIZED PROPERTY
-            type = prop.getType();
-            linkedClass = prop.getLinkedClass();
-            linkedType = prop.getLinkedType();
-
-          } else {
-            // SCHEMA PROPERTY NOT FOUND FOR THIS FIELD: TRY TO AUTODETERMINE THE BEST TYPE
-            type = record.fieldType(fieldName);
-            if (type != null)
-              setFieldType = true;
-            linkedClass = null;
-            linkedType = null;
-
-            // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
-            if (fieldValue != null && type == null) {
-              if (fieldValue.length() > 1 && fieldValue.charAt(0) == '"' && fieldValue.charAt(fieldValue.length() - 1) == '"') {
-                type = OType.STRING;
-              } else if (fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN
-                  && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.LIST_END
-                  || fieldValue.charAt(0) == OStringSerializerHelper.SET_BEGIN
-                  && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.SET_END) {
-                // EMBEDDED LIST/SET
-                type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.EMBEDDEDLIST : OType.EMBEDDEDSET;
-
-                final String value = fieldValue.substring(1, fieldValue.length() - 1);
-
-                if (!value.isEmpty()) {
-                  if (value.charAt(0) == OStringSerializerHelper.LINK) {
-                    type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.LINKLIST : OType.LINKSET;
-                    linkedType = OType.LINK;
+      pos = field.indexOf(FIELD_VALUE_SEPARATOR);
+      if (pos > -1) {
+        final String fieldName = field.substring(0, pos);
+        if (!serialized.contains(fieldName))
+          serialized.put(fieldName, field.length() > pos + 1 ? field.substring(pos + 1) : null);
+      }
+    }
+    return serialized;
+  }
 
-                    // GET THE CLASS NAME IF ANY
-                    int classSeparatorPos = value.indexOf(OStringSerializerHelper.CLASS_SEPARATOR);
-                    if (classSeparatorPos > -1) {
-                      String className = value.substring(1, classSeparatorPos);
-                      if (className != null)
-                        linkedClass = ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata().getSchema().getClass(className);
-                    }
-                  } else if (value.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
-                    linkedType = OType.EMBEDDED;
-                  } else if (value.charAt(0) == OStringSerializerHelper.CUSTOM_TYPE) {
-                    linkedType = OType.CUSTOM;
-                  } else if (Character.isDigit(value.charAt(0)) || value.charAt(0) == '+' || value.charAt(0) == '-') {
-                    String[] items = value.split(",");
-                    linkedType = getType(items[0]);
-                  } else if (value.charAt(0) == '\'' || value.charAt(0) == '"')
-                    linkedType = OType.STRING;
-                } else
-                  uncertainType = true;
+  /**
+   * Unmarshalls the requested fields, or all the fields left if no field is requested.
+   */
+  private void unmarshallFields(final ODocument record, final OSerializedFields serialized, final String[] iFields) {
+    for (String fieldName : iFields != null && iFields.length > 0 ? Arrays.asList(iFields) : serialized.getFieldNames()) {
+      if (!serialized.contains(fieldName))
+        // NOT PRESENT OR ALREADY UNMARSHALLED
+        continue;
 
-              } else if (fieldValue.charAt(0) == OStringSerializerHelper.MAP_BEGIN
-                  && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.MAP_END) {
-                type = OType.EMBEDDEDMAP;
-              } else if (fieldValue.charAt(0) == OStringSerializerHelper.LINK)
-                type = OType.LINK;
-              else if (fieldValue.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
-                // TEMPORARY PATCH
-                if (fieldValue.startsWith("(ORIDs"))
-                  type = OType.LINKSET;
-                else
-                  type = OType.EMBEDDED;
-              } else if (fieldValue.equals("true") || fieldValue.equals("false"))
-                type = OType.BOOLEAN;
-              else
-                type = getType(fieldValue);
-            }
-          }
+      final String fieldValue = (String) serialized.remove(fieldName);
 
-          if (setFieldType || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP
-              || type == OType.EMBEDDED)
-            // SAVE THE TYPE AS EMBEDDED
-            record.field(fieldName, fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName, fieldValue), type);
-          else
-            record.field(fieldName, fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName, fieldValue));
+      if (record.containsField(fieldName))
+        // ALREADY UNMARSHALLED: DON'T OVERWRITE IT
+        continue;
 
-          if (uncertainType)
-            record.setFieldType(fieldName, null);
-        }
+      try {
+        unmarshallField(record, fieldName, fieldValue);
       } catch (Exception e) {
         OLogManager.instance().exception("Error on unmarshalling field '%s' in record %s with value: ", e,
-            OSerializationException.class, fieldName, iRecord.getIdentity(), field);
+            OSerializationException.class, fieldName, record.getIdentity(), fieldValue);
       }
     }
+  }
 
-    return iRecord;
+  /**
+   * Unmarshalls the value of a field detecting its type by the schema or by the content.
+   */
+  private void unmarshallField(final ODocument record, final String fieldName, final String fieldValue) {
+    OType type;
+    OClass linkedClass;
+    OType linkedType;
+    boolean uncertainType = false;
+    boolean setFieldType = false;
+
+    // SEARCH FOR A CONFIGURED PROPERTY
+    final OProperty prop = record.getSchemaClass() != null ? record.getSchemaClass().getProperty(fieldName) : null;
+    if (prop != null) {
+      // RECOGNIZED PROPERTY
+      type = prop.getType();
+      linkedClass = prop.getLinkedClass();
+      linkedType = prop.getLinkedType();
+
+    } else {
+      // SCHEMA PROPERTY NOT FOUND FOR THIS FIELD: TRY TO AUTODETERMINE THE BEST TYPE
+      type = record.fieldType(fieldName);
+      if (type != null)
+        setFieldType = true;
+      linkedClass = null;
+      linkedType = null;
+
+      // NOT FOUND: TRY TO DETERMINE THE TYPE FROM ITS CONTENT
+      if (fieldValue != null && type == null) {
+        if (fieldValue.length() > 1 && fieldValue.charAt(0) == '"' && fieldValue.charAt(fieldValue.length() - 1) == '"') {
+          type = OType.STRING;
+        } else if (fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN
+            && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.LIST_END
+            || fieldValue.charAt(0) == OStringSerializerHelper.SET_BEGIN
+            && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.SET_END) {
+          // EMBEDDED LIST/SET
+          type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.EMBEDDEDLIST : OType.EMBEDDEDSET;
+
+          final String value = fieldValue.substring(1, fieldValue.length() - 1);
+
+          if (!value.isEmpty()) {
+            if (value.charAt(0) == OStringSerializerHelper.LINK) {
+              type = fieldValue.charAt(0) == OStringSerializerHelper.LIST_BEGIN ? OType.LINKLIST : OType.LINKSET;
+              linkedType = OType.LINK;
+
+              // GET THE CLASS NAME IF ANY
+              int classSeparatorPos = value.indexOf(OStringSerializerHelper.CLASS_SEPARATOR);
+              if (classSeparatorPos > -1) {
+                String className = value.substring(1, classSeparatorPos);
+                if (className != null)
+                  linkedClass = ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata().getSchema().getClass(className);
+              }
+            } else if (value.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
+              linkedType = OType.EMBEDDED;
+            } else if (value.charAt(0) == OStringSerializerHelper.CUSTOM_TYPE) {
+              linkedType = OType.CUSTOM;
+            } else if (Character.isDigit(value.charAt(0)) || value.charAt(0) == '+' || value.charAt(0) == '-') {
+              String[] items = value.split(",");
+              linkedType = getType(items[0]);
+            } else if (value.charAt(0) == '\'' || value.charAt(0) == '"')
+              linkedType = OType.STRING;
+          } else
+            uncertainType = true;
+
+        } else if (fieldValue.charAt(0) == OStringSerializerHelper.MAP_BEGIN
+            && fieldValue.charAt(fieldValue.length() - 1) == OStringSerializerHelper.MAP_END) {
+          type = OType.EMBEDDEDMAP;
+        } else if (fieldValue.charAt(0) == OStringSerializerHelper.LINK)
+          type = OType.LINK;
+        else if (fieldValue.charAt(0) == OStringSerializerHelper.EMBEDDED_BEGIN) {
+          // TEMPORARY PATCH
+          if (fieldValue.startsWith("(ORIDs"))
+            type = OType.LINKSET;
+          else
+            type = OType.EMBEDDED;
+        } else if (fieldValue.equals("true") || fieldValue.equals("false"))
+          type = OType.BOOLEAN;
+        else
+          type = getType(fieldValue);
+      }
+    }
+
+    if (setFieldType || type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP
+        || type == OType.EMBEDDED)
+      // SAVE THE TYPE AS EMBEDDED
+      record.field(fieldName, fieldFromStream(record, type, linkedClass, linkedType, fieldName, fieldValue), type);
+    else
+      record.field(fieldName, fieldFromStream(record, type, linkedClass, linkedType, fieldName, fieldValue));
+
+    if (uncertainType)
+      record.setFieldType(fieldName, null);
   }
 
   @Override
@@ -32,6 +32,10 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
  */
 public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
   protected OCommandExecutorSQLAbstract delegate;
+  private OSQLStatementCache            statementCache;
+  private String                        statementKey;
+  private long                          statementVersion;
+  private boolean                       released;
 
   @SuppressWarnings("unchecked")
   public OCommandExecutorSQLDelegate parse(final OCommandRequest iCommand) {
@@ -40,6 +44,21 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
       final String text = textRequest.getText();
       final String textUpperCase = text.toUpperCase(Locale.ENGLISH);
 
+      if (useStatementCache() && OSQLStatementCache.isEnabled()
+          && textUpperCase.trim().startsWith(OCommandExecutorSQLSelect.KEYWORD_SELECT)) {
+        statementCache = OSQLStatementCache.getInstance(getDatabase().getStorage());
+        statementKey = OSQLStatementCache.getKey(text, iCommand.getLimit());
+        statementVersion = statementCache.getVersion();
+
+        final OCommandExecutorSQLSelect cached = statementCache.acquire(statementKey);
+        if (cached != null) {
+          // REUSE THE PARSED STATEMENT
+          delegate = cached.reuse(textRequest, context);
+          delegate.setProgressListener(progressListener);
+          return this;
+        }
+      }
+
       delegate = (OCommandExecutorSQLAbstract) OSQLEngine.getInstance().getCommand(textUpperCase);
       if (delegate == null)
         throw new OCommandExecutorNotFoundException("Cannot find a command executor for the command request: " + iCommand);
@@ -48,18 +67,40 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
       delegate.setLimit(iCommand.getLimit());
       delegate.parse(iCommand);
       delegate.setProgressListener(progressListener);
+
+      if (statementKey != null && !(delegate instanceof OCommandExecutorSQLSelect))
+        statementKey = null;
     } else
       throw new OCommandExecutionException("Cannot find a command executor for the command request: " + iCommand);
     return this;
   }
 
   public Object execute(final Map<Object, Object> iArgs) {
-    return delegate.execute(iArgs);
+    final Object result = delegate.execute(iArgs);
+
+    if (statementKey != null && ((OCommandExecutorSQLSelect) delegate).isReusable()) {
+      // GIVE BACK THE STATEMENT ONLY AFTER A SUCCESSFUL EXECUTION, KEEPING THE CONTEXT FOR THE CALLER
+      context = delegate.getContext();
+      released = true;
+      statementCache.release(statementKey, (OCommandExecutorSQLSelect) delegate, statementVersion);
+      statementKey = null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Tells if the parsed SELECT statements can be taken from the {@link OSQLStatementCache}. Executors that use the delegate after
+   * the execution must return false.
+   */
+  protected boolean useStatementCache() {
+    return true;
   }
 
   @Override
   public OCommandContext getContext() {
-    return delegate.getContext();
+    // A RELEASED DELEGATE COULD BE ALREADY EXECUTING ANOTHER REQUEST
+    return released ? context : delegate.getContext();
   }
 
   @Override
@@ -60,4 +60,10 @@ public class OCommandExecutorSQLExplain extends OCommandExecutorSQLDelegate {
 
 		return report;
 	}
+
+	@Override
+	protected boolean useStatementCache() {
+		// THE REPORT IS READ FROM THE CONTEXT OF THE DELEGATE AFTER THE EXECUTION
+		return false;
+	}
 }
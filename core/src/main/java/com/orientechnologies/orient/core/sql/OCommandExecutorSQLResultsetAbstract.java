@@ -25,6 +25,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -86,6 +88,8 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
   protected Iterable<OIdentifiable>                tempResult;
   protected int                                    resultCount;
   protected int                                    skip               = 0;
+  protected boolean                                parallel           = false;
+  protected boolean                                reusable           = true;
 
   /**
    * Compile the filter conditions only the first time.
@@ -97,18 +101,24 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
     OCommandRequestText textRequest = (OCommandRequestText) iRequest;
 
     init(textRequest.getText());
+    bindRequest(textRequest);
+    return this;
+  }
 
+  /**
+   * Assigns the query to execute, built from the command request if needed.
+   */
+  protected void bindRequest(final OCommandRequestText iRequest) {
     if (iRequest instanceof OSQLSynchQuery) {
       request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
     } else if (iRequest instanceof OSQLAsynchQuery)
       request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
     else {
       // BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(textRequest.getText());
-      if (textRequest.getResultListener() != null)
-        request.setResultListener(textRequest.getResultListener());
+      request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+      if (iRequest.getResultListener() != null)
+        request.setResultListener(iRequest.getResultListener());
     }
-    return this;
   }
 
   @Override
@@ -279,7 +289,15 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
   }
 
   protected boolean filter(final ORecordInternal<?> iRecord) {
-    context.setVariable("current", iRecord);
+    return filter(iRecord, context);
+  }
+
+  /**
+   * Filters the record against the target classes and the WHERE condition using the received context. Parallel scans call it with
+   * a context per thread.
+   */
+  protected boolean filter(final ORecordInternal<?> iRecord, final OCommandContext iContext) {
+    iContext.setVariable("current", iRecord);
 
     if (iRecord instanceof ORecordSchemaAware<?>) {
       // CHECK THE TARGET CLASS
@@ -291,18 +309,22 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
           if (!targetClass.isSuperClassOf(recordSchemaAware.getSchemaClass()))
             return false;
         }
-        context.updateMetric("documentAnalyzedCompatibleClass", +1);
+        iContext.updateMetric("documentAnalyzedCompatibleClass", +1);
       }
     }
 
-    return evaluateRecord(iRecord);
+    return evaluateRecord(iRecord, iContext);
   }
 
   protected boolean evaluateRecord(final ORecord<?> iRecord) {
+    return evaluateRecord(iRecord, context);
+  }
+
+  protected boolean evaluateRecord(final ORecord<?> iRecord, final OCommandContext iContext) {
     assignLetClauses(iRecord);
     if (compiledFilter == null)
       return true;
-    return (Boolean) compiledFilter.evaluate(iRecord, null, context);
+    return (Boolean) compiledFilter.evaluate(iRecord, null, iContext);
   }
 
   protected void assignLetClauses(final ORecord<?> iRecord) {
@@ -346,6 +368,13 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
 
     // NO INDEXES: SCAN THE ENTIRE CLUSTER
     final ORID[] range = getRange();
+    if (isParallel()) {
+      target = OParallelClusterScan.start(this, database, cls.getPolymorphicClusterIds(), range[0], range[1], request.isUseCache());
+      if (target != null)
+        return;
+      // ALL THE SCAN THREADS ARE BUSY
+    }
+
     target = new ORecordIteratorClass<ORecordInternal<?>>(database, (ODatabaseRecordAbstract) database, cls.getName(), true,
         request.isUseCache(), false).setRange(range[0], range[1]);
   }
@@ -385,11 +414,27 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
       clIds[i++] = c;
 
     final ORID[] range = getRange();
+    if (isParallel()) {
+      target = OParallelClusterScan.start(this, database, clIds, range[0], range[1], request.isUseCache());
+      if (target != null)
+        return;
+      // ALL THE SCAN THREADS ARE BUSY
+    }
 
     target = new ORecordIteratorClusters<ORecordInternal<?>>(database, database, clIds, request.isUseCache(), false).setRange(
         range[0], range[1]);
   }
 
+  /**
+   * Tells if the clusters can be browsed by many threads. LET clauses are assigned in the shared context, transactions are bound
+   * to the caller thread and the scan threads can open their database only on embedded storages, so in these cases the scan
+   * remains sequential.
+   */
+  protected boolean isParallel() {
+    return parallel && let == null && !getDatabase().getTransaction().isActive() && !OParallelClusterScan.isScanThread()
+        && Orient.instance().getDatabaseFactory().isWorkerDatabaseSupported(getDatabase());
+  }
+
   protected void applyLimitAndSkip() {
     if (tempResult != null && (limit > 0 || skip > 0)) {
       final List<OIdentifiable> newList = new ArrayList<OIdentifiable>();
@@ -441,6 +486,8 @@ public abstract class OCommandExecutorSQLResultsetAbstract extends OCommandExecu
 
     if (precalculate) {
       // all fields are static, we can calculate it only once.
+      // THE STATEMENT CANNOT BE CACHED BECAUSE THE RESULT COULD CHANGE AT EVERY EXECUTION, LIKE WITH SYSDATE()
+      reusable = false;
       return function.execute(null, null, null); // we can pass nulls here, they wont be used
     } else {
       return function;
@@ -31,4 +31,9 @@ public class OCommandExecutorSQLResultsetDelegate extends OCommandExecutorSQLDel
   public Iterator<OIdentifiable> iterator() {
     return ((OCommandExecutorSQLResultsetAbstract) delegate).iterator();
   }
+
+  @Override
+  protected boolean useStatementCache() {
+    return false;
+  }
 }
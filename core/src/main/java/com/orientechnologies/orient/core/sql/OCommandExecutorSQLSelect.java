@@ -23,6 +23,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -34,11 +35,15 @@ import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.concur.resource.OSharedResource;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
@@ -90,17 +95,21 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   public static final String          KEYWORD_ORDER        = "ORDER";
   public static final String          KEYWORD_BY           = "BY";
   public static final String          KEYWORD_GROUP        = "GROUP";
+  public static final String          KEYWORD_PARALLEL     = "PARALLEL";
 
   private Map<String, String>         projectionDefinition = null;
   private Map<String, Object>         projections          = null;    // THIS HAS BEEN KEPT FOR COMPATIBILITY; BUT IT'S USED THE
                                                                        // PROJECTIONS IN GROUPED-RESULTS
   private List<OPair<String, String>> orderedFields;
+  private List<OPair<String, String>> parsedOrderedFields;
+  private int                         parsedSkip;
   private List<String>                groupByFields;
   private Map<Object, ORuntimeResult> groupedResult;
   private Object                      flattenTarget;
   private int                         fetchLimit           = -1;
   private OIdentifiable               lastRecord;
   private Iterator<OIdentifiable>     subIterator;
+  private OOrderByTopK                orderedTopK;
 
   /**
    * Compile the filter conditions only the first time.
@@ -153,6 +162,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
             parseLimit(w);
           else if (w.equals(KEYWORD_SKIP))
             parseSkip(w);
+          else if (w.equals(KEYWORD_PARALLEL))
+            parallel = true;
           else
             throwParsingException("Invalid keyword '" + w + "'");
         }
@@ -162,9 +173,58 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    // THE ORDER BY IS CLEARED AND THE SKIP IS COUNTED DOWN AT EXECUTION TIME
+    if (orderedFields != null)
+      parsedOrderedFields = new ArrayList<OPair<String, String>>(orderedFields);
+    parsedSkip = skip;
+
+    return this;
+  }
+
+  /**
+   * Tells if the parsed statement can be kept in the {@link OSQLStatementCache} and executed again. Statements with state
+   * collected across the records (aggregate functions, groups, flatten, let) or with values computed at parsing time are not
+   * reusable.
+   */
+  public boolean isReusable() {
+    return reusable && let == null && groupedResult == null && groupByFields == null && flattenTarget == null
+        && parsedTarget != null && parsedTarget.getTargetVariable() == null
+        && (parsedTarget.getTargetRecords() == null || parsedTarget.getTargetRecords() instanceof Collection<?>);
+  }
+
+  /**
+   * Prepares an already parsed statement taken from the {@link OSQLStatementCache} to be executed for a new request.
+   */
+  public OCommandExecutorSQLSelect reuse(final OCommandRequestText iRequest, final OCommandContext iContext) {
+    getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
+
+    bindRequest(iRequest);
+    context = iContext != null ? iContext : new OBasicCommandContext();
+    orderedFields = parsedOrderedFields != null ? new ArrayList<OPair<String, String>>(parsedOrderedFields) : null;
+    skip = parsedSkip;
     return this;
   }
 
+  /**
+   * Drops the state of the last execution before the executor is kept idle in the {@link OSQLStatementCache}: the pooled executors
+   * must not keep their results in memory, nor pass the values bound by a request to the next one.
+   */
+  public void recycle() {
+    request = null;
+    context = null;
+    parameters = null;
+    progressListener = null;
+    target = null;
+    tempResult = null;
+    resultCount = 0;
+    fetchLimit = -1;
+    orderedTopK = null;
+    lastRecord = null;
+    subIterator = null;
+    if (compiledFilter != null)
+      compiledFilter.reset();
+  }
+
   /**
    * Determine clusters that are used in select operation
    * 
@@ -210,6 +270,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       return this;
     }
 
+    // THE NODE CONDITION IS ADDED TO THE PARSED FILTER
+    reusable = false;
+
     final OSQLFilterCondition nodeCondition;
     if (fromId < toId) {
       nodeCondition = getConditionForRidPosRange(fromId, toId);
@@ -310,6 +373,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     if (!optimizeExecution()) {
       fetchLimit = getQueryFetchLimit();
+      orderedTopK = createOrderedTopK();
 
       executeSearch(iArgs);
       applyFlatten();
@@ -333,10 +397,21 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       return;
     }
 
-    // BROWSE ALL THE RECORDS
-    while (target.hasNext())
-      if (!executeSearchRecord(target.next()))
-        break;
+    if (target instanceof OParallelClusterScan) {
+      // RECORDS ARE READ AND FILTERED BY THE SCAN THREADS
+      final OParallelClusterScan scan = (OParallelClusterScan) target;
+      try {
+        while (scan.hasNext())
+          if (!handleResult(scan.next()))
+            break;
+      } finally {
+        scan.close();
+      }
+    } else
+      // BROWSE ALL THE RECORDS
+      while (target.hasNext())
+        if (!executeSearchRecord(target.next()))
+          break;
 
     if (request.getResultListener() != null)
       request.getResultListener().end();
@@ -442,6 +517,12 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     } else {
 
+      if (orderedTopK != null && flattenTarget == null) {
+        // KEEP ONLY THE FIRST SKIP + LIMIT RECORDS
+        orderedTopK.add(iRecord);
+        return;
+      }
+
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
       if (tempResult == null)
         tempResult = new ArrayList<OIdentifiable>();
@@ -491,6 +572,23 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return group;
   }
 
+  /**
+   * Creates the bounded collector for ORDER BY with LIMIT, so only SKIP + LIMIT records are kept instead of the whole result set.
+   */
+  private OOrderByTopK createOrderedTopK() {
+    if (orderedFields == null || orderedFields.isEmpty() || groupByFields != null || flattenTarget != null)
+      return null;
+
+    int max = limit;
+    if (request.getLimit() > -1)
+      max = max > -1 ? Math.min(max, request.getLimit()) : request.getLimit();
+
+    if (max < 0)
+      return null;
+
+    return new OOrderByTopK(orderedFields, max + Math.max(skip, 0));
+  }
+
   private int getQueryFetchLimit() {
     if (orderedFields != null) {
       return -1;
@@ -559,7 +657,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (word.length() == 0)
         // END CLAUSE: SET AS ASC BY DEFAULT
         fieldOrdering = KEYWORD_ASC;
-      else if (word.equals(KEYWORD_LIMIT)) {
+      else if (word.equals(KEYWORD_LIMIT) || word.equals(KEYWORD_PARALLEL)) {
         // NEXT CLAUSE: SET AS ASC BY DEFAULT
         fieldOrdering = KEYWORD_ASC;
         parserGoBack();
@@ -591,19 +689,54 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       super.searchInClasses();
   }
 
-  @SuppressWarnings("rawtypes")
   private boolean searchForIndexes(final OClass iSchemaClass) {
     final ODatabaseRecord database = getDatabase();
     database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
 
+    if (compiledFilter == null)
+      return false;
+
+    if (!OGlobalConfiguration.QUERY_INDEX_COST_BASED.getValueAsBoolean())
+      return searchForMostSpecificIndex(iSchemaClass);
+
+    final OQueryPlanner planner = new OQueryPlanner(iSchemaClass);
+    final OQueryPlan plan = planner.plan(compiledFilter.getRootCondition());
+
+    if (context.isRecordingMetrics()) {
+      context.setVariable("plan", plan.toDocument());
+      context.setVariable("fullScanCost", (float) planner.getFullScan().getCost());
+    }
+
+    switch (plan.getType()) {
+    case FULL_SCAN:
+      return false;
+
+    case INDEX:
+      if (searchInIndex(plan.getIndex(), plan.getSearchResult(), plan.getKeyParams()))
+        return true;
+      break;
+
+    default:
+      final Collection<ORID> result = fetchFromIndexes(plan);
+      if (result != null) {
+        fillSearchIndexResultSet(result);
+        return true;
+      }
+    }
+
+    // THE CHOSEN INDEXES CANNOT EXECUTE THE QUERY
+    return searchForMostSpecificIndex(iSchemaClass);
+  }
+
+  /**
+   * Uses the first index that can execute the query, trying first the ones involving more fields.
+   */
+  private boolean searchForMostSpecificIndex(final OClass iSchemaClass) {
     // Create set that is sorted by amount of fields in OIndexSearchResult items
     // so the most specific restrictions will be processed first.
     final List<OIndexSearchResult> indexSearchResults = new ArrayList<OIndexSearchResult>();
 
     // fetch all possible variants of subqueries that can be used in indexes.
-    if (compiledFilter == null)
-      return false;
-
     analyzeQueryBranch(iSchemaClass, compiledFilter.getRootCondition(), indexSearchResults);
 
     // most specific will be processed first
@@ -619,73 +752,126 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       Collections.sort(involvedIndexes, IndexComparator.INSTANCE);
 
       // go through all possible index for given set of fields.
-      for (final OIndex index : involvedIndexes) {
-        final OIndexDefinition indexDefinition = index.getDefinition();
-        final OQueryOperator operator = searchResult.lastOperator;
-
+      for (final OIndex<?> index : involvedIndexes) {
         // we need to test that last field in query subset and field in index that has the same position
         // are equals.
-        if (!OIndexSearchResult.isIndexEqualityOperator(operator)) {
-          final String lastFiled = searchResult.lastField.getItemName(searchResult.lastField.getItemCount() - 1);
-          final String relatedIndexField = indexDefinition.getFields().get(searchResult.fieldValuePairs.size());
-          if (!lastFiled.equals(relatedIndexField))
-            continue;
-        }
+        if (!searchResult.isUsableBy(index.getDefinition()))
+          continue;
 
-        final int searchResultFieldsCount = searchResult.fields().size();
-        final List<Object> keyParams = new ArrayList<Object>(searchResultFieldsCount);
-        // We get only subset contained in processed sub query.
-        for (final String fieldName : indexDefinition.getFields().subList(0, searchResultFieldsCount)) {
-          final Object fieldValue = searchResult.fieldValuePairs.get(fieldName);
-          if (fieldValue != null)
-            keyParams.add(fieldValue);
-          else
-            keyParams.add(searchResult.lastValue);
-        }
+        if (searchInIndex(index, searchResult, searchResult.getKeyParams(index.getDefinition())))
+          return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Executes the query subset against the index and handles the records found.
+   * 
+   * @return false if the index cannot execute the query subset
+   */
+  private boolean searchInIndex(final OIndex<?> index, final OIndexSearchResult searchResult, final List<Object> keyParams) {
+    INDEX_OPERATION_TYPE opType = null;
+
+    addInvolvedIndex(index);
+
+    if (projections != null && projections.size() == 1) {
+      final Object v = projections.values().iterator().next();
+      if (v instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) v).getFunction() instanceof OSQLFunctionCount) {
+        if (!(compiledFilter.getRootCondition().getLeft() instanceof OSQLFilterCondition || compiledFilter.getRootCondition()
+            .getRight() instanceof OSQLFilterCondition))
+          // OPTIMIZATION: JUST COUNT IT
+          opType = INDEX_OPERATION_TYPE.COUNT;
+      }
+    }
 
-        INDEX_OPERATION_TYPE opType = null;
+    if (opType == null)
+      opType = INDEX_OPERATION_TYPE.GET;
 
-        if (context.isRecordingMetrics()) {
-          Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
-          if (idxNames == null) {
-            idxNames = new HashSet<String>();
-            context.setVariable("involvedIndexes", idxNames);
-          }
-          idxNames.add(index.getName());
-        }
+    Object result = searchResult.lastOperator.executeIndexQuery(context, index, opType, keyParams, fetchLimit);
+    if (result == null)
+      return false;
 
-        if (projections != null && projections.size() == 1) {
-          final Object v = projections.values().iterator().next();
-          if (v instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) v).getFunction() instanceof OSQLFunctionCount) {
-            if (!(compiledFilter.getRootCondition().getLeft() instanceof OSQLFilterCondition || compiledFilter.getRootCondition()
-                .getRight() instanceof OSQLFilterCondition))
-              // OPTIMIZATION: JUST COUNT IT
-              opType = INDEX_OPERATION_TYPE.COUNT;
-          }
-        }
+    if (opType == INDEX_OPERATION_TYPE.COUNT) {
+      // OPTIMIZATION: EMBED THE RESULT IN A DOCUMENT AND AVOID THE CLASSIC PATH
+      final String projName = projectionDefinition.keySet().iterator().next();
+      projectionDefinition.clear();
+      getProjectionGroup(null).applyValue(projName, result);
+    } else
+      fillSearchIndexResultSet(result);
 
-        if (opType == null)
-          opType = INDEX_OPERATION_TYPE.GET;
+    return true;
+  }
 
-        Object result = operator.executeIndexQuery(context, index, opType, keyParams, fetchLimit);
-        if (result == null)
-          continue;
+  /**
+   * Fetches the identities of the records found by an intersection or union of indexes.
+   * 
+   * @return The identities, or null if an index cannot execute its query subset
+   */
+  private Collection<ORID> fetchFromIndexes(final OQueryPlan plan) {
+    switch (plan.getType()) {
+    case INDEX: {
+      addInvolvedIndex(plan.getIndex());
+
+      final Object result = plan.getSearchResult().lastOperator.executeIndexQuery(context, plan.getIndex(),
+          INDEX_OPERATION_TYPE.GET, plan.getKeyParams(), -1);
+      if (result == null)
+        return null;
 
-        if (opType == INDEX_OPERATION_TYPE.COUNT) {
-          // OPTIMIZATION: EMBED THE RESULT IN A DOCUMENT AND AVOID THE CLASSIC PATH
-          final String projName = projectionDefinition.keySet().iterator().next();
-          projectionDefinition.clear();
-          getProjectionGroup(null).applyValue(projName, result);
-        } else
-          fillSearchIndexResultSet(result);
+      final Set<ORID> rids = new LinkedHashSet<ORID>();
+      if (result instanceof Collection<?>) {
+        for (OIdentifiable id : (Collection<OIdentifiable>) result)
+          rids.add(id.getIdentity());
+      } else
+        rids.add(((OIdentifiable) result).getIdentity());
 
-        return true;
+      context.updateMetric("indexReads", rids.size());
+      return rids;
+    }
+
+    case INDEX_INTERSECTION: {
+      final Collection<ORID> left = fetchFromIndexes(plan.getLeft());
+      if (left == null || left.isEmpty())
+        return left;
+
+      final Collection<ORID> right = fetchFromIndexes(plan.getRight());
+      if (right == null)
+        return null;
+
+      left.retainAll(right);
+      return left;
+    }
+
+    case INDEX_UNION: {
+      final Collection<ORID> left = fetchFromIndexes(plan.getLeft());
+      if (left == null)
+        return null;
+
+      final Collection<ORID> right = fetchFromIndexes(plan.getRight());
+      if (right == null)
+        return null;
+
+      left.addAll(right);
+      return left;
+    }
+
+    default:
+      return null;
+    }
+  }
+
+  private void addInvolvedIndex(final OIndex<?> index) {
+    if (context.isRecordingMetrics()) {
+      Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
+      if (idxNames == null) {
+        idxNames = new HashSet<String>();
+        context.setVariable("involvedIndexes", idxNames);
       }
+      idxNames.add(index.getName());
     }
-    return false;
   }
 
-  private static List<OIndex<?>> getInvolvedIndexes(OClass iSchemaClass, OIndexSearchResult searchResultFields) {
+  static List<OIndex<?>> getInvolvedIndexes(OClass iSchemaClass, OIndexSearchResult searchResultFields) {
     final Set<OIndex<?>> involvedIndexes = iSchemaClass.getInvolvedIndexes(searchResultFields.fields());
 
     final List<OIndex<?>> result = new ArrayList<OIndex<?>>(involvedIndexes.size());
@@ -700,7 +886,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return result;
   }
 
-  private static OIndexSearchResult analyzeQueryBranch(final OClass iSchemaClass, OSQLFilterCondition iCondition,
+  static OIndexSearchResult analyzeQueryBranch(final OClass iSchemaClass, OSQLFilterCondition iCondition,
       final List<OIndexSearchResult> iIndexSearchResults) {
     if (iCondition == null)
       return null;
@@ -759,7 +945,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
    *          Value to search
    * @return true if the property was indexed and found, otherwise false
    */
-  private static OIndexSearchResult createIndexedProperty(final OSQLFilterCondition iCondition, final Object iItem) {
+  static OIndexSearchResult createIndexedProperty(final OSQLFilterCondition iCondition, final Object iItem) {
     if (iItem == null || !(iItem instanceof OSQLFilterItemField))
       return null;
 
@@ -950,6 +1136,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (orderedFields == null)
       return;
 
+    if (orderedTopK != null) {
+      if (tempResult == null) {
+        // ALREADY ORDERED
+        tempResult = orderedTopK.getResult();
+        orderedTopK = null;
+        orderedFields.clear();
+        return;
+      }
+      orderedTopK = null;
+    }
+
     if (tempResult instanceof OMultiCollectionIterator) {
       final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
       for (OIdentifiable o : tempResult)
@@ -1026,35 +1223,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       final OQueryOperator indexOperator = compiledFilter.getRootCondition().getOperator();
       if (indexOperator instanceof OQueryOperatorBetween) {
         final Object[] values = (Object[]) compiledFilter.getRootCondition().getRight();
-        final Collection<ODocument> entries = index.getEntriesBetween(getIndexKey(index.getDefinition(), values[0]),
-            getIndexKey(index.getDefinition(), values[2]));
-
-        for (final OIdentifiable r : entries) {
-          final boolean continueResultParsing = handleResult(r);
-          if (!continueResultParsing)
-            break;
-        }
+        fetchEntriesFromIndexCursor(index.iterateEntriesBetween(getIndexKey(index.getDefinition(), values[0]), true,
+            getIndexKey(index.getDefinition(), values[2]), true));
 
       } else if (indexOperator instanceof OQueryOperatorMajor) {
         final Object value = compiledFilter.getRootCondition().getRight();
-        final Collection<ODocument> entries = index.getEntriesMajor(getIndexKey(index.getDefinition(), value), false);
+        fetchEntriesFromIndexCursor(index.iterateEntriesMajor(getIndexKey(index.getDefinition(), value), false));
 
-        parseIndexSearchResult(entries);
       } else if (indexOperator instanceof OQueryOperatorMajorEquals) {
         final Object value = compiledFilter.getRootCondition().getRight();
-        final Collection<ODocument> entries = index.getEntriesMajor(getIndexKey(index.getDefinition(), value), true);
+        fetchEntriesFromIndexCursor(index.iterateEntriesMajor(getIndexKey(index.getDefinition(), value), true));
 
-        parseIndexSearchResult(entries);
       } else if (indexOperator instanceof OQueryOperatorMinor) {
         final Object value = compiledFilter.getRootCondition().getRight();
-        final Collection<ODocument> entries = index.getEntriesMinor(getIndexKey(index.getDefinition(), value), false);
+        fetchEntriesFromIndexCursor(index.iterateEntriesMinor(getIndexKey(index.getDefinition(), value), false));
 
-        parseIndexSearchResult(entries);
       } else if (indexOperator instanceof OQueryOperatorMinorEquals) {
         final Object value = compiledFilter.getRootCondition().getRight();
-        final Collection<ODocument> entries = index.getEntriesMinor(getIndexKey(index.getDefinition(), value), true);
+        fetchEntriesFromIndexCursor(index.iterateEntriesMinor(getIndexKey(index.getDefinition(), value), true));
 
-        parseIndexSearchResult(entries);
       } else if (indexOperator instanceof OQueryOperatorIn) {
         final List<Object> origValues = (List<Object>) compiledFilter.getRootCondition().getRight();
         final List<Object> values = new ArrayList<Object>(origValues.size());
@@ -1126,6 +1313,18 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * Browses the index cursor until the end of the range or until the limit is reached.
+   */
+  private void fetchEntriesFromIndexCursor(final Iterator<Entry<Object, OIdentifiable>> iCursor) {
+    while (iCursor.hasNext()) {
+      final Entry<Object, OIdentifiable> entry = iCursor.next();
+      if (!handleResult(createIndexEntryAsDocument(entry.getKey(), entry.getValue())))
+        // END OF EXECUTION
+        break;
+    }
+  }
+
   private boolean isIndexSizeQuery() {
     if (!(groupedResult != null && projections.entrySet().size() == 1))
       return false;
@@ -1233,7 +1432,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
-  private static boolean checkIndexExistence(final OClass iSchemaClass, final OIndexSearchResult result) {
+  static boolean checkIndexExistence(final OClass iSchemaClass, final OIndexSearchResult result) {
     if (!iSchemaClass.areIndexed(result.fields()))
       return false;
 
@@ -1254,7 +1453,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
   @Override
   public String getSyntax() {
-    return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>]";
+    return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>] [PARALLEL]";
   }
 
   protected boolean optimizeExecution() {
@@ -1287,7 +1486,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
     }
 
-    if (orderedFields != null && !orderedFields.isEmpty()) {
+    if (orderedFields != null && orderedFields.size() == 1 && groupByFields == null && flattenTarget == null) {
+      // SINGLE FIELD ORDER BY: BROWSE THE INDEX IN ORDER, IF ANY, SO THE LIMIT STOPS THE SCAN
       if (parsedTarget.getTargetClasses() != null) {
         final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
         final OPair<String, String> orderByFirstField = orderedFields.iterator().next();
@@ -1315,8 +1515,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
-  private static class IndexComparator implements Comparator<OIndex<?>> {
-    private static final IndexComparator INSTANCE = new IndexComparator();
+  static class IndexComparator implements Comparator<OIndex<?>> {
+    static final IndexComparator INSTANCE = new IndexComparator();
 
     public int compare(final OIndex<?> indexOne, final OIndex<?> indexTwo) {
       return indexOne.getDefinition().getParamCount() - indexTwo.getDefinition().getParamCount();
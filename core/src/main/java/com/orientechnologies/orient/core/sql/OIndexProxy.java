@@ -415,6 +415,19 @@ public class OIndexProxy<T> implements OIndex<T> {
     throw new UnsupportedOperationException("Not allowed operation");
   }
 
+  public Iterator<Map.Entry<Object, OIdentifiable>> iterateEntriesBetween(Object iRangeFrom, boolean iFromInclusive,
+      Object iRangeTo, boolean iToInclusive) {
+    throw new UnsupportedOperationException("Not allowed operation");
+  }
+
+  public Iterator<Map.Entry<Object, OIdentifiable>> iterateEntriesMajor(Object fromKey, boolean isInclusive) {
+    throw new UnsupportedOperationException("Not allowed operation");
+  }
+
+  public Iterator<Map.Entry<Object, OIdentifiable>> iterateEntriesMinor(Object toKey, boolean isInclusive) {
+    throw new UnsupportedOperationException("Not allowed operation");
+  }
+
   public Collection<ODocument> getEntries(Collection<?> iKeys) {
     throw new UnsupportedOperationException("Not allowed operation");
   }
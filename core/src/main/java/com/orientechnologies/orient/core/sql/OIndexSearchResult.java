@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContains;
@@ -85,6 +86,40 @@ public class OIndexSearchResult {
     return fieldValuePairs.size() + 1;
   }
 
+  /**
+   * @param indexDefinition
+   *          Definition of an index involving the fields of this query subset.
+   * @return <code>true</code> if the field that uses a non equals operator is at the same position in the index, so the index can
+   *         be used.
+   */
+  boolean isUsableBy(final OIndexDefinition indexDefinition) {
+    if (isIndexEqualityOperator(lastOperator))
+      return true;
+
+    final String lastFieldName = lastField.getItemName(lastField.getItemCount() - 1);
+    final String relatedIndexField = indexDefinition.getFields().get(fieldValuePairs.size());
+    return lastFieldName.equals(relatedIndexField);
+  }
+
+  /**
+   * @param indexDefinition
+   *          Definition of an index usable by this query subset.
+   * @return Values of the subset in the order of the fields of the index.
+   */
+  List<Object> getKeyParams(final OIndexDefinition indexDefinition) {
+    final int fieldCount = getFieldCount();
+    final List<Object> keyParams = new ArrayList<Object>(fieldCount);
+    // We get only subset contained in processed sub query.
+    for (final String fieldName : indexDefinition.getFields().subList(0, fieldCount)) {
+      final Object fieldValue = fieldValuePairs.get(fieldName);
+      if (fieldValue != null)
+        keyParams.add(fieldValue);
+      else
+        keyParams.add(lastValue);
+    }
+    return keyParams;
+  }
+
   public static boolean isIndexEqualityOperator(OQueryOperator queryOperator) {
     return queryOperator instanceof OQueryOperatorEquals || queryOperator instanceof OQueryOperatorContains
         || queryOperator instanceof OQueryOperatorContainsKey || queryOperator instanceof OQueryOperatorContainsValue;
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Collects the first K results of a query with ORDER BY and LIMIT. Only the K best entries are kept in a bounded heap: each entry
+ * holds the values of the ORDER BY fields and, for persistent records, just the RID. The records are loaded again all together
+ * when the result is returned.
+ *
+ * @author agent
+ */
+public class OOrderByTopK {
+  private final List<OPair<String, String>> orderCriteria;
+  private final boolean[]                   descending;
+  private final int                         size;
+  private final PriorityQueue<Entry>        heap;
+  private long                              serial;
+
+  private static class Entry {
+    private final Object[]      keys;
+    private final OIdentifiable value;
+    private final long          serial;
+
+    private Entry(final Object[] iKeys, final OIdentifiable iValue, final long iSerial) {
+      keys = iKeys;
+      value = iValue;
+      serial = iSerial;
+    }
+  }
+
+  private final Comparator<Entry> comparator = new Comparator<Entry>() {
+                                               public int compare(final Entry o1, final Entry o2) {
+                                                 final int result = compareKeys(o1.keys, o2.keys);
+                                                 if (result != 0)
+                                                   return result;
+                                                 // KEEP THE ORDER OF ARRIVAL LIKE THE STABLE SORT DOES
+                                                 return o1.serial < o2.serial ? -1 : (o1.serial > o2.serial ? 1 : 0);
+                                               }
+                                             };
+
+  public OOrderByTopK(final List<OPair<String, String>> iOrderCriteria, final int iSize) {
+    if (iSize < 1)
+      throw new IllegalArgumentException("Size must be > 0");
+
+    orderCriteria = new ArrayList<OPair<String, String>>(iOrderCriteria);
+    descending = new boolean[orderCriteria.size()];
+    for (int i = 0; i < descending.length; ++i)
+      descending[i] = OCommandExecutorSQLSelect.KEYWORD_DESC.equals(orderCriteria.get(i).getValue());
+
+    size = iSize;
+
+    // THE HEAD OF THE HEAP IS THE WORST ENTRY KEPT SO FAR
+    heap = new PriorityQueue<Entry>(Math.min(iSize, 1024) + 1, new Comparator<Entry>() {
+      public int compare(final Entry o1, final Entry o2) {
+        return comparator.compare(o2, o1);
+      }
+    });
+  }
+
+  /**
+   * Offers a result. It's kept only if it's among the best K received so far.
+   */
+  public void add(final OIdentifiable iRecord) {
+    final ODocument doc = (ODocument) iRecord.getRecord();
+
+    final Object[] keys = new Object[orderCriteria.size()];
+    for (int i = 0; i < keys.length; ++i)
+      keys[i] = doc.field(orderCriteria.get(i).getKey());
+
+    if (heap.size() >= size && compareKeys(keys, heap.peek().keys) >= 0)
+      // WORSE THAN OR EQUAL TO THE WORST ONE: DISCARD IT
+      return;
+
+    final OIdentifiable value;
+    if (doc.getIdentity().isPersistent() && !doc.isDirty())
+      // THE RECORD WILL BE RELOADED AT THE END
+      value = doc.getIdentity();
+    else
+      // PROJECTION OR TEMPORARY RECORD: KEEP IT
+      value = doc;
+
+    heap.offer(new Entry(keys, value, serial++));
+    if (heap.size() > size)
+      heap.poll();
+  }
+
+  public int size() {
+    return heap.size();
+  }
+
+  /**
+   * Returns the collected results in order, loading the records kept by RID with one call to the database.
+   */
+  public List<OIdentifiable> getResult() {
+    final Entry[] entries = heap.toArray(new Entry[heap.size()]);
+    heap.clear();
+    Arrays.sort(entries, comparator);
+
+    final List<OIdentifiable> rids = new ArrayList<OIdentifiable>();
+    for (Entry e : entries)
+      if (e.value instanceof ORID)
+        rids.add(e.value);
+
+    final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+    final Map<ORID, ORecordInternal<?>> records = rids.isEmpty() ? null : database.loadRecords(rids);
+
+    final List<OIdentifiable> result = new ArrayList<OIdentifiable>(entries.length);
+    for (Entry e : entries) {
+      if (e.value instanceof ORID) {
+        final ORecord<?> record = records.get(e.value);
+        if (record != null)
+          result.add(record);
+      } else
+        result.add(e.value);
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected int compareKeys(final Object[] iKeys1, final Object[] iKeys2) {
+    for (int i = 0; i < iKeys1.length; ++i) {
+      final Object v1 = iKeys1[i];
+      final Object v2 = iKeys2[i];
+
+      final int partialResult;
+      if (v1 == null && v2 == null)
+        continue;
+      else if (v1 == null)
+        partialResult = -1;
+      else if (v2 == null)
+        partialResult = 1;
+      else {
+        if (!(v1 instanceof Comparable<?>))
+          throw new IllegalArgumentException("Cannot sort documents because the field '" + orderCriteria.get(i).getKey()
+              + "' is not comparable");
+        partialResult = ((Comparable<Object>) v1).compareTo(v2);
+      }
+
+      if (partialResult != 0)
+        return descending[i] ? -partialResult : partialResult;
+    }
+    return 0;
+  }
+}
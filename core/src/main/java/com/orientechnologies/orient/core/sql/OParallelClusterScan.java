@@ -0,0 +1,390 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Scans a set of clusters with many threads. Every cluster is split in position ranges browsed by the threads of a shared pool:
+ * each range evaluates the filter of the executor on its own command context and passes the matching documents to the thread that
+ * iterates this object. The documents are returned in the order of the sequential scan, or as soon as they are found when
+ * {@link OGlobalConfiguration#QUERY_PARALLEL_ORDERED} is false.<br/>
+ * Every scan thread works on its own database opened for the user of the caller, so this is used only to read records out of
+ * transactions. The pool has {@link OGlobalConfiguration#QUERY_PARALLEL_THREADS} threads at most and a scan never waits for them:
+ * it takes the free ones, and if none is free {@link #start} returns null to let the caller scan sequentially. Always call
+ * {@link #close()} to stop the scan threads when the iteration is interrupted.
+ *
+ * @author agent
+ */
+public class OParallelClusterScan implements Iterator<OIdentifiable> {
+  private static final int                          RANGE_QUEUE_SIZE = 1000;
+  private static final OIdentifiable                END_OF_RANGE     = new ORecordId();
+  private static ThreadPoolExecutor                 pool;
+  private static final AtomicInteger                busyThreads      = new AtomicInteger();
+
+  private final OCommandExecutorSQLResultsetAbstract executor;
+  private final ODatabaseRecord                     database;
+  private final OCommandContext                     context;
+  private final boolean                             useCache;
+  private final boolean                             ordered;
+  private final List<ORange>                        ranges           = new ArrayList<ORange>();
+  private final AtomicInteger                       nextRange        = new AtomicInteger();
+  private final BlockingQueue<OIdentifiable>        sharedQueue;
+  private volatile boolean                          closed           = false;
+
+  private int                                       currentRange     = 0;
+  private int                                       completedRanges  = 0;
+  private OIdentifiable                             nextRecord;
+
+  private final class ORange {
+    private final int                         clusterId;
+    private final OClusterPosition            begin;
+    private final OClusterPosition            end;
+    private final BlockingQueue<OIdentifiable> queue;
+    private volatile Throwable                error;
+    private long                              recordReads;
+    private long                              documentReads;
+
+    private ORange(final int iClusterId, final OClusterPosition iBegin, final OClusterPosition iEnd) {
+      clusterId = iClusterId;
+      begin = iBegin;
+      end = iEnd;
+      queue = ordered ? new ArrayBlockingQueue<OIdentifiable>(RANGE_QUEUE_SIZE) : sharedQueue;
+    }
+
+    private void scan(final ODatabaseRecord iDatabase, final Throwable iOpenError) {
+      try {
+        if (iOpenError != null)
+          throw iOpenError;
+        if (closed)
+          return;
+
+        final OCommandContext rangeContext = createContext();
+
+        final ORecordIteratorCluster<ORecordInternal<?>> iterator = new ORecordIteratorCluster<ORecordInternal<?>>(iDatabase,
+            (ODatabaseRecordAbstract) iDatabase, clusterId, begin, end, useCache, false);
+
+        while (!closed && iterator.hasNext()) {
+          final ORecordInternal<?> record = iterator.next();
+          recordReads++;
+
+          if (record == null || record.getRecordType() != ODocument.RECORD_TYPE)
+            // SKIP IT
+            continue;
+
+          documentReads++;
+
+          if (executor.filter(record, rangeContext) && !put(record))
+            return;
+        }
+      } catch (Throwable t) {
+        error = t;
+      } finally {
+        put(END_OF_RANGE);
+      }
+    }
+
+    /**
+     * Waits for room in the queue of the range until the scan is closed.
+     */
+    private boolean put(final OIdentifiable iRecord) {
+      try {
+        while (!queue.offer(iRecord, 100, TimeUnit.MILLISECONDS))
+          if (closed)
+            return false;
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Browses the ranges not taken yet by the other threads of the scan, in order: the range the caller is waiting for in ordered
+   * mode is always assigned.
+   */
+  private final class OWorker implements Runnable {
+    public void run() {
+      ODatabaseDocumentTx db = null;
+      Throwable openError = null;
+      try {
+        db = Orient.instance().getDatabaseFactory().openWorkerDatabase(database);
+      } catch (Throwable t) {
+        // EVERY RANGE TAKEN BY THIS THREAD FAILS, SO THE CALLER DOESN'T WAIT FOR THEM
+        openError = t;
+      }
+
+      try {
+        int i;
+        while (!closed && (i = nextRange.getAndIncrement()) < ranges.size())
+          ranges.get(i).scan(db != null ? ODatabaseRecordThreadLocal.INSTANCE.get() : null, openError);
+      } finally {
+        try {
+          if (db != null)
+            db.close();
+        } finally {
+          ODatabaseRecordThreadLocal.INSTANCE.remove();
+          busyThreads.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  private static class OScanThread extends Thread {
+    private OScanThread(final Runnable iTarget, final String iName) {
+      super(Orient.getThreadGroup(), iTarget, iName);
+      setDaemon(true);
+    }
+  }
+
+  private OParallelClusterScan(final OCommandExecutorSQLResultsetAbstract iExecutor, final ODatabaseRecord iDatabase,
+      final int[] iClusterIds, final ORID iBeginRange, final ORID iEndRange, final boolean iUseCache, final int iThreads) {
+    executor = iExecutor;
+    database = iDatabase;
+    context = iExecutor.getContext();
+    useCache = iUseCache;
+    ordered = OGlobalConfiguration.QUERY_PARALLEL_ORDERED.getValueAsBoolean();
+    sharedQueue = ordered ? null : new ArrayBlockingQueue<OIdentifiable>(RANGE_QUEUE_SIZE * iThreads);
+
+    split(iClusterIds, iBeginRange, iEndRange, iThreads);
+  }
+
+  /**
+   * Starts the scan of the clusters with the free scan threads.
+   * 
+   * @return The scan, or null if all the scan threads are busy
+   */
+  public static OParallelClusterScan start(final OCommandExecutorSQLResultsetAbstract iExecutor, final ODatabaseRecord iDatabase,
+      final int[] iClusterIds, final ORID iBeginRange, final ORID iEndRange, final boolean iUseCache) {
+    final int maxThreads = Math.max(1, OGlobalConfiguration.QUERY_PARALLEL_THREADS.getValueAsInteger());
+    final OParallelClusterScan scan = new OParallelClusterScan(iExecutor, iDatabase, iClusterIds, iBeginRange, iEndRange,
+        iUseCache, maxThreads);
+    if (scan.ranges.isEmpty())
+      return scan;
+
+    final int threads = reserveThreads(Math.min(maxThreads, scan.ranges.size()), maxThreads);
+    if (threads == 0)
+      return null;
+
+    final ThreadPoolExecutor p = getPool();
+    for (int i = 0; i < threads; ++i)
+      p.execute(scan.new OWorker());
+    return scan;
+  }
+
+  /**
+   * Tells if the current thread is a scan thread. Scans started by them are not executed in parallel, because they could wait for
+   * the threads they are occupying.
+   */
+  public static boolean isScanThread() {
+    return Thread.currentThread() instanceof OScanThread;
+  }
+
+  public boolean hasNext() {
+    if (nextRecord == null)
+      nextRecord = fetchNext();
+    return nextRecord != null;
+  }
+
+  public OIdentifiable next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    final OIdentifiable record = nextRecord;
+    nextRecord = null;
+    return record;
+  }
+
+  public void remove() {
+    throw new UnsupportedOperationException("remove()");
+  }
+
+  /**
+   * Stops the scan threads and discards the records not returned yet.
+   */
+  public void close() {
+    closed = true;
+  }
+
+  public int getRanges() {
+    return ranges.size();
+  }
+
+  private OIdentifiable fetchNext() {
+    if (closed)
+      return null;
+
+    try {
+      if (ordered) {
+        while (currentRange < ranges.size()) {
+          final ORange range = ranges.get(currentRange);
+          final OIdentifiable record = range.queue.take();
+          if (record != END_OF_RANGE)
+            return record;
+
+          checkError(range);
+          currentRange++;
+        }
+      } else {
+        while (completedRanges < ranges.size()) {
+          final OIdentifiable record = sharedQueue.take();
+          if (record != END_OF_RANGE)
+            return record;
+
+          for (ORange range : ranges)
+            checkError(range);
+          completedRanges++;
+        }
+      }
+    } catch (InterruptedException e) {
+      close();
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("Parallel scan interrupted", e);
+    }
+
+    // ALL THE RANGES HAVE BEEN BROWSED
+    closed = true;
+    for (ORange range : ranges) {
+      context.updateMetric("recordReads", range.recordReads);
+      context.updateMetric("documentReads", range.documentReads);
+    }
+    return null;
+  }
+
+  private void checkError(final ORange iRange) {
+    if (iRange.error != null) {
+      close();
+      throw new OCommandExecutionException("Error on scanning cluster " + iRange.clusterId + " in parallel", iRange.error);
+    }
+  }
+
+  /**
+   * Creates the context of a range: the variables of the query are copied because the filter sets the current record in the
+   * context.
+   */
+  private OCommandContext createContext() {
+    final OBasicCommandContext rangeContext = new OBasicCommandContext();
+    for (Entry<String, Object> entry : context.getVariables().entrySet())
+      rangeContext.setVariable(entry.getKey(), entry.getValue());
+    return rangeContext;
+  }
+
+  private void split(final int[] iClusterIds, final ORID iBeginRange, final ORID iEndRange, final int iThreads) {
+    final int minRange = Math.max(1, OGlobalConfiguration.QUERY_PARALLEL_MIN_RANGE.getValueAsInteger());
+    final boolean splittable = OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong;
+
+    for (int clusterId : iClusterIds) {
+      final OClusterPosition[] dataRange = database.getStorage().getClusterDataRange(clusterId);
+      OClusterPosition first = dataRange[0];
+      OClusterPosition last = dataRange[1];
+
+      // THE RANGE OF THE QUERY APPLIES TO THE POSITIONS OF ALL THE CLUSTERS AS IN ORecordIteratorClusters
+      if (iBeginRange != null && iBeginRange.getClusterPosition().compareTo(first) > 0)
+        first = iBeginRange.getClusterPosition();
+      if (iEndRange != null && iEndRange.getClusterPosition().compareTo(last) < 0)
+        last = iEndRange.getClusterPosition();
+
+      if (!first.isValid() || !last.isValid() || first.compareTo(last) > 0)
+        continue;
+
+      final long records = database.countClusterElements(clusterId);
+      if (records == 0)
+        continue;
+
+      final int parts = splittable ? (int) Math.min(iThreads, Math.max(1, records / minRange)) : 1;
+      final long step = (last.longValue() - first.longValue() + 1) / parts;
+      if (parts == 1 || step == 0) {
+        ranges.add(new ORange(clusterId, first, last));
+        continue;
+      }
+
+      long begin = first.longValue();
+      for (int i = 0; i < parts; ++i) {
+        final long end = i == parts - 1 ? last.longValue() : begin + step - 1;
+        ranges.add(new ORange(clusterId, OClusterPositionFactory.INSTANCE.valueOf(begin), OClusterPositionFactory.INSTANCE
+            .valueOf(end)));
+        begin = end + 1;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of scan threads working, of all the scans.
+   */
+  static int getBusyThreads() {
+    return busyThreads.get();
+  }
+
+  /**
+   * Reserves up to the wanted threads among the free ones.
+   * 
+   * @return The reserved threads, 0 if all the threads are busy
+   */
+  private static int reserveThreads(final int iWanted, final int iMaxThreads) {
+    while (true) {
+      final int busy = busyThreads.get();
+      final int reserved = Math.min(iWanted, iMaxThreads - busy);
+      if (reserved <= 0)
+        return 0;
+      if (busyThreads.compareAndSet(busy, busy + reserved))
+        return reserved;
+    }
+  }
+
+  private static synchronized ThreadPoolExecutor getPool() {
+    if (pool == null) {
+      // THE THREADS ARE RESERVED BEFORE SUBMITTING THE WORKERS, SO THEY ARE NEVER QUEUED
+      final AtomicInteger threadId = new AtomicInteger();
+      pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+              return new OScanThread(r, "OrientDB Parallel Scan " + threadId.incrementAndGet());
+            }
+          });
+    }
+    return pool;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Access path chosen by {@link OQueryPlanner} to fetch the records of a query against a class, with its estimated cost. Index plans
+ * return a superset of the records matching the condition, so the condition is always evaluated against the fetched records.
+ *
+ * @author agent
+ */
+public class OQueryPlan {
+  public enum TYPE {
+    FULL_SCAN, INDEX, INDEX_INTERSECTION, INDEX_UNION
+  }
+
+  // COSTS ARE RELATIVE TO THE SEQUENTIAL READ OF A RECORD
+  static final double              SCAN_START_COST   = 10;
+  static final double              SCAN_RECORD_COST  = 1;
+  static final double              INDEX_LOOKUP_COST = 1;
+  static final double              INDEX_ENTRY_COST  = 0.1;
+  static final double              LOAD_RECORD_COST  = 1.2;
+
+  private final TYPE               type;
+  private final OIndex<?>          index;
+  private final OIndexSearchResult searchResult;
+  private final List<Object>       keyParams;
+  private final OQueryPlan         left;
+  private final OQueryPlan         right;
+  private final double             records;
+  private final double             indexCost;
+
+  private OQueryPlan(final TYPE iType, final OIndex<?> iIndex, final OIndexSearchResult iSearchResult,
+      final List<Object> iKeyParams, final OQueryPlan iLeft, final OQueryPlan iRight, final double iRecords,
+      final double iIndexCost) {
+    type = iType;
+    index = iIndex;
+    searchResult = iSearchResult;
+    keyParams = iKeyParams;
+    left = iLeft;
+    right = iRight;
+    records = iRecords;
+    indexCost = iIndexCost;
+  }
+
+  public static OQueryPlan fullScan(final long iRecords) {
+    return new OQueryPlan(TYPE.FULL_SCAN, null, null, null, null, null, iRecords, 0);
+  }
+
+  public static OQueryPlan index(final OIndex<?> iIndex, final OIndexSearchResult iSearchResult, final List<Object> iKeyParams,
+      final int iLookups, final double iRecords) {
+    return new OQueryPlan(TYPE.INDEX, iIndex, iSearchResult, iKeyParams, null, null, iRecords, iLookups * INDEX_LOOKUP_COST
+        + iRecords * INDEX_ENTRY_COST);
+  }
+
+  /**
+   * Plan of the AND of two conditions: only the records found by both the indexes are loaded. The conditions are supposed
+   * independent.
+   */
+  public static OQueryPlan intersection(final OQueryPlan iLeft, final OQueryPlan iRight, final long iClassRecords) {
+    final double records = iClassRecords > 0 ? iLeft.records * iRight.records / iClassRecords : 0;
+    return new OQueryPlan(TYPE.INDEX_INTERSECTION, null, null, null, iLeft, iRight, Math.min(records,
+        Math.min(iLeft.records, iRight.records)), iLeft.indexCost + iRight.indexCost);
+  }
+
+  /**
+   * Plan of the OR of two conditions: the records found by the indexes are merged without duplicates.
+   */
+  public static OQueryPlan union(final OQueryPlan iLeft, final OQueryPlan iRight, final long iClassRecords) {
+    return new OQueryPlan(TYPE.INDEX_UNION, null, null, null, iLeft, iRight, Math.min(iClassRecords, iLeft.records
+        + iRight.records), iLeft.indexCost + iRight.indexCost);
+  }
+
+  public double getCost() {
+    if (type == TYPE.FULL_SCAN)
+      return SCAN_START_COST + records * SCAN_RECORD_COST;
+    return indexCost + records * LOAD_RECORD_COST;
+  }
+
+  public TYPE getType() {
+    return type;
+  }
+
+  public OIndex<?> getIndex() {
+    return index;
+  }
+
+  public OIndexSearchResult getSearchResult() {
+    return searchResult;
+  }
+
+  public List<Object> getKeyParams() {
+    return keyParams;
+  }
+
+  public OQueryPlan getLeft() {
+    return left;
+  }
+
+  public OQueryPlan getRight() {
+    return right;
+  }
+
+  public double getRecords() {
+    return records;
+  }
+
+  /**
+   * Describes the plan for the EXPLAIN command.
+   */
+  public ODocument toDocument() {
+    final ODocument doc = new ODocument();
+    doc.field("type", type.toString());
+    if (index != null)
+      doc.field("index", index.getName());
+    doc.field("estimatedRecords", (long) Math.ceil(records));
+    doc.field("cost", (float) getCost());
+
+    if (left != null) {
+      final List<ODocument> plans = new ArrayList<ODocument>(2);
+      plans.add(left.toDocument());
+      plans.add(right.toDocument());
+      doc.field("plans", plans);
+    }
+    return doc;
+  }
+
+  @Override
+  public String toString() {
+    if (left != null)
+      return type + "(" + left + ", " + right + ")";
+    return index != null ? type + "(" + index.getName() + ")" : type.toString();
+  }
+}
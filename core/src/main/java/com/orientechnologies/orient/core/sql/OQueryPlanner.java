@@ -0,0 +1,245 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexDefinitionMultiValue;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.index.OIndexUnique;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+
+/**
+ * Chooses how to fetch the records of a query against a class: full scan, single index, intersection of indexes for AND conditions
+ * or union of indexes for OR conditions. The number of records returned by the indexes is estimated with the
+ * {@link OIndexStatistics} of the indexes and the number of records of the class, then the plan with the lowest cost is chosen.
+ * Indexes without statistics use fixed selectivities.
+ *
+ * @author agent
+ */
+public class OQueryPlanner {
+  private static final double DEFAULT_EQUALS_SELECTIVITY = 0.1;
+  private static final double DEFAULT_RANGE_SELECTIVITY  = 0.3;
+
+  private final OClass        schemaClass;
+  private final long          classRecords;
+
+  public OQueryPlanner(final OClass iSchemaClass) {
+    schemaClass = iSchemaClass;
+    classRecords = iSchemaClass.count();
+  }
+
+  /**
+   * Returns the cheapest plan to fetch the records matching the condition.
+   */
+  public OQueryPlan plan(final OSQLFilterCondition iCondition) {
+    final OQueryPlan fullScan = getFullScan();
+    final OQueryPlan indexPlan = planBranch(iCondition);
+
+    if (indexPlan != null && indexPlan.getCost() < fullScan.getCost())
+      return indexPlan;
+    return fullScan;
+  }
+
+  public OQueryPlan getFullScan() {
+    return OQueryPlan.fullScan(classRecords);
+  }
+
+  private OQueryPlan planBranch(OSQLFilterCondition iCondition) {
+    if (iCondition == null)
+      return null;
+
+    OQueryOperator operator = iCondition.getOperator();
+    while (operator == null) {
+      if (iCondition.getRight() == null && iCondition.getLeft() instanceof OSQLFilterCondition) {
+        iCondition = (OSQLFilterCondition) iCondition.getLeft();
+        operator = iCondition.getOperator();
+      } else
+        return null;
+    }
+
+    switch (operator.getIndexReuseType(iCondition.getLeft(), iCondition.getRight())) {
+    case INDEX_INTERSECTION: {
+      final OQueryPlan left = planSide(iCondition.getLeft());
+      final OQueryPlan right = planSide(iCondition.getRight());
+
+      // EVERY SIDE OF AN AND RETURNS A SUPERSET OF THE RESULT
+      OQueryPlan best = cheapest(left, right);
+      if (left != null && right != null)
+        best = cheapest(best, OQueryPlan.intersection(left, right, classRecords));
+
+      // COMPOSITE INDEXES ON THE FIELDS OF BOTH THE SIDES
+      final OIndexSearchResult merged = OCommandExecutorSQLSelect.analyzeQueryBranch(schemaClass, iCondition,
+          new ArrayList<OIndexSearchResult>());
+      if (merged != null && merged.getFieldCount() > 1 && schemaClass.areIndexed(merged.fields()))
+        best = cheapest(best, planIndexes(merged));
+
+      return best;
+    }
+
+    case INDEX_UNION: {
+      final OQueryPlan left = planSide(iCondition.getLeft());
+      if (left == null)
+        return null;
+
+      final OQueryPlan right = planSide(iCondition.getRight());
+      if (right == null)
+        return null;
+
+      return OQueryPlan.union(left, right, classRecords);
+    }
+
+    case INDEX_METHOD: {
+      OIndexSearchResult searchResult = OCommandExecutorSQLSelect.createIndexedProperty(iCondition, iCondition.getLeft());
+      if (searchResult == null)
+        searchResult = OCommandExecutorSQLSelect.createIndexedProperty(iCondition, iCondition.getRight());
+
+      if (searchResult == null || !OCommandExecutorSQLSelect.checkIndexExistence(schemaClass, searchResult))
+        return null;
+
+      return planIndexes(searchResult);
+    }
+
+    default:
+      return null;
+    }
+  }
+
+  private OQueryPlan planSide(final Object iSide) {
+    return iSide instanceof OSQLFilterCondition ? planBranch((OSQLFilterCondition) iSide) : null;
+  }
+
+  private OQueryPlan planIndexes(final OIndexSearchResult iSearchResult) {
+    final List<OIndex<?>> involvedIndexes = OCommandExecutorSQLSelect.getInvolvedIndexes(schemaClass, iSearchResult);
+    Collections.sort(involvedIndexes, OCommandExecutorSQLSelect.IndexComparator.INSTANCE);
+
+    OQueryPlan best = null;
+    for (OIndex<?> index : involvedIndexes)
+      if (iSearchResult.isUsableBy(index.getDefinition()))
+        best = cheapest(best, planIndex(index, iSearchResult));
+    return best;
+  }
+
+  private OQueryPlan planIndex(final OIndex<?> iIndex, final OIndexSearchResult iSearchResult) {
+    final OIndexDefinition definition = iIndex.getDefinition();
+    final List<Object> keyParams = iSearchResult.getKeyParams(definition);
+    final OIndexStatistics statistics = getStatistics(iIndex);
+    final OQueryOperator operator = iSearchResult.lastOperator;
+    final int fieldCount = iSearchResult.getFieldCount();
+
+    int lookups = 1;
+    double records;
+    if (OIndexSearchResult.isIndexEqualityOperator(operator))
+      records = estimateEquals(iIndex, statistics, fieldCount);
+    else if (operator instanceof OQueryOperatorIn) {
+      lookups = Math.max(1, OMultiValue.getSize(iSearchResult.lastValue));
+      records = lookups * estimateEquals(iIndex, statistics, fieldCount);
+    } else {
+      records = -1;
+      if (statistics != null && definition.getParamCount() == 1)
+        records = estimateRange(statistics, definition, operator, keyParams.get(0));
+      if (records < 0)
+        records = estimateEquals(iIndex, statistics, fieldCount - 1) * DEFAULT_RANGE_SELECTIVITY;
+    }
+
+    return OQueryPlan.index(iIndex, iSearchResult, keyParams, lookups, Math.min(records, classRecords));
+  }
+
+  /**
+   * Estimates the entries with the same values for the first fields of the index. Fields of composite indexes are supposed
+   * independent.
+   */
+  private double estimateEquals(final OIndex<?> iIndex, final OIndexStatistics iStatistics, final int iFields) {
+    final int params = iIndex.getDefinition().getParamCount();
+
+    if (iStatistics != null) {
+      if (iFields <= 0 || iStatistics.getKeys() == 0)
+        return iStatistics.getEntries();
+      if (iFields >= params)
+        return iStatistics.estimateEquals();
+      return iStatistics.getEntries() / Math.pow(iStatistics.getKeys(), (double) iFields / params);
+    }
+
+    if (iFields <= 0)
+      return classRecords;
+    if (iFields >= params && iIndex.getInternal() instanceof OIndexUnique)
+      return 1;
+    return classRecords * DEFAULT_EQUALS_SELECTIVITY;
+  }
+
+  private static double estimateRange(final OIndexStatistics iStatistics, final OIndexDefinition iDefinition,
+      final OQueryOperator iOperator, final Object iKeyParam) {
+    if (iDefinition instanceof OIndexDefinitionMultiValue)
+      return -1;
+
+    try {
+      if (iOperator instanceof OQueryOperatorBetween) {
+        if (!(iKeyParam instanceof Object[]))
+          return -1;
+
+        final Object[] betweenKeys = (Object[]) iKeyParam;
+        final Object from = iDefinition.createValue(Collections.singletonList(OSQLHelper.getValue(betweenKeys[0])));
+        final Object to = iDefinition.createValue(Collections.singletonList(OSQLHelper.getValue(betweenKeys[2])));
+        if (from == null || to == null)
+          return -1;
+        return iStatistics.estimateRange(from, to);
+      }
+
+      final Object key = iDefinition.createValue(Collections.singletonList(iKeyParam));
+      if (key == null)
+        return -1;
+
+      if (iOperator instanceof OQueryOperatorMajor || iOperator instanceof OQueryOperatorMajorEquals)
+        return iStatistics.estimateRange(key, null);
+      if (iOperator instanceof OQueryOperatorMinor || iOperator instanceof OQueryOperatorMinorEquals)
+        return iStatistics.estimateRange(null, key);
+    } catch (RuntimeException e) {
+      // VALUES NOT CONVERTIBLE TO THE KEY TYPE: USE THE DEFAULT SELECTIVITY
+    }
+    return -1;
+  }
+
+  private static OIndexStatistics getStatistics(final OIndex<?> iIndex) {
+    if (iIndex instanceof OIndexProxy)
+      // THE STATISTICS OF THE LAST INDEX OF THE CHAIN DO NOT DESCRIBE THE RESULT
+      return null;
+
+    final OIndex<?> internal = iIndex.getInternal();
+    return internal instanceof OIndexInternal<?> ? ((OIndexInternal<?>) internal).getStatistics() : null;
+  }
+
+  private static OQueryPlan cheapest(final OQueryPlan iFirst, final OQueryPlan iSecond) {
+    if (iFirst == null)
+      return iSecond;
+    if (iSecond == null)
+      return iFirst;
+    return iSecond.getCost() < iFirst.getCost() ? iSecond : iFirst;
+  }
+}
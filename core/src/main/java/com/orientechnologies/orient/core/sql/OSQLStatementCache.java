@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.cache.OSharedCacheAbstract;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Per database cache of the parsed SELECT statements. Executors are not thread safe, so the cache keeps a pool of idle executors
+ * for every statement text: an executor is taken from the pool before the execution and given back when it is completed. The
+ * least recently used statements are evicted when the idle executors exceed
+ * {@link OGlobalConfiguration#QUERY_STATEMENT_CACHE_SIZE}. The parsed statements refer to schema classes and indexes, so the cache
+ * is cleared by every change of the schema or of the indexes.
+ *
+ * @author agent
+ */
+public class OSQLStatementCache extends OSharedCacheAbstract {
+  // IDLE EXECUTORS BY STATEMENT, IN ACCESS ORDER
+  private final Map<String, LinkedList<OCommandExecutorSQLSelect>> pools = new LinkedHashMap<String, LinkedList<OCommandExecutorSQLSelect>>(
+                                                                             16, 0.75f, true);
+  private int                                                      size;
+
+  public OSQLStatementCache(final String iDatabaseName) {
+    super(iDatabaseName, "statementCache", OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE, new String[] {
+        "Statements found in cache", "Statements parsed because not found in cache", "Parsed statements in cache" });
+  }
+
+  public static OSQLStatementCache getInstance(final OStorage iStorage) {
+    return getInstance(iStorage, OSQLStatementCache.class);
+  }
+
+  /**
+   * Removes the parsed statements of the database after a change of the schema or of the indexes.
+   */
+  public static void invalidate(final OStorage iStorage) {
+    getInstance(iStorage).clear();
+  }
+
+  public static boolean isEnabled() {
+    return isEnabled(OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE);
+  }
+
+  /**
+   * Returns the key of a statement: the text with the white spaces outside the literals collapsed. The limit of the request is part
+   * of the key because it is applied at parsing time.
+   */
+  public static String getKey(final String iText, final int iLimit) {
+    final StringBuilder key = new StringBuilder(iText.length() + 8);
+    char stringBeginChar = ' ';
+    boolean space = false;
+
+    for (int i = 0; i < iText.length(); ++i) {
+      final char c = iText.charAt(i);
+
+      if (stringBeginChar == ' ') {
+        if (Character.isWhitespace(c)) {
+          space = key.length() > 0;
+          continue;
+        }
+        if (c == '\'' || c == '"')
+          stringBeginChar = c;
+      } else if (c == stringBeginChar && iText.charAt(i - 1) != '\\')
+        stringBeginChar = ' ';
+
+      if (space) {
+        key.append(' ');
+        space = false;
+      }
+      key.append(c);
+    }
+
+    return key.append('|').append(iLimit).toString();
+  }
+
+  /**
+   * Takes an idle executor of the statement from the pool.
+   *
+   * @return The executor, or null if there is no idle executor for the statement
+   */
+  public synchronized OCommandExecutorSQLSelect acquire(final String iKey) {
+    final LinkedList<OCommandExecutorSQLSelect> pool = pools.get(iKey);
+    if (pool == null || pool.isEmpty()) {
+      onMiss();
+      return null;
+    }
+
+    onHit();
+    size--;
+    final OCommandExecutorSQLSelect executor = pool.removeFirst();
+    if (pool.isEmpty())
+      pools.remove(iKey);
+    return executor;
+  }
+
+  /**
+   * Gives back an executor at the end of the execution, dropping the state of the execution. The executor is discarded if the cache
+   * has been cleared after its parsing.
+   *
+   * @param iVersion
+   *          Version of the cache read with {@link #getVersion()} before the parsing
+   */
+  public synchronized void release(final String iKey, final OCommandExecutorSQLSelect iExecutor, final long iVersion) {
+    if (iVersion != getVersion())
+      return;
+
+    iExecutor.recycle();
+
+    LinkedList<OCommandExecutorSQLSelect> pool = pools.get(iKey);
+    if (pool == null) {
+      pool = new LinkedList<OCommandExecutorSQLSelect>();
+      pools.put(iKey, pool);
+    }
+    pool.addFirst(iExecutor);
+    size++;
+
+    // EVICT THE IDLE EXECUTORS OF THE LEAST RECENTLY USED STATEMENTS
+    final int maxSize = getMaxSize();
+    for (Iterator<Map.Entry<String, LinkedList<OCommandExecutorSQLSelect>>> it = pools.entrySet().iterator(); size > maxSize
+        && it.hasNext();) {
+      final LinkedList<OCommandExecutorSQLSelect> eldest = it.next().getValue();
+      eldest.removeLast();
+      size--;
+      if (eldest.isEmpty())
+        it.remove();
+    }
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return size;
+  }
+
+  @Override
+  protected void clearItems() {
+    pools.clear();
+    size = 0;
+  }
+}
@@ -48,13 +48,17 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
     final ODocument doc = (ODocument) iRecord.getRecord();
 
-    if (preLoadedFieldsArray == null && preLoadedFields != null && preLoadedFields.size() > 0 && preLoadedFields.size() < 5) {
-      // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME AND IF FIELDS ARE MORE THAN ONE, OTHERWISE GO WITH THE DEFAULT BEHAVIOR
-      preLoadedFieldsArray = new String[preLoadedFields.size()];
-      preLoadedFields.toArray(preLoadedFieldsArray);
+    if (preLoadedFieldsArray == null) {
+      if (preLoadedFields != null && preLoadedFields.size() > 0) {
+        // TRANSFORM THE SET IN ARRAY ONLY THE FIRST TIME
+        preLoadedFieldsArray = new String[preLoadedFields.size()];
+        preLoadedFields.toArray(preLoadedFieldsArray);
+      } else
+        // NO OTHER FIELDS TO LOAD: UNMARSHALL ONLY THE FIELD OF THIS ITEM, THE OTHERS ARE LEFT SERIALIZED
+        preLoadedFieldsArray = new String[] { name };
     }
 
-    // UNMARSHALL THE SINGLE FIELD
+    // UNMARSHALL THE REQUESTED FIELDS ONLY
     if (doc.deserializeFields(preLoadedFieldsArray))
       // FIELD FOUND
       return transformValue(iRecord, iContext,  ODocumentHelper.getFieldValue(doc, name));
@@ -141,5 +145,6 @@ public class OSQLFilterItemField extends OSQLFilterItemAbstract {
 
   public void setPreLoadedFields(final Set<String> iPrefetchedFieldList) {
     this.preLoadedFields = iPrefetchedFieldList;
+    this.preLoadedFieldsArray = null;
   }
 }
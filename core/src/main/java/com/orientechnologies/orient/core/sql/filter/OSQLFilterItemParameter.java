@@ -53,4 +53,11 @@ public class OSQLFilterItemParameter implements OSQLFilterItem {
 	public void setValue(Object value) {
 		this.value = value;
 	}
+
+	/**
+	 * Forgets the value bound, as before the first binding.
+	 */
+	public void reset() {
+		value = NOT_SETTED;
+	}
 }
@@ -186,7 +186,7 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
   protected boolean checkForEnd(final String iWord) {
     if (iWord != null
         && (iWord.equals(OCommandExecutorSQLSelect.KEYWORD_ORDER) || iWord.equals(OCommandExecutorSQLSelect.KEYWORD_LIMIT) || iWord
-            .equals(OCommandExecutorSQLSelect.KEYWORD_SKIP))) {
+            .equals(OCommandExecutorSQLSelect.KEYWORD_SKIP) || iWord.equals(OCommandExecutorSQLSelect.KEYWORD_PARALLEL))) {
       parserMoveCurrentPosition(iWord.length() * -1);
       return true;
     }
@@ -366,6 +366,17 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     }
   }
 
+  /**
+   * Forgets the values bound to the parameters and the context of the parsing, before the predicate is kept to be executed again
+   * by other requests.
+   */
+  public void reset() {
+    if (parameterItems != null)
+      for (OSQLFilterItemParameter item : parameterItems)
+        item.reset();
+    context = null;
+  }
+
   public OSQLFilterItemParameter addParameter(final String iName) {
     final String name;
     if (iName.charAt(0) == OStringSerializerHelper.PARAMETER_NAMED) {
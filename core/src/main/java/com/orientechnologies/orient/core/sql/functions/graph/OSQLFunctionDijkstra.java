@@ -15,47 +15,157 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
-import java.util.Set;
+import java.util.Arrays;
+import java.util.LinkedList;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
-import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
-import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase.DIRECTION;
-import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
-import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 
 /**
- * Dijkstra's algorithm describes how to find the cheapest path from one node to another node in a directed weighted graph.
- * 
+ * Dijkstra's algorithm describes how to find the cheapest path from one node to another node in a directed weighted graph. The
+ * vertices to settle are kept in a binary heap with decrease-key, so every step costs O(log V) instead of a scan of all the
+ * unsettled vertices. The weight is read from the field of each traversed edge; edges without it weigh 0.
+ *
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
- * 
+ *
  */
-public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
+public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder {
   public static final String NAME = "dijkstra";
-  private static final Float MIN  = new Float(0f);
 
   private String             paramWeightFieldName;
 
+  /**
+   * Min-heap of vertex ids ordered by distance. Distance, depth and heap position are primitive arrays indexed by the id assigned
+   * by {@link OVisitedVertices}.
+   */
+  private static class OVertexQueue {
+    private static final int SETTLED = -1;
+
+    private int[]            heap      = new int[64];
+    private int              heapSize;
+    private float[]          distances = new float[64];
+    private int[]            depths    = new int[64];
+    private int[]            positions = new int[64];
+
+    public boolean isEmpty() {
+      return heapSize == 0;
+    }
+
+    public float getDistance(final int iId) {
+      return distances[iId];
+    }
+
+    public int getDepth(final int iId) {
+      return depths[iId];
+    }
+
+    public boolean isSettled(final int iId) {
+      return positions[iId] == SETTLED;
+    }
+
+    /**
+     * Queues a new vertex.
+     */
+    public void add(final int iId, final float iDistance, final int iDepth) {
+      if (iId >= distances.length) {
+        final int newSize = Math.max(iId + 1, distances.length << 1);
+        distances = Arrays.copyOf(distances, newSize);
+        depths = Arrays.copyOf(depths, newSize);
+        positions = Arrays.copyOf(positions, newSize);
+      }
+      if (heapSize == heap.length)
+        heap = Arrays.copyOf(heap, heapSize << 1);
+
+      distances[iId] = iDistance;
+      depths[iId] = iDepth;
+
+      heap[heapSize] = iId;
+      positions[iId] = heapSize;
+      moveUp(heapSize++);
+    }
+
+    /**
+     * Updates a queued vertex with a shorter distance.
+     */
+    public void decrease(final int iId, final float iDistance, final int iDepth) {
+      distances[iId] = iDistance;
+      depths[iId] = iDepth;
+      moveUp(positions[iId]);
+    }
+
+    /**
+     * Removes the vertex with the shortest distance and marks it as settled.
+     */
+    public int poll() {
+      final int id = heap[0];
+      positions[id] = SETTLED;
+
+      if (--heapSize > 0) {
+        heap[0] = heap[heapSize];
+        positions[heap[0]] = 0;
+        moveDown(0);
+      }
+      return id;
+    }
+
+    private void moveUp(int iPosition) {
+      final int id = heap[iPosition];
+      final float distance = distances[id];
+
+      while (iPosition > 0) {
+        final int parent = (iPosition - 1) >>> 1;
+        if (distances[heap[parent]] <= distance)
+          break;
+        heap[iPosition] = heap[parent];
+        positions[heap[iPosition]] = iPosition;
+        iPosition = parent;
+      }
+
+      heap[iPosition] = id;
+      positions[id] = iPosition;
+    }
+
+    private void moveDown(int iPosition) {
+      final int id = heap[iPosition];
+      final float distance = distances[id];
+
+      while (true) {
+        int child = (iPosition << 1) + 1;
+        if (child >= heapSize)
+          break;
+        if (child + 1 < heapSize && distances[heap[child + 1]] < distances[heap[child]])
+          child++;
+        if (distance <= distances[heap[child]])
+          break;
+        heap[iPosition] = heap[child];
+        positions[heap[iPosition]] = iPosition;
+        iPosition = child;
+      }
+
+      heap[iPosition] = id;
+      positions[id] = iPosition;
+    }
+  }
+
   public OSQLFunctionDijkstra() {
     super(NAME, 3, 4);
   }
 
   public Object execute(OIdentifiable iCurrentRecord, ODocument iCurrentResult, final Object[] iParameters, OCommandContext iContext) {
-    final ODatabaseRecord currentDatabase = ODatabaseRecordThreadLocal.INSTANCE.get();
-    db = (OGraphDatabase) (currentDatabase instanceof OGraphDatabase ? currentDatabase : new OGraphDatabase(
-        (ODatabaseRecordTx) currentDatabase));
+    initDatabase();
 
     final ORecordInternal<?> record = (ORecordInternal<?>) (iCurrentRecord != null ? iCurrentRecord.getRecord() : null);
 
     paramSourceVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[0], record, iContext);
     paramDestinationVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[1], record, iContext);
-    paramWeightFieldName = (String) OSQLHelper.getValue(iParameters[2], record, iContext);
-    if (iParameters.length > 3)
-      paramDirection = DIRECTION.valueOf(iParameters[3].toString().toUpperCase());
+    // THE FIELD NAME IS ALREADY A STRING: DON'T RESOLVE IT AGAINST THE CURRENT RECORD
+    paramWeightFieldName = iParameters[2] != null ? iParameters[2].toString() : null;
+    paramDirection = iParameters.length > 3 ? DIRECTION.valueOf(iParameters[3].toString().toUpperCase()) : DIRECTION.OUT;
 
     return super.execute(iParameters, iContext);
   }
@@ -65,37 +175,60 @@ public class OSQLFunctionDijkstra extends OSQLFunctionPathFinder<Float> {
   }
 
   @Override
-  protected Float getShortestDistance(final OIdentifiable destination) {
-    if (destination == null)
-      return Float.MAX_VALUE;
+  protected LinkedList<OIdentifiable> findPath(final ORID iSource, final ORID iDestination) {
+    final OVertexQueue queue = new OVertexQueue();
+    queue.add(visited.add(iSource, OVisitedVertices.NOT_FOUND), 0f, 0);
 
-    final Float d = distance.get(destination);
-    return d == null ? Float.MAX_VALUE : d;
-  }
+    while (!queue.isEmpty()) {
+      final int current = queue.poll();
+      if (visited.get(current).equals(iDestination))
+        return visited.getPath(current);
 
-  @Override
-  protected Float getMinimumDistance() {
-    return MIN;
-  }
+      final int depth = queue.getDepth(current);
+      if (isDepthLimitReached(depth))
+        continue;
+
+      final float distance = queue.getDistance(current);
+
+      for (int pass = 0; pass < 2; ++pass) {
+        final boolean outgoing = pass == 0;
+        if (outgoing ? !isFollowingOutgoing(paramDirection) : !isFollowingIncoming(paramDirection))
+          continue;
+
+        for (OIdentifiable e : getEdges(visited.get(current), outgoing)) {
+          final ODocument edge = e.getRecord();
+          if (edge == null)
+            continue;
 
-  protected Float getDistance(final OIdentifiable node, final OIdentifiable target) {
-    final Set<OIdentifiable> edges = db.getEdgesBetweenVertexes(node, target);
-    if (!edges.isEmpty()) {
-      final ODocument e = edges.iterator().next().getRecord();
-      if (e != null) {
-        final Object fieldValue = e.field(paramWeightFieldName);
-        if (fieldValue != null)
-          if (fieldValue instanceof Float)
-            return (Float) fieldValue;
-          else if (fieldValue instanceof Number)
-            return ((Number) fieldValue).floatValue();
+          final ORID target = getOtherVertex(edge, outgoing);
+          if (target == null)
+            continue;
+
+          final float targetDistance = distance + getWeight(edge);
+
+          final int id = visited.indexOf(target);
+          if (id == OVisitedVertices.NOT_FOUND) {
+            if (isVisitedLimitReached(visited.size()))
+              return null;
+            queue.add(visited.add(target, current), targetDistance, depth + 1);
+          } else if (!queue.isSettled(id) && targetDistance < queue.getDistance(id)) {
+            visited.setParent(id, current);
+            queue.decrease(id, targetDistance, depth + 1);
+          }
+        }
       }
     }
-    return MIN;
+
+    return null;
   }
 
-  @Override
-  protected Float sumDistances(final Float iDistance1, final Float iDistance2) {
-    return iDistance1.floatValue() + iDistance2.floatValue();
+  protected float getWeight(final ODocument iEdge) {
+    if (paramWeightFieldName == null)
+      return 0f;
+
+    final Object fieldValue = iEdge.field(paramWeightFieldName);
+    if (fieldValue instanceof Number)
+      return ((Number) fieldValue).floatValue();
+    return 0f;
   }
 }
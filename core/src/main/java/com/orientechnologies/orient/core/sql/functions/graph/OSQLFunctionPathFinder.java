@@ -15,146 +15,113 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase.DIRECTION;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMathAbstract;
 
 /**
- * Abstract class to find paths between nodes.
- * 
+ * Abstract class to find paths between nodes. Vertices are tracked by RID through {@link OVisitedVertices} and the edges are
+ * followed reading the RID of the other vertex, so only the vertices actually expanded are loaded. The search is bounded by
+ * {@link OGlobalConfiguration#GRAPH_PATH_MAX_DEPTH} and {@link OGlobalConfiguration#GRAPH_PATH_MAX_VISITED}.
+ *
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
- * 
+ *
  */
-public abstract class OSQLFunctionPathFinder<T extends Comparable<T>> extends OSQLFunctionMathAbstract {
-  protected OGraphDatabase                    db;
-  protected Set<OIdentifiable>                settledNodes;
-  protected Set<OIdentifiable>                unSettledNodes;
-  protected Map<OIdentifiable, OIdentifiable> predecessors;
-  protected Map<OIdentifiable, T>             distance;
+public abstract class OSQLFunctionPathFinder extends OSQLFunctionMathAbstract {
+  protected OGraphDatabase           db;
+  protected OVisitedVertices         visited;
+
+  protected OIdentifiable            paramSourceVertex;
+  protected OIdentifiable            paramDestinationVertex;
+  protected OGraphDatabase.DIRECTION paramDirection = DIRECTION.OUT;
 
-  protected OIdentifiable                     paramSourceVertex;
-  protected OIdentifiable                     paramDestinationVertex;
-  protected OGraphDatabase.DIRECTION          paramDirection = DIRECTION.OUT;
+  protected int                      maxDepth;
+  protected int                      maxVisited;
 
   public OSQLFunctionPathFinder(final String iName, final int iMinParams, final int iMaxParams) {
     super(iName, iMinParams, iMaxParams);
   }
 
-  protected abstract T getDistance(OIdentifiable node, OIdentifiable target);
+  /**
+   * Returns the path from the source to the destination, both included, or NULL if no path exists within the limits.
+   */
+  protected abstract LinkedList<OIdentifiable> findPath(ORID iSource, ORID iDestination);
 
-  protected abstract T getShortestDistance(OIdentifiable destination);
+  public Object execute(final Object[] iParameters, final OCommandContext iContext) {
+    if (paramSourceVertex == null || paramDestinationVertex == null)
+      return null;
 
-  protected abstract T getMinimumDistance();
+    maxDepth = OGlobalConfiguration.GRAPH_PATH_MAX_DEPTH.getValueAsInteger();
+    maxVisited = OGlobalConfiguration.GRAPH_PATH_MAX_VISITED.getValueAsInteger();
+    visited = new OVisitedVertices();
 
-  protected abstract T sumDistances(T iDistance1, T iDistance2);
+    final ORID source = paramSourceVertex.getIdentity();
+    final ORID destination = paramDestinationVertex.getIdentity();
 
-  public Object execute(final Object[] iParameters, final OCommandContext iContext) {
-    settledNodes = new HashSet<OIdentifiable>();
-    unSettledNodes = new HashSet<OIdentifiable>();
-    distance = new HashMap<OIdentifiable, T>();
-    predecessors = new HashMap<OIdentifiable, OIdentifiable>();
-    distance.put(paramSourceVertex, getMinimumDistance());
-    unSettledNodes.add(paramSourceVertex);
-
-    while (continueTraversing()) {
-      final OIdentifiable node = getMinimum(unSettledNodes);
-      settledNodes.add(node);
-      unSettledNodes.remove(node);
-      findMinimalDistances(node);
+    if (source.equals(destination)) {
+      final LinkedList<OIdentifiable> path = new LinkedList<OIdentifiable>();
+      path.add(source);
+      return path;
     }
 
-    return getPath(paramDestinationVertex);
-  }
-
-  /*
-   * This method returns the path from the source to the selected target and NULL if no path exists
-   */
-  public LinkedList<OIdentifiable> getPath(final OIdentifiable target) {
-    final LinkedList<OIdentifiable> path = new LinkedList<OIdentifiable>();
-    OIdentifiable step = target;
-    // Check if a path exists
-    if (predecessors.get(step) == null) {
-      return null;
-    }
-    path.add(step);
-    while (predecessors.get(step) != null) {
-      step = predecessors.get(step);
-      path.add(step);
-    }
-    // Put it into the correct order
-    Collections.reverse(path);
-    return path;
+    return findPath(source, destination);
   }
 
   public boolean aggregateResults() {
     return false;
   }
 
-  @Override
-  public Object getResult() {
-    return settledNodes;
+  protected void initDatabase() {
+    final ODatabaseRecord currentDatabase = ODatabaseRecordThreadLocal.INSTANCE.get();
+    db = (OGraphDatabase) (currentDatabase instanceof OGraphDatabase ? currentDatabase : new OGraphDatabase(
+        (ODatabaseRecordTx) currentDatabase));
   }
 
-  protected void findMinimalDistances(final OIdentifiable node) {
-    final List<OIdentifiable> adjacentNodes = getNeighbors(node);
-    for (OIdentifiable target : adjacentNodes) {
-      final T d = sumDistances(getShortestDistance(node), getDistance(node, target));
+  /**
+   * Returns the edges of the vertex, outgoing or incoming.
+   */
+  protected Set<OIdentifiable> getEdges(final ORID iVertex, final boolean iOutgoing) {
+    final ODocument vertex = iVertex.getRecord();
+    if (vertex == null)
+      return Collections.emptySet();
 
-      if (getShortestDistance(target).compareTo(d) > 0) {
-        distance.put(target, d);
-        predecessors.put(target, node);
-        unSettledNodes.add(target);
-      }
-    }
+    final Set<OIdentifiable> edges = iOutgoing ? db.getOutEdges(vertex) : db.getInEdges(vertex);
+    return edges != null ? edges : Collections.<OIdentifiable> emptySet();
+  }
 
+  /**
+   * Returns the RID of the vertex at the other side of the edge without loading it.
+   */
+  protected ORID getOtherVertex(final ODocument iEdge, final boolean iOutgoing) {
+    final Object v = iEdge.rawField(iOutgoing ? OGraphDatabase.EDGE_FIELD_IN : OGraphDatabase.EDGE_FIELD_OUT);
+    return v instanceof OIdentifiable ? ((OIdentifiable) v).getIdentity() : null;
   }
 
-  protected List<OIdentifiable> getNeighbors(final OIdentifiable node) {
-    final List<OIdentifiable> neighbors = new ArrayList<OIdentifiable>();
-    if (node != null) {
-      if (paramDirection == DIRECTION.BOTH || paramDirection == DIRECTION.OUT)
-        for (OIdentifiable edge : db.getOutEdges(node)) {
-          final ODocument inVertex = db.getInVertex(edge);
-          if (inVertex != null && !isSettled(inVertex))
-            neighbors.add(inVertex);
-        }
-
-      if (paramDirection == DIRECTION.BOTH || paramDirection == DIRECTION.IN)
-        for (OIdentifiable edge : db.getInEdges(node)) {
-          final ODocument outVertex = db.getOutVertex(edge);
-          if (outVertex != null && !isSettled(outVertex))
-            neighbors.add(outVertex);
-        }
-    }
-    return neighbors;
+  protected boolean isFollowingOutgoing(final DIRECTION iDirection) {
+    return iDirection == DIRECTION.OUT || iDirection == DIRECTION.BOTH;
   }
 
-  protected OIdentifiable getMinimum(final Set<OIdentifiable> vertexes) {
-    OIdentifiable minimum = null;
-    for (OIdentifiable vertex : vertexes) {
-      if (minimum == null || getShortestDistance(vertex).compareTo(getShortestDistance(minimum)) < 0)
-        minimum = vertex;
-    }
-    return minimum;
+  protected boolean isFollowingIncoming(final DIRECTION iDirection) {
+    return iDirection == DIRECTION.IN || iDirection == DIRECTION.BOTH;
   }
 
-  protected boolean isSettled(final OIdentifiable vertex) {
-    return settledNodes.contains(vertex);
+  protected boolean isDepthLimitReached(final int iDepth) {
+    return maxDepth > -1 && iDepth >= maxDepth;
   }
 
-  protected boolean continueTraversing() {
-    return unSettledNodes.size() > 0;
+  protected boolean isVisitedLimitReached(final int iVisited) {
+    return maxVisited > -1 && iVisited >= maxVisited;
   }
 }
@@ -15,43 +15,40 @@
  */
 package com.orientechnologies.orient.core.sql.functions.graph;
 
+import java.util.LinkedList;
+
 import com.orientechnologies.orient.core.command.OCommandContext;
-import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
-import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase.DIRECTION;
-import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
-import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
 
 /**
- * Shortest path algorithm to find the shortest path from one node to another node in a directed graph.
- * 
+ * Shortest path algorithm to find the shortest path from one node to another node in a directed graph. It's a bidirectional
+ * breadth-first search: one level at a time is expanded from the source following the requested direction or from the
+ * destination following the opposite one, always picking the smaller frontier, until the two searches meet.
+ *
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
- * 
+ *
  */
-public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
-  public static final String   NAME     = "shortestPath";
-  private static final Integer MIN      = new Integer(0);
-  private static final Integer DISTANCE = new Integer(1);
+public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder {
+  public static final String NAME = "shortestPath";
 
   public OSQLFunctionShortestPath() {
     super(NAME, 2, 3);
   }
 
-  public Object execute(final OIdentifiable iCurrentRecord, ODocument iCurrentResult, final Object[] iParameters, final OCommandContext iContext) {
-    final ODatabaseRecord currentDatabase = ODatabaseRecordThreadLocal.INSTANCE.get();
-    db = (OGraphDatabase) (currentDatabase instanceof OGraphDatabase ? currentDatabase : new OGraphDatabase(
-        (ODatabaseRecordTx) currentDatabase));
+  public Object execute(final OIdentifiable iCurrentRecord, ODocument iCurrentResult, final Object[] iParameters,
+      final OCommandContext iContext) {
+    initDatabase();
 
     final ORecordInternal<?> record = (ORecordInternal<?>) (iCurrentRecord != null ? iCurrentRecord.getRecord() : null);
 
     paramSourceVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[0], record, iContext);
     paramDestinationVertex = (OIdentifiable) OSQLHelper.getValue(iParameters[1], record, iContext);
-    if (iParameters.length > 2)
-      paramDirection = DIRECTION.valueOf(iParameters[2].toString().toUpperCase());
+    paramDirection = iParameters.length > 2 ? DIRECTION.valueOf(iParameters[2].toString().toUpperCase()) : DIRECTION.OUT;
 
     return super.execute(iParameters, iContext);
   }
@@ -61,25 +58,75 @@ public class OSQLFunctionShortestPath extends OSQLFunctionPathFinder<Integer> {
   }
 
   @Override
-  protected Integer getShortestDistance(final OIdentifiable destination) {
-    if (destination == null)
-      return Integer.MAX_VALUE;
+  protected LinkedList<OIdentifiable> findPath(final ORID iSource, final ORID iDestination) {
+    final OVisitedVertices forward = visited;
+    final OVisitedVertices backward = new OVisitedVertices();
+    forward.add(iSource, OVisitedVertices.NOT_FOUND);
+    backward.add(iDestination, OVisitedVertices.NOT_FOUND);
 
-    final Integer d = distance.get(destination);
-    return d == null ? Integer.MAX_VALUE : d;
-  }
+    final DIRECTION reverseDirection = paramDirection == DIRECTION.OUT ? DIRECTION.IN
+        : (paramDirection == DIRECTION.IN ? DIRECTION.OUT : DIRECTION.BOTH);
 
-  @Override
-  protected Integer getMinimumDistance() {
-    return MIN;
-  }
+    // IDS ARE ASSIGNED LEVEL BY LEVEL: THE FRONTIER OF EACH SIDE IS THE RANGE OF IDS ADDED BY ITS LAST EXPANSION
+    int forwardLevel = 0;
+    int backwardLevel = 0;
+    int depth = 0;
+
+    while (forwardLevel < forward.size() && backwardLevel < backward.size()) {
+      if (isDepthLimitReached(depth))
+        return null;
+
+      final boolean expandForward = forward.size() - forwardLevel <= backward.size() - backwardLevel;
+      final OVisitedVertices side = expandForward ? forward : backward;
+      final OVisitedVertices other = expandForward ? backward : forward;
+      final DIRECTION direction = expandForward ? paramDirection : reverseDirection;
 
-  protected Integer getDistance(final OIdentifiable node, final OIdentifiable target) {
-    return DISTANCE;
+      final int levelEnd = side.size();
+      for (int current = expandForward ? forwardLevel : backwardLevel; current < levelEnd; ++current) {
+        for (int pass = 0; pass < 2; ++pass) {
+          final boolean outgoing = pass == 0;
+          if (outgoing ? !isFollowingOutgoing(direction) : !isFollowingIncoming(direction))
+            continue;
+
+          for (OIdentifiable e : getEdges(side.get(current), outgoing)) {
+            final ODocument edge = e.getRecord();
+            if (edge == null)
+              continue;
+
+            final ORID target = getOtherVertex(edge, outgoing);
+            if (target == null || side.indexOf(target) != OVisitedVertices.NOT_FOUND)
+              continue;
+
+            final int met = other.indexOf(target);
+            if (met != OVisitedVertices.NOT_FOUND)
+              // THE TWO SEARCHES MET
+              return expandForward ? joinPaths(backward, current, met) : joinPaths(backward, met, current);
+
+            if (isVisitedLimitReached(forward.size() + backward.size()))
+              return null;
+
+            side.add(target, current);
+          }
+        }
+      }
+
+      if (expandForward)
+        forwardLevel = levelEnd;
+      else
+        backwardLevel = levelEnd;
+      depth++;
+    }
+
+    return null;
   }
 
-  @Override
-  protected Integer sumDistances(final Integer iDistance1, final Integer iDistance2) {
-    return iDistance1.intValue() + iDistance2.intValue();
+  /**
+   * Joins the path from the source to the forward vertex with the path from the backward vertex to the destination.
+   */
+  private LinkedList<OIdentifiable> joinPaths(final OVisitedVertices iBackward, final int iForwardId, final int iBackwardId) {
+    final LinkedList<OIdentifiable> path = visited.getPath(iForwardId);
+    for (int id = iBackwardId; id != OVisitedVertices.NOT_FOUND; id = iBackward.getParent(id))
+      path.add(iBackward.get(id));
+    return path;
   }
 }
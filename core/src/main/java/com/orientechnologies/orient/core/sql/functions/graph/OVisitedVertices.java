@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Vertices met by a path search. Every vertex gets a sequential id, so the algorithms can keep their state in primitive arrays
+ * indexed by id. The RID to id lookup is an open addressing hash table of ints, the parent of each vertex is an int too.
+ *
+ * @author agent
+ *
+ */
+final class OVisitedVertices {
+  public static final int NOT_FOUND = -1;
+
+  private ORID[]          rids;
+  private int[]           parents;
+  private int[]           table;
+  private int             mask;
+  private int             size;
+
+  OVisitedVertices() {
+    rids = new ORID[64];
+    parents = new int[64];
+    table = new int[128];
+    Arrays.fill(table, NOT_FOUND);
+    mask = table.length - 1;
+  }
+
+  /**
+   * Returns the id of the vertex, or NOT_FOUND if it has never been added.
+   */
+  public int indexOf(final ORID iVertex) {
+    int slot = ORecordId.spreadHash(iVertex) & mask;
+    while (table[slot] != NOT_FOUND) {
+      if (rids[table[slot]].equals(iVertex))
+        return table[slot];
+      slot = (slot + 1) & mask;
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Adds a vertex not yet contained and returns its id.
+   */
+  public int add(final ORID iVertex, final int iParent) {
+    if (size == rids.length) {
+      rids = Arrays.copyOf(rids, size << 1);
+      parents = Arrays.copyOf(parents, size << 1);
+    }
+
+    rids[size] = iVertex;
+    parents[size] = iParent;
+
+    if ((size + 1) << 1 > table.length)
+      rehash(table.length << 1);
+    else
+      insert(size);
+
+    return size++;
+  }
+
+  public ORID get(final int iId) {
+    return rids[iId];
+  }
+
+  public int getParent(final int iId) {
+    return parents[iId];
+  }
+
+  public void setParent(final int iId, final int iParent) {
+    parents[iId] = iParent;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the path from the root of the search to the vertex, following the parents.
+   */
+  public LinkedList<OIdentifiable> getPath(final int iId) {
+    final LinkedList<OIdentifiable> path = new LinkedList<OIdentifiable>();
+    for (int id = iId; id != NOT_FOUND; id = parents[id])
+      path.addFirst(rids[id]);
+    return path;
+  }
+
+  private void rehash(final int iTableSize) {
+    table = new int[iTableSize];
+    Arrays.fill(table, NOT_FOUND);
+    mask = iTableSize - 1;
+    for (int i = 0; i <= size; ++i)
+      insert(i);
+  }
+
+  private void insert(final int iId) {
+    int slot = ORecordId.spreadHash(rids[iId]) & mask;
+    while (table[slot] != NOT_FOUND)
+      slot = (slot + 1) & mask;
+    table[slot] = iId;
+  }
+}
@@ -87,6 +87,20 @@ public interface OStorage extends OSharedContainer {
   public OStorageOperationResult<ORawBuffer> readRecord(ORecordId iRid, String iFetchPlan, boolean iIgnoreCache,
       ORecordCallback<ORawBuffer> iCallback, boolean loadTombstones);
 
+  /**
+   * Reads a set of records with a single operation, that for remote storages means a network round trip for every
+   * {@link com.orientechnologies.orient.core.config.OGlobalConfiguration#NETWORK_BINARY_LOAD_MAX_RECORDS} records.
+   * 
+   * @param iRids
+   *          Identities of the records to read
+   * @param iFetchPlan
+   *          Fetch plan applied to every record read
+   * @param iIgnoreCache
+   *          Ignores the level2 cache
+   * @return The buffers of the records found, by identity. Records not found are not contained in the map
+   */
+  public Map<ORecordId, ORawBuffer> readRecords(Collection<ORecordId> iRids, String iFetchPlan, boolean iIgnoreCache);
+
   public OStorageOperationResult<ORecordVersion> updateRecord(ORecordId iRecordId, byte[] iContent, ORecordVersion iVersion,
       byte iRecordType, int iMode, ORecordCallback<ORecordVersion> iCallback);
 
@@ -15,6 +15,9 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
@@ -30,6 +33,7 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.OMetadata;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
@@ -159,6 +163,20 @@ public abstract class OStorageAbstract extends OSharedContainerImpl implements O
     return tot;
   }
 
+  /**
+   * Reads the records one by one: local storages have no round trip to save.
+   */
+  public Map<ORecordId, ORawBuffer> readRecords(final Collection<ORecordId> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    final Map<ORecordId, ORawBuffer> result = new HashMap<ORecordId, ORawBuffer>();
+    for (ORecordId rid : iRids) {
+      final ORawBuffer buffer = readRecord(rid, iFetchPlan, iIgnoreCache, null, false).getResult();
+      if (buffer != null)
+        result.put(rid, buffer);
+    }
+    return result;
+  }
+
   public <V> V callInLock(final Callable<V> iCallable, final boolean iExclusiveLock) {
     if (iExclusiveLock)
       lock.acquireExclusiveLock();
@@ -61,6 +61,7 @@ public abstract class OAbstractFile implements OFile {
   protected String            mode;
   protected boolean           failCheck              = true;
   protected volatile int      size;                                                 // PART OF HEADER (4 bytes)
+  protected OFileChangeTracker changes;
 
   protected static final int  HEADER_SIZE            = 1024;
   protected static final int  HEADER_DATA_OFFSET     = 128;
@@ -229,6 +230,7 @@ public abstract class OAbstractFile implements OFile {
     try {
       close();
       if (osFile != null) {
+        OFileChangeTracker.remove(osFile);
         boolean deleted = osFile.delete();
         while (!deleted) {
           OMemoryWatchDog.freeMemoryForResourceCleanup(100);
@@ -499,6 +501,7 @@ public abstract class OAbstractFile implements OFile {
     if (initCompleted.compareAndSet(false, true)) {
       mode = iMode;
       osFile = new File(iFileName);
+      changes = OFileChangeTracker.getInstance(osFile);
     }
     return this;
   }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pages of a file changed since the last incremental backup. Pages are PAGE_SIZE bytes long and include the header of the file.
+ * Changes are recorded only after the first backup of the file in this JVM: until then, and after a restart, the backup copies the
+ * whole file. Trackers are shared by path, so they survive the file being closed and opened again.
+ *
+ * @author agent
+ */
+public class OFileChangeTracker {
+  public static final int                                        PAGE_SIZE = 64 * 1024;
+
+  private static final ConcurrentMap<String, OFileChangeTracker> trackers  = new ConcurrentHashMap<String, OFileChangeTracker>();
+
+  private volatile boolean                                       tracked   = false;
+  private BitSet                                                 changed   = new BitSet();
+
+  public static OFileChangeTracker getInstance(final File iFile) {
+    final String path = getPath(iFile);
+
+    OFileChangeTracker tracker = trackers.get(path);
+    if (tracker == null) {
+      tracker = new OFileChangeTracker();
+      final OFileChangeTracker previous = trackers.putIfAbsent(path, tracker);
+      if (previous != null)
+        tracker = previous;
+    }
+    return tracker;
+  }
+
+  public static void remove(final File iFile) {
+    trackers.remove(getPath(iFile));
+  }
+
+  /**
+   * Records a change of the file.
+   *
+   * @param iOffset
+   *          Offset from the begin of the file, header included
+   * @param iLength
+   *          Bytes changed
+   */
+  public void setChanged(final long iOffset, final int iLength) {
+    if (!tracked || iLength <= 0)
+      return;
+
+    final int first = (int) (iOffset / PAGE_SIZE);
+    final int last = (int) ((iOffset + iLength - 1) / PAGE_SIZE);
+    synchronized (this) {
+      changed.set(first, last + 1);
+    }
+  }
+
+  /**
+   * Returns the pages changed since the last call and starts to record the changes again.
+   *
+   * @return The indexes of the changed pages, or null if the changes were not recorded, so the whole file has to be copied
+   */
+  public synchronized BitSet swap() {
+    final BitSet result = tracked ? changed : null;
+    changed = new BitSet();
+    tracked = true;
+    return result;
+  }
+
+  /**
+   * Stops recording the changes, so the next backup copies the whole file.
+   */
+  public synchronized void reset() {
+    tracked = false;
+    changed = new BitSet();
+  }
+
+  private static String getPath(final File iFile) {
+    try {
+      return iFile.getCanonicalPath();
+    } catch (IOException e) {
+      return iFile.getAbsolutePath();
+    }
+  }
+}
@@ -116,6 +116,7 @@ public class OFileClassic extends OAbstractFile {
       iOffset += HEADER_SIZE;
       ByteBuffer byteBuffer = ByteBuffer.wrap(iData, iArrayOffset, iSize);
       channel.write(byteBuffer, iOffset);
+      changes.setChanged(iOffset, iSize);
       setDirty();
     }
   }
@@ -334,6 +335,7 @@ public class OFileClassic extends OAbstractFile {
   private void writeBuffer(final ByteBuffer iBuffer, final long iOffset) throws IOException {
     iBuffer.rewind();
     channel.write(iBuffer, iOffset);
+    changes.setChanged(iOffset, iBuffer.limit());
   }
 
   private ByteBuffer getBuffer(final int iLenght) {
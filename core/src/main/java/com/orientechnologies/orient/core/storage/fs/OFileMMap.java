@@ -344,6 +344,7 @@ public class OFileMMap extends OAbstractFile {
         channel.write(buffer, iOffset + HEADER_SIZE);
         releaseByteBuffer(buffer);
       }
+      changes.setChanged(iOffset + HEADER_SIZE, OBinaryProtocol.SIZE_INT);
     } finally {
       releaseWriteLock();
     }
@@ -379,6 +380,7 @@ public class OFileMMap extends OAbstractFile {
         channel.write(buffer, iOffset + HEADER_SIZE);
         releaseByteBuffer(buffer);
       }
+      changes.setChanged(iOffset + HEADER_SIZE, OBinaryProtocol.SIZE_LONG);
     } finally {
       releaseWriteLock();
     }
@@ -414,6 +416,7 @@ public class OFileMMap extends OAbstractFile {
         channel.write(buffer, iOffset + HEADER_SIZE);
         releaseByteBuffer(buffer);
       }
+      changes.setChanged(iOffset + HEADER_SIZE, OBinaryProtocol.SIZE_SHORT);
     } finally {
       releaseWriteLock();
     }
@@ -442,6 +445,7 @@ public class OFileMMap extends OAbstractFile {
         channel.write(buffer, iOffset + HEADER_SIZE);
         releaseByteBuffer(buffer);
       }
+      changes.setChanged(iOffset + HEADER_SIZE, OBinaryProtocol.SIZE_BYTE);
     } finally {
       releaseWriteLock();
     }
@@ -493,6 +497,7 @@ public class OFileMMap extends OAbstractFile {
             "Error on write in the range " + iOffset + "-" + (iOffset + iSourceBuffer.length) + "." + toString(), e,
             OIOException.class);
       }
+      changes.setChanged(iOffset + HEADER_SIZE, iSourceBuffer.length);
     } finally {
       releaseWriteLock();
     }
@@ -544,6 +549,7 @@ public class OFileMMap extends OAbstractFile {
         OLogManager.instance().error(this, "Error on write in the range " + iOffset + "-" + (iOffset + iSize) + "." + toString(),
             e, OIOException.class);
       }
+      changes.setChanged(iOffset + HEADER_SIZE, iSize);
     } finally {
       releaseWriteLock();
     }
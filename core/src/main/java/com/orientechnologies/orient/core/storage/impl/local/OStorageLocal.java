@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
 import com.orientechnologies.common.concur.lock.OModificationLock;
@@ -91,7 +92,7 @@ public class OStorageLocal extends OStorageLocalAbstract {
   private static String[]               ALL_FILE_EXTENSIONS       = { "ocf", ".och", ".ocl", ".oda", ".odh", ".otx", ".ocs",
       ".oef", ".oem", ".oet"                                     };
 
-  private long                          positionGenerator         = 1;
+  private final AtomicLong              positionGenerator         = new AtomicLong(1);
 
   private OModificationLock             modificationLock          = new OModificationLock();
 
@@ -1246,37 +1247,48 @@ public class OStorageLocal extends OStorageLocalAbstract {
     return null;
   }
 
+  /**
+   * Commits the transaction holding only the shared lock of the storage, so transactions that touch different records are
+   * committed concurrently. Isolation is guaranteed by the exclusive locks of the records involved in the transaction that are
+   * held till the end of commit or rollback.
+   */
   public void commit(final OTransaction iTx) {
     modificationLock.requestModificationLock();
     try {
-      lock.acquireExclusiveLock();
       try {
+        lock.acquireSharedLock();
         try {
-          txManager.clearLogEntries(iTx);
-          txManager.commitAllPendingRecords(iTx);
-
-          if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
-            synch();
-
-        } catch (RuntimeException e) {
-          // WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
-          rollback(iTx);
-          throw e;
-        } catch (IOException e) {
-          // WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
-          rollback(iTx);
-          throw new OException(e);
-        } finally {
+          final Set<ORID> lockedRecords = new HashSet<ORID>();
           try {
             txManager.clearLogEntries(iTx);
-          } catch (Exception e) {
-            // XXX WHAT CAN WE DO HERE ? ROLLBACK IS NOT POSSIBLE
-            // IF WE THROW EXCEPTION, A ROLLBACK WILL BE DONE AT DB LEVEL BUT NOT AT STORAGE LEVEL
-            OLogManager.instance().error(this, "Clear tx log entries failed", e);
+            txManager.commitAllPendingRecords(iTx, lockedRecords);
+          } catch (RuntimeException e) {
+            // WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
+            rollbackTxEntries(iTx);
+            throw e;
+          } catch (IOException e) {
+            // WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
+            rollbackTxEntries(iTx);
+            throw new OException(e);
+          } finally {
+            try {
+              txManager.clearLogEntries(iTx);
+            } catch (Exception e) {
+              // XXX WHAT CAN WE DO HERE ? ROLLBACK IS NOT POSSIBLE
+              // IF WE THROW EXCEPTION, A ROLLBACK WILL BE DONE AT DB LEVEL BUT NOT AT STORAGE LEVEL
+              OLogManager.instance().error(this, "Clear tx log entries failed", e);
+            }
+
+            for (ORID rid : lockedRecords)
+              releaseWriteLock(rid);
           }
+        } finally {
+          lock.releaseSharedLock();
         }
       } finally {
-        lock.releaseExclusiveLock();
+        // SYNCH GETS THE EXCLUSIVE LOCK, SO IT CAN BE CALLED ONLY AFTER THE SHARED ONE IS RELEASED
+        if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
+          synch();
       }
     } finally {
       modificationLock.releaseModificationLock();
@@ -1286,14 +1298,20 @@ public class OStorageLocal extends OStorageLocalAbstract {
   public void rollback(final OTransaction iTx) {
     modificationLock.requestModificationLock();
     try {
-      txManager.getTxSegment().rollback(iTx);
+      rollbackTxEntries(iTx);
       if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
         synch();
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  private void rollbackTxEntries(final OTransaction iTx) {
+    try {
+      txManager.getTxSegment().rollback(iTx);
     } catch (IOException ioe) {
       OLogManager.instance().error(this,
           "Error executing rollback for transaction with id '" + iTx.getId() + "' cause: " + ioe.getMessage(), ioe);
-    } finally {
-      modificationLock.releaseModificationLock();
     }
   }
 
@@ -1660,7 +1678,7 @@ public class OStorageLocal extends OStorageLocalAbstract {
         if (OGlobalConfiguration.USE_NODE_ID_CLUSTER_POSITION.getValueAsBoolean()) {
           ppos.clusterPosition = OClusterPositionFactory.INSTANCE.generateUniqueClusterPosition();
         } else {
-          ppos.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(positionGenerator++);
+          ppos.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(positionGenerator.getAndIncrement());
         }
       } else {
         ppos.clusterPosition = rid.clusterPosition;
@@ -1674,14 +1692,20 @@ public class OStorageLocal extends OStorageLocalAbstract {
 
       rid.clusterPosition = ppos.clusterPosition;
 
-      lock.acquireExclusiveLock();
+      lock.acquireSharedLock();
       try {
         lockManager.acquireLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
         try {
-          ppos.dataSegmentId = dataSegment.getId();
-          ppos.dataSegmentPos = dataSegment.addRecord(rid, content);
+          // DATA SEGMENT LOCK PREVENTS DEFRAG TO MOVE THE NEW RECORD BEFORE ITS POSITION IS STORED IN THE CLUSTER
+          dataSegment.acquireExclusiveLock();
+          try {
+            ppos.dataSegmentId = dataSegment.getId();
+            ppos.dataSegmentPos = dataSegment.addRecord(rid, content);
 
-          cluster.updateDataSegmentPosition(ppos.clusterPosition, ppos.dataSegmentId, ppos.dataSegmentPos);
+            cluster.updateDataSegmentPosition(ppos.clusterPosition, ppos.dataSegmentId, ppos.dataSegmentPos);
+          } finally {
+            dataSegment.releaseExclusiveLock();
+          }
 
           if (recordVersion.getCounter() > -1 && recordVersion.compareTo(ppos.recordVersion) > 0) {
             // OVERWRITE THE VERSION
@@ -1694,7 +1718,7 @@ public class OStorageLocal extends OStorageLocalAbstract {
           lockManager.releaseLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
         }
       } finally {
-        lock.releaseExclusiveLock();
+        lock.releaseSharedLock();
       }
     } catch (IOException ioe) {
       try {
@@ -1760,7 +1784,7 @@ public class OStorageLocal extends OStorageLocalAbstract {
     try {
       lockManager.acquireLock(Thread.currentThread(), iRid, LOCK.SHARED);
       try {
-        final OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(iRid.clusterPosition));
+        OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(iRid.clusterPosition));
 
         if (ppos != null && loadTombstones && ppos.recordVersion.isTombstone())
           return new ORawBuffer(null, ppos.recordVersion, ppos.recordType);
@@ -1770,7 +1794,17 @@ public class OStorageLocal extends OStorageLocalAbstract {
           return null;
 
         final ODataLocal data = getDataSegmentById(ppos.dataSegmentId);
-        return new ORawBuffer(data.getRecord(ppos.dataSegmentPos), ppos.recordVersion, ppos.recordType);
+        data.acquireSharedLock();
+        try {
+          // RECORD COULD BE MOVED BY DEFRAG OF DATA SEGMENT IN THE MEANTIME, READ ITS POSITION AGAIN UNDER THE SEGMENT LOCK
+          ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(iRid.clusterPosition));
+          if (ppos == null || !checkForRecordValidity(ppos))
+            return null;
+
+          return new ORawBuffer(data.getRecord(ppos.dataSegmentPos), ppos.recordVersion, ppos.recordType);
+        } finally {
+          data.releaseSharedLock();
+        }
 
       } finally {
         lockManager.releaseLock(Thread.currentThread(), iRid, LOCK.SHARED);
@@ -1795,67 +1829,75 @@ public class OStorageLocal extends OStorageLocalAbstract {
 
     final long timer = Orient.instance().getProfiler().startChrono();
 
-    lock.acquireExclusiveLock();
+    lock.acquireSharedLock();
     try {
 
       // GET THE SHARED LOCK AND GET AN EXCLUSIVE LOCK AGAINST THE RECORD
       lockManager.acquireLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
       try {
 
-        // UPDATE IT
-        final OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
+        OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
         if (!checkForRecordValidity(ppos))
           return null;
 
-        // VERSION CONTROL CHECK
-        switch (recordVersion.getCounter()) {
-        // DOCUMENT UPDATE, NO VERSION CONTROL
-        case -1:
-          ppos.recordVersion.increment();
-          iClusterSegment.updateVersion(rid.clusterPosition, ppos.recordVersion);
-          break;
-
-        // DOCUMENT UPDATE, NO VERSION CONTROL, NO VERSION UPDATE
-        case -2:
-          break;
-
-        default:
-          // MVCC CONTROL AND RECORD UPDATE OR WRONG VERSION VALUE
-          if (recordVersion.getCounter() > -1) {
-            // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
-            if (!recordVersion.equals(ppos.recordVersion))
-              if (OFastConcurrentModificationException.enabled())
-                throw OFastConcurrentModificationException.instance();
-              else
-                throw new OConcurrentModificationException(rid, ppos.recordVersion, recordVersion, ORecordOperation.UPDATED);
+        final ODataLocal dataSegment = getDataSegmentById(ppos.dataSegmentId);
+        dataSegment.acquireExclusiveLock();
+        try {
+          // RECORD COULD BE MOVED BY DEFRAG OF DATA SEGMENT IN THE MEANTIME, READ ITS POSITION AGAIN UNDER THE SEGMENT LOCK
+          ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
+
+          // VERSION CONTROL CHECK
+          switch (recordVersion.getCounter()) {
+          // DOCUMENT UPDATE, NO VERSION CONTROL
+          case -1:
             ppos.recordVersion.increment();
             iClusterSegment.updateVersion(rid.clusterPosition, ppos.recordVersion);
-          } else {
-            // DOCUMENT ROLLBACKED
-            recordVersion.clearRollbackMode();
-            ppos.recordVersion.copyFrom(recordVersion);
-            iClusterSegment.updateVersion(rid.clusterPosition, ppos.recordVersion);
+            break;
+
+          // DOCUMENT UPDATE, NO VERSION CONTROL, NO VERSION UPDATE
+          case -2:
+            break;
+
+          default:
+            // MVCC CONTROL AND RECORD UPDATE OR WRONG VERSION VALUE
+            if (recordVersion.getCounter() > -1) {
+              // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
+              if (!recordVersion.equals(ppos.recordVersion))
+                if (OFastConcurrentModificationException.enabled())
+                  throw OFastConcurrentModificationException.instance();
+                else
+                  throw new OConcurrentModificationException(rid, ppos.recordVersion, recordVersion, ORecordOperation.UPDATED);
+              ppos.recordVersion.increment();
+              iClusterSegment.updateVersion(rid.clusterPosition, ppos.recordVersion);
+            } else {
+              // DOCUMENT ROLLBACKED
+              recordVersion.clearRollbackMode();
+              ppos.recordVersion.copyFrom(recordVersion);
+              iClusterSegment.updateVersion(rid.clusterPosition, ppos.recordVersion);
+            }
           }
-        }
 
-        if (ppos.recordType != iRecordType)
-          iClusterSegment.updateRecordType(rid.clusterPosition, iRecordType);
+          if (ppos.recordType != iRecordType)
+            iClusterSegment.updateRecordType(rid.clusterPosition, iRecordType);
 
-        final long newDataSegmentOffset;
+          final long newDataSegmentOffset;
 
-        if (ppos.dataSegmentPos == -1)
-          // WAS EMPTY FIRST TIME, CREATE IT NOW
-          newDataSegmentOffset = getDataSegmentById(ppos.dataSegmentId).addRecord(rid, recordContent);
-        else
-          newDataSegmentOffset = getDataSegmentById(ppos.dataSegmentId).setRecord(ppos.dataSegmentPos, rid, recordContent);
+          if (ppos.dataSegmentPos == -1)
+            // WAS EMPTY FIRST TIME, CREATE IT NOW
+            newDataSegmentOffset = dataSegment.addRecord(rid, recordContent);
+          else
+            newDataSegmentOffset = dataSegment.setRecord(ppos.dataSegmentPos, rid, recordContent);
 
-        if (newDataSegmentOffset != ppos.dataSegmentPos) {
-          // UPDATE DATA SEGMENT OFFSET WITH THE NEW PHYSICAL POSITION
-          iClusterSegment.updateDataSegmentPosition(ppos.clusterPosition, ppos.dataSegmentId, newDataSegmentOffset);
-          ppos.dataSegmentPos = newDataSegmentOffset;
-        }
+          if (newDataSegmentOffset != ppos.dataSegmentPos) {
+            // UPDATE DATA SEGMENT OFFSET WITH THE NEW PHYSICAL POSITION
+            iClusterSegment.updateDataSegmentPosition(ppos.clusterPosition, ppos.dataSegmentId, newDataSegmentOffset);
+            ppos.dataSegmentPos = newDataSegmentOffset;
+          }
 
-        return ppos;
+          return ppos;
+        } finally {
+          dataSegment.releaseExclusiveLock();
+        }
 
       } finally {
         lockManager.releaseLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
@@ -1866,7 +1908,7 @@ public class OStorageLocal extends OStorageLocalAbstract {
       OLogManager.instance().error(this, "Error on updating record " + rid + " (cluster: " + iClusterSegment + ")", e);
 
     } finally {
-      lock.releaseExclusiveLock();
+      lock.releaseSharedLock();
 
       Orient.instance().getProfiler()
           .stopChrono(PROFILER_UPDATE_RECORD, "Update a record to local database", timer, "db.*.updateRecord");
@@ -1879,38 +1921,47 @@ public class OStorageLocal extends OStorageLocalAbstract {
       boolean useTombstones) {
     final long timer = Orient.instance().getProfiler().startChrono();
 
-    lock.acquireExclusiveLock();
+    lock.acquireSharedLock();
     try {
       lockManager.acquireLock(Thread.currentThread(), iRid, LOCK.EXCLUSIVE);
       try {
 
-        final OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(iRid.clusterPosition));
+        OPhysicalPosition ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(iRid.clusterPosition));
 
         if (ppos == null || ppos.dataSegmentId < 0 || (useTombstones && ppos.recordVersion.isTombstone()))
           // ALREADY DELETED
           return null;
 
-        // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
-        if (iVersion.getCounter() > -1 && !ppos.recordVersion.equals(iVersion))
-          if (OFastConcurrentModificationException.enabled())
-            throw OFastConcurrentModificationException.instance();
-          else
-            throw new OConcurrentModificationException(iRid, ppos.recordVersion, iVersion, ORecordOperation.DELETED);
-
-        if (!ppos.recordVersion.isTombstone() && ppos.dataSegmentPos > -1) {
-          try {
-            getDataSegmentById(ppos.dataSegmentId).deleteRecord(ppos.dataSegmentPos);
-          } catch (OIOException e) {
-            OLogManager.instance().error(this, "Cannot remove the record in data segment, however remove it from cluster", e);
+        final ODataLocal dataSegment = getDataSegmentById(ppos.dataSegmentId);
+        dataSegment.acquireExclusiveLock();
+        try {
+          // RECORD COULD BE MOVED BY DEFRAG OF DATA SEGMENT IN THE MEANTIME, READ ITS POSITION AGAIN UNDER THE SEGMENT LOCK
+          ppos = iClusterSegment.getPhysicalPosition(new OPhysicalPosition(iRid.clusterPosition));
+
+          // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
+          if (iVersion.getCounter() > -1 && !ppos.recordVersion.equals(iVersion))
+            if (OFastConcurrentModificationException.enabled())
+              throw OFastConcurrentModificationException.instance();
+            else
+              throw new OConcurrentModificationException(iRid, ppos.recordVersion, iVersion, ORecordOperation.DELETED);
+
+          if (!ppos.recordVersion.isTombstone() && ppos.dataSegmentPos > -1) {
+            try {
+              dataSegment.deleteRecord(ppos.dataSegmentPos);
+            } catch (OIOException e) {
+              OLogManager.instance().error(this, "Cannot remove the record in data segment, however remove it from cluster", e);
+            }
           }
-        }
 
-        if (useTombstones && iClusterSegment.hasTombstonesSupport())
-          iClusterSegment.convertToTombstone(iRid.clusterPosition);
-        else
-          iClusterSegment.removePhysicalPosition(iRid.clusterPosition);
+          if (useTombstones && iClusterSegment.hasTombstonesSupport())
+            iClusterSegment.convertToTombstone(iRid.clusterPosition);
+          else
+            iClusterSegment.removePhysicalPosition(iRid.clusterPosition);
 
-        return ppos;
+          return ppos;
+        } finally {
+          dataSegment.releaseExclusiveLock();
+        }
 
       } finally {
         lockManager.releaseLock(Thread.currentThread(), iRid, LOCK.EXCLUSIVE);
@@ -1918,7 +1969,7 @@ public class OStorageLocal extends OStorageLocalAbstract {
     } catch (IOException e) {
       OLogManager.instance().error(this, "Error on deleting record " + iRid + "( cluster: " + iClusterSegment + ")", e);
     } finally {
-      lock.releaseExclusiveLock();
+      lock.releaseSharedLock();
       Orient.instance().getProfiler()
           .stopChrono(PROFILER_DELETE_RECORD, "Delete a record from local database", timer, "db.*.deleteRecord");
     }
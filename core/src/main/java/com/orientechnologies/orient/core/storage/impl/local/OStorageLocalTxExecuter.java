@@ -19,6 +19,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
@@ -42,9 +44,9 @@ import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 
 public class OStorageLocalTxExecuter {
-  private final OStorageLocal storage;
-  private final OTxSegment    txSegment;
-  private OTransaction        currentTransaction;
+  private final OStorageLocal             storage;
+  private final OTxSegment                txSegment;
+  private final ThreadLocal<OTransaction> currentTransaction = new ThreadLocal<OTransaction>();
 
   public OStorageLocalTxExecuter(final OStorageLocal iStorage, final OStorageTxConfiguration iConfig) throws IOException {
     storage = iStorage;
@@ -165,8 +167,17 @@ public class OStorageLocalTxExecuter {
     return txSegment;
   }
 
-  public void commitAllPendingRecords(final OTransaction iTx) throws IOException {
-    currentTransaction = iTx;
+  /**
+   * Commits all the records of the transaction. Records touched by the transaction are exclusively locked and added to the
+   * passed set, the caller is responsible to release them once the commit or the rollback is finished.
+   * 
+   * @param iTx
+   *          Transaction to commit
+   * @param iLockedRecords
+   *          Records locked by current thread during the commit
+   */
+  public void commitAllPendingRecords(final OTransaction iTx, final Set<ORID> iLockedRecords) throws IOException {
+    currentTransaction.set(iTx);
     try {
       // COPY ALL THE ENTRIES IN SEPARATE COLLECTION SINCE DURING THE COMMIT PHASE SOME NEW ENTRIES COULD BE CREATED AND
       // CONCURRENT-EXCEPTION MAY OCCURS
@@ -179,16 +190,38 @@ public class OStorageLocalTxExecuter {
         iTx.clearRecordEntries();
 
         if (!tmpEntries.isEmpty()) {
+          lockRecords(tmpEntries, iLockedRecords);
+
           for (ORecordOperation txEntry : tmpEntries)
             // COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
-            commitEntry(iTx, txEntry, iTx.isUsingLog());
+            commitEntry(iTx, txEntry, iTx.isUsingLog(), iLockedRecords);
+
+          tmpEntries.clear();
         }
       }
 
       // UPDATE THE CACHE ONLY IF THE ITERATOR ALLOWS IT
       OTransactionAbstract.updateCacheFromEntries(storage, iTx, iTx.getAllRecordEntries(), true);
     } finally {
-      currentTransaction = null;
+      currentTransaction.remove();
+    }
+  }
+
+  /**
+   * Locks the persistent records of the entries. Locks are acquired in the order of record ids, so two transactions that
+   * touch the same records can not deadlock each other.
+   */
+  private void lockRecords(final List<ORecordOperation> iEntries, final Set<ORID> iLockedRecords) {
+    final Set<ORID> toLock = new TreeSet<ORID>();
+    for (ORecordOperation txEntry : iEntries) {
+      final ORID rid = txEntry.getRecord().getIdentity();
+      if (rid.isPersistent() && !iLockedRecords.contains(rid))
+        toLock.add(rid.copy());
+    }
+
+    for (ORID rid : toLock) {
+      storage.acquireWriteLock(rid);
+      iLockedRecords.add(rid);
     }
   }
 
@@ -197,7 +230,8 @@ public class OStorageLocalTxExecuter {
     txSegment.clearLogEntries(iTx.getId());
   }
 
-  private void commitEntry(final OTransaction iTx, final ORecordOperation txEntry, final boolean iUseLog) throws IOException {
+  private void commitEntry(final OTransaction iTx, final ORecordOperation txEntry, final boolean iUseLog,
+      final Set<ORID> iLockedRecords) throws IOException {
 
     if (txEntry.type != ORecordOperation.DELETED && !txEntry.getRecord().isDirty())
       return;
@@ -254,6 +288,11 @@ public class OStorageLocalTxExecuter {
         rid.clusterPosition = ppos.clusterPosition;
         txEntry.getRecord().getRecordVersion().copyFrom(ppos.recordVersion);
 
+        // KEEP THE NEW RECORD LOCKED TILL THE END OF COMMIT: IN CASE OF ROLLBACK IT WILL BE REMOVED
+        final ORID lockedRid = rid.copy();
+        storage.acquireWriteLock(lockedRid);
+        iLockedRecords.add(lockedRid);
+
         txEntry.getRecord().onAfterIdentityChanged(txEntry.getRecord());
         iTx.updateIndexIdentityAfterCommit(oldRid, rid);
       } else {
@@ -315,10 +354,10 @@ public class OStorageLocalTxExecuter {
   }
 
   public boolean isCommitting() {
-    return currentTransaction != null;
+    return currentTransaction.get() != null;
   }
 
   public OTransaction getCurrentTransaction() {
-    return currentTransaction;
+    return currentTransaction.get();
   }
 }
@@ -17,8 +17,10 @@ package com.orientechnologies.orient.core.storage.impl.local;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
@@ -76,6 +78,9 @@ public class OTxSegment extends OSingleFileSegment {
                                                                     OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean(),
                                                                     0, true);
 
+  // OFFSETS OF THE ENTRIES WRITTEN BY THE TRANSACTIONS THAT ARE COMMITTING RIGHT NOW
+  private final Map<Integer, List<Long>>  activeTxEntries       = new HashMap<Integer, List<Long>>();
+
   public OTxSegment(final OStorageLocal iStorage, final OStorageTxConfiguration iConfig) throws IOException {
     super(iStorage, iConfig, OGlobalConfiguration.TX_LOG_TYPE.getValueAsString());
     synchEnabled = OGlobalConfiguration.TX_LOG_SYNCH.getValueAsBoolean();
@@ -129,6 +134,13 @@ public class OTxSegment extends OSingleFileSegment {
 
       int offset = file.allocateSpace(size);
 
+      List<Long> txEntries = activeTxEntries.get(iTxId);
+      if (txEntries == null) {
+        txEntries = new ArrayList<Long>();
+        activeTxEntries.put(iTxId, txEntries);
+      }
+      txEntries.add((long) offset);
+
       file.writeByte(offset, STATUS_COMMITTING);
       offset += OBinaryProtocol.SIZE_BYTE;
 
@@ -168,7 +180,8 @@ public class OTxSegment extends OSingleFileSegment {
   }
 
   /**
-   * Clears the entire file.
+   * Clears the entries of the transaction. Since several transactions can commit at the same time the file is truncated only
+   * when there are no other transactions with pending entries, otherwise the entries are just marked as free.
    * 
    * @param iTxId
    *          The id of transaction
@@ -179,7 +192,13 @@ public class OTxSegment extends OSingleFileSegment {
     lock.acquireExclusiveLock();
     try {
 
-      truncate();
+      final List<Long> txEntries = activeTxEntries.remove(iTxId);
+
+      if (activeTxEntries.isEmpty())
+        truncate();
+      else if (txEntries != null)
+        for (long offset : txEntries)
+          file.writeByte(offset, STATUS_FREE);
 
     } finally {
       lock.releaseExclusiveLock();
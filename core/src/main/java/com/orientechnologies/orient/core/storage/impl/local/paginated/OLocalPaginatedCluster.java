@@ -66,6 +66,10 @@ import com.orientechnologies.orient.core.storage.fs.OFile;
 import com.orientechnologies.orient.core.storage.fs.OFileFactory;
 import com.orientechnologies.orient.core.storage.impl.local.OSingleFileSegment;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageVariableParser;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OClusterStateRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OFileTruncatedRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnit;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 
 /**
@@ -152,34 +156,45 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   public void create(int startSize) throws IOException {
     acquireExclusiveLock();
     try {
-      final OStorageSegmentConfiguration fileConfiguration = new OStorageSegmentConfiguration(storageLocal.getConfiguration(),
-          name, id);
-      fileConfiguration.fileType = OFileFactory.CLASSIC;
-      fileId = diskCache.openFile(fileConfiguration, DEF_EXTENSION);
-      clusterStateHolder.create(-1);
+      startAtomicOperation();
+      boolean rollback = true;
+      try {
+        createInternal();
+        rollback = false;
+      } finally {
+        endAtomicOperation(rollback);
+      }
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
 
-      if (config.root.clusters.size() <= config.id)
-        config.root.clusters.add(config);
-      else
-        config.root.clusters.set(config.id, config);
+  private void createInternal() throws IOException {
+    final OStorageSegmentConfiguration fileConfiguration = new OStorageSegmentConfiguration(storageLocal.getConfiguration(),
+        name, id);
+    fileConfiguration.fileType = OFileFactory.CLASSIC;
+    fileId = diskCache.openFile(fileConfiguration, DEF_EXTENSION);
+    clusterStateHolder.create(-1);
 
-      long pagePointer = diskCache.load(fileId, 0);
-      try {
-        OLocalPage localPage = new OLocalPage(pagePointer, true);
+    if (config.root.clusters.size() <= config.id)
+      config.root.clusters.add(config);
+    else
+      config.root.clusters.set(config.id, config);
 
-        localPage.setNextPage(-1);
-        localPage.setPrevPage(-1);
+    long pagePointer = diskCache.load(fileId, 0);
+    try {
+      OLocalPage localPage = new OLocalPage(pagePointer, true);
 
-        int freePageIndex = calculateFreePageIndex(localPage);
-        assert freePageIndex == freePageLists.length - 1;
+      localPage.setNextPage(-1);
+      localPage.setPrevPage(-1);
 
-        freePageLists[freePageIndex] = 0;
-      } finally {
-        diskCache.markDirty(fileId, 0);
-        diskCache.release(fileId, 0);
-      }
+      int freePageIndex = calculateFreePageIndex(localPage);
+      assert freePageIndex == freePageLists.length - 1;
+
+      freePageLists[freePageIndex] = 0;
     } finally {
-      releaseExclusiveLock();
+      diskCache.markDirty(fileId, 0);
+      diskCache.release(fileId, 0);
     }
   }
 
@@ -264,104 +279,117 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
       throws IOException {
     acquireExclusiveLock();
     try {
-      content = Snappy.compress(content);
-      int entryContentLength = content.length + 2 * OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE;
+      startAtomicOperation();
+      boolean rollback = true;
+      try {
+        final OPhysicalPosition result = createRecordInternal(content, recordVersion, recordType);
+        rollback = false;
+        return result;
+      } finally {
+        endAtomicOperation(rollback);
+      }
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
 
-      if (entryContentLength < OLocalPage.MAX_RECORD_SIZE) {
-        byte[] entryContent = new byte[entryContentLength];
+  private OPhysicalPosition createRecordInternal(byte[] content, final ORecordVersion recordVersion, final byte recordType)
+      throws IOException {
+    content = Snappy.compress(content);
+    int entryContentLength = content.length + 2 * OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE;
 
-        int entryPosition = 0;
-        entryContent[entryPosition] = recordType;
-        entryPosition++;
+    if (entryContentLength < OLocalPage.MAX_RECORD_SIZE) {
+      byte[] entryContent = new byte[entryContentLength];
 
-        System.arraycopy(content, 0, entryContent, entryPosition, content.length);
-        entryPosition += content.length;
+      int entryPosition = 0;
+      entryContent[entryPosition] = recordType;
+      entryPosition++;
 
-        entryContent[entryPosition] = 1;
-        entryPosition++;
+      System.arraycopy(content, 0, entryContent, entryPosition, content.length);
+      entryPosition += content.length;
 
-        OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryPosition);
-        final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent);
+      entryContent[entryPosition] = 1;
+      entryPosition++;
 
-        size++;
-        recordsSize += addEntryResult.recordsSizeDiff;
+      OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryPosition);
+      final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent);
 
-        return createPhysicalPosition(recordType, addEntryResult.pagePointer, addEntryResult.recordVersion);
-      } else {
-        int entrySize = content.length + OByteSerializer.BYTE_SIZE;
+      size++;
+      recordsSize += addEntryResult.recordsSizeDiff;
 
-        int fullEntryPosition = 0;
-        byte[] fullEntry = new byte[entrySize];
+      return createPhysicalPosition(recordType, addEntryResult.pagePointer, addEntryResult.recordVersion);
+    } else {
+      int entrySize = content.length + OByteSerializer.BYTE_SIZE;
 
-        fullEntry[fullEntryPosition] = recordType;
-        fullEntryPosition++;
+      int fullEntryPosition = 0;
+      byte[] fullEntry = new byte[entrySize];
 
-        System.arraycopy(content, 0, fullEntry, fullEntryPosition, content.length);
+      fullEntry[fullEntryPosition] = recordType;
+      fullEntryPosition++;
 
-        long prevPageRecordPointer = -1;
-        long firstPagePointer = -1;
-        ORecordVersion version = null;
+      System.arraycopy(content, 0, fullEntry, fullEntryPosition, content.length);
 
-        int from = 0;
-        int to = from + (OLocalPage.MAX_RECORD_SIZE - OByteSerializer.BYTE_SIZE - OLongSerializer.LONG_SIZE);
+      long prevPageRecordPointer = -1;
+      long firstPagePointer = -1;
+      ORecordVersion version = null;
 
-        int recordsSizeDiff = 0;
+      int from = 0;
+      int to = from + (OLocalPage.MAX_RECORD_SIZE - OByteSerializer.BYTE_SIZE - OLongSerializer.LONG_SIZE);
 
-        do {
-          byte[] entryContent = new byte[to - from + OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE];
-          System.arraycopy(fullEntry, from, entryContent, 0, to - from);
+      int recordsSizeDiff = 0;
 
-          if (from > 0)
-            entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 0;
-          else
-            entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 1;
+      do {
+        byte[] entryContent = new byte[to - from + OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE];
+        System.arraycopy(fullEntry, from, entryContent, 0, to - from);
 
-          OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
+        if (from > 0)
+          entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 0;
+        else
+          entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 1;
 
-          final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent);
-          recordsSizeDiff += addEntryResult.recordsSizeDiff;
+        OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
 
-          if (firstPagePointer == -1) {
-            firstPagePointer = addEntryResult.pagePointer;
-            version = addEntryResult.recordVersion;
-          }
+        final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent);
+        recordsSizeDiff += addEntryResult.recordsSizeDiff;
+
+        if (firstPagePointer == -1) {
+          firstPagePointer = addEntryResult.pagePointer;
+          version = addEntryResult.recordVersion;
+        }
 
-          long addedPagePointer = addEntryResult.pagePointer;
-          if (prevPageRecordPointer >= 0) {
+        long addedPagePointer = addEntryResult.pagePointer;
+        if (prevPageRecordPointer >= 0) {
 
-            long prevPageIndex = prevPageRecordPointer >>> PAGE_INDEX_OFFSET;
-            int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
+          long prevPageIndex = prevPageRecordPointer >>> PAGE_INDEX_OFFSET;
+          int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
 
-            long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
-            try {
-              final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false);
+          long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
+          try {
+            final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false);
 
-              long recordPointer = prevPage.getRecordPointer(prevPageRecordPosition);
-              int prevPageRecordSize = prevPage.getRecordSize(prevPageRecordPosition);
+            long recordPointer = prevPage.getRecordPointer(prevPageRecordPosition);
+            int prevPageRecordSize = prevPage.getRecordSize(prevPageRecordPosition);
 
-              OLongSerializer.INSTANCE.serializeInDirectMemory(addedPagePointer, directMemory, recordPointer + prevPageRecordSize
-                  - OLongSerializer.LONG_SIZE);
-            } finally {
-              diskCache.markDirty(fileId, prevPageIndex);
-              diskCache.release(fileId, prevPageIndex);
-            }
+            OLongSerializer.INSTANCE.serializeInDirectMemory(addedPagePointer, directMemory, recordPointer + prevPageRecordSize
+                - OLongSerializer.LONG_SIZE);
+          } finally {
+            diskCache.markDirty(fileId, prevPageIndex);
+            diskCache.release(fileId, prevPageIndex);
           }
+        }
 
-          prevPageRecordPointer = addedPagePointer;
-          from = to;
-          to = to + (OLocalPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
-          if (to > fullEntry.length)
-            to = fullEntry.length;
+        prevPageRecordPointer = addedPagePointer;
+        from = to;
+        to = to + (OLocalPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
+        if (to > fullEntry.length)
+          to = fullEntry.length;
 
-        } while (from < to);
+      } while (from < to);
 
-        size++;
-        recordsSize += recordsSizeDiff;
+      size++;
+      recordsSize += recordsSizeDiff;
 
-        return createPhysicalPosition(recordType, firstPagePointer, version);
-      }
-    } finally {
-      releaseExclusiveLock();
+      return createPhysicalPosition(recordType, firstPagePointer, version);
     }
   }
 
@@ -453,197 +481,221 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
   public boolean deleteRecord(OClusterPosition clusterPosition) throws IOException {
     acquireExclusiveLock();
     try {
-      long pagePointer = clusterPosition.longValue();
-      int recordPosition = (int) (pagePointer & RECORD_POSITION_MASK);
+      startAtomicOperation();
+      boolean rollback = true;
+      try {
+        final boolean result = deleteRecordInternal(clusterPosition);
+        rollback = false;
+        return result;
+      } finally {
+        endAtomicOperation(rollback);
+      }
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
 
-      long pageIndex = pagePointer >>> PAGE_INDEX_OFFSET;
+  private boolean deleteRecordInternal(OClusterPosition clusterPosition) throws IOException {
+    long pagePointer = clusterPosition.longValue();
+    int recordPosition = (int) (pagePointer & RECORD_POSITION_MASK);
 
-      if (diskCache.getFilledUpTo(fileId) < pageIndex)
-        return false;
+    long pageIndex = pagePointer >>> PAGE_INDEX_OFFSET;
 
-      long nextPagePointer = -1;
-      int removedContentSize = 0;
-      do {
-        long pointer = diskCache.load(fileId, pageIndex);
-        int initialFreePageIndex;
-        try {
-          final OLocalPage localPage = new OLocalPage(pointer, false);
-          initialFreePageIndex = calculateFreePageIndex(localPage);
+    if (diskCache.getFilledUpTo(fileId) < pageIndex)
+      return false;
 
-          long recordPointer = localPage.getRecordPointer(recordPosition);
-          if (recordPointer == ODirectMemory.NULL_POINTER) {
-            if (removedContentSize == 0)
-              return false;
-            else
-              throw new OStorageException("Content of record " + new ORecordId(id, clusterPosition) + " was broken.");
-          }
+    long nextPagePointer = -1;
+    int removedContentSize = 0;
+    do {
+      long pointer = diskCache.load(fileId, pageIndex);
+      int initialFreePageIndex;
+      try {
+        final OLocalPage localPage = new OLocalPage(pointer, false);
+        initialFreePageIndex = calculateFreePageIndex(localPage);
 
-          byte[] content = directMemory.get(recordPointer, localPage.getRecordSize(recordPosition));
+        long recordPointer = localPage.getRecordPointer(recordPosition);
+        if (recordPointer == ODirectMemory.NULL_POINTER) {
+          if (removedContentSize == 0)
+            return false;
+          else
+            throw new OStorageException("Content of record " + new ORecordId(id, clusterPosition) + " was broken.");
+        }
 
-          int initialFreeSpace = localPage.getFreeSpace();
-          localPage.deleteRecord(recordPosition);
+        byte[] content = directMemory.get(recordPointer, localPage.getRecordSize(recordPosition));
 
-          removedContentSize += localPage.getFreeSpace() - initialFreeSpace;
-          nextPagePointer = OLongSerializer.INSTANCE.deserializeNative(content, content.length - OLongSerializer.LONG_SIZE);
-        } finally {
-          diskCache.markDirty(fileId, pageIndex);
-          diskCache.release(fileId, pageIndex);
-        }
+        int initialFreeSpace = localPage.getFreeSpace();
+        localPage.deleteRecord(recordPosition);
 
-        updateFreePagesIndex(initialFreePageIndex, pageIndex);
+        removedContentSize += localPage.getFreeSpace() - initialFreeSpace;
+        nextPagePointer = OLongSerializer.INSTANCE.deserializeNative(content, content.length - OLongSerializer.LONG_SIZE);
+      } finally {
+        diskCache.markDirty(fileId, pageIndex);
+        diskCache.release(fileId, pageIndex);
+      }
 
-        pageIndex = nextPagePointer >>> PAGE_INDEX_OFFSET;
-        recordPosition = (int) (nextPagePointer & RECORD_POSITION_MASK);
-      } while (nextPagePointer >= 0);
+      updateFreePagesIndex(initialFreePageIndex, pageIndex);
 
-      size--;
-      recordsSize -= removedContentSize;
+      pageIndex = nextPagePointer >>> PAGE_INDEX_OFFSET;
+      recordPosition = (int) (nextPagePointer & RECORD_POSITION_MASK);
+    } while (nextPagePointer >= 0);
 
-      return true;
-    } finally {
-      releaseExclusiveLock();
-    }
+    size--;
+    recordsSize -= removedContentSize;
+
+    return true;
   }
 
   public void updateRecord(OClusterPosition clusterPosition, byte[] content, final ORecordVersion recordVersion,
       final byte recordType) throws IOException {
     acquireExclusiveLock();
     try {
-      content = Snappy.compress(content);
+      startAtomicOperation();
+      boolean rollback = true;
+      try {
+        updateRecordInternal(clusterPosition, content, recordVersion, recordType);
+        rollback = false;
+      } finally {
+        endAtomicOperation(rollback);
+      }
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
 
-      long firstPagePointer = clusterPosition.longValue();
-      int recordPosition = (int) (firstPagePointer & RECORD_POSITION_MASK);
+  private void updateRecordInternal(OClusterPosition clusterPosition, byte[] content, final ORecordVersion recordVersion,
+      final byte recordType) throws IOException {
+    content = Snappy.compress(content);
 
-      long firstPageIndex = firstPagePointer >>> PAGE_INDEX_OFFSET;
+    long firstPagePointer = clusterPosition.longValue();
+    int recordPosition = (int) (firstPagePointer & RECORD_POSITION_MASK);
 
-      if (diskCache.getFilledUpTo(fileId) < firstPageIndex)
-        return;
+    long firstPageIndex = firstPagePointer >>> PAGE_INDEX_OFFSET;
 
-      long firstPageMemoryPointer = diskCache.load(fileId, firstPageIndex);
-      int firstPageFreeIndex;
-      int recordsSizeDiff;
+    if (diskCache.getFilledUpTo(fileId) < firstPageIndex)
+      return;
 
-      try {
-        final OLocalPage firstPage = new OLocalPage(firstPageMemoryPointer, false);
-        firstPageFreeIndex = calculateFreePageIndex(firstPage);
+    long firstPageMemoryPointer = diskCache.load(fileId, firstPageIndex);
+    int firstPageFreeIndex;
+    int recordsSizeDiff;
 
-        long oldRecordChunkPointer = firstPage.getRecordPointer(recordPosition);
-        if (oldRecordChunkPointer == ODirectMemory.NULL_POINTER)
-          return;
+    try {
+      final OLocalPage firstPage = new OLocalPage(firstPageMemoryPointer, false);
+      firstPageFreeIndex = calculateFreePageIndex(firstPage);
 
-        long nextPagePointer = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory,
-            oldRecordChunkPointer + firstPage.getRecordSize(recordPosition) - OLongSerializer.LONG_SIZE);
+      long oldRecordChunkPointer = firstPage.getRecordPointer(recordPosition);
+      if (oldRecordChunkPointer == ODirectMemory.NULL_POINTER)
+        return;
 
-        int freeSpace = firstPage.getFreeSpace();
-        firstPage.deleteRecord(recordPosition);
-        recordsSizeDiff = freeSpace - firstPage.getFreeSpace();
+      long nextPagePointer = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory,
+          oldRecordChunkPointer + firstPage.getRecordSize(recordPosition) - OLongSerializer.LONG_SIZE);
 
-        while (nextPagePointer >= 0) {
-          long secondaryPageIndex = nextPagePointer >>> PAGE_INDEX_OFFSET;
-          int secondaryRecordPosition = (int) (nextPagePointer & RECORD_POSITION_MASK);
+      int freeSpace = firstPage.getFreeSpace();
+      firstPage.deleteRecord(recordPosition);
+      recordsSizeDiff = freeSpace - firstPage.getFreeSpace();
 
-          long pointer = diskCache.load(fileId, secondaryPageIndex);
-          try {
-            OLocalPage localPage = new OLocalPage(pointer, false);
-            int secondaryFreePageIndex = calculateFreePageIndex(localPage);
-            oldRecordChunkPointer = localPage.getRecordPointer(secondaryRecordPosition);
+      while (nextPagePointer >= 0) {
+        long secondaryPageIndex = nextPagePointer >>> PAGE_INDEX_OFFSET;
+        int secondaryRecordPosition = (int) (nextPagePointer & RECORD_POSITION_MASK);
 
-            if (oldRecordChunkPointer == ODirectMemory.NULL_POINTER)
-              throw new OStorageException("Data for record with id " + new ORecordId(id, clusterPosition) + " are broken.");
+        long pointer = diskCache.load(fileId, secondaryPageIndex);
+        try {
+          OLocalPage localPage = new OLocalPage(pointer, false);
+          int secondaryFreePageIndex = calculateFreePageIndex(localPage);
+          oldRecordChunkPointer = localPage.getRecordPointer(secondaryRecordPosition);
 
-            nextPagePointer = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory,
-                oldRecordChunkPointer + localPage.getRecordSize(secondaryRecordPosition) - OLongSerializer.LONG_SIZE);
+          if (oldRecordChunkPointer == ODirectMemory.NULL_POINTER)
+            throw new OStorageException("Data for record with id " + new ORecordId(id, clusterPosition) + " are broken.");
 
-            freeSpace = localPage.getFreeSpace();
-            localPage.deleteRecord(secondaryRecordPosition);
-            recordsSizeDiff += freeSpace - localPage.getFreeSpace();
+          nextPagePointer = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory,
+              oldRecordChunkPointer + localPage.getRecordSize(secondaryRecordPosition) - OLongSerializer.LONG_SIZE);
 
-            updateFreePagesIndex(secondaryFreePageIndex, secondaryPageIndex);
-          } finally {
-            diskCache.markDirty(fileId, secondaryPageIndex);
-            diskCache.release(fileId, secondaryPageIndex);
-          }
-        }
-
-        int entrySize = content.length + OByteSerializer.BYTE_SIZE;
+          freeSpace = localPage.getFreeSpace();
+          localPage.deleteRecord(secondaryRecordPosition);
+          recordsSizeDiff += freeSpace - localPage.getFreeSpace();
 
-        int fullEntryPosition = 0;
-        byte[] fullEntry = new byte[entrySize];
+          updateFreePagesIndex(secondaryFreePageIndex, secondaryPageIndex);
+        } finally {
+          diskCache.markDirty(fileId, secondaryPageIndex);
+          diskCache.release(fileId, secondaryPageIndex);
+        }
+      }
 
-        fullEntry[fullEntryPosition] = recordType;
-        fullEntryPosition++;
+      int entrySize = content.length + OByteSerializer.BYTE_SIZE;
 
-        System.arraycopy(content, 0, fullEntry, fullEntryPosition, content.length);
+      int fullEntryPosition = 0;
+      byte[] fullEntry = new byte[entrySize];
 
-        int from = 0;
-        int to = firstPage.getMaxRecordSize() - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE;
-        if (to > fullEntry.length)
-          to = fullEntry.length;
+      fullEntry[fullEntryPosition] = recordType;
+      fullEntryPosition++;
 
-        byte[] entryContent = new byte[to - from + OLongSerializer.LONG_SIZE + OByteSerializer.BYTE_SIZE];
-        System.arraycopy(fullEntry, from, entryContent, 0, to - from);
+      System.arraycopy(content, 0, fullEntry, fullEntryPosition, content.length);
 
-        entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 1;
-        OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
+      int from = 0;
+      int to = firstPage.getMaxRecordSize() - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE;
+      if (to > fullEntry.length)
+        to = fullEntry.length;
 
-        int initialFreeSpace = firstPage.getFreeSpace();
-        nextPagePointer = (firstPageIndex << PAGE_INDEX_OFFSET) | firstPage.appendRecord(recordVersion, entryContent);
-        assert nextPagePointer == firstPagePointer;
+      byte[] entryContent = new byte[to - from + OLongSerializer.LONG_SIZE + OByteSerializer.BYTE_SIZE];
+      System.arraycopy(fullEntry, from, entryContent, 0, to - from);
 
-        recordsSizeDiff += initialFreeSpace - firstPage.getFreeSpace();
+      entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 1;
+      OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
 
-        updateFreePagesIndex(firstPageFreeIndex, firstPageIndex);
+      int initialFreeSpace = firstPage.getFreeSpace();
+      nextPagePointer = (firstPageIndex << PAGE_INDEX_OFFSET) | firstPage.appendRecord(recordVersion, entryContent);
+      assert nextPagePointer == firstPagePointer;
 
-        from = to;
-        to = from + (OLocalPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
-        if (to > fullEntry.length)
-          to = fullEntry.length;
+      recordsSizeDiff += initialFreeSpace - firstPage.getFreeSpace();
 
-        long prevPagePointer = firstPagePointer;
-        while (to > from) {
-          entryContent = new byte[to - from + OLongSerializer.LONG_SIZE + OByteSerializer.BYTE_SIZE];
-          System.arraycopy(fullEntry, from, entryContent, 0, to - from);
+      updateFreePagesIndex(firstPageFreeIndex, firstPageIndex);
 
-          entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 0;
+      from = to;
+      to = from + (OLocalPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
+      if (to > fullEntry.length)
+        to = fullEntry.length;
 
-          OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
-          final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent);
+      long prevPagePointer = firstPagePointer;
+      while (to > from) {
+        entryContent = new byte[to - from + OLongSerializer.LONG_SIZE + OByteSerializer.BYTE_SIZE];
+        System.arraycopy(fullEntry, from, entryContent, 0, to - from);
 
-          recordsSizeDiff += addEntryResult.recordsSizeDiff;
-          nextPagePointer = addEntryResult.pagePointer;
+        entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 0;
 
-          long prevPageIndex = prevPagePointer >>> PAGE_INDEX_OFFSET;
-          int prevPageRecordPosition = (int) (prevPagePointer & RECORD_POSITION_MASK);
+        OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
+        final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent);
 
-          long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
-          try {
-            final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false);
+        recordsSizeDiff += addEntryResult.recordsSizeDiff;
+        nextPagePointer = addEntryResult.pagePointer;
 
-            final int recordSize = prevPage.getRecordSize(prevPageRecordPosition);
-            final long recordPointer = prevPage.getRecordPointer(prevPageRecordPosition);
+        long prevPageIndex = prevPagePointer >>> PAGE_INDEX_OFFSET;
+        int prevPageRecordPosition = (int) (prevPagePointer & RECORD_POSITION_MASK);
 
-            OLongSerializer.INSTANCE.serializeInDirectMemory(nextPagePointer, directMemory, recordPointer + recordSize
-                - OLongSerializer.LONG_SIZE);
-          } finally {
-            diskCache.markDirty(fileId, prevPageIndex);
-            diskCache.release(fileId, prevPageIndex);
-          }
+        long prevPageMemoryPointer = diskCache.load(fileId, prevPageIndex);
+        try {
+          final OLocalPage prevPage = new OLocalPage(prevPageMemoryPointer, false);
 
-          prevPagePointer = nextPagePointer;
+          final int recordSize = prevPage.getRecordSize(prevPageRecordPosition);
+          final long recordPointer = prevPage.getRecordPointer(prevPageRecordPosition);
 
-          from = to;
-          to = from + (OLocalPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
-          if (to > fullEntry.length)
-            to = fullEntry.length;
+          OLongSerializer.INSTANCE.serializeInDirectMemory(nextPagePointer, directMemory, recordPointer + recordSize
+              - OLongSerializer.LONG_SIZE);
+        } finally {
+          diskCache.markDirty(fileId, prevPageIndex);
+          diskCache.release(fileId, prevPageIndex);
         }
 
-        recordsSize += recordsSizeDiff;
-      } finally {
-        diskCache.markDirty(fileId, firstPageIndex);
-        diskCache.release(fileId, firstPageIndex);
+        prevPagePointer = nextPagePointer;
+
+        from = to;
+        to = from + (OLocalPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
+        if (to > fullEntry.length)
+          to = fullEntry.length;
       }
+
+      recordsSize += recordsSizeDiff;
     } finally {
-      releaseExclusiveLock();
+      diskCache.markDirty(fileId, firstPageIndex);
+      diskCache.release(fileId, firstPageIndex);
     }
   }
 
@@ -825,19 +877,64 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
     acquireExclusiveLock();
     try {
-      diskCache.truncateFile(fileId);
-      clusterStateHolder.truncate();
+      final OOperationUnit operationUnit = startAtomicOperation();
+      boolean rollback = true;
+      try {
+        diskCache.truncateFile(fileId);
+        clusterStateHolder.truncate();
+
+        final OWriteAheadLog writeAheadLog = storageLocal.getWriteAheadLog();
+        if (writeAheadLog != null)
+          writeAheadLog.log(new OFileTruncatedRecord(operationUnit.getUnitId(), name));
 
-      size = 0;
-      recordsSize = 0;
+        size = 0;
+        recordsSize = 0;
 
-      for (int i = 0; i < freePageLists.length; i++)
-        freePageLists[i] = -1;
+        for (int i = 0; i < freePageLists.length; i++)
+          freePageLists[i] = -1;
+
+        rollback = false;
+      } finally {
+        endAtomicOperation(rollback);
+      }
     } finally {
       releaseExclusiveLock();
     }
   }
 
+  /**
+   * Creates snapshot of in-memory state of cluster. Should be called when cluster lock is acquired.
+   */
+  public OClusterStateRecord createStateRecord(long unitId) {
+    return new OClusterStateRecord(unitId, name, size, recordsSize, freePageLists.clone());
+  }
+
+  /**
+   * Restores in-memory state of cluster either during rollback of atomic operation or during storage restore from WAL.
+   */
+  public void restoreState(OClusterStateRecord clusterStateRecord) {
+    acquireExclusiveLock();
+    try {
+      size = clusterStateRecord.getSize();
+      recordsSize = clusterStateRecord.getRecordsSize();
+      freePageLists = clusterStateRecord.getFreePageLists().clone();
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  private OOperationUnit startAtomicOperation() {
+    final OOperationUnit operationUnit = storageLocal.startAtomicOperation();
+    if (operationUnit != null)
+      operationUnit.registerCluster(this);
+
+    return operationUnit;
+  }
+
+  private void endAtomicOperation(boolean rollback) throws IOException {
+    storageLocal.endAtomicOperation(rollback);
+  }
+
   @Override
   public String getType() {
     return TYPE;
@@ -1239,6 +1336,10 @@ public class OLocalPaginatedCluster extends OSharedResourceAdaptive implements O
 
   private void loadClusterState() throws IOException {
     OFile file = clusterStateHolder.getFile();
+    if (file.getFilledUpTo() == 0)
+      // STATE WAS NOT STORED BEFORE STORAGE WAS CLOSED, IT WILL BE RESTORED FROM WRITE AHEAD LOG
+      return;
+
     long fileOffset = 0;
 
     size = file.readLong(fileOffset);
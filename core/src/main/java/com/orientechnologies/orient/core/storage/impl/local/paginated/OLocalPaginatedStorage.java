@@ -20,8 +20,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -53,9 +56,12 @@ import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.O2QCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OConcurrentDiskCache;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
@@ -68,7 +74,17 @@ import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageConfigurationSegment;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageVariableParser;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAtomicUnitEndRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OClusterStateRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OFileTruncatedRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnit;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWALRecord;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 import com.orientechnologies.orient.core.tx.OTransaction;
+import com.orientechnologies.orient.core.tx.OTransactionAbstract;
+import com.orientechnologies.orient.core.tx.OTxListener;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 
@@ -89,11 +105,12 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private int                          defaultClusterId    = -1;
 
   private static String[]              ALL_FILE_EXTENSIONS = { ".ocf", ".pls", ".pcl", ".oda", ".odh", ".otx", ".ocs", ".oef",
-      ".oem", ".oet"                                      };
+      ".oem", ".oet", OWriteAheadLog.WAL_EXTENSION        };
 
   private OModificationLock            modificationLock    = new OModificationLock();
 
   private final ODiskCache             diskCache;
+  private final OWriteAheadLog         writeAheadLog;
 
   public OLocalPaginatedStorage(final String name, final String filePath, final String mode) throws IOException {
     super(name, filePath, mode);
@@ -118,8 +135,17 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
     final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
 
-    diskCache = new O2QCache(OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * ONE_KB * ONE_KB, directMemory,
-        OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB, this, false);
+    if (OGlobalConfiguration.USE_WAL.getValueAsBoolean())
+      writeAheadLog = new OWriteAheadLog(new File(storagePath).getName(), storagePath);
+    else
+      writeAheadLog = null;
+
+    final long diskCacheSize = OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsLong() * ONE_KB * ONE_KB;
+    final int pageSize = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB;
+    if (OGlobalConfiguration.DISK_CACHE_CONCURRENT.getValueAsBoolean())
+      diskCache = new OConcurrentDiskCache(diskCacheSize, directMemory, pageSize, this, false, writeAheadLog);
+    else
+      diskCache = new O2QCache(diskCacheSize, directMemory, pageSize, this, false, writeAheadLog);
   }
 
   public void open(final String iUserName, final String iUserPassword, final Map<String, Object> iProperties) {
@@ -173,6 +199,11 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         }
       }
 
+      if (writeAheadLog != null) {
+        writeAheadLog.open();
+        restoreFromWAL();
+      }
+
     } catch (Exception e) {
       close(true);
       throw new OStorageException("Cannot open local storage '" + url + "' with mode=" + mode, e);
@@ -199,6 +230,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
       status = STATUS.OPEN;
 
+      if (writeAheadLog != null)
+        writeAheadLog.open();
+
       // ADD THE METADATA CLUSTER TO STORE INTERNAL STUFF
       addCluster(OStorage.CLUSTER_TYPE.PHYSICAL.toString(), OMetadata.CLUSTER_INTERNAL_NAME, null, null, true);
 
@@ -250,6 +284,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
       status = STATUS.CLOSING;
 
+      makeCheckpoint();
+
       for (OCluster cluster : clusters)
         if (cluster != null)
           cluster.close();
@@ -265,6 +301,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
       diskCache.close();
 
+      if (writeAheadLog != null)
+        writeAheadLog.close();
+
       Orient.instance().unregisterStorage(this);
       status = STATUS.CLOSED;
     } catch (IOException e) {
@@ -534,6 +573,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     checkOpeness();
 
     final OLocalPaginatedCluster cluster = (OLocalPaginatedCluster) getClusterById(rid.clusterId);
+    checkpointIfNeeded();
+
     modificationLock.requestModificationLock();
     try {
       checkOpeness();
@@ -649,6 +690,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     checkOpeness();
 
     final OCluster cluster = getClusterById(rid.clusterId);
+    checkpointIfNeeded();
 
     modificationLock.requestModificationLock();
     try {
@@ -725,6 +767,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     checkOpeness();
 
     final OCluster cluster = getClusterById(rid.clusterId);
+    checkpointIfNeeded();
+
     modificationLock.requestModificationLock();
     try {
       lock.acquireSharedLock();
@@ -858,11 +902,49 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   }
 
   public void commit(final OTransaction tx) {
-    throw new UnsupportedOperationException("commit");
+    checkOpeness();
+    checkpointIfNeeded();
+
+    modificationLock.requestModificationLock();
+    try {
+      lock.acquireExclusiveLock();
+      try {
+        final OLogSequenceNumber endLSN;
+
+        // WHOLE TRANSACTION IS LOGGED AS SINGLE ATOMIC UNIT, SO IT IS EITHER COMPLETELY REDONE OR COMPLETELY UNDONE DURING
+        // RESTORE. WITHOUT WRITE AHEAD LOG THE ENTRIES ARE COMMITTED ONE BY ONE AND A FAILED COMMIT IS NOT REVERTED
+        startAtomicOperation();
+        boolean rollback = true;
+        try {
+          commitAllPendingRecords(tx);
+          rollback = false;
+        } finally {
+          endLSN = endAtomicOperation(rollback);
+        }
+
+        if (writeAheadLog != null)
+          writeAheadLog.flushCommit(endLSN);
+
+        OTransactionAbstract.updateCacheFromEntries(this, tx, tx.getAllRecordEntries(), true);
+
+        if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
+          synch();
+
+      } catch (IOException e) {
+        throw new OStorageException("Error during commit of transaction " + tx.getId() + " in storage '" + name + "'", e);
+      } finally {
+        lock.releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
   }
 
+  /**
+   * Nothing to do here, changes of transaction which failed during commit are reverted by {@link #commit(OTransaction)} itself
+   * when write ahead log is enabled and changes of not committed transactions never reach storage.
+   */
   public void rollback(final OTransaction iTx) {
-    throw new UnsupportedOperationException("rollback");
   }
 
   @Override
@@ -877,13 +959,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
     lock.acquireExclusiveLock();
     try {
-      for (OCluster cluster : clusters)
-        if (cluster != null)
-          cluster.synch();
-
-      if (configuration != null)
-        configuration.synch();
-
+      makeCheckpoint();
     } catch (IOException e) {
       throw new OStorageException("Error on synch storage '" + name + "'", e);
 
@@ -1162,4 +1238,287 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   public ODiskCache getDiskCache() {
     return diskCache;
   }
+
+  /**
+   * @return Write ahead log of this storage or <code>null</code> if it is disabled by {@link OGlobalConfiguration#USE_WAL}.
+   */
+  public OWriteAheadLog getWriteAheadLog() {
+    return writeAheadLog;
+  }
+
+  /**
+   * Starts atomic unit of work or joins already started one. All page changes done by current thread till the end of the
+   * outermost unit are either applied together or discarded together.
+   * 
+   * @return Current unit or <code>null</code> if write ahead log is disabled.
+   */
+  public OOperationUnit startAtomicOperation() {
+    if (writeAheadLog == null)
+      return null;
+
+    return writeAheadLog.startAtomicUnit();
+  }
+
+  /**
+   * Ends atomic unit of work. If it is the outermost unit and it or one of nested units was rolled back, all page and cluster
+   * state changes done inside of unit are reverted.
+   * 
+   * @return Position of end record of unit or <code>null</code> if only nested unit was ended.
+   */
+  public OLogSequenceNumber endAtomicOperation(boolean rollback) throws IOException {
+    if (writeAheadLog == null)
+      return null;
+
+    final OOperationUnit unit = writeAheadLog.endAtomicUnit(rollback);
+    if (unit == null)
+      return null;
+
+    final OLogSequenceNumber endLSN;
+    try {
+      if (unit.isRollbackOnly())
+        revertAtomicOperation(unit);
+
+      for (OLocalPaginatedCluster cluster : unit.getClusterSnapshots().keySet())
+        writeAheadLog.log(cluster.createStateRecord(unit.getUnitId()));
+
+      endLSN = writeAheadLog.log(new OAtomicUnitEndRecord(unit.getUnitId(), unit.isRollbackOnly()));
+    } finally {
+      writeAheadLog.releaseAtomicUnit();
+    }
+
+    if (OGlobalConfiguration.NON_TX_RECORD_UPDATE_SYNCH.getValueAsBoolean())
+      writeAheadLog.flushCommit(endLSN);
+
+    if (unit.isRollbackOnly() && !rollback)
+      throw new OStorageException("Atomic operation was rolled back because one of nested operations failed.");
+
+    return endLSN;
+  }
+
+  private void revertAtomicOperation(OOperationUnit unit) throws IOException {
+    final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
+
+    // REVERTED PAGES ARE LOGGED TOO SO COPY THE LISTS BEFORE ITERATION
+    final List<OUpdatePageRecord> updateRecords = new ArrayList<OUpdatePageRecord>(unit.getUpdateRecords());
+    final List<Long> fileIds = new ArrayList<Long>(unit.getUpdatedFileIds());
+
+    for (int i = updateRecords.size() - 1; i >= 0; i--) {
+      final OUpdatePageRecord updateRecord = updateRecords.get(i);
+      final long fileId = fileIds.get(i);
+
+      final long pointer = diskCache.load(fileId, updateRecord.getPageIndex());
+      try {
+        updateRecord.getPageChanges().revertChanges(directMemory, pointer);
+        diskCache.markDirty(fileId, updateRecord.getPageIndex());
+      } finally {
+        diskCache.release(fileId, updateRecord.getPageIndex());
+      }
+    }
+
+    for (Map.Entry<OLocalPaginatedCluster, OClusterStateRecord> entry : unit.getClusterSnapshots().entrySet())
+      entry.getKey().restoreState(entry.getValue());
+  }
+
+  private void commitAllPendingRecords(final OTransaction tx) throws IOException {
+    // COPY ALL THE ENTRIES IN SEPARATE COLLECTION SINCE DURING THE COMMIT PHASE SOME NEW ENTRIES COULD BE CREATED AND
+    // CONCURRENT-EXCEPTION MAY OCCURS
+    final List<ORecordOperation> tmpEntries = new ArrayList<ORecordOperation>();
+
+    while (tx.getCurrentRecordEntries().iterator().hasNext()) {
+      for (ORecordOperation txEntry : tx.getCurrentRecordEntries())
+        tmpEntries.add(txEntry);
+
+      tx.clearRecordEntries();
+
+      for (ORecordOperation txEntry : tmpEntries)
+        // COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
+        commitEntry(tx, txEntry);
+
+      tmpEntries.clear();
+    }
+  }
+
+  private void commitEntry(final OTransaction tx, final ORecordOperation txEntry) throws IOException {
+    final ORecordInternal<?> record = txEntry.getRecord();
+    if (txEntry.type != ORecordOperation.DELETED && !record.isDirty())
+      return;
+
+    final ORecordId rid = (ORecordId) record.getIdentity();
+
+    if (rid.clusterId == ORID.CLUSTER_ID_INVALID && record instanceof ODocument
+        && ((ODocument) record).getSchemaClass() != null) {
+      // TRY TO FIX CLUSTER ID TO THE DEFAULT CLUSTER ID DEFINED IN SCHEMA CLASS
+      rid.clusterId = ((ODocument) record).getSchemaClass().getDefaultClusterId();
+    }
+
+    final OCluster cluster = getClusterById(rid.clusterId);
+
+    if (cluster.getName().equals(OMetadata.CLUSTER_INDEX_NAME) || cluster.getName().equals(OMetadata.CLUSTER_MANUAL_INDEX_NAME))
+      // AVOID TO COMMIT INDEX STUFF
+      return;
+
+    if (record instanceof OTxListener)
+      ((OTxListener) record).onEvent(txEntry, OTxListener.EVENT.BEFORE_COMMIT);
+
+    switch (txEntry.type) {
+    case ORecordOperation.LOADED:
+      break;
+
+    case ORecordOperation.CREATED: {
+      // CHECK 2 TIMES TO ASSURE THAT IT'S A CREATE OR AN UPDATE BASED ON RECURSIVE TO-STREAM METHOD
+      final byte[] stream = record.toStream();
+
+      final ORID oldRid = rid.copy();
+
+      if (rid.isNew()) {
+        record.onBeforeIdentityChanged(rid);
+        rid.clusterId = cluster.getId();
+      }
+
+      if (rid.isNew()) {
+        final OStorageOperationResult<OPhysicalPosition> result = createRecord(txEntry.dataSegmentId, rid, stream,
+            OVersionFactory.instance().createVersion(), record.getRecordType(), 0, null);
+        if (result == null)
+          throw new OStorageException("Error on creation of record " + oldRid + " in cluster " + cluster.getName());
+
+        final OPhysicalPosition ppos = result.getResult();
+
+        rid.clusterPosition = ppos.clusterPosition;
+        record.getRecordVersion().copyFrom(ppos.recordVersion);
+
+        record.onAfterIdentityChanged(record);
+        tx.updateIndexIdentityAfterCommit(oldRid, rid);
+      } else
+        record.getRecordVersion().copyFrom(
+            updateRecord(rid, stream, record.getRecordVersion(), record.getRecordType(), 0, null).getResult());
+      break;
+    }
+
+    case ORecordOperation.UPDATED: {
+      final byte[] stream = record.toStream();
+
+      record.getRecordVersion().copyFrom(
+          updateRecord(rid, stream, record.getRecordVersion(), record.getRecordType(), 0, null).getResult());
+      break;
+    }
+
+    case ORecordOperation.DELETED:
+      deleteRecord(rid, record.getRecordVersion(), 0, null);
+      break;
+    }
+
+    record.unsetDirty();
+
+    if (record instanceof OTxListener)
+      ((OTxListener) record).onEvent(txEntry, OTxListener.EVENT.AFTER_COMMIT);
+  }
+
+  /**
+   * Flushes all changed pages and cluster states to the disk, after that content of write ahead log is not needed any more and
+   * it is truncated.
+   */
+  private void makeCheckpoint() throws IOException {
+    for (OCluster cluster : clusters)
+      if (cluster != null)
+        cluster.synch();
+
+    if (configuration != null)
+      configuration.synch();
+
+    if (writeAheadLog == null || writeAheadLog.getCurrentUnit() != null)
+      return;
+
+    diskCache.flushBuffer();
+    writeAheadLog.truncate();
+  }
+
+  private void checkpointIfNeeded() {
+    if (writeAheadLog == null || writeAheadLog.getCurrentUnit() != null)
+      return;
+
+    if (writeAheadLog.size() > OGlobalConfiguration.WAL_MAX_SIZE.getValueAsLong() * ONE_KB * ONE_KB)
+      synch();
+  }
+
+  private void restoreFromWAL() throws IOException {
+    final OLogSequenceNumber beginLSN = writeAheadLog.begin();
+    if (beginLSN == null)
+      return;
+
+    // FIRST PASS: FIND UNITS WHICH WERE COMPLETED BEFORE STORAGE WAS CLOSED
+    final Set<Long> finishedUnits = new HashSet<Long>();
+    OLogSequenceNumber lsn = beginLSN;
+    while (lsn != null) {
+      final OWALRecord record = writeAheadLog.read(lsn);
+      if (record instanceof OAtomicUnitEndRecord)
+        finishedUnits.add(((OAtomicUnitEndRecord) record).getUnitId());
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    // SECOND PASS: REDO ALL PAGE CHANGES IN ORDER THEY WERE DONE
+    final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
+    final List<OUpdatePageRecord> unfinishedRecords = new ArrayList<OUpdatePageRecord>();
+    final Map<String, OClusterStateRecord> clusterStates = new HashMap<String, OClusterStateRecord>();
+
+    int redone = 0;
+    lsn = beginLSN;
+    while (lsn != null) {
+      final OWALRecord record = writeAheadLog.read(lsn);
+
+      if (record instanceof OUpdatePageRecord) {
+        final OUpdatePageRecord updateRecord = (OUpdatePageRecord) record;
+        final long fileId = diskCache.findFileId(updateRecord.getFileName());
+        if (fileId >= 0) {
+          final long pointer = diskCache.load(fileId, updateRecord.getPageIndex());
+          try {
+            updateRecord.getPageChanges().applyChanges(directMemory, pointer);
+            diskCache.markDirty(fileId, updateRecord.getPageIndex());
+          } finally {
+            diskCache.release(fileId, updateRecord.getPageIndex());
+          }
+
+          redone++;
+          if (!finishedUnits.contains(updateRecord.getUnitId()))
+            unfinishedRecords.add(updateRecord);
+        }
+      } else if (record instanceof OFileTruncatedRecord) {
+        final long fileId = diskCache.findFileId(((OFileTruncatedRecord) record).getFileName());
+        if (fileId >= 0)
+          diskCache.truncateFile(fileId);
+      } else if (record instanceof OClusterStateRecord) {
+        final OClusterStateRecord stateRecord = (OClusterStateRecord) record;
+        if (finishedUnits.contains(stateRecord.getUnitId()))
+          clusterStates.put(stateRecord.getClusterName(), stateRecord);
+      }
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    // UNDO CHANGES OF UNITS WHICH WERE NOT COMPLETED, IN REVERSE ORDER
+    for (int i = unfinishedRecords.size() - 1; i >= 0; i--) {
+      final OUpdatePageRecord updateRecord = unfinishedRecords.get(i);
+      final long fileId = diskCache.findFileId(updateRecord.getFileName());
+
+      final long pointer = diskCache.load(fileId, updateRecord.getPageIndex());
+      try {
+        updateRecord.getPageChanges().revertChanges(directMemory, pointer);
+        diskCache.markDirty(fileId, updateRecord.getPageIndex());
+      } finally {
+        diskCache.release(fileId, updateRecord.getPageIndex());
+      }
+    }
+
+    for (OClusterStateRecord stateRecord : clusterStates.values()) {
+      final OCluster cluster = clusterMap.get(stateRecord.getClusterName().toLowerCase());
+      if (cluster instanceof OLocalPaginatedCluster)
+        ((OLocalPaginatedCluster) cluster).restoreState(stateRecord);
+    }
+
+    if (redone > 0)
+      OLogManager.instance().info(this, "Storage '%s' was restored from write ahead log, %d page changes were redone and %d undone.",
+          name, redone, unfinishedRecords.size());
+
+    makeCheckpoint();
+  }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+/**
+ * Last record of atomic unit of work. Units which do not have this record in log are treated as broken and their changes are
+ * reverted during storage restore.
+ */
+public class OAtomicUnitEndRecord extends OOperationUnitRecord {
+  private boolean rollback;
+
+  public OAtomicUnitEndRecord() {
+  }
+
+  public OAtomicUnitEndRecord(long unitId, boolean rollback) {
+    super(unitId);
+    this.rollback = rollback;
+  }
+
+  public boolean isRollback() {
+    return rollback;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+    content[offset] = rollback ? (byte) 1 : 0;
+    return offset + 1;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+    rollback = content[offset] > 0;
+    return offset + 1;
+  }
+
+  @Override
+  public int serializedSize() {
+    return super.serializedSize() + 1;
+  }
+
+  @Override
+  public String toString() {
+    return "OAtomicUnitEndRecord{" + "unitId=" + getUnitId() + ", rollback=" + rollback + ", lsn=" + getLsn() + '}';
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+/**
+ * Record is written after all dirty pages were flushed to the disk. Storage restore is never started before the last checkpoint.
+ */
+public class OCheckpointRecord implements OWALRecord {
+  private OLogSequenceNumber lsn;
+
+  public OCheckpointRecord() {
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    return offset;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    return offset;
+  }
+
+  @Override
+  public int serializedSize() {
+    return 0;
+  }
+
+  @Override
+  public OLogSequenceNumber getLsn() {
+    return lsn;
+  }
+
+  @Override
+  public void setLsn(OLogSequenceNumber lsn) {
+    this.lsn = lsn;
+  }
+
+  @Override
+  public String toString() {
+    return "OCheckpointRecord{" + "lsn=" + lsn + '}';
+  }
+}
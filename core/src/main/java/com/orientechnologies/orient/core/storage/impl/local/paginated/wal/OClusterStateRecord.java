@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+
+/**
+ * Snapshot of in-memory state of paginated cluster (records count, records size and heads of free lists) which is logged at the
+ * end of each atomic unit which changed this cluster. Is used to restore cluster state without full scan of cluster pages.
+ */
+public class OClusterStateRecord extends OOperationUnitRecord {
+  private String clusterName;
+  private long   size;
+  private long   recordsSize;
+  private long[] freePageLists;
+
+  public OClusterStateRecord() {
+  }
+
+  public OClusterStateRecord(long unitId, String clusterName, long size, long recordsSize, long[] freePageLists) {
+    super(unitId);
+    this.clusterName = clusterName;
+    this.size = size;
+    this.recordsSize = recordsSize;
+    this.freePageLists = freePageLists;
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getRecordsSize() {
+    return recordsSize;
+  }
+
+  public long[] getFreePageLists() {
+    return freePageLists;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+
+    OStringSerializer.INSTANCE.serializeNative(clusterName, content, offset);
+    offset += OStringSerializer.INSTANCE.getObjectSize(clusterName);
+
+    OLongSerializer.INSTANCE.serializeNative(size, content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    OLongSerializer.INSTANCE.serializeNative(recordsSize, content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    OIntegerSerializer.INSTANCE.serializeNative(freePageLists.length, content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    for (long freePageIndex : freePageLists) {
+      OLongSerializer.INSTANCE.serializeNative(freePageIndex, content, offset);
+      offset += OLongSerializer.LONG_SIZE;
+    }
+
+    return offset;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+
+    clusterName = OStringSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OStringSerializer.INSTANCE.getObjectSizeNative(content, offset);
+
+    size = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    recordsSize = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    freePageLists = new long[OIntegerSerializer.INSTANCE.deserializeNative(content, offset)];
+    offset += OIntegerSerializer.INT_SIZE;
+
+    for (int i = 0; i < freePageLists.length; i++) {
+      freePageLists[i] = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+      offset += OLongSerializer.LONG_SIZE;
+    }
+
+    return offset;
+  }
+
+  @Override
+  public int serializedSize() {
+    return super.serializedSize() + OStringSerializer.INSTANCE.getObjectSize(clusterName) + 2 * OLongSerializer.LONG_SIZE
+        + OIntegerSerializer.INT_SIZE + freePageLists.length * OLongSerializer.LONG_SIZE;
+  }
+
+  @Override
+  public String toString() {
+    return "OClusterStateRecord{" + "unitId=" + getUnitId() + ", clusterName='" + clusterName + '\'' + ", size=" + size
+        + ", recordsSize=" + recordsSize + ", lsn=" + getLsn() + '}';
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+
+/**
+ * Is logged when file is truncated, all changes of this file which were logged before are not applied during storage restore.
+ */
+public class OFileTruncatedRecord extends OOperationUnitRecord {
+  private String fileName;
+
+  public OFileTruncatedRecord() {
+  }
+
+  public OFileTruncatedRecord(long unitId, String fileName) {
+    super(unitId);
+    this.fileName = fileName;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+
+    OStringSerializer.INSTANCE.serializeNative(fileName, content, offset);
+    return offset + OStringSerializer.INSTANCE.getObjectSize(fileName);
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+
+    fileName = OStringSerializer.INSTANCE.deserializeNative(content, offset);
+    return offset + OStringSerializer.INSTANCE.getObjectSizeNative(content, offset);
+  }
+
+  @Override
+  public int serializedSize() {
+    return super.serializedSize() + OStringSerializer.INSTANCE.getObjectSize(fileName);
+  }
+
+  @Override
+  public String toString() {
+    return "OFileTruncatedRecord{" + "unitId=" + getUnitId() + ", fileName='" + fileName + '\'' + ", lsn=" + getLsn() + '}';
+  }
+}
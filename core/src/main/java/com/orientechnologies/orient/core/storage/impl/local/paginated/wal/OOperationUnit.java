@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedCluster;
+
+/**
+ * State of atomic unit of work which is executed by current thread. Atomic unit may be single storage operation or whole
+ * transaction, units can be nested, in such case only outermost unit is logged.
+ * 
+ * Unit keeps copy of each page which is pinned in disk cache by current thread, so changes of page can be calculated when page is
+ * marked as dirty. Copy is discarded once page is released by all callers.
+ */
+public class OOperationUnit {
+  private final long                                             unitId;
+  private int                                                    depth;
+  private boolean                                                rollbackOnly;
+
+  private final Map<PageKey, PageSnapshot>                       pageSnapshots    = new HashMap<PageKey, PageSnapshot>();
+  private final List<OUpdatePageRecord>                          updateRecords    = new ArrayList<OUpdatePageRecord>();
+  private final List<Long>                                       updatedFileIds   = new ArrayList<Long>();
+  private final Map<OLocalPaginatedCluster, OClusterStateRecord> clusterSnapshots = new LinkedHashMap<OLocalPaginatedCluster, OClusterStateRecord>();
+
+  OOperationUnit(long unitId) {
+    this.unitId = unitId;
+  }
+
+  public long getUnitId() {
+    return unitId;
+  }
+
+  int incrementDepth() {
+    return ++depth;
+  }
+
+  int decrementDepth() {
+    return --depth;
+  }
+
+  public boolean isRollbackOnly() {
+    return rollbackOnly;
+  }
+
+  public void setRollbackOnly() {
+    rollbackOnly = true;
+  }
+
+  public void pageLoaded(long fileId, long pageIndex, long dataPointer, int pageSize, ODirectMemory directMemory) {
+    final PageKey pageKey = new PageKey(fileId, pageIndex);
+    PageSnapshot pageSnapshot = pageSnapshots.get(pageKey);
+    if (pageSnapshot == null) {
+      pageSnapshot = new PageSnapshot(directMemory.get(dataPointer, pageSize));
+      pageSnapshots.put(pageKey, pageSnapshot);
+    }
+
+    pageSnapshot.usageCounter++;
+  }
+
+  /**
+   * Calculates changes which were done to the page since it was loaded or since previous call of this method.
+   */
+  public OPageChanges pageChanged(long fileId, long pageIndex, long dataPointer, int pageSize, ODirectMemory directMemory) {
+    final PageSnapshot pageSnapshot = pageSnapshots.get(new PageKey(fileId, pageIndex));
+    if (pageSnapshot == null)
+      throw new IllegalStateException("Page " + pageIndex + " of file " + fileId + " was not loaded inside of atomic operation.");
+
+    final OPageChanges pageChanges = OPageChanges.calculateChanges(pageSnapshot.content, directMemory.get(dataPointer, pageSize));
+    pageChanges.applyChanges(pageSnapshot.content);
+
+    return pageChanges;
+  }
+
+  public void pageReleased(long fileId, long pageIndex) {
+    final PageKey pageKey = new PageKey(fileId, pageIndex);
+    final PageSnapshot pageSnapshot = pageSnapshots.get(pageKey);
+    if (pageSnapshot == null)
+      return;
+
+    pageSnapshot.usageCounter--;
+    if (pageSnapshot.usageCounter == 0)
+      pageSnapshots.remove(pageKey);
+  }
+
+  public void addUpdateRecord(long fileId, OUpdatePageRecord updatePageRecord) {
+    updatedFileIds.add(fileId);
+    updateRecords.add(updatePageRecord);
+  }
+
+  public List<OUpdatePageRecord> getUpdateRecords() {
+    return updateRecords;
+  }
+
+  public List<Long> getUpdatedFileIds() {
+    return updatedFileIds;
+  }
+
+  /**
+   * Registers cluster as participant of this unit. State of cluster is remembered at the moment of first registration to be
+   * restored in case of rollback.
+   */
+  public void registerCluster(OLocalPaginatedCluster cluster) {
+    if (!clusterSnapshots.containsKey(cluster))
+      clusterSnapshots.put(cluster, cluster.createStateRecord(unitId));
+  }
+
+  public Map<OLocalPaginatedCluster, OClusterStateRecord> getClusterSnapshots() {
+    return clusterSnapshots;
+  }
+
+  private static final class PageSnapshot {
+    private final byte[] content;
+    private int          usageCounter;
+
+    private PageSnapshot(byte[] content) {
+      this.content = content;
+    }
+  }
+
+  private static final class PageKey {
+    private final long fileId;
+    private final long pageIndex;
+
+    private PageKey(long fileId, long pageIndex) {
+      this.fileId = fileId;
+      this.pageIndex = pageIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+
+      PageKey pageKey = (PageKey) o;
+
+      if (fileId != pageKey.fileId)
+        return false;
+      if (pageIndex != pageKey.pageIndex)
+        return false;
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (fileId ^ (fileId >>> 32));
+      result = 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
+      return result;
+    }
+  }
+}
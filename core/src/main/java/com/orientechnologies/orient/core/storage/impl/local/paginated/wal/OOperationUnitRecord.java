@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+
+/**
+ * Base class for all records which belong to atomic unit of work (single storage operation or whole transaction).
+ */
+public abstract class OOperationUnitRecord implements OWALRecord {
+  private long               unitId;
+  private OLogSequenceNumber lsn;
+
+  protected OOperationUnitRecord() {
+  }
+
+  protected OOperationUnitRecord(long unitId) {
+    this.unitId = unitId;
+  }
+
+  public long getUnitId() {
+    return unitId;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    OLongSerializer.INSTANCE.serializeNative(unitId, content, offset);
+    return offset + OLongSerializer.LONG_SIZE;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    unitId = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    return offset + OLongSerializer.LONG_SIZE;
+  }
+
+  @Override
+  public int serializedSize() {
+    return OLongSerializer.LONG_SIZE;
+  }
+
+  @Override
+  public OLogSequenceNumber getLsn() {
+    return lsn;
+  }
+
+  @Override
+  public void setLsn(OLogSequenceNumber lsn) {
+    this.lsn = lsn;
+  }
+}
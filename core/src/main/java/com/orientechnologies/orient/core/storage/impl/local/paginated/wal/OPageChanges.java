@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+
+/**
+ * Set of changes done to the single page. Each change contains both previous and new content of changed region of page, so page
+ * content can be restored in forward (during storage restore) and in backward (during rollback) directions.
+ */
+public class OPageChanges {
+  /**
+   * Changed regions which are closer than this amount of bytes are merged in single chunk to decrease amount of chunks and as
+   * result serialization overhead.
+   */
+  private static final int          MERGE_GAP = 2 * OIntegerSerializer.INT_SIZE;
+
+  private final List<OChangesChunk> chunks    = new ArrayList<OChangesChunk>();
+
+  /**
+   * Calculates difference between two states of the same page.
+   * 
+   * @param original
+   *          Content of page before changes.
+   * @param current
+   *          Content of page after changes.
+   */
+  public static OPageChanges calculateChanges(byte[] original, byte[] current) {
+    final OPageChanges pageChanges = new OPageChanges();
+
+    final int length = Math.min(original.length, current.length);
+    int i = 0;
+    while (i < length) {
+      if (original[i] == current[i]) {
+        i++;
+        continue;
+      }
+
+      final int start = i;
+      int end = i + 1;
+      int sameBytes = 0;
+
+      i++;
+      while (i < length && sameBytes <= MERGE_GAP) {
+        if (original[i] == current[i])
+          sameBytes++;
+        else {
+          sameBytes = 0;
+          end = i + 1;
+        }
+
+        i++;
+      }
+
+      final byte[] oldValue = new byte[end - start];
+      final byte[] newValue = new byte[end - start];
+
+      System.arraycopy(original, start, oldValue, 0, oldValue.length);
+      System.arraycopy(current, start, newValue, 0, newValue.length);
+
+      pageChanges.chunks.add(new OChangesChunk(start, oldValue, newValue));
+    }
+
+    return pageChanges;
+  }
+
+  public boolean isEmpty() {
+    return chunks.isEmpty();
+  }
+
+  public int getChunksCount() {
+    return chunks.size();
+  }
+
+  public void applyChanges(ODirectMemory directMemory, long pointer) {
+    for (OChangesChunk chunk : chunks)
+      directMemory.set(pointer + chunk.offset, chunk.newValue, chunk.newValue.length);
+  }
+
+  public void applyChanges(byte[] content) {
+    for (OChangesChunk chunk : chunks)
+      System.arraycopy(chunk.newValue, 0, content, chunk.offset, chunk.newValue.length);
+  }
+
+  public void revertChanges(ODirectMemory directMemory, long pointer) {
+    for (int i = chunks.size() - 1; i >= 0; i--) {
+      final OChangesChunk chunk = chunks.get(i);
+      directMemory.set(pointer + chunk.offset, chunk.oldValue, chunk.oldValue.length);
+    }
+  }
+
+  public int serializedSize() {
+    int size = OIntegerSerializer.INT_SIZE;
+    for (OChangesChunk chunk : chunks)
+      size += 2 * OIntegerSerializer.INT_SIZE + 2 * chunk.newValue.length;
+
+    return size;
+  }
+
+  public int toStream(byte[] content, int offset) {
+    OIntegerSerializer.INSTANCE.serializeNative(chunks.size(), content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    for (OChangesChunk chunk : chunks) {
+      OIntegerSerializer.INSTANCE.serializeNative(chunk.offset, content, offset);
+      offset += OIntegerSerializer.INT_SIZE;
+
+      OIntegerSerializer.INSTANCE.serializeNative(chunk.newValue.length, content, offset);
+      offset += OIntegerSerializer.INT_SIZE;
+
+      System.arraycopy(chunk.oldValue, 0, content, offset, chunk.oldValue.length);
+      offset += chunk.oldValue.length;
+
+      System.arraycopy(chunk.newValue, 0, content, offset, chunk.newValue.length);
+      offset += chunk.newValue.length;
+    }
+
+    return offset;
+  }
+
+  public int fromStream(byte[] content, int offset) {
+    final int chunksCount = OIntegerSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OIntegerSerializer.INT_SIZE;
+
+    chunks.clear();
+    for (int i = 0; i < chunksCount; i++) {
+      final int chunkOffset = OIntegerSerializer.INSTANCE.deserializeNative(content, offset);
+      offset += OIntegerSerializer.INT_SIZE;
+
+      final int chunkLength = OIntegerSerializer.INSTANCE.deserializeNative(content, offset);
+      offset += OIntegerSerializer.INT_SIZE;
+
+      final byte[] oldValue = new byte[chunkLength];
+      System.arraycopy(content, offset, oldValue, 0, chunkLength);
+      offset += chunkLength;
+
+      final byte[] newValue = new byte[chunkLength];
+      System.arraycopy(content, offset, newValue, 0, chunkLength);
+      offset += chunkLength;
+
+      chunks.add(new OChangesChunk(chunkOffset, oldValue, newValue));
+    }
+
+    return offset;
+  }
+
+  private static final class OChangesChunk {
+    private final int    offset;
+    private final byte[] oldValue;
+    private final byte[] newValue;
+
+    private OChangesChunk(int offset, byte[] oldValue, byte[] newValue) {
+      this.offset = offset;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+  }
+}
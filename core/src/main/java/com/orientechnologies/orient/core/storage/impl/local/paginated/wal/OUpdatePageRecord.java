@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+
+/**
+ * Contains changes of single page of file which were done inside of atomic unit of work. File is identified by its name because
+ * file ids are assigned by disk cache at runtime and are not preserved between storage restarts.
+ */
+public class OUpdatePageRecord extends OOperationUnitRecord {
+  private String       fileName;
+  private long         pageIndex;
+  private OPageChanges pageChanges;
+
+  public OUpdatePageRecord() {
+  }
+
+  public OUpdatePageRecord(long unitId, String fileName, long pageIndex, OPageChanges pageChanges) {
+    super(unitId);
+    this.fileName = fileName;
+    this.pageIndex = pageIndex;
+    this.pageChanges = pageChanges;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public long getPageIndex() {
+    return pageIndex;
+  }
+
+  public OPageChanges getPageChanges() {
+    return pageChanges;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+
+    OStringSerializer.INSTANCE.serializeNative(fileName, content, offset);
+    offset += OStringSerializer.INSTANCE.getObjectSize(fileName);
+
+    OLongSerializer.INSTANCE.serializeNative(pageIndex, content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    return pageChanges.toStream(content, offset);
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+
+    fileName = OStringSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OStringSerializer.INSTANCE.getObjectSizeNative(content, offset);
+
+    pageIndex = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    pageChanges = new OPageChanges();
+    return pageChanges.fromStream(content, offset);
+  }
+
+  @Override
+  public int serializedSize() {
+    return super.serializedSize() + OStringSerializer.INSTANCE.getObjectSize(fileName) + OLongSerializer.LONG_SIZE
+        + pageChanges.serializedSize();
+  }
+
+  @Override
+  public String toString() {
+    return "OUpdatePageRecord{" + "unitId=" + getUnitId() + ", fileName='" + fileName + '\'' + ", pageIndex=" + pageIndex
+        + ", lsn=" + getLsn() + '}';
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+/**
+ * Record of write ahead log. Implementations have to provide public constructor without parameters, it is used during log
+ * reading.
+ * 
+ * @see OWALRecordsFactory
+ */
+public interface OWALRecord {
+  /**
+   * Serializes record content into passed in array.
+   * 
+   * @return Position in array right after record content.
+   */
+  int toStream(byte[] content, int offset);
+
+  /**
+   * Reads record content from passed in array.
+   * 
+   * @return Position in array right after record content.
+   */
+  int fromStream(byte[] content, int offset);
+
+  int serializedSize();
+
+  OLogSequenceNumber getLsn();
+
+  void setLsn(OLogSequenceNumber lsn);
+}
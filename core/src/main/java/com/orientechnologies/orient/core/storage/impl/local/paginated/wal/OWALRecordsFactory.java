@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.orientechnologies.orient.core.exception.OStorageException;
+
+/**
+ * Converts WAL records to the binary form and back. First byte of serialized record is id of record type.
+ */
+public class OWALRecordsFactory {
+  private static final Map<Class<? extends OWALRecord>, Byte> recordIds   = new HashMap<Class<? extends OWALRecord>, Byte>();
+  private static final Map<Byte, Class<? extends OWALRecord>> recordTypes = new HashMap<Byte, Class<? extends OWALRecord>>();
+
+  static {
+    register((byte) 1, OCheckpointRecord.class);
+    register((byte) 2, OAtomicUnitEndRecord.class);
+    register((byte) 3, OUpdatePageRecord.class);
+    register((byte) 4, OClusterStateRecord.class);
+    register((byte) 5, OFileTruncatedRecord.class);
+  }
+
+  private static void register(byte id, Class<? extends OWALRecord> recordType) {
+    recordIds.put(recordType, id);
+    recordTypes.put(id, recordType);
+  }
+
+  public static byte[] toStream(OWALRecord walRecord) {
+    final Byte id = recordIds.get(walRecord.getClass());
+    if (id == null)
+      throw new OStorageException("Unknown WAL record type " + walRecord.getClass());
+
+    final byte[] content = new byte[walRecord.serializedSize() + 1];
+    content[0] = id;
+    walRecord.toStream(content, 1);
+
+    return content;
+  }
+
+  public static OWALRecord fromStream(byte[] content) {
+    final Class<? extends OWALRecord> recordType = recordTypes.get(content[0]);
+    if (recordType == null)
+      throw new OStorageException("Unknown WAL record type id " + content[0]);
+
+    final OWALRecord walRecord;
+    try {
+      walRecord = recordType.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new OStorageException("Cannot create WAL record of type " + recordType, e);
+    }
+
+    walRecord.fromStream(content, 1);
+    return walRecord;
+  }
+}
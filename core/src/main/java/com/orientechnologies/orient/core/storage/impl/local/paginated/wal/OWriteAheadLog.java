@@ -0,0 +1,553 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
+
+/**
+ * Write ahead log of paginated storage. Log consists of segments, each segment is a separate file with name
+ * <code>storageName.segmentIndex.wal</code>. Every record is stored as: length of record content, CRC32 of content, content.
+ * Records which can not be read or which have broken CRC are treated as end of log.
+ * 
+ * Records are accumulated in memory and are written to the disk either when commit is done or when page which contains changes of
+ * this record is going to be written to the disk. Threads which request flush at the same time share single write and single fsync
+ * (group commit), so commit latency does not depend on the amount of dirty pages in disk cache.
+ * 
+ * Log also keeps track of atomic units (see {@link OOperationUnit}) which are executed by each thread.
+ */
+public class OWriteAheadLog {
+  public static final String                WAL_EXTENSION      = ".wal";
+
+  private static final int                  RECORD_HEADER_SIZE = OIntegerSerializer.INT_SIZE + OLongSerializer.LONG_SIZE;
+  private static final int                  FLUSH_THRESHOLD    = 4 * 1024 * 1024;
+
+  public enum SYNC_MODE {
+    COMMIT, PERIODIC, NONE
+  }
+
+  private final String                      storagePath;
+  private final String                      storageName;
+  private final long                        maxSegmentSize;
+  private final SYNC_MODE                   syncMode;
+
+  private final List<LogSegment>            segments           = new ArrayList<LogSegment>();
+  private final Object                      syncObject         = new Object();
+  private final Object                      flushLock          = new Object();
+
+  private OLogSequenceNumber                end;
+  private long                              pendingSize;
+
+  private volatile OLogSequenceNumber       writtenLsn;
+  private volatile OLogSequenceNumber       syncedLsn;
+
+  private final AtomicLong                  unitIdGenerator    = new AtomicLong();
+  private final ThreadLocal<OOperationUnit> currentUnit        = new ThreadLocal<OOperationUnit>();
+
+  private TimerTask                         fsyncTask;
+
+  public OWriteAheadLog(String storageName, String storagePath) {
+    this.storageName = storageName;
+    this.storagePath = storagePath;
+
+    maxSegmentSize = OGlobalConfiguration.WAL_MAX_SEGMENT_SIZE.getValueAsLong() * 1024 * 1024;
+    syncMode = SYNC_MODE.valueOf(OGlobalConfiguration.WAL_FSYNC_MODE.getValueAsString().toUpperCase());
+  }
+
+  public void open() throws IOException {
+    synchronized (syncObject) {
+      final File storageDir = new File(storagePath);
+      final File[] walFiles = storageDir.listFiles(new FilenameFilter() {
+        @Override
+        public boolean accept(File dir, String name) {
+          return segmentIndex(name) >= 0;
+        }
+      });
+
+      segments.clear();
+
+      if (walFiles != null) {
+        Arrays.sort(walFiles, new Comparator<File>() {
+          @Override
+          public int compare(File fileOne, File fileTwo) {
+            final long indexOne = segmentIndex(fileOne.getName());
+            final long indexTwo = segmentIndex(fileTwo.getName());
+            return indexOne < indexTwo ? -1 : (indexOne == indexTwo ? 0 : 1);
+          }
+        });
+
+        for (File walFile : walFiles) {
+          final LogSegment logSegment = new LogSegment(segmentIndex(walFile.getName()));
+          logSegment.open();
+          segments.add(logSegment);
+        }
+      }
+
+      if (segments.isEmpty())
+        segments.add(new LogSegment(0));
+
+      end = null;
+      for (int i = segments.size() - 1; i >= 0 && end == null; i--)
+        end = segments.get(i).lastRecord;
+
+      writtenLsn = end;
+      syncedLsn = end;
+      pendingSize = 0;
+    }
+
+    if (syncMode == SYNC_MODE.PERIODIC) {
+      fsyncTask = new TimerTask() {
+        @Override
+        public void run() {
+          try {
+            final OLogSequenceNumber lsn = end();
+            if (lsn != null)
+              flushTill(lsn, true);
+          } catch (Throwable t) {
+            OLogManager.instance().error(this, "Error during periodic fsync of WAL of storage " + storageName, t);
+          }
+        }
+      };
+
+      final int interval = OGlobalConfiguration.WAL_FSYNC_INTERVAL.getValueAsInteger();
+      Orient.getTimer().schedule(fsyncTask, interval, interval);
+    }
+  }
+
+  public OLogSequenceNumber log(OWALRecord record) {
+    final byte[] content = OWALRecordsFactory.toStream(record);
+    final byte[] serializedRecord = new byte[content.length + RECORD_HEADER_SIZE];
+
+    final CRC32 crc32 = new CRC32();
+    crc32.update(content);
+
+    OIntegerSerializer.INSTANCE.serializeNative(content.length, serializedRecord, 0);
+    OLongSerializer.INSTANCE.serializeNative(crc32.getValue(), serializedRecord, OIntegerSerializer.INT_SIZE);
+    System.arraycopy(content, 0, serializedRecord, RECORD_HEADER_SIZE, content.length);
+
+    final OLogSequenceNumber lsn;
+    final boolean flushRequired;
+    synchronized (syncObject) {
+      LogSegment segment = segments.get(segments.size() - 1);
+      if (segment.size > 0 && segment.size + serializedRecord.length > maxSegmentSize) {
+        segment = new LogSegment(segment.index + 1);
+        segments.add(segment);
+      }
+
+      lsn = new OLogSequenceNumber(segment.index, segment.size);
+      segment.pendingRecords.add(serializedRecord);
+      segment.size += serializedRecord.length;
+      segment.lastRecord = lsn;
+
+      pendingSize += serializedRecord.length;
+      flushRequired = pendingSize >= FLUSH_THRESHOLD;
+
+      end = lsn;
+    }
+
+    record.setLsn(lsn);
+
+    if (flushRequired)
+      try {
+        flushTill(lsn, false);
+      } catch (IOException e) {
+        throw new OStorageException("Error during flush of WAL of storage " + storageName, e);
+      }
+
+    return lsn;
+  }
+
+  public OLogSequenceNumber end() {
+    synchronized (syncObject) {
+      return end;
+    }
+  }
+
+  /**
+   * Writes all logged records to the disk and forces them to the storage device, if it is allowed by fsync policy. Is called
+   * before changed pages are written to the disk.
+   */
+  public void flush() throws IOException {
+    final OLogSequenceNumber lsn = end();
+    if (lsn != null)
+      flushTill(lsn, syncMode != SYNC_MODE.NONE);
+  }
+
+  /**
+   * Makes records of committed unit durable according to fsync policy.
+   */
+  public void flushCommit(OLogSequenceNumber lsn) throws IOException {
+    flushTill(lsn, syncMode == SYNC_MODE.COMMIT);
+  }
+
+  public void flushTill(OLogSequenceNumber lsn, boolean force) throws IOException {
+    if (isFlushed(lsn, force))
+      return;
+
+    synchronized (flushLock) {
+      // RECORDS COULD BE ALREADY FLUSHED BY OTHER THREAD WHILE WE WERE WAITING FOR THE LOCK
+      if (isFlushed(lsn, force))
+        return;
+
+      final List<LogSegment> segmentsToWrite = new ArrayList<LogSegment>();
+      final List<byte[]> contentToWrite = new ArrayList<byte[]>();
+      final List<LogSegment> segmentsToSync = new ArrayList<LogSegment>();
+      final OLogSequenceNumber lastLsn;
+
+      synchronized (syncObject) {
+        for (LogSegment segment : segments) {
+          if (segment.pendingRecords.isEmpty())
+            continue;
+
+          int contentSize = 0;
+          for (byte[] record : segment.pendingRecords)
+            contentSize += record.length;
+
+          final byte[] content = new byte[contentSize];
+          int offset = 0;
+          for (byte[] record : segment.pendingRecords) {
+            System.arraycopy(record, 0, content, offset, record.length);
+            offset += record.length;
+          }
+
+          segment.pendingRecords.clear();
+
+          segmentsToWrite.add(segment);
+          contentToWrite.add(content);
+        }
+
+        if (force)
+          segmentsToSync.addAll(segments);
+
+        pendingSize = 0;
+        lastLsn = end;
+      }
+
+      for (int i = 0; i < segmentsToWrite.size(); i++)
+        segmentsToWrite.get(i).write(contentToWrite.get(i));
+
+      for (LogSegment segment : segmentsToSync)
+        segment.sync();
+
+      writtenLsn = lastLsn;
+      if (force)
+        syncedLsn = lastLsn;
+    }
+  }
+
+  private boolean isFlushed(OLogSequenceNumber lsn, boolean force) {
+    final OLogSequenceNumber flushedLsn = force ? syncedLsn : writtenLsn;
+    return flushedLsn != null && flushedLsn.compareTo(lsn) >= 0;
+  }
+
+  public OLogSequenceNumber begin() {
+    synchronized (syncObject) {
+      for (LogSegment segment : segments)
+        if (segment.size > 0)
+          return new OLogSequenceNumber(segment.index, 0);
+
+      return null;
+    }
+  }
+
+  /**
+   * Reads record which is placed at passed in position. Only records which were flushed to the disk can be read.
+   */
+  public OWALRecord read(OLogSequenceNumber lsn) throws IOException {
+    synchronized (flushLock) {
+      synchronized (syncObject) {
+        final LogSegment segment = findSegment(lsn.getSegment());
+        if (segment == null)
+          return null;
+
+        final byte[] content = segment.readRecord(lsn.getPosition());
+        if (content == null)
+          return null;
+
+        final OWALRecord record = OWALRecordsFactory.fromStream(content);
+        record.setLsn(lsn);
+        return record;
+      }
+    }
+  }
+
+  /**
+   * @return Position of record which follows passed in record or <code>null</code> if passed in record is the last one.
+   */
+  public OLogSequenceNumber next(OLogSequenceNumber lsn) throws IOException {
+    synchronized (flushLock) {
+      synchronized (syncObject) {
+        final LogSegment segment = findSegment(lsn.getSegment());
+        if (segment == null)
+          return null;
+
+        final long nextPosition = segment.nextRecordPosition(lsn.getPosition());
+        if (nextPosition < segment.filledUpTo)
+          return new OLogSequenceNumber(segment.index, nextPosition);
+
+        for (LogSegment nextSegment : segments)
+          if (nextSegment.index > segment.index && nextSegment.filledUpTo > 0)
+            return new OLogSequenceNumber(nextSegment.index, 0);
+
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Removes all log segments and starts new one with checkpoint record. Should be called when all changed pages are flushed to the
+   * disk and there are no active atomic units.
+   */
+  public void truncate() throws IOException {
+    synchronized (flushLock) {
+      synchronized (syncObject) {
+        final long nextIndex = segments.get(segments.size() - 1).index + 1;
+
+        for (LogSegment segment : segments)
+          segment.delete();
+
+        segments.clear();
+        segments.add(new LogSegment(nextIndex));
+
+        end = null;
+        writtenLsn = null;
+        syncedLsn = null;
+        pendingSize = 0;
+      }
+    }
+
+    flushTill(log(new OCheckpointRecord()), true);
+  }
+
+  public long size() {
+    synchronized (syncObject) {
+      long size = 0;
+      for (LogSegment segment : segments)
+        size += segment.size;
+
+      return size;
+    }
+  }
+
+  public void close() throws IOException {
+    if (fsyncTask != null) {
+      fsyncTask.cancel();
+      fsyncTask = null;
+    }
+
+    flush();
+
+    synchronized (flushLock) {
+      synchronized (syncObject) {
+        for (LogSegment segment : segments)
+          segment.close();
+      }
+    }
+  }
+
+  public void delete() throws IOException {
+    close();
+
+    synchronized (syncObject) {
+      for (LogSegment segment : segments)
+        segment.delete();
+
+      segments.clear();
+    }
+  }
+
+  public OOperationUnit startAtomicUnit() {
+    OOperationUnit unit = currentUnit.get();
+    if (unit == null) {
+      unit = new OOperationUnit(unitIdGenerator.incrementAndGet());
+      currentUnit.set(unit);
+    }
+
+    unit.incrementDepth();
+    return unit;
+  }
+
+  /**
+   * Unit stays bound to current thread after outermost call of this method, so compensation records can be logged in case of
+   * rollback. {@link #releaseAtomicUnit()} should be called once unit is completely finished.
+   * 
+   * @return Unit which is finished or <code>null</code> if only nested unit was finished.
+   */
+  public OOperationUnit endAtomicUnit(boolean rollback) {
+    final OOperationUnit unit = currentUnit.get();
+    if (unit == null)
+      throw new IllegalStateException("There is no active atomic operation.");
+
+    if (rollback)
+      unit.setRollbackOnly();
+
+    if (unit.decrementDepth() > 0)
+      return null;
+
+    return unit;
+  }
+
+  public void releaseAtomicUnit() {
+    currentUnit.remove();
+  }
+
+  public OOperationUnit getCurrentUnit() {
+    return currentUnit.get();
+  }
+
+  private LogSegment findSegment(long index) {
+    for (LogSegment segment : segments)
+      if (segment.index == index)
+        return segment;
+
+    return null;
+  }
+
+  private long segmentIndex(String fileName) {
+    final String prefix = storageName + ".";
+    if (!fileName.startsWith(prefix) || !fileName.endsWith(WAL_EXTENSION))
+      return -1;
+
+    final String index = fileName.substring(prefix.length(), fileName.length() - WAL_EXTENSION.length());
+    for (int i = 0; i < index.length(); i++)
+      if (!Character.isDigit(index.charAt(i)))
+        return -1;
+
+    return index.length() > 0 ? Long.parseLong(index) : -1;
+  }
+
+  private final class LogSegment {
+    private final long           index;
+    private final File           file;
+    private final List<byte[]>   pendingRecords = new ArrayList<byte[]>();
+
+    private RandomAccessFile     rndFile;
+    private long                 filledUpTo;
+    private long                 size;
+    private OLogSequenceNumber   lastRecord;
+    private boolean              notSynced;
+
+    private LogSegment(long index) {
+      this.index = index;
+      this.file = new File(storagePath, storageName + "." + index + WAL_EXTENSION);
+    }
+
+    private void open() throws IOException {
+      rndFile = new RandomAccessFile(file, "rw");
+
+      // FIND THE END OF LOG, RECORDS WHICH WERE WRITTEN PARTIALLY ARE DISCARDED
+      final long fileLength = rndFile.length();
+      long position = 0;
+      while (position < fileLength) {
+        if (readRecord(position, fileLength) == null)
+          break;
+
+        lastRecord = new OLogSequenceNumber(index, position);
+        position = nextRecordPosition(position);
+      }
+
+      if (position < fileLength) {
+        OLogManager.instance().warn(this, "WAL segment %s is truncated to %d bytes because its end is broken.", file, position);
+        rndFile.setLength(position);
+      }
+
+      filledUpTo = position;
+      size = position;
+    }
+
+    private void write(byte[] content) throws IOException {
+      if (rndFile == null)
+        rndFile = new RandomAccessFile(file, "rw");
+
+      rndFile.seek(filledUpTo);
+      rndFile.write(content);
+      filledUpTo += content.length;
+
+      notSynced = true;
+    }
+
+    private void sync() throws IOException {
+      if (rndFile != null && notSynced) {
+        rndFile.getChannel().force(false);
+        notSynced = false;
+      }
+    }
+
+    private byte[] readRecord(long position) throws IOException {
+      return readRecord(position, filledUpTo);
+    }
+
+    private byte[] readRecord(long position, long limit) throws IOException {
+      if (rndFile == null || position + RECORD_HEADER_SIZE > limit)
+        return null;
+
+      final byte[] header = new byte[RECORD_HEADER_SIZE];
+      rndFile.seek(position);
+      rndFile.readFully(header);
+
+      final int contentLength = OIntegerSerializer.INSTANCE.deserializeNative(header, 0);
+      if (contentLength <= 0 || position + RECORD_HEADER_SIZE + contentLength > limit)
+        return null;
+
+      final byte[] content = new byte[contentLength];
+      rndFile.readFully(content);
+
+      final CRC32 crc32 = new CRC32();
+      crc32.update(content);
+      if (crc32.getValue() != OLongSerializer.INSTANCE.deserializeNative(header, OIntegerSerializer.INT_SIZE))
+        return null;
+
+      return content;
+    }
+
+    private long nextRecordPosition(long position) throws IOException {
+      final byte[] header = new byte[OIntegerSerializer.INT_SIZE];
+      rndFile.seek(position);
+      rndFile.readFully(header);
+
+      return position + RECORD_HEADER_SIZE + OIntegerSerializer.INSTANCE.deserializeNative(header, 0);
+    }
+
+    private void close() throws IOException {
+      if (rndFile != null) {
+        rndFile.close();
+        rndFile = null;
+      }
+    }
+
+    private void delete() throws IOException {
+      close();
+      if (file.exists() && !file.delete())
+        throw new OStorageException("Cannot delete WAL segment " + file);
+    }
+  }
+}
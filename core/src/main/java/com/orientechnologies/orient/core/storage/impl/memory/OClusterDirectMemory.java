@@ -0,0 +1,385 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * List based memory cluster that keeps the physical positions out of the Java heap. Every position is a fixed size slot in chunks
+ * allocated from {@link ODirectMemory}, removed slots are linked in a free list and recycled like in
+ * {@link OClusterMemoryArrayList}. {@link OPhysicalPosition} instances are created on demand, so changes to them must be written
+ * back through the update methods.
+ *
+ * @author agent
+ */
+public class OClusterDirectMemory extends OClusterMemory implements OCluster {
+  private static final byte          SLOT_LIVE               = 1;
+  private static final byte          SLOT_REMOVED            = 2;
+
+  private static final int           STATE_OFFSET            = 0;
+  private static final int           RECORD_TYPE_OFFSET      = STATE_OFFSET + OByteSerializer.BYTE_SIZE;
+  private static final int           DATA_SEGMENT_ID_OFFSET  = RECORD_TYPE_OFFSET + OByteSerializer.BYTE_SIZE;
+  // KEEPS THE NEXT REMOVED POSITION WHEN THE SLOT IS REMOVED
+  private static final int           DATA_SEGMENT_POS_OFFSET = DATA_SEGMENT_ID_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int           RECORD_SIZE_OFFSET      = DATA_SEGMENT_POS_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int           VERSION_OFFSET          = RECORD_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int           SLOT_SIZE               = VERSION_OFFSET + OVersionFactory.instance().getVersionSize();
+
+  private static final int           SLOTS_PER_CHUNK         = 4 * 1024;
+
+  private final ODirectMemory        directMemory;
+
+  private long[]                     chunks                  = new long[16];
+  private int                        positionsCount;
+  private int                        removedCount;
+  private int                        firstRemoved            = -1;
+  private long                       recordsSize;
+
+  public OClusterDirectMemory(final ODirectMemory iDirectMemory) {
+    directMemory = iDirectMemory;
+  }
+
+  protected void clear() {
+    final int chunksCount = (positionsCount + SLOTS_PER_CHUNK - 1) / SLOTS_PER_CHUNK;
+    for (int i = 0; i < chunksCount; ++i)
+      directMemory.free(chunks[i]);
+
+    positionsCount = 0;
+    removedCount = 0;
+    firstRemoved = -1;
+    recordsSize = 0;
+  }
+
+  public long getEntries() {
+    acquireSharedLock();
+    try {
+
+      return positionsCount - removedCount;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public boolean isHashBased() {
+    return false;
+  }
+
+  public long getRecordsSize() {
+    acquireSharedLock();
+    try {
+
+      return recordsSize;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OClusterPosition getFirstPosition() {
+    acquireSharedLock();
+    try {
+
+      return OClusterPositionFactory.INSTANCE.valueOf(positionsCount == 0 ? -1 : 0);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public OClusterPosition getLastPosition() {
+    acquireSharedLock();
+    try {
+
+      return OClusterPositionFactory.INSTANCE.valueOf(positionsCount - 1);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public boolean addPhysicalPosition(final OPhysicalPosition iPPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final int position;
+      if (firstRemoved > -1) {
+        position = firstRemoved;
+        final long slot = slotPointer(position);
+        firstRemoved = (int) directMemory.getLong(slot + DATA_SEGMENT_POS_OFFSET);
+        removedCount--;
+
+        // THE VERSION CONTINUES FROM THE ONE OF THE REMOVED RECORD
+        iPPosition.recordVersion = readVersion(slot);
+        if (iPPosition.recordVersion.isTombstone())
+          iPPosition.recordVersion.revive();
+
+        iPPosition.recordVersion.increment();
+      } else {
+        if (positionsCount % SLOTS_PER_CHUNK == 0)
+          allocateChunk(positionsCount / SLOTS_PER_CHUNK);
+
+        position = positionsCount++;
+        iPPosition.recordVersion.reset();
+      }
+
+      iPPosition.clusterPosition = OClusterPositionFactory.INSTANCE.valueOf(position);
+
+      final long slot = slotPointer(position);
+      directMemory.setByte(slot + STATE_OFFSET, SLOT_LIVE);
+      directMemory.setByte(slot + RECORD_TYPE_OFFSET, iPPosition.recordType);
+      directMemory.setInt(slot + DATA_SEGMENT_ID_OFFSET, iPPosition.dataSegmentId);
+      directMemory.setLong(slot + DATA_SEGMENT_POS_OFFSET, iPPosition.dataSegmentPos);
+      directMemory.setInt(slot + RECORD_SIZE_OFFSET, iPPosition.recordSize);
+      writeVersion(slot, iPPosition.recordVersion);
+
+      recordsSize += iPPosition.recordSize;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+
+    return true;
+  }
+
+  public void updateRecordType(final OClusterPosition iPosition, final byte iRecordType) throws IOException {
+    acquireExclusiveLock();
+    try {
+
+      directMemory.setByte(liveSlotPointer(iPosition) + RECORD_TYPE_OFFSET, iRecordType);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void updateVersion(final OClusterPosition iPosition, final ORecordVersion iVersion) throws IOException {
+    acquireExclusiveLock();
+    try {
+
+      writeVersion(liveSlotPointer(iPosition), iVersion);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  public void updateDataSegmentPosition(final OClusterPosition iPosition, final int iDataSegmentId, final long iDataPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final long slot = liveSlotPointer(iPosition);
+      directMemory.setInt(slot + DATA_SEGMENT_ID_OFFSET, iDataSegmentId);
+      directMemory.setLong(slot + DATA_SEGMENT_POS_OFFSET, iDataPosition);
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public void convertToTombstone(OClusterPosition iPosition) throws IOException {
+    throw new UnsupportedOperationException("convertToTombstone");
+  }
+
+  @Override
+  public long getTombstonesCount() {
+    return 0;
+  }
+
+  @Override
+  public boolean hasTombstonesSupport() {
+    return false;
+  }
+
+  public OPhysicalPosition getPhysicalPosition(final OPhysicalPosition iPPosition) {
+    acquireSharedLock();
+    try {
+
+      final long position = iPPosition.clusterPosition.longValue();
+      if (position < 0 || position >= positionsCount || !isLive((int) position))
+        return null;
+
+      return readPhysicalPosition((int) position);
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public void removePhysicalPosition(final OClusterPosition iPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final int position = iPosition.intValue();
+      final long slot = liveSlotPointer(iPosition);
+
+      recordsSize -= directMemory.getInt(slot + RECORD_SIZE_OFFSET);
+
+      // ADD AS HOLE: THE VERSION IS KEPT TO CONTINUE FROM IT WHEN THE POSITION IS RECYCLED
+      directMemory.setByte(slot + STATE_OFFSET, SLOT_REMOVED);
+      directMemory.setLong(slot + DATA_SEGMENT_POS_OFFSET, firstRemoved);
+      firstRemoved = position;
+      removedCount++;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public OPhysicalPosition[] higherPositions(final OPhysicalPosition position) {
+    return nextPosition(position.clusterPosition.longValue() + 1);
+  }
+
+  @Override
+  public OPhysicalPosition[] ceilingPositions(final OPhysicalPosition position) throws IOException {
+    return nextPosition(position.clusterPosition.longValue());
+  }
+
+  @Override
+  public OPhysicalPosition[] lowerPositions(final OPhysicalPosition position) {
+    return previousPosition(position.clusterPosition.longValue() - 1);
+  }
+
+  @Override
+  public OPhysicalPosition[] floorPositions(final OPhysicalPosition position) throws IOException {
+    return previousPosition(position.clusterPosition.longValue());
+  }
+
+  /**
+   * Returns the amount of direct memory allocated for the slots.
+   */
+  public long getAllocatedMemory() {
+    acquireSharedLock();
+    try {
+
+      return (long) (positionsCount + SLOTS_PER_CHUNK - 1) / SLOTS_PER_CHUNK * SLOTS_PER_CHUNK * SLOT_SIZE;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "OClusterDirectMemory [name=" + getName() + ", id=" + getId() + ", entries=" + positionsCount + ", removed="
+        + removedCount + "]";
+  }
+
+  private OPhysicalPosition[] nextPosition(long iFrom) {
+    acquireSharedLock();
+    try {
+
+      if (iFrom < 0)
+        iFrom = 0;
+
+      for (long position = iFrom; position < positionsCount; ++position)
+        if (isLive((int) position))
+          return new OPhysicalPosition[] { readPhysicalPosition((int) position) };
+
+      return new OPhysicalPosition[0];
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  private OPhysicalPosition[] previousPosition(long iFrom) {
+    acquireSharedLock();
+    try {
+
+      if (iFrom >= positionsCount)
+        iFrom = positionsCount - 1;
+
+      for (long position = iFrom; position >= 0; --position)
+        if (isLive((int) position))
+          return new OPhysicalPosition[] { readPhysicalPosition((int) position) };
+
+      return new OPhysicalPosition[0];
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  private OPhysicalPosition readPhysicalPosition(final int iPosition) {
+    final long slot = slotPointer(iPosition);
+
+    final OPhysicalPosition ppos = new OPhysicalPosition(OClusterPositionFactory.INSTANCE.valueOf(iPosition));
+    ppos.recordType = directMemory.getByte(slot + RECORD_TYPE_OFFSET);
+    ppos.dataSegmentId = directMemory.getInt(slot + DATA_SEGMENT_ID_OFFSET);
+    ppos.dataSegmentPos = directMemory.getLong(slot + DATA_SEGMENT_POS_OFFSET);
+    ppos.recordSize = directMemory.getInt(slot + RECORD_SIZE_OFFSET);
+    ppos.recordVersion = readVersion(slot);
+    return ppos;
+  }
+
+  private boolean isLive(final int iPosition) {
+    return directMemory.getByte(slotPointer(iPosition) + STATE_OFFSET) == SLOT_LIVE;
+  }
+
+  private long liveSlotPointer(final OClusterPosition iPosition) {
+    final long position = iPosition.longValue();
+    if (position < 0 || position >= positionsCount || !isLive((int) position))
+      throw new OStorageException("Position " + iPosition + " does not exist in cluster '" + getName() + "'");
+
+    return slotPointer((int) position);
+  }
+
+  private long slotPointer(final int iPosition) {
+    return chunks[iPosition / SLOTS_PER_CHUNK] + (long) (iPosition % SLOTS_PER_CHUNK) * SLOT_SIZE;
+  }
+
+  private void allocateChunk(final int iChunkIndex) {
+    if (iChunkIndex == chunks.length)
+      chunks = Arrays.copyOf(chunks, chunks.length << 1);
+
+    final long chunkPointer = directMemory.allocate(SLOTS_PER_CHUNK * SLOT_SIZE);
+    if (chunkPointer == ODirectMemory.NULL_POINTER)
+      throw new OStorageException("Cannot extend cluster '" + getName() + "': direct memory is exhausted");
+
+    chunks[iChunkIndex] = chunkPointer;
+  }
+
+  private ORecordVersion readVersion(final long iSlot) {
+    final byte[] serializedVersion = directMemory.get(iSlot + VERSION_OFFSET, SLOT_SIZE - VERSION_OFFSET);
+    final ORecordVersion version = OVersionFactory.instance().createVersion();
+    version.getSerializer().fastReadFrom(serializedVersion, 0, version);
+    return version;
+  }
+
+  private void writeVersion(final long iSlot, final ORecordVersion iVersion) {
+    final byte[] serializedVersion = new byte[SLOT_SIZE - VERSION_OFFSET];
+    iVersion.getSerializer().fastWriteTo(serializedVersion, 0, iVersion);
+    directMemory.set(iSlot + VERSION_OFFSET, serializedVersion, serializedVersion.length);
+  }
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.DISK_CACHE_PAGE_SIZE;
+import static com.orientechnologies.orient.core.config.OGlobalConfiguration.PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.serialization.types.OByteSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPage;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+import com.orientechnologies.orient.core.version.OVersionFactory;
+
+/**
+ * Data segment that keeps the record content out of the Java heap. Records are stored in {@link OLocalPage} pages allocated from
+ * {@link ODirectMemory}; pages with free space are kept in free lists grouped by the available space, the same way the paginated
+ * cluster does. Records bigger than a page are split in chunks linked by the pointer of the next chunk.<br/>
+ * The positions returned to the clusters are logical: an off-heap position map translates them to the page and the entry inside
+ * the page, so an updated record can be moved without touching the cluster. Only the page and the map chunk pointers are kept in
+ * the heap.
+ *
+ * @author agent
+ */
+public class ODataSegmentDirectMemory extends ODataSegmentMemory {
+  private static final int            PAGE_INDEX_OFFSET    = 16;
+  private static final int            RECORD_POSITION_MASK = 0xFFFF;
+  private static final int            ONE_KB               = 1024;
+  private static final int            CHUNK_OVERHEAD       = OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE;
+  private static final int            CHUNK_CONTENT_SIZE   = OLocalPage.MAX_RECORD_SIZE - CHUNK_OVERHEAD;
+  private static final int            MAP_CHUNK_ENTRIES    = 8 * 1024;
+  private static final ORecordVersion PAGE_VERSION         = OVersionFactory.instance().createVersion();
+
+  private final ODirectMemory         directMemory;
+
+  private final int[]                 freePageLists        = new int[DISK_CACHE_PAGE_SIZE.getValueAsInteger()
+                                                               - PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY.getValueAsInteger()];
+  private long[]                      pages                = new long[16];
+  private int                         pagesCount;
+
+  private long[]                      mapChunks            = new long[16];
+  private int                         positionsCount;
+  private int                         firstFreePosition    = -1;
+
+  private long                        size;
+
+  public ODataSegmentDirectMemory(final String iDataSegmentName, final int iId, final ODirectMemory iDirectMemory) {
+    super(iDataSegmentName, iId);
+    directMemory = iDirectMemory;
+    Arrays.fill(freePageLists, -1);
+  }
+
+  @Override
+  public void close() {
+    acquireExclusiveLock();
+    try {
+
+      for (int i = 0; i < pagesCount; ++i)
+        directMemory.free(pages[i]);
+      pagesCount = 0;
+
+      final int chunks = (positionsCount + MAP_CHUNK_ENTRIES - 1) / MAP_CHUNK_ENTRIES;
+      for (int i = 0; i < chunks; ++i)
+        directMemory.free(mapChunks[i]);
+      positionsCount = 0;
+      firstFreePosition = -1;
+
+      Arrays.fill(freePageLists, -1);
+      size = 0;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public void drop() throws IOException {
+    close();
+  }
+
+  @Override
+  public int count() {
+    acquireSharedLock();
+    try {
+
+      return positionsCount;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long getSize() {
+    acquireSharedLock();
+    try {
+
+      return size;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Returns the amount of direct memory allocated for the pages and the position map.
+   */
+  public long getAllocatedMemory() {
+    acquireSharedLock();
+    try {
+
+      final int chunks = (positionsCount + MAP_CHUNK_ENTRIES - 1) / MAP_CHUNK_ENTRIES;
+      return (long) pagesCount * OLocalPage.PAGE_SIZE + (long) chunks * MAP_CHUNK_ENTRIES * OLongSerializer.LONG_SIZE;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long createRecord(final byte[] iContent) {
+    acquireExclusiveLock();
+    try {
+
+      final long recordPointer = writeRecord(iContent);
+
+      final int position;
+      if (firstFreePosition > -1) {
+        // RECYCLE A FREED POSITION
+        position = firstFreePosition;
+        firstFreePosition = decodeFreePosition(getMapEntry(position));
+      } else {
+        if (positionsCount % MAP_CHUNK_ENTRIES == 0)
+          allocateMapChunk(positionsCount / MAP_CHUNK_ENTRIES);
+        position = positionsCount++;
+      }
+
+      setMapEntry(position, recordPointer);
+      size += iContent.length;
+
+      return position;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public void deleteRecord(final long iRecordPosition) {
+    acquireExclusiveLock();
+    try {
+
+      final long recordPointer = getRecordPointer(iRecordPosition);
+      if (recordPointer < 0)
+        return;
+
+      size -= removeRecord(recordPointer);
+
+      setMapEntry((int) iRecordPosition, encodeFreePosition(firstFreePosition));
+      firstFreePosition = (int) iRecordPosition;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public byte[] readRecord(final long iRecordPosition) {
+    acquireSharedLock();
+    try {
+
+      long recordPointer = getRecordPointer(iRecordPosition);
+      if (recordPointer < 0)
+        return null;
+
+      final List<byte[]> chunks = new ArrayList<byte[]>(1);
+      int contentSize = 0;
+      do {
+        final OLocalPage localPage = new OLocalPage(pages[(int) (recordPointer >>> PAGE_INDEX_OFFSET)], false);
+        final int recordPosition = (int) (recordPointer & RECORD_POSITION_MASK);
+
+        final long chunkPointer = localPage.getRecordPointer(recordPosition);
+        if (chunkPointer == ODirectMemory.NULL_POINTER)
+          throw new OStorageException("Content of record at position " + iRecordPosition + " in data segment '" + getName()
+              + "' was broken.");
+
+        final byte[] chunk = directMemory.get(chunkPointer, localPage.getRecordSize(recordPosition));
+        chunks.add(chunk);
+        contentSize += chunk.length - CHUNK_OVERHEAD;
+
+        recordPointer = OLongSerializer.INSTANCE.deserializeNative(chunk, chunk.length - OLongSerializer.LONG_SIZE);
+      } while (recordPointer >= 0);
+
+      final byte[] content = new byte[contentSize];
+      int contentPosition = 0;
+      for (byte[] chunk : chunks) {
+        System.arraycopy(chunk, 0, content, contentPosition, chunk.length - CHUNK_OVERHEAD);
+        contentPosition += chunk.length - CHUNK_OVERHEAD;
+      }
+      return content;
+
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public void updateRecord(final long iRecordPosition, final byte[] iContent) {
+    acquireExclusiveLock();
+    try {
+
+      final long recordPointer = getRecordPointer(iRecordPosition);
+      if (recordPointer < 0)
+        throw new OStorageException("Record at position " + iRecordPosition + " in data segment '" + getName()
+            + "' does not exist.");
+
+      // THE OLD CHUNKS ARE REMOVED FIRST TO LET THE NEW CONTENT REUSE THEIR SPACE
+      size -= removeRecord(recordPointer);
+      setMapEntry((int) iRecordPosition, writeRecord(iContent));
+      size += iContent.length;
+
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  private long getRecordPointer(final long iRecordPosition) {
+    if (iRecordPosition < 0 || iRecordPosition >= positionsCount)
+      return -1;
+    return getMapEntry((int) iRecordPosition);
+  }
+
+  /**
+   * Writes the content starting from the last chunk, so the pointer of the next chunk is already known when a chunk is appended.
+   *
+   * @return the pointer of the first chunk
+   */
+  private long writeRecord(final byte[] iContent) {
+    int from = iContent.length == 0 ? 0 : ((iContent.length - 1) / CHUNK_CONTENT_SIZE) * CHUNK_CONTENT_SIZE;
+    long nextPointer = -1;
+
+    while (true) {
+      final int to = Math.min(from + CHUNK_CONTENT_SIZE, iContent.length);
+
+      final byte[] chunk = new byte[to - from + CHUNK_OVERHEAD];
+      System.arraycopy(iContent, from, chunk, 0, to - from);
+      chunk[to - from] = (byte) (from == 0 ? 1 : 0);
+      OLongSerializer.INSTANCE.serializeNative(nextPointer, chunk, chunk.length - OLongSerializer.LONG_SIZE);
+
+      nextPointer = addChunk(chunk);
+
+      if (from == 0)
+        return nextPointer;
+      from -= CHUNK_CONTENT_SIZE;
+    }
+  }
+
+  /**
+   * Removes all the chunks of a record.
+   *
+   * @return the size of the removed content
+   */
+  private int removeRecord(long recordPointer) {
+    int removedSize = 0;
+    do {
+      final int pageIndex = (int) (recordPointer >>> PAGE_INDEX_OFFSET);
+      final int recordPosition = (int) (recordPointer & RECORD_POSITION_MASK);
+
+      final OLocalPage localPage = new OLocalPage(pages[pageIndex], false);
+      final int freePageIndex = calculateFreePageIndex(localPage);
+
+      final long chunkPointer = localPage.getRecordPointer(recordPosition);
+      if (chunkPointer == ODirectMemory.NULL_POINTER)
+        throw new OStorageException("Content of record in data segment '" + getName() + "' was broken.");
+
+      final int chunkSize = localPage.getRecordSize(recordPosition);
+      recordPointer = OLongSerializer.INSTANCE.deserializeFromDirectMemory(directMemory, chunkPointer + chunkSize
+          - OLongSerializer.LONG_SIZE);
+
+      localPage.deleteRecord(recordPosition);
+      removedSize += chunkSize - CHUNK_OVERHEAD;
+
+      updateFreePagesIndex(freePageIndex, pageIndex);
+    } while (recordPointer >= 0);
+
+    return removedSize;
+  }
+
+  private long addChunk(final byte[] iChunk) {
+    final int pageIndex = findFreePage(iChunk.length);
+
+    final OLocalPage localPage = new OLocalPage(pages[pageIndex], false);
+    final int freePageIndex = calculateFreePageIndex(localPage);
+
+    final int position = localPage.appendRecord(PAGE_VERSION, iChunk);
+    assert position >= 0;
+
+    updateFreePagesIndex(freePageIndex, pageIndex);
+
+    return ((long) pageIndex << PAGE_INDEX_OFFSET) | position;
+  }
+
+  private int findFreePage(final int iContentSize) {
+    int freePageIndex = iContentSize / ONE_KB - PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY.getValueAsInteger();
+    if (freePageIndex < 0)
+      freePageIndex = 0;
+
+    for (; freePageIndex < freePageLists.length; ++freePageIndex)
+      if (freePageLists[freePageIndex] > -1)
+        return freePageLists[freePageIndex];
+
+    return allocatePage();
+  }
+
+  private int allocatePage() {
+    if (pagesCount == pages.length)
+      pages = Arrays.copyOf(pages, pages.length << 1);
+
+    // OLocalPage EXPECTS ZERO FILLED MEMORY FOR THE FIELDS IT DOES NOT INITIALIZE
+    final long pagePointer = directMemory.allocate(new byte[OLocalPage.PAGE_SIZE]);
+    if (pagePointer == ODirectMemory.NULL_POINTER)
+      throw new OStorageException("Cannot allocate a new page for data segment '" + getName() + "': direct memory is exhausted");
+
+    new OLocalPage(pagePointer, true);
+
+    final int pageIndex = pagesCount++;
+    pages[pageIndex] = pagePointer;
+
+    // A NEW PAGE IS EMPTY: PUT IT IN THE LAST FREE LIST
+    updateFreePagesIndex(-1, pageIndex);
+    return pageIndex;
+  }
+
+  private void updateFreePagesIndex(final int iPrevFreePageIndex, final int iPageIndex) {
+    final OLocalPage localPage = new OLocalPage(pages[iPageIndex], false);
+
+    final int newFreePageIndex = calculateFreePageIndex(localPage);
+    if (iPrevFreePageIndex == newFreePageIndex)
+      return;
+
+    final long nextPageIndex = localPage.getNextPage();
+    final long prevPageIndex = localPage.getPrevPage();
+
+    if (prevPageIndex >= 0)
+      new OLocalPage(pages[(int) prevPageIndex], false).setNextPage(nextPageIndex);
+
+    if (nextPageIndex >= 0)
+      new OLocalPage(pages[(int) nextPageIndex], false).setPrevPage(prevPageIndex);
+
+    localPage.setNextPage(-1);
+    localPage.setPrevPage(-1);
+
+    if (iPrevFreePageIndex >= 0 && iPrevFreePageIndex < freePageLists.length && prevPageIndex < 0)
+      freePageLists[iPrevFreePageIndex] = (int) nextPageIndex;
+
+    if (newFreePageIndex >= 0) {
+      final int oldFreePage = freePageLists[newFreePageIndex];
+      if (oldFreePage >= 0) {
+        new OLocalPage(pages[oldFreePage], false).setPrevPage(iPageIndex);
+        localPage.setNextPage(oldFreePage);
+      }
+
+      freePageLists[newFreePageIndex] = iPageIndex;
+    }
+  }
+
+  private int calculateFreePageIndex(final OLocalPage iLocalPage) {
+    if (iLocalPage.isEmpty())
+      return freePageLists.length - 1;
+
+    return (iLocalPage.getMaxRecordSize() - (ONE_KB - 1)) / ONE_KB - PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY.getValueAsInteger();
+  }
+
+  private void allocateMapChunk(final int iChunkIndex) {
+    if (iChunkIndex == mapChunks.length)
+      mapChunks = Arrays.copyOf(mapChunks, mapChunks.length << 1);
+
+    final long chunkPointer = directMemory.allocate(MAP_CHUNK_ENTRIES * OLongSerializer.LONG_SIZE);
+    if (chunkPointer == ODirectMemory.NULL_POINTER)
+      throw new OStorageException("Cannot extend the position map of data segment '" + getName()
+          + "': direct memory is exhausted");
+
+    mapChunks[iChunkIndex] = chunkPointer;
+  }
+
+  private long getMapEntry(final int iPosition) {
+    return directMemory.getLong(mapChunks[iPosition / MAP_CHUNK_ENTRIES] + (iPosition % MAP_CHUNK_ENTRIES)
+        * OLongSerializer.LONG_SIZE);
+  }
+
+  private void setMapEntry(final int iPosition, final long iValue) {
+    directMemory.setLong(mapChunks[iPosition / MAP_CHUNK_ENTRIES] + (iPosition % MAP_CHUNK_ENTRIES) * OLongSerializer.LONG_SIZE,
+        iValue);
+  }
+
+  /**
+   * Freed positions are negative entries of the map that link the next freed position: -1 ends the list.
+   */
+  private static long encodeFreePosition(final int iNextFreePosition) {
+    return -2L - iNextFreePosition;
+  }
+
+  private static int decodeFreePosition(final long iEntry) {
+    return (int) (-2L - iEntry);
+  }
+}
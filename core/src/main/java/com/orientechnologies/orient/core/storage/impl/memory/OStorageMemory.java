@@ -27,6 +27,8 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 
 import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.Orient;
@@ -62,6 +64,7 @@ import com.orientechnologies.orient.core.version.OVersionFactory;
  * <ul>
  * <li>The name is "Memory"</li>
  * <li>Has a unique Data Segment</li>
+ * <li>Keeps records and clusters out of the Java heap when {@link OGlobalConfiguration#STORAGE_MEMORY_DIRECT} is enabled</li>
  * </ul>
  * 
  * @author Luca Garulli
@@ -73,10 +76,19 @@ public class OStorageMemory extends OStorageEmbedded {
   private final Map<String, OClusterMemory> clusterMap        = new HashMap<String, OClusterMemory>();
   private int                               defaultClusterId  = 0;
   private long                              positionGenerator = 0;
+  private final ODirectMemory               directMemory;
 
   public OStorageMemory(final String iURL) {
     super(iURL, iURL, "rw");
     configuration = new OStorageConfiguration(this);
+
+    if (OGlobalConfiguration.STORAGE_MEMORY_DIRECT.getValueAsBoolean()) {
+      directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
+      if (directMemory == null)
+        OLogManager.instance().warn(this, "Direct memory is not available, memory storage '%s' will keep the records in the heap",
+            iURL);
+    } else
+      directMemory = null;
   }
 
   public void create(final Map<String, Object> iOptions) {
@@ -191,8 +203,11 @@ public class OStorageMemory extends OStorageEmbedded {
         }
       }
 
-      final OClusterMemory cluster = (OClusterMemory) Orient.instance().getClusterFactory()
-          .createCluster(OClusterMemory.TYPE, forceListBased);
+      final OClusterMemory cluster;
+      if (directMemory != null && (forceListBased || !isHashClustersAreUsed()))
+        cluster = new OClusterDirectMemory(directMemory);
+      else
+        cluster = (OClusterMemory) Orient.instance().getClusterFactory().createCluster(OClusterMemory.TYPE, forceListBased);
       cluster.configure(this, clusterId, iClusterName, iLocation, getDataSegmentIdByName(iDataSegmentName), iParameters);
 
       if (clusterId == clusters.size())
@@ -272,7 +287,8 @@ public class OStorageMemory extends OStorageEmbedded {
       if (pos == -1)
         pos = dataSegments.size();
 
-      final ODataSegmentMemory dataSegment = new ODataSegmentMemory(iDataSegmentName, pos);
+      final ODataSegmentMemory dataSegment = directMemory != null ? new ODataSegmentDirectMemory(iDataSegmentName, pos,
+          directMemory) : new ODataSegmentMemory(iDataSegmentName, pos);
 
       if (pos == dataSegments.size())
         dataSegments.add(dataSegment);
@@ -415,6 +431,9 @@ public class OStorageMemory extends OStorageEmbedded {
             ppos.recordVersion.increment();
           } else
             ppos.recordVersion.decrement();
+
+          // CLUSTERS THAT DO NOT KEEP THE POSITIONS IN THE HEAP RETURN A COPY
+          cluster.updateVersion(ppos.clusterPosition, ppos.recordVersion);
         }
 
         final ODataSegmentMemory dataSegment = getDataSegmentById(ppos.dataSegmentId);
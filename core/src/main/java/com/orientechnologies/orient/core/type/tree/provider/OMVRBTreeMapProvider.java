@@ -63,6 +63,10 @@ public class OMVRBTreeMapProvider<K, V> extends OMVRBTreeProviderAbstract<K, V>
     valueSerializer = iValueSerializer;
   }
 
+  public OBinarySerializer<K> getKeySerializer() {
+    return keySerializer;
+  }
+
   public OMVRBTreeEntryDataProvider<K, V> getEntry(final ORID iRid) {
     return new OMVRBTreeMapEntryProvider<K, V>(this, iRid);
   }
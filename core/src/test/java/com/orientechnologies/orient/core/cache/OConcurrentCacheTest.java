@@ -0,0 +1,138 @@
+package com.orientechnologies.orient.core.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OConcurrentCacheTest {
+
+  public void putGetRemove() {
+    final OConcurrentCache cache = new OConcurrentCache(null, 5);
+    cache.enable();
+
+    final ODocument doc = new ODocument(rid(1));
+    assertNull(cache.put(doc));
+    assertEquals(cache.get(rid(1)), doc);
+    assertEquals(cache.size(), 1);
+    assertEquals(cache.keys().iterator().next(), rid(1));
+
+    assertEquals(cache.remove(rid(1)), doc);
+    assertNull(cache.get(rid(1)));
+    assertEquals(cache.size(), 0);
+
+    assertEquals(cache.getHits(), 1);
+    assertEquals(cache.getMisses(), 1);
+  }
+
+  public void keepsTheLimit() {
+    final OConcurrentCache cache = new OConcurrentCache(null, 5);
+    cache.enable();
+
+    for (int i = 0; i < 100; ++i)
+      cache.put(new ODocument(rid(i)));
+
+    assertEquals(cache.size(), 5);
+    assertEquals(cache.getEvictions(), 95);
+  }
+
+  public void keepsTheMemoryLimit() {
+    final OConcurrentCache cache = new OConcurrentCache(null, -1, 100 * 128);
+    cache.enable();
+
+    for (int i = 0; i < 1000; ++i)
+      cache.put(new ODocument(rid(i)));
+
+    assertTrue(cache.size() <= 100, "Size: " + cache.size());
+    assertTrue(cache.size() >= 90, "Size: " + cache.size());
+  }
+
+  public void hotRecordsSurviveAScan() {
+    final OConcurrentCache cache = new OConcurrentCache(null, 1000);
+    cache.enable();
+
+    for (int i = 0; i < 500; ++i)
+      cache.put(new ODocument(rid(i)));
+    for (int round = 0; round < 5; ++round)
+      for (int i = 0; i < 500; ++i)
+        assertNotNull(cache.get(rid(i)));
+
+    // SCAN MANY RECORDS READ ONLY ONCE
+    for (int i = 10000; i < 50000; ++i)
+      cache.put(new ODocument(rid(i)));
+
+    int hot = 0;
+    for (int i = 0; i < 500; ++i)
+      if (cache.get(rid(i)) != null)
+        hot++;
+    assertTrue(hot > 450, "Hot records left: " + hot);
+  }
+
+  public void sketchKeepsTheFrequenciesOnResize() {
+    final OFrequencySketch sketch = new OFrequencySketch(64);
+    for (int i = 0; i < 8; ++i)
+      sketch.increment(ORecordId.spreadHash(rid(1)));
+    assertEquals(sketch.frequency(ORecordId.spreadHash(rid(1))), 8);
+
+    // HALVED AS BY AN AGING, BOTH GROWING AND SHRINKING
+    sketch.resize(1024);
+    assertEquals(sketch.width(), 1024);
+    assertEquals(sketch.frequency(ORecordId.spreadHash(rid(1))), 4);
+
+    sketch.resize(64);
+    assertEquals(sketch.width(), 64);
+    assertEquals(sketch.frequency(ORecordId.spreadHash(rid(1))), 2);
+  }
+
+  public void concurrentAccess() throws Exception {
+    final OConcurrentCache cache = new OConcurrentCache(null, 2000);
+    cache.enable();
+
+    final List<Throwable> errors = new ArrayList<Throwable>();
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; ++t) {
+      final int offset = t * 1000;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 50000; ++i) {
+              final ORecordId rid = rid(offset + i % 1000);
+              if (cache.get(rid) == null)
+                cache.put(new ODocument(rid));
+              if (i % 7 == 0)
+                cache.remove(rid);
+            }
+          } catch (Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      });
+    }
+
+    for (Thread t : threads)
+      t.start();
+    for (Thread t : threads)
+      t.join();
+
+    assertTrue(errors.isEmpty(), errors.toString());
+    assertTrue(cache.size() <= 2000, "Size: " + cache.size());
+    assertEquals(cache.keys().size(), cache.size());
+  }
+
+  private static ORecordId rid(final int iPosition) {
+    return new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(iPosition));
+  }
+}
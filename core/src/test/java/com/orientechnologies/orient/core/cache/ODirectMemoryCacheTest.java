@@ -0,0 +1,123 @@
+package com.orientechnologies.orient.core.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+
+@Test
+public class ODirectMemoryCacheTest {
+
+  public void putGetRemove() {
+    final ODirectMemoryCache cache = new ODirectMemoryCache(null, -1);
+    cache.enable();
+    try {
+      final ORecordBytes record = record(1, "content");
+      record.getRecordVersion().setCounter(3);
+      cache.put(record);
+
+      final ORecordInternal<?> found = cache.get(rid(1));
+      assertNotNull(found);
+      assertNotSame(found, record);
+      assertTrue(found instanceof ORecordBytes);
+      assertEquals(found.getIdentity(), rid(1));
+      assertEquals(found.getRecordVersion().getCounter(), 3);
+      assertEquals(new String(found.toStream()), "content");
+      assertEquals(cache.size(), 1);
+      assertEquals(cache.keys().iterator().next(), rid(1));
+
+      // REPLACE
+      cache.put(record(1, "changed"));
+      assertEquals(cache.size(), 1);
+      assertEquals(new String(cache.get(rid(1)).toStream()), "changed");
+
+      assertEquals(new String(cache.remove(rid(1)).toStream()), "changed");
+      assertNull(cache.get(rid(1)));
+      assertEquals(cache.size(), 0);
+      assertEquals(cache.getUsedMemory(), 0);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  public void keepsTheLimit() {
+    final ODirectMemoryCache cache = new ODirectMemoryCache(null, 5);
+    cache.enable();
+    try {
+      for (int i = 0; i < 100; ++i)
+        cache.put(record(i, "record" + i));
+
+      assertEquals(cache.size(), 5);
+      assertEquals(cache.getEvictions(), 95);
+
+      // THE LAST INSERTED ARE KEPT
+      for (int i = 95; i < 100; ++i)
+        assertEquals(new String(cache.get(rid(i)).toStream()), "record" + i);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  public void keepsTheMemoryLimit() {
+    final ODirectMemoryCache cache = new ODirectMemoryCache(null, -1, 64 * 1024);
+    cache.enable();
+    try {
+      final String content = new String(new char[1000]).replace('\0', 'x');
+      for (int i = 0; i < 1000; ++i)
+        cache.put(record(i, content));
+
+      assertTrue(cache.getUsedMemory() <= 64 * 1024, "Used: " + cache.getUsedMemory());
+      assertTrue(cache.size() >= 50, "Size: " + cache.size());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  public void growsAndShrinksTheIndex() {
+    final ODirectMemoryCache cache = new ODirectMemoryCache(null, -1);
+    cache.enable();
+    try {
+      for (int i = 0; i < 20000; ++i)
+        cache.put(record(i, "r" + i));
+      assertEquals(cache.size(), 20000);
+
+      for (int i = 0; i < 20000; i += 2)
+        assertNotNull(cache.remove(rid(i)));
+      assertEquals(cache.size(), 10000);
+
+      for (int i = 0; i < 20000; ++i)
+        if (i % 2 == 0)
+          assertNull(cache.get(rid(i)));
+        else
+          assertEquals(new String(cache.get(rid(i)).toStream()), "r" + i);
+
+      final Set<ORID> keys = new HashSet<ORID>(cache.keys());
+      assertEquals(keys.size(), 10000);
+      assertTrue(keys.contains(rid(1)));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  private static ORecordBytes record(final int iPosition, final String iContent) {
+    final ORecordBytes record = new ORecordBytes(iContent.getBytes());
+    record.setIdentity(rid(iPosition));
+    return record;
+  }
+
+  private static ORecordId rid(final int iPosition) {
+    return new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(iPosition));
+  }
+}
@@ -0,0 +1,96 @@
+package com.orientechnologies.orient.core.command.script;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.function.OFunction;
+
+@Test
+public class ScriptCacheTest {
+  private ODatabaseDocumentTx db;
+  private OScriptCache        cache;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:scriptCacheTest");
+    db.create();
+    cache = OScriptCache.getInstance(db.getStorage());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testScriptCompiledOnce() {
+    cache.clear();
+    final long misses = cache.getMisses();
+    final long hits = cache.getHits();
+
+    for (int i = 0; i < 3; ++i) {
+      final Map<Object, Object> args = new HashMap<Object, Object>();
+      args.put("a", i);
+      final Object result = new OCommandExecutorScript().parse(new OCommandScript("javascript", "a + 2")).execute(args);
+      Assert.assertEquals(((Number) result).intValue(), i + 2);
+    }
+
+    Assert.assertEquals(cache.getMisses(), misses + 1);
+    Assert.assertEquals(cache.getHits(), hits + 2);
+    Assert.assertEquals(cache.getSize(), 1);
+  }
+
+  public void testFunctionInvalidatedOnChange() {
+    final OFunction f = db.getMetadata().getFunctionLibrary().createFunction("scriptCacheSum");
+    f.setLanguage("javascript");
+    f.setParameters(Arrays.asList("a", "b"));
+    f.setCode("return a + b;");
+
+    Assert.assertEquals(((Number) f.execute(3, 4)).intValue(), 7);
+    final long hits = cache.getHits();
+    Assert.assertEquals(((Number) f.execute(10, 20)).intValue(), 30);
+    Assert.assertEquals(cache.getHits(), hits + 1);
+
+    db.getMetadata().getFunctionLibrary().getFunction("scriptCacheSum").setCode("return a * b;");
+    Assert.assertEquals(cache.getSize(), 0);
+    Assert.assertEquals(((Number) db.getMetadata().getFunctionLibrary().getFunction("scriptCacheSum").execute(3, 4)).intValue(),
+        12);
+  }
+
+  public void testFunctionStringArgument() {
+    final OFunction f = db.getMetadata().getFunctionLibrary().createFunction("scriptCacheString");
+    f.setLanguage("javascript");
+    f.setParameters(Arrays.asList("a"));
+    f.setCode("return typeof a + ':' + (a === 'abc') + ':' + a.length;");
+
+    Assert.assertEquals(f.execute("abc"), "string:true:3");
+
+    // THE SECOND EXECUTION USES THE COMPILED SCRIPT
+    final long hits = cache.getHits();
+    Assert.assertEquals(f.execute("abc"), "string:true:3");
+    Assert.assertEquals(f.execute("abcdef"), "string:false:6");
+    Assert.assertEquals(cache.getHits(), hits + 2);
+  }
+
+  public void testFunctionStringArgumentWithoutCache() {
+    final OFunction f = db.getMetadata().getFunctionLibrary().createFunction("scriptCacheNoCacheString");
+    f.setLanguage("javascript");
+    f.setParameters(Arrays.asList("a"));
+    f.setCode("return typeof a + ':' + (a === 'abc') + ':' + a.length;");
+
+    final int size = OGlobalConfiguration.SCRIPT_CACHE_SIZE.getValueAsInteger();
+    OGlobalConfiguration.SCRIPT_CACHE_SIZE.setValue(0);
+    try {
+      Assert.assertEquals(f.execute("abc"), "string:true:3");
+    } finally {
+      OGlobalConfiguration.SCRIPT_CACHE_SIZE.setValue(size);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OClassIndexManager;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class DatabaseBulkImportTest implements OCommandOutputListener {
+  private static final int    COUNT = 3000;
+  private ODatabaseDocumentTx source;
+  private ODatabaseDocumentTx target;
+  private File                exportFile;
+  private ORID                deleted;
+  private ORID                last;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    source = new ODatabaseDocumentTx("memory:bulkImportSource");
+    source.create();
+
+    final OClass cls = source.getMetadata().getSchema().createClass("Imported");
+    cls.createProperty("id", OType.INTEGER);
+    cls.createIndex("Imported.id", OClass.INDEX_TYPE.UNIQUE, "id");
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("Imported").field("id", i).field("name", "name" + i);
+      doc.save();
+      if (i == COUNT / 2)
+        deleted = doc.getIdentity().copy();
+      last = doc.getIdentity().copy();
+    }
+    // LEAVE A HOLE IN THE CLUSTER
+    source.load(deleted).delete();
+
+    final File tempFile = File.createTempFile("bulkImport", ".json");
+    tempFile.delete();
+    new ODatabaseExport(source, tempFile.getAbsolutePath(), this).exportDatabase().close();
+    exportFile = new File(tempFile.getAbsolutePath() + ".gz");
+
+    target = new ODatabaseDocumentTx("memory:bulkImportTarget");
+    target.create();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(source);
+    source.drop();
+    ODatabaseRecordThreadLocal.INSTANCE.set(target);
+    target.drop();
+    exportFile.delete();
+  }
+
+  public void testBulkImport() throws IOException {
+    ODatabaseRecordThreadLocal.INSTANCE.set(target);
+    new ODatabaseImport(target, exportFile.getAbsolutePath(), this).setOptions("-bulk=true -bulkThreads=3").importDatabase();
+    checkImported(target);
+
+    // THE INDEX MAINTENANCE IS BACK
+    boolean indexHook = false;
+    for (ORecordHook hook : target.getHooks())
+      indexHook |= hook instanceof OClassIndexManager;
+    Assert.assertTrue(indexHook);
+
+    new ODocument("Imported").field("id", COUNT).save();
+    Assert.assertEquals(target.getMetadata().getIndexManager().getIndex("Imported.id").getSize(), COUNT);
+  }
+
+  public void testSameAsSequentialImport() throws IOException {
+    final ODatabaseDocumentTx sequential = new ODatabaseDocumentTx("memory:bulkImportSequential");
+    sequential.create();
+    try {
+      new ODatabaseImport(sequential, exportFile.getAbsolutePath(), this).importDatabase();
+      checkImported(sequential);
+    } finally {
+      sequential.drop();
+    }
+  }
+
+  public void testFailedImportRestoresTheHooks() throws IOException {
+    // THE CONTENT ENDS IN THE MIDDLE OF THE RECORDS
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    final InputStream in = new GZIPInputStream(new FileInputStream(exportFile));
+    try {
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) > -1)
+        content.write(buffer, 0, read);
+    } finally {
+      in.close();
+    }
+    final String text = content.toString();
+    final int records = text.indexOf("\"records\"");
+    final byte[] truncated = text.substring(0, records + (text.length() - records) / 2).getBytes();
+
+    final ODatabaseDocumentTx failed = new ODatabaseDocumentTx("memory:bulkImportFailed");
+    failed.create();
+    try {
+      try {
+        new ODatabaseImport(failed, new ByteArrayInputStream(truncated), this).setOptions("-bulk=true -bulkThreads=3")
+            .importDatabase();
+        Assert.fail();
+      } catch (ODatabaseExportException e) {
+      }
+
+      boolean indexHook = false;
+      for (ORecordHook hook : failed.getHooks())
+        indexHook |= hook instanceof OClassIndexManager;
+      Assert.assertTrue(indexHook);
+
+      for (Thread t : getAllThreads())
+        Assert.assertFalse(t.getName().equals("OrientDB Import Writer"), "Writer still running");
+    } finally {
+      ODatabaseRecordThreadLocal.INSTANCE.set(failed);
+      failed.drop();
+    }
+  }
+
+  private static Thread[] getAllThreads() {
+    final Thread[] threads = new Thread[Thread.activeCount() * 2];
+    final int count = Thread.enumerate(threads);
+    final Thread[] result = new Thread[count];
+    System.arraycopy(threads, 0, result, 0, count);
+    return result;
+  }
+
+  private void checkImported(final ODatabaseDocumentTx target) {
+    Assert.assertEquals(target.countClass("Imported"), COUNT - 1);
+    Assert.assertNull(target.load(deleted));
+
+    final ODocument lastDoc = target.load(last);
+    Assert.assertEquals(lastDoc.field("id"), COUNT - 1);
+    Assert.assertEquals(lastDoc.field("name"), "name" + (COUNT - 1));
+
+    final OIndex<?> index = target.getMetadata().getIndexManager().getIndex("Imported.id");
+    Assert.assertEquals(index.getSize(), COUNT - 1);
+    Assert.assertEquals(((OIdentifiable) index.get(COUNT - 1)).getIdentity(), last);
+  }
+
+  @Test(enabled = false)
+  public void onMessage(final String iText) {
+  }
+}
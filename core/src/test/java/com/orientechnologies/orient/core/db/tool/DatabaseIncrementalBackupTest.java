@@ -0,0 +1,137 @@
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class DatabaseIncrementalBackupTest implements OCommandOutputListener {
+  private static final int    COUNT = 2000;
+  private String              path;
+  private File                backupDirectory;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    path = buildDirectory + "/DatabaseIncrementalBackupTest";
+    backupDirectory = new File(path + "Backups");
+    deleteDirectory(backupDirectory);
+    backupDirectory.mkdirs();
+
+    db = new ODatabaseDocumentTx("local:" + path);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+      db = new ODatabaseDocumentTx("local:" + path);
+    }
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Item");
+    cls.createProperty("id", OType.INTEGER);
+    cls.createIndex("Item.id", OClass.INDEX_TYPE.UNIQUE, "id");
+
+    for (int i = 0; i < COUNT; ++i)
+      new ODocument("Item").field("id", i).field("name", "name" + i).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    db.drop();
+    deleteDirectory(backupDirectory);
+  }
+
+  public void testIncrementalBackupAndRestore() {
+    final File full = new File(backupDirectory, "0" + ODatabaseBackup.EXTENSION);
+    Assert.assertTrue(new ODatabaseBackup(db, full.getPath(), this).backup());
+
+    // UPDATE, DELETE AND CREATE SOME RECORDS
+    findById(db, 10).delete();
+    findById(db, 20).field("name", "changed").save();
+    for (int i = COUNT; i < COUNT + 100; ++i)
+      new ODocument("Item").field("id", i).field("name", "name" + i).save();
+
+    final File first = new File(backupDirectory, "1" + ODatabaseBackup.EXTENSION);
+    Assert.assertFalse(new ODatabaseBackup(db, first.getPath(), this).backup());
+    Assert.assertTrue(first.length() < full.length() / 2);
+
+    findById(db, 30).field("name", "changed again").save();
+    final File second = new File(backupDirectory, "2" + ODatabaseBackup.EXTENSION);
+    Assert.assertFalse(new ODatabaseBackup(db, second.getPath(), this).backup());
+
+    // THE CHANGES AFTER THE LAST BACKUP ARE NOT RESTORED
+    findById(db, 40).field("name", "not in backup").save();
+
+    final String restoredPath = path + "Restored";
+    deleteDirectory(new File(restoredPath));
+    new ODatabaseRestore(restoredPath, backupDirectory.getPath(), this).restore();
+
+    final ODatabaseDocumentTx restored = new ODatabaseDocumentTx("local:" + restoredPath).open("admin", "admin");
+    try {
+      Assert.assertEquals(restored.countClass("Item"), COUNT + 99);
+      Assert.assertTrue(restored.query(new OSQLSynchQuery<ODocument>("select from Item where id = 10")).isEmpty());
+      Assert.assertEquals(findById(restored, 20).field("name"), "changed");
+      Assert.assertEquals(findById(restored, 30).field("name"), "changed again");
+      Assert.assertEquals(findById(restored, 40).field("name"), "name40");
+      Assert.assertEquals(findById(restored, COUNT + 99).field("name"), "name" + (COUNT + 99));
+      Assert.assertEquals(restored.getMetadata().getIndexManager().getIndex("Item.id").getSize(), COUNT + 99);
+    } finally {
+      restored.drop();
+    }
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+  }
+
+  public void testRestoreFullBackupOnly() {
+    final File full = new File(backupDirectory, "full" + ODatabaseBackup.EXTENSION);
+    Assert.assertTrue(new ODatabaseBackup(db, full.getPath(), this).setIncremental(false).backup());
+    final long count = db.countClass("Item");
+
+    new ODocument("Item").field("id", -1).save();
+
+    final String restoredPath = path + "RestoredFull";
+    deleteDirectory(new File(restoredPath));
+    new ODatabaseRestore(restoredPath, Arrays.asList(full), this).restore();
+
+    final ODatabaseDocumentTx restored = new ODatabaseDocumentTx("local:" + restoredPath).open("admin", "admin");
+    try {
+      Assert.assertEquals(restored.countClass("Item"), count);
+    } finally {
+      restored.drop();
+    }
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+  }
+
+  private static ODocument findById(final ODatabaseDocumentTx iDatabase, final int iId) {
+    final List<ODocument> result = iDatabase.query(new OSQLSynchQuery<ODocument>("select from Item where id = " + iId));
+    return result.get(0);
+  }
+
+  private static void deleteDirectory(final File iDirectory) {
+    final File[] files = iDirectory.listFiles();
+    if (files != null)
+      for (File f : files)
+        f.delete();
+    iDirectory.delete();
+  }
+
+  @Test(enabled = false)
+  public void onMessage(final String iText) {
+  }
+}
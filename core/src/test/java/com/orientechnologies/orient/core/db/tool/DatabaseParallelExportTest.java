@@ -0,0 +1,159 @@
+package com.orientechnologies.orient.core.db.tool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
+
+@Test
+public class DatabaseParallelExportTest implements OCommandOutputListener {
+  // MORE RECORDS THAN A RANGE OF THE PARALLEL EXPORT
+  private static final int    COUNT = 45000;
+  private ODatabaseDocumentTx source;
+  private ORID                deleted;
+  private ORID                last;
+
+  @BeforeClass
+  public void beforeClass() {
+    source = new ODatabaseDocumentTx("memory:parallelExportSource");
+    source.create();
+
+    final OClass cls = source.getMetadata().getSchema().createClass("Exported");
+    cls.addClusterId(source.addCluster("exported2", CLUSTER_TYPE.PHYSICAL));
+    cls.createProperty("id", OType.INTEGER);
+    source.getMetadata().getSchema().createClass("Excluded");
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("Exported").field("id", i).field("name", "name" + i);
+      if (i % 10 == 0)
+        doc.save("exported2");
+      else
+        doc.save();
+      if (i == COUNT / 2)
+        deleted = doc.getIdentity().copy();
+      last = doc.getIdentity().copy();
+
+      if (i % 1000 == 0)
+        new ODocument("Excluded").field("id", i).save();
+    }
+    // LEAVE A HOLE IN THE CLUSTER
+    source.load(deleted).delete();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(source);
+    source.drop();
+  }
+
+  public void testSameAsSequentialExport() throws IOException {
+    ODatabaseRecordThreadLocal.INSTANCE.set(source);
+
+    final ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+    new ODatabaseExport(source, sequential, this).setOptions("-excludeClass=Excluded").exportDatabase().close();
+
+    final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+    new ODatabaseExport(source, parallel, this).setOptions("-excludeClass=Excluded -parallel=true -parallelThreads=3")
+        .exportDatabase().close();
+
+    Assert.assertEquals(parallel.toString(), sequential.toString());
+  }
+
+  public void testExportAndImport() throws IOException {
+    ODatabaseRecordThreadLocal.INSTANCE.set(source);
+
+    final File exportFile = exportToFile(source, "-parallel=true -parallelThreads=3");
+    final File sequentialFile = exportToFile(source, "");
+    try {
+      // EVERY RANGE IS A GZIP MEMBER OF ITS OWN, WITH THE SAME RECORDS OF THE SEQUENTIAL EXPORT
+      Assert.assertEquals(getRecords(readGZIP(exportFile)), getRecords(readGZIP(sequentialFile)));
+
+      final ODatabaseDocumentTx target = new ODatabaseDocumentTx("memory:parallelExportTarget");
+      target.create();
+      try {
+        new ODatabaseImport(target, exportFile.getAbsolutePath(), this).importDatabase();
+
+        Assert.assertEquals(target.countClass("Exported"), COUNT - 1);
+        Assert.assertEquals(target.countClass("Excluded"), COUNT / 1000);
+        Assert.assertNull(target.load(deleted));
+
+        final ODocument lastDoc = target.load(last);
+        Assert.assertEquals(lastDoc.field("id"), COUNT - 1);
+        Assert.assertEquals(lastDoc.field("name"), "name" + (COUNT - 1));
+      } finally {
+        target.drop();
+      }
+    } finally {
+      sequentialFile.delete();
+      exportFile.delete();
+    }
+  }
+
+  public void testLocalDatabaseIsReleased() throws IOException {
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    final ODatabaseDocumentTx local = new ODatabaseDocumentTx("local:" + buildDirectory + "/parallelExportLocal");
+    if (local.exists())
+      local.open("admin", "admin").drop();
+    local.create();
+    try {
+      local.getMetadata().getSchema().createClass("Exported");
+      for (int i = 0; i < 100; ++i)
+        new ODocument("Exported").field("id", i).save();
+
+      final File exportFile = exportToFile(local, "-parallel=true -parallelThreads=2");
+      exportFile.delete();
+
+      // THE DATABASE FROZEN DURING THE EXPORT ACCEPTS WRITES AGAIN
+      ODatabaseRecordThreadLocal.INSTANCE.set(local);
+      new ODocument("Exported").field("id", 100).save();
+      Assert.assertEquals(local.countClusterElements("Exported"), 101);
+    } finally {
+      ODatabaseRecordThreadLocal.INSTANCE.set(local);
+      local.drop();
+    }
+  }
+
+  private File exportToFile(final ODatabaseDocumentTx iDatabase, final String iOptions) throws IOException {
+    final File tempFile = File.createTempFile("parallelExport", ".json");
+    tempFile.delete();
+    new ODatabaseExport(iDatabase, tempFile.getAbsolutePath(), this).setOptions(iOptions).exportDatabase().close();
+    return new File(tempFile.getAbsolutePath() + ".gz");
+  }
+
+  private static String getRecords(final String iExport) {
+    return iExport.substring(iExport.indexOf("\"records\":"), iExport.indexOf("\"indexes\":"));
+  }
+
+  private static String readGZIP(final File iFile) throws IOException {
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    final InputStream in = new GZIPInputStream(new FileInputStream(iFile));
+    try {
+      final byte[] buffer = new byte[65536];
+      for (int read; (read = in.read(buffer)) > -1;)
+        content.write(buffer, 0, read);
+    } finally {
+      in.close();
+    }
+    return content.toString();
+  }
+
+  @Test(enabled = false)
+  public void onMessage(final String iText) {
+  }
+}
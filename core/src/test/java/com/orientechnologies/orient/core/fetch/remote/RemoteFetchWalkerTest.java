@@ -0,0 +1,128 @@
+package com.orientechnologies.orient.core.fetch.remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.fetch.OFetchHelper;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class RemoteFetchWalkerTest {
+  private static final int    CHAIN = 5000;
+  private ODatabaseDocumentTx db;
+  private ODocument           root;
+  private ODocument           shared;
+  private ODocument           first;
+
+  private static class OCollector extends ORemoteFetchWalker {
+    private final List<ORID> sent = new ArrayList<ORID>();
+    private long             bytes;
+
+    private OCollector(final String iFetchPlan, final int iMaxRecords, final long iMaxBytes) {
+      super(OFetchHelper.buildFetchPlan(iFetchPlan), iMaxRecords, iMaxBytes);
+    }
+
+    @Override
+    protected void sendRecord(final ODocument iRecord, final byte[] iStream) throws IOException {
+      sent.add(iRecord.getIdentity());
+      bytes += iStream.length;
+    }
+  }
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:remoteFetchWalkerTest");
+    db.create();
+
+    shared = new ODocument("Item").field("name", "shared").save();
+
+    // A CHAIN DEEPER THAN THE STACK OF A RECURSIVE WALK WOULD ALLOW
+    ODocument next = null;
+    for (int i = CHAIN - 1; i >= 0; --i)
+      next = new ODocument("Item").field("name", "chain" + i).field("next", next).field("shared", shared).save();
+    first = next;
+
+    final ODocument embedded = new ODocument().field("link", shared);
+    root = new ODocument("Item").field("name", "root").field("first", first)
+        .field("items", new ArrayList<ODocument>(Arrays.asList(shared, first))).field("embedded", embedded, OType.EMBEDDED).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    db.drop();
+  }
+
+  public void testNoFetchPlan() throws IOException {
+    final OCollector walker = new OCollector("*:0", -1, -1);
+    walker.fetch(root);
+    Assert.assertTrue(walker.sent.isEmpty());
+  }
+
+  public void testFirstLevelSentOnce() throws IOException {
+    final OCollector walker = new OCollector("*:1", -1, -1);
+    walker.fetch(root);
+    Assert.assertEquals(walker.sent.size(), 2);
+    Assert.assertTrue(walker.sent.contains(first.getIdentity()));
+    Assert.assertTrue(walker.sent.contains(shared.getIdentity()));
+
+    // ALREADY SENT BY THE SAME REQUEST
+    walker.fetch(first);
+    Assert.assertEquals(walker.sent.size(), 3);
+  }
+
+  public void testExcludedField() throws IOException {
+    final OCollector walker = new OCollector("*:1 items:-2 embedded:-2", -1, -1);
+    walker.fetch(root);
+    Assert.assertEquals(walker.sent, Arrays.asList(first.getIdentity()));
+  }
+
+  public void testUnlimitedDepth() throws IOException {
+    final OCollector walker = new OCollector("*:-1", -1, -1);
+    walker.fetch(root);
+    Assert.assertEquals(walker.sent.size(), CHAIN + 1);
+    Assert.assertFalse(walker.isExhausted());
+  }
+
+  public void testMaxRecords() throws IOException {
+    final OCollector walker = new OCollector("*:-1", 100, -1);
+    walker.fetch(root);
+    Assert.assertEquals(walker.sent.size(), 100);
+    Assert.assertTrue(walker.isExhausted());
+  }
+
+  public void testMaxBytes() throws IOException {
+    final OCollector walker = new OCollector("*:-1", -1, 1024);
+    walker.fetch(root);
+    Assert.assertTrue(walker.isExhausted());
+    Assert.assertFalse(walker.sent.isEmpty());
+    Assert.assertTrue(walker.getSentBytes() <= 1024);
+    Assert.assertEquals(walker.bytes, walker.getSentBytes());
+  }
+
+  public void testVisitedRecordsForgotten() throws IOException {
+    final OCollector walker = new OCollector("*:1", -1, -1);
+    walker.fetch(root);
+    Assert.assertEquals(walker.sent.size(), 2);
+
+    // A LONG RESULT SET: THE RECORDS SENT BEFORE ARE FORGOTTEN
+    for (int i = 0; i < ORemoteFetchWalker.MAX_VISITED; ++i)
+      walker.skip(new ORecordId(100, OClusterPositionFactory.INSTANCE.valueOf(i)));
+
+    walker.fetch(root);
+    Assert.assertEquals(walker.sent.size(), 4);
+  }
+}
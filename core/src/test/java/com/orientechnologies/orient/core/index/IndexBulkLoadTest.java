@@ -0,0 +1,183 @@
+package com.orientechnologies.orient.core.index;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
+
+@Test
+public class IndexBulkLoadTest {
+  private static final int    COUNT = 25000;
+  private ODatabaseDocumentTx db;
+  private Object              previousSortBuffer;
+  private Object              previousThreads;
+
+  @BeforeClass
+  public void beforeClass() {
+    // SMALL RUNS TO SORT THE KEYS IN TEMPORARY FILES
+    previousSortBuffer = OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.getValue();
+    OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.setValue(1000);
+    // MORE THREADS THAN THE CALLER, ALSO ON A SINGLE PROCESSOR
+    previousThreads = OGlobalConfiguration.INDEX_REBUILD_THREADS.getValue();
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(4);
+
+    db = new ODatabaseDocumentTx("memory:indexBulkLoadTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Bulk");
+    cls.addClusterId(db.addCluster("bulk2", CLUSTER_TYPE.PHYSICAL));
+    cls.createProperty("id", OType.INTEGER);
+    cls.createProperty("group", OType.INTEGER);
+    cls.createProperty("name", OType.STRING);
+    cls.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("Bulk");
+      doc.field("id", i);
+      doc.field("group", i % 100);
+      doc.field("name", "name" + i);
+      doc.field("tags", Arrays.asList("tag" + (i % 7), "tag" + (i % 11)));
+      if (i % 5 == 0)
+        doc.save("bulk2");
+      else
+        doc.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.setValue(previousSortBuffer);
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(previousThreads);
+  }
+
+  public void testUnique() {
+    final OIndex<?> index = db.getMetadata().getSchema().getClass("Bulk").createIndex("Bulk.id", OClass.INDEX_TYPE.UNIQUE, "id");
+
+    Assert.assertEquals(index.getSize(), COUNT);
+    for (int i = 0; i < COUNT; i += 997) {
+      final ODocument doc = ((OIdentifiable) index.get(i)).getRecord();
+      Assert.assertEquals(doc.field("id"), i);
+    }
+  }
+
+  public void testNotUniqueAndCollections() {
+    final OClass cls = db.getMetadata().getSchema().getClass("Bulk");
+    final OIndex<?> group = cls.createIndex("Bulk.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+    final OIndex<?> tags = cls.createIndex("Bulk.tags", OClass.INDEX_TYPE.NOTUNIQUE, "tags");
+
+    Assert.assertEquals(group.getKeySize(), 100);
+    Assert.assertEquals(group.getSize(), COUNT);
+    Assert.assertEquals(((Collection<?>) group.get(42)).size(), COUNT / 100);
+
+    Assert.assertEquals(tags.getKeySize(), 11);
+    Assert.assertEquals(((Collection<?>) tags.get("tag3")).size(), countTagged(3));
+  }
+
+  public void testSameContentAsRecordByRecord() {
+    final OIndex<?> index = db.getMetadata().getSchema().getClass("Bulk")
+        .createIndex("Bulk.name", OClass.INDEX_TYPE.UNIQUE, "name");
+
+    final RecordingListener listener = new RecordingListener();
+    Assert.assertEquals(index.rebuild(listener), COUNT);
+    Assert.assertEquals(listener.total, COUNT);
+    Assert.assertTrue(listener.lastPercent <= 100f);
+    Assert.assertEquals(listener.succeeded, Boolean.TRUE);
+    final long bulkSize = index.getSize();
+
+    OGlobalConfiguration.INDEX_REBUILD_BULK.setValue(false);
+    try {
+      Assert.assertEquals(index.rebuild(), COUNT);
+    } finally {
+      OGlobalConfiguration.INDEX_REBUILD_BULK.setValue(true);
+    }
+
+    Assert.assertEquals(index.getSize(), bulkSize);
+    final ODocument doc = ((OIdentifiable) index.get("name12345")).getRecord();
+    Assert.assertEquals(doc.field("id"), 12345);
+  }
+
+  public void testMergeInMorePasses() {
+    final Object previousMergeFiles = OGlobalConfiguration.INDEX_REBUILD_MERGE_FILES.getValue();
+    OGlobalConfiguration.INDEX_REBUILD_MERGE_FILES.setValue(3);
+    final int runFiles = countRunFiles();
+    try {
+      final OIndex<?> index = db.getMetadata().getSchema().getClass("Bulk")
+          .createIndex("Bulk.idGroup", OClass.INDEX_TYPE.UNIQUE, "id", "group");
+
+      Assert.assertEquals(index.getSize(), COUNT);
+      for (int i = 0; i < COUNT; i += 997) {
+        final ODocument doc = ((OIdentifiable) index.get(new OCompositeKey(i, i % 100))).getRecord();
+        Assert.assertEquals(doc.field("id"), i);
+      }
+      Assert.assertEquals(countRunFiles(), runFiles);
+    } finally {
+      OGlobalConfiguration.INDEX_REBUILD_MERGE_FILES.setValue(previousMergeFiles);
+    }
+  }
+
+  public void testDuplicatedKeys() {
+    final OClass cls = db.getMetadata().getSchema().createClass("BulkDuplicated");
+    cls.createProperty("key", OType.INTEGER);
+    for (int i = 0; i < 100; ++i)
+      new ODocument("BulkDuplicated").field("key", i == 99 ? 10 : i).save();
+
+    try {
+      cls.createIndex("BulkDuplicated.key", OClass.INDEX_TYPE.UNIQUE, "key");
+      Assert.fail();
+    } catch (OIndexException e) {
+      // EXPECTED
+    }
+  }
+
+  private static int countRunFiles() {
+    final String[] files = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+      public boolean accept(final File iDir, final String iName) {
+        return iName.startsWith("orientdb-index-");
+      }
+    });
+    return files != null ? files.length : 0;
+  }
+
+  private static int countTagged(final int iTag) {
+    int count = 0;
+    for (int i = 0; i < COUNT; ++i)
+      if (i % 7 == iTag || i % 11 == iTag)
+        count++;
+    return count;
+  }
+
+  private static class RecordingListener implements OProgressListener {
+    private long    total;
+    private float   lastPercent;
+    private Boolean succeeded;
+
+    public void onBegin(final Object iTask, final long iTotal) {
+      total = iTotal;
+    }
+
+    public boolean onProgress(final Object iTask, final long iCounter, final float iPercent) {
+      lastPercent = iPercent;
+      return true;
+    }
+
+    public void onCompletition(final Object iTask, final boolean iSucceed) {
+      succeeded = iSucceed;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class IndexCursorTest {
+  private static final int    COUNT = 1000;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:indexCursorTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Cursor");
+    cls.createProperty("unique", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    cls.createProperty("notUnique", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("Cursor");
+      doc.field("unique", i);
+      doc.field("notUnique", i / 10);
+      doc.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testBetweenUnique() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Cursor.unique");
+
+    final List<Integer> keys = keys(index.iterateEntriesBetween(100, true, 600, false));
+    Assert.assertEquals(keys.size(), 500);
+    for (int i = 0; i < keys.size(); ++i)
+      Assert.assertEquals(keys.get(i).intValue(), 100 + i);
+
+    Assert.assertEquals(keys(index.iterateEntriesBetween(100, false, 600, true)).get(0).intValue(), 101);
+    Assert.assertTrue(keys(index.iterateEntriesBetween(600, true, 100, true)).isEmpty());
+  }
+
+  public void testMajorMinorNotUnique() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Cursor.notUnique");
+
+    final List<Integer> major = keys(index.iterateEntriesMajor(95, false));
+    Assert.assertEquals(major.size(), 40);
+    Assert.assertEquals(major.get(0).intValue(), 96);
+    Assert.assertEquals(major.get(39).intValue(), 99);
+
+    final List<Integer> minor = keys(index.iterateEntriesMinor(3, true));
+    Assert.assertEquals(minor.size(), 40);
+    Assert.assertEquals(minor.get(0).intValue(), 0);
+    Assert.assertEquals(minor.get(39).intValue(), 3);
+  }
+
+  public void testTransactionChangesAreVisible() {
+    final OIndex<?> index = db.getMetadata().getIndexManager().getIndex("Cursor.unique");
+
+    db.begin();
+    try {
+      final ODocument doc = new ODocument("Cursor");
+      doc.field("unique", COUNT + 5);
+      doc.field("notUnique", 0);
+      doc.save();
+
+      final ODocument removed = (ODocument) ((OIdentifiable) index.get(COUNT - 1)).getRecord();
+      removed.delete();
+
+      final List<Integer> keys = keys(index.iterateEntriesMajor(COUNT - 3, true));
+      Assert.assertEquals(keys.size(), 3);
+      Assert.assertEquals(keys.get(0).intValue(), COUNT - 3);
+      Assert.assertEquals(keys.get(1).intValue(), COUNT - 2);
+      Assert.assertEquals(keys.get(2).intValue(), COUNT + 5);
+    } finally {
+      db.rollback();
+    }
+
+    Assert.assertEquals(keys(index.iterateEntriesMajor(COUNT - 3, true)).size(), 3);
+  }
+
+  public void testQueryLimitOnIndexRange() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from index:Cursor.notUnique where key between 10 and 50 limit 15"));
+    Assert.assertEquals(result.size(), 15);
+    for (int i = 0; i < result.size(); ++i)
+      Assert.assertEquals(((Integer) result.get(i).field("key")).intValue(), 10 + i / 10);
+  }
+
+  private static List<Integer> keys(final Iterator<Entry<Object, OIdentifiable>> iCursor) {
+    final List<Integer> keys = new ArrayList<Integer>();
+    while (iCursor.hasNext()) {
+      final Entry<Object, OIdentifiable> entry = iCursor.next();
+      Assert.assertNotNull(entry.getValue());
+      keys.add((Integer) entry.getKey());
+    }
+    return keys;
+  }
+}
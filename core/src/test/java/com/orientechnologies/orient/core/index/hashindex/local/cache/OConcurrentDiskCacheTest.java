@@ -0,0 +1,210 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OStorageSegmentConfiguration;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+import com.orientechnologies.orient.core.storage.fs.OFileFactory;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
+
+@Test
+public class OConcurrentDiskCacheTest {
+  private static final int             PAGE_SIZE = 8;
+
+  private OConcurrentDiskCache         buffer;
+  private OStorageLocal                storageLocal;
+  private ODirectMemory                directMemory;
+  private OStorageSegmentConfiguration fileConfiguration;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OStorageLocal) Orient.instance().loadStorage("local:" + buildDirectory + "/OConcurrentDiskCacheTest");
+
+    fileConfiguration = new OStorageSegmentConfiguration(storageLocal.getConfiguration(), "concurrentDiskCacheTest", 0);
+    fileConfiguration.fileType = OFileFactory.CLASSIC;
+    fileConfiguration.fileMaxSize = "10000Mb";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    deleteFile();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    if (buffer != null) {
+      buffer.close();
+      buffer = null;
+    }
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    storageLocal.delete();
+    deleteFile();
+  }
+
+  public void testFlushBufferWritesDirtyPages() throws IOException {
+    buffer = new OConcurrentDiskCache(1024, directMemory, PAGE_SIZE, storageLocal, true);
+    final long fileId = buffer.openFile(fileConfiguration, ".tst");
+
+    for (int i = 0; i < 4; i++)
+      writePage(fileId, i, (byte) 1);
+
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), 4);
+    buffer.flushBuffer();
+
+    for (int i = 0; i < 4; i++)
+      assertFile(i, page(i, (byte) 1));
+  }
+
+  public void testEvictedDirtyPagesAreWrittenInBackground() throws Exception {
+    // 8 PAGES IN CACHE
+    buffer = new OConcurrentDiskCache(8 * PAGE_SIZE, directMemory, PAGE_SIZE, storageLocal, false);
+    final long fileId = buffer.openFile(fileConfiguration, ".tst");
+
+    for (int i = 0; i < 200; i++)
+      writePage(fileId, i, (byte) 2);
+
+    // EVICTED PAGES ARE TAKEN BACK FROM THE QUEUE OR READ FROM THE DISK
+    for (int i = 0; i < 200; i++)
+      assertPage(fileId, i, page(i, (byte) 2));
+
+    long timeout = System.currentTimeMillis() + 5000;
+    while (buffer.getWriteQueueSize() > 0 && System.currentTimeMillis() < timeout)
+      Thread.sleep(10);
+    Assert.assertEquals(buffer.getWriteQueueSize(), 0);
+
+    buffer.close();
+    buffer = null;
+
+    for (int i = 0; i < 200; i++)
+      assertFile(i, page(i, (byte) 2));
+  }
+
+  public void testTruncateDiscardsQueuedPages() throws Exception {
+    buffer = new OConcurrentDiskCache(8 * PAGE_SIZE, directMemory, PAGE_SIZE, storageLocal, false);
+    final long fileId = buffer.openFile(fileConfiguration, ".tst");
+
+    for (int i = 0; i < 50; i++)
+      writePage(fileId, i, (byte) 3);
+
+    buffer.truncateFile(fileId);
+    Assert.assertEquals(buffer.getFilledUpTo(fileId), 0);
+    Assert.assertEquals(buffer.getWriteQueueSize(), 0);
+
+    writePage(fileId, 0, (byte) 4);
+    assertPage(fileId, 0, page(0, (byte) 4));
+  }
+
+  public void testConcurrentLoads() throws Exception {
+    buffer = new OConcurrentDiskCache(64 * PAGE_SIZE, directMemory, PAGE_SIZE, storageLocal, false);
+    final long fileId = buffer.openFile(fileConfiguration, ".tst");
+
+    final int threadCount = 8;
+    final int pagesPerThread = 100;
+
+    // ALLOCATE THE PAGES UPFRONT
+    for (int i = 0; i < threadCount * pagesPerThread; i++)
+      writePage(fileId, i, (byte) 0);
+
+    final List<Throwable> errors = new ArrayList<Throwable>();
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < threadCount; t++) {
+      final int firstPage = t * pagesPerThread;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (byte round = 1; round <= 5; round++) {
+              for (int i = firstPage; i < firstPage + pagesPerThread; i++)
+                writePage(fileId, i, round);
+              for (int i = firstPage; i < firstPage + pagesPerThread; i++)
+                assertPage(fileId, i, page(i, round));
+            }
+          } catch (Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      });
+    }
+
+    for (Thread t : threads)
+      t.start();
+    for (Thread t : threads)
+      t.join();
+
+    Assert.assertTrue(errors.isEmpty(), errors.toString());
+
+    buffer.flushBuffer();
+    for (int i = 0; i < threadCount * pagesPerThread; i++)
+      assertFile(i, page(i, (byte) 5));
+  }
+
+  private void writePage(final long fileId, final long pageIndex, final byte round) throws IOException {
+    final long pointer = buffer.load(fileId, pageIndex);
+    try {
+      buffer.markDirty(fileId, pageIndex);
+      directMemory.set(pointer, page(pageIndex, round), PAGE_SIZE);
+    } finally {
+      buffer.release(fileId, pageIndex);
+    }
+  }
+
+  private void assertPage(final long fileId, final long pageIndex, final byte[] value) throws IOException {
+    final long pointer = buffer.load(fileId, pageIndex);
+    try {
+      Assert.assertEquals(directMemory.get(pointer, PAGE_SIZE), value);
+    } finally {
+      buffer.release(fileId, pageIndex);
+    }
+  }
+
+  private static byte[] page(final long pageIndex, final byte round) {
+    return new byte[] { (byte) pageIndex, (byte) (pageIndex >> 8), round, 3, 4, 5, round, (byte) pageIndex };
+  }
+
+  private void assertFile(final long pageIndex, final byte[] value) throws IOException {
+    final OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(filePath(), "r");
+    fileClassic.open();
+    try {
+      final byte[] content = new byte[PAGE_SIZE];
+      fileClassic.read(pageIndex * PAGE_SIZE, content, PAGE_SIZE);
+      Assert.assertEquals(content, value);
+    } finally {
+      fileClassic.close();
+    }
+  }
+
+  private void deleteFile() {
+    final File file = new File(filePath());
+    if (file.exists())
+      Assert.assertTrue(file.delete());
+  }
+
+  private String filePath() {
+    return storageLocal.getConfiguration().getDirectory() + "/concurrentDiskCacheTest.0.tst";
+  }
+}
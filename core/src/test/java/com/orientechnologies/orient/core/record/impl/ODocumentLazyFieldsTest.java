@@ -0,0 +1,103 @@
+package com.orientechnologies.orient.core.record.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializedFields;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerSchemaAware2Binary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Tests that fields of loaded documents are unmarshalled only when requested.
+ */
+@Test
+public class ODocumentLazyFieldsTest {
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:documentLazyFieldsTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Lazy");
+    cls.createProperty("name", OType.STRING);
+    cls.createProperty("age", OType.INTEGER);
+
+    for (int i = 0; i < 10; ++i)
+      createDocument(i).save();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testCSV() {
+    checkLazyFields(ORecordSerializerSchemaAware2CSV.INSTANCE);
+  }
+
+  public void testBinary() {
+    checkLazyFields(ORecordSerializerSchemaAware2Binary.INSTANCE);
+  }
+
+  public void testProjections() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, age, address.city as city from Lazy where age >= 5 order by age"));
+    Assert.assertEquals(result.size(), 5);
+    for (int i = 0; i < result.size(); ++i) {
+      final ODocument doc = result.get(i);
+      Assert.assertEquals(doc.field("name"), "name" + (i + 5));
+      Assert.assertEquals(doc.field("age"), i + 5);
+      Assert.assertEquals(doc.field("city"), "Rome");
+      Assert.assertFalse(doc.containsField("tags"));
+    }
+  }
+
+  private void checkLazyFields(final ORecordSerializer iSerializer) {
+    final byte[] content = iSerializer.toStream(createDocument(3), false);
+
+    final ODocument doc = new ODocument();
+    doc.fromStream(content);
+
+    Assert.assertEquals(doc.field("age"), 3);
+
+    // THE OTHER FIELDS ARE STILL SERIALIZED
+    final OSerializedFields serialized = doc.getSerializedFields();
+    Assert.assertNotNull(serialized);
+    Assert.assertFalse(serialized.contains("age"));
+    Assert.assertEquals(serialized.getFieldNames(), Arrays.asList("name", "tags", "address"));
+
+    Assert.assertEquals(doc.field("tags"), Arrays.asList("a", "b"));
+    Assert.assertSame(doc.getSerializedFields(), serialized);
+    Assert.assertEquals(serialized.getFieldNames(), Arrays.asList("name", "address"));
+
+    Assert.assertFalse(doc.containsField("missing"));
+    Assert.assertEquals(doc.getClassName(), "Lazy");
+
+    // FULL UNMARSHALLING OF THE FIELDS LEFT
+    Assert.assertEquals(Arrays.asList(doc.fieldNames()).size(), 4);
+    Assert.assertNull(doc.getSerializedFields());
+    Assert.assertEquals(doc.field("name"), "name3");
+    Assert.assertEquals(doc.field("age"), 3);
+    Assert.assertEquals(doc.field("address.city"), "Rome");
+  }
+
+  private static ODocument createDocument(final int i) {
+    final ODocument doc = new ODocument("Lazy");
+    doc.field("name", "name" + i);
+    doc.field("age", i);
+    doc.field("tags", Arrays.asList("a", "b"));
+    doc.field("address", new ODocument().field("city", "Rome"), OType.EMBEDDED);
+    return doc;
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchemaProxy;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class ORecordSerializerSchemaAware2BinaryTest {
+  private ODatabaseDocumentTx db;
+  private Object              previousFormat;
+
+  @BeforeClass
+  public void beforeClass() {
+    previousFormat = OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.getValue();
+    OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue(ORecordSerializerSchemaAware2Binary.NAME);
+
+    db = new ODatabaseDocumentTx("memory:binaryRecordSerializerTest");
+    db.create();
+
+    final OClass account = db.getMetadata().getSchema().createClass("Account");
+    account.createProperty("name", OType.STRING);
+    account.createProperty("balance", OType.DECIMAL);
+    account.createProperty("created", OType.DATETIME);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue(previousFormat);
+  }
+
+  public void testVarInt() {
+    final long[] values = { 0, 1, -1, 63, -64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    final OMemoryStream out = new OMemoryStream();
+    for (long v : values)
+      OVarIntSerializer.writeSigned(out, v);
+    OVarIntSerializer.write(out, 300);
+
+    final OBytesContainer in = new OBytesContainer(out.toByteArray());
+    for (long v : values)
+      Assert.assertEquals(OVarIntSerializer.readSigned(in), v);
+    Assert.assertEquals(OVarIntSerializer.read(in), 300);
+    Assert.assertEquals(in.offset, out.size());
+  }
+
+  public void testFormatIsChosenPerDatabase() {
+    Assert.assertEquals(db.getStorage().getConfiguration().getRecordSerializer(), ORecordSerializerSchemaAware2Binary.NAME);
+
+    final byte[] content = new ODocument("Account").field("name", "test").toStream();
+    Assert.assertTrue(ORecordSerializerSchemaAware2Binary.isBinaryFormat(content));
+  }
+
+  public void testPropertiesCreatedByApiAreInTheDictionary() {
+    final OSchemaProxy schema = (OSchemaProxy) db.getMetadata().getSchema();
+    Assert.assertTrue(schema.getFieldNameId("name") > -1);
+    Assert.assertTrue(schema.getFieldNameId("balance") > -1);
+    Assert.assertEquals(schema.getFieldNameId("notDeclared"), -1);
+  }
+
+  public void testRoundTrip() {
+    final Date now = new Date();
+
+    final ODocument doc = new ODocument("Account");
+    doc.field("name", "Jay èè");
+    doc.field("balance", new BigDecimal("-1234.5678"));
+    doc.field("created", now);
+    doc.field("age", 42);
+    doc.field("big", Long.MIN_VALUE);
+    doc.field("ratio", 0.25f);
+    doc.field("avg", 3.5d);
+    doc.field("active", true);
+    doc.field("nothing", (Object) null);
+    doc.field("empty", "");
+    doc.field("data", new byte[] { 1, 2, 3 });
+    doc.field("owner", new ORecordId(3, OClusterPositionFactory.INSTANCE.valueOf(12)));
+    doc.field("tags", Arrays.asList("a", "b", "c"));
+
+    final Map<String, Object> map = new HashMap<String, Object>();
+    map.put("k", 1);
+    doc.field("map", map);
+
+    final ODocument address = new ODocument();
+    address.field("city", "Rome");
+    doc.field("address", address, OType.EMBEDDED);
+
+    final byte[] content = doc.toStream();
+
+    final ODocument loaded = new ODocument();
+    loaded.fromStream(content);
+
+    Assert.assertEquals(loaded.getClassName(), "Account");
+    Assert.assertEquals(loaded.field("name"), "Jay èè");
+    Assert.assertEquals(loaded.field("balance"), new BigDecimal("-1234.5678"));
+    Assert.assertEquals(loaded.field("created"), now);
+    Assert.assertEquals(loaded.field("age"), 42);
+    Assert.assertEquals(loaded.field("big"), Long.MIN_VALUE);
+    Assert.assertEquals(loaded.field("ratio"), 0.25f);
+    Assert.assertEquals(loaded.field("avg"), 3.5d);
+    Assert.assertEquals(loaded.field("active"), Boolean.TRUE);
+    Assert.assertTrue(loaded.containsField("nothing"));
+    Assert.assertNull(loaded.field("nothing"));
+    Assert.assertEquals(loaded.field("empty"), "");
+    Assert.assertEquals((byte[]) loaded.field("data"), new byte[] { 1, 2, 3 });
+    Assert.assertEquals(loaded.rawField("owner"), new ORecordId("#3:12"));
+
+    final List<String> tags = loaded.field("tags");
+    Assert.assertEquals(tags, Arrays.asList("a", "b", "c"));
+
+    final Map<String, Object> loadedMap = loaded.field("map");
+    Assert.assertEquals(loadedMap.get("k"), 1);
+
+    final ODocument loadedAddress = loaded.field("address");
+    Assert.assertEquals(loadedAddress.field("city"), "Rome");
+  }
+
+  public void testSchemaPropertiesUseTheDictionary() {
+    final ODocument doc = new ODocument("Account");
+    doc.field("name", "dictionary");
+    doc.field("undeclaredField", "x");
+
+    final String content = new String(doc.toStream());
+    Assert.assertFalse(content.contains("name"));
+    Assert.assertTrue(content.contains("undeclaredField"));
+  }
+
+  public void testPartialDeserialization() {
+    final ODocument doc = new ODocument("Account");
+    doc.field("name", "partial");
+    doc.field("age", 10);
+    doc.field("tags", Arrays.asList("x"));
+
+    final ODocument loaded = new ODocument();
+    ORecordSerializerSchemaAware2Binary.INSTANCE.fromStream(doc.toStream(), loaded, new String[] { "age" });
+
+    Assert.assertEquals(loaded.fields(), 1);
+    Assert.assertEquals(loaded.field("age"), 10);
+  }
+
+  public void testCsvReadsBinaryAndViceVersa() {
+    final ODocument doc = new ODocument("Account");
+    doc.field("name", "mixed");
+
+    final ODocument fromBinary = (ODocument) ORecordSerializerSchemaAware2CSV.INSTANCE.fromStream(doc.toStream(), new ODocument(),
+        null);
+    Assert.assertEquals(fromBinary.field("name"), "mixed");
+
+    final byte[] csv = ORecordSerializerSchemaAware2CSV.INSTANCE.toStream(doc, false);
+    Assert.assertFalse(ORecordSerializerSchemaAware2Binary.isBinaryFormat(csv));
+    final ODocument fromCsv = (ODocument) ORecordSerializerSchemaAware2Binary.INSTANCE.fromStream(csv, new ODocument(), null);
+    Assert.assertEquals(fromCsv.field("name"), "mixed");
+  }
+
+  public void testQuery() {
+    for (int i = 0; i < 10; ++i)
+      new ODocument("Account").field("name", "query" + i).field("age", i).save();
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Account where age >= 5 and name like 'query%'"));
+    Assert.assertEquals(result.size(), 5);
+  }
+}
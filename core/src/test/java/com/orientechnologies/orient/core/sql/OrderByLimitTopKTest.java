@@ -0,0 +1,97 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OrderByLimitTopKTest {
+  private static final int    COUNT = 1000;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:orderByLimitTopKTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("TopK");
+    cls.createProperty("indexed", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("TopK");
+      doc.field("value", (i * 7919) % COUNT);
+      doc.field("group", i % 10);
+      doc.field("indexed", (i * 31) % COUNT);
+      doc.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testSameResultAsFullSort() {
+    final List<ODocument> full = db.query(new OSQLSynchQuery<ODocument>("select from TopK order by group desc, value asc"));
+    Assert.assertEquals(full.size(), COUNT);
+
+    final List<ODocument> limited = db.query(new OSQLSynchQuery<ODocument>(
+        "select from TopK order by group desc, value asc skip 15 limit 20"));
+    Assert.assertEquals(limited.size(), 20);
+
+    for (int i = 0; i < limited.size(); ++i)
+      Assert.assertEquals(limited.get(i).getIdentity(), full.get(i + 15).getIdentity());
+  }
+
+  public void testDescendingWithLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from TopK order by value desc limit 5"));
+    Assert.assertEquals(result.size(), 5);
+    for (int i = 0; i < result.size(); ++i)
+      Assert.assertEquals(result.get(i).field("value"), COUNT - 1 - i);
+  }
+
+  public void testLimitLargerThanResult() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from TopK where group = 3 order by value limit 500"));
+    Assert.assertEquals(result.size(), COUNT / 10);
+
+    Integer last = null;
+    for (ODocument d : result) {
+      final Integer value = d.field("value");
+      if (last != null)
+        Assert.assertTrue(last.compareTo(value) <= 0);
+      last = value;
+    }
+  }
+
+  public void testProjectionWithLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select value from TopK order by value limit 3"));
+    Assert.assertEquals(result.size(), 3);
+    for (int i = 0; i < result.size(); ++i)
+      Assert.assertEquals(result.get(i).field("value"), i);
+  }
+
+  public void testIndexedOrderWithLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from TopK order by indexed desc limit 10"));
+    Assert.assertEquals(result.size(), 10);
+    for (int i = 0; i < result.size(); ++i)
+      Assert.assertEquals(result.get(i).field("indexed"), COUNT - 1 - i);
+  }
+
+  public void testIndexedOrderOnMoreFields() {
+    final List<ODocument> full = db.query(new OSQLSynchQuery<ODocument>("select from TopK order by indexed asc, value desc"));
+    final List<ODocument> limited = db.query(new OSQLSynchQuery<ODocument>(
+        "select from TopK order by indexed asc, value desc limit 10"));
+    for (int i = 0; i < limited.size(); ++i)
+      Assert.assertEquals(limited.get(i).getIdentity(), full.get(i).getIdentity());
+  }
+}
@@ -0,0 +1,160 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+@Test
+public class ParallelClusterScanTest {
+  private static final int    COUNT = 5000;
+  private ODatabaseDocumentTx db;
+  private int                 oldMinRange;
+  private int                 oldThreads;
+  private boolean             oldOrdered;
+
+  @BeforeClass
+  public void beforeClass() {
+    oldMinRange = OGlobalConfiguration.QUERY_PARALLEL_MIN_RANGE.getValueAsInteger();
+    oldOrdered = OGlobalConfiguration.QUERY_PARALLEL_ORDERED.getValueAsBoolean();
+    oldThreads = OGlobalConfiguration.QUERY_PARALLEL_THREADS.getValueAsInteger();
+    OGlobalConfiguration.QUERY_PARALLEL_THREADS.setValue(4);
+    // SPLIT EVERY CLUSTER IN MANY RANGES
+    OGlobalConfiguration.QUERY_PARALLEL_MIN_RANGE.setValue(100);
+
+    db = new ODatabaseDocumentTx("memory:parallelClusterScanTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Scan");
+    cls.addClusterId(db.addCluster("scan_2", OStorage.CLUSTER_TYPE.PHYSICAL));
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("Scan");
+      doc.field("value", i);
+      doc.field("group", i % 10);
+      doc.save(i % 2 == 0 ? "scan" : "scan_2");
+    }
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.QUERY_PARALLEL_ORDERED.setValue(oldOrdered);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.QUERY_PARALLEL_MIN_RANGE.setValue(oldMinRange);
+    OGlobalConfiguration.QUERY_PARALLEL_THREADS.setValue(oldThreads);
+  }
+
+  public void testWorkerDatabaseHasItsOwnUser() {
+    Assert.assertTrue(Orient.instance().getDatabaseFactory().isWorkerDatabaseSupported(db));
+
+    final ODatabaseDocumentTx worker = Orient.instance().getDatabaseFactory().openWorkerDatabase(db);
+    try {
+      Assert.assertEquals(worker.getUser().getName(), db.getUser().getName());
+      Assert.assertNotSame(worker.getUser(), db.getUser());
+    } finally {
+      worker.close();
+      ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    }
+  }
+
+  public void testOrderedSameAsSequential() {
+    OGlobalConfiguration.QUERY_PARALLEL_ORDERED.setValue(true);
+
+    final List<ODocument> sequential = db.query(new OSQLSynchQuery<ODocument>("select from Scan where group = 3"));
+    final List<ODocument> parallel = db.query(new OSQLSynchQuery<ODocument>("select from Scan where group = 3 parallel"));
+
+    Assert.assertEquals(sequential.size(), COUNT / 10);
+    Assert.assertEquals(parallel.size(), sequential.size());
+    for (int i = 0; i < sequential.size(); ++i)
+      Assert.assertEquals(parallel.get(i).getIdentity(), sequential.get(i).getIdentity());
+  }
+
+  public void testUnordered() {
+    OGlobalConfiguration.QUERY_PARALLEL_ORDERED.setValue(false);
+
+    final List<ODocument> sequential = db.query(new OSQLSynchQuery<ODocument>("select from Scan where value < 1000"));
+    final List<ODocument> parallel = db.query(new OSQLSynchQuery<ODocument>("select from Scan where value < 1000 parallel"));
+
+    Assert.assertEquals(parallel.size(), 1000);
+    final Set<ORID> rids = new HashSet<ORID>();
+    for (ODocument doc : sequential)
+      rids.add(doc.getIdentity());
+    for (ODocument doc : parallel)
+      Assert.assertTrue(rids.remove(doc.getIdentity()));
+    Assert.assertTrue(rids.isEmpty());
+  }
+
+  public void testClusterTarget() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from cluster:scan_2 parallel"));
+    Assert.assertEquals(result.size(), COUNT / 2);
+  }
+
+  public void testLimitAndOrderBy() {
+    final List<ODocument> limited = db.query(new OSQLSynchQuery<ODocument>("select from Scan where group > 0 limit 10 parallel"));
+    Assert.assertEquals(limited.size(), 10);
+
+    final List<ODocument> ordered = db.query(new OSQLSynchQuery<ODocument>(
+        "select from Scan where group = 1 order by value desc parallel"));
+    Assert.assertEquals(ordered.size(), COUNT / 10);
+    Assert.assertEquals(ordered.get(0).field("value"), COUNT - 9);
+  }
+
+  public void testThreadsReleasedByInterruptedScan() throws InterruptedException {
+    final List<ODocument> limited = db.query(new OSQLSynchQuery<ODocument>("select from Scan limit 1 parallel"));
+    Assert.assertEquals(limited.size(), 1);
+
+    final long timeout = System.currentTimeMillis() + 5000;
+    while (OParallelClusterScan.getBusyThreads() > 0 && System.currentTimeMillis() < timeout)
+      Thread.sleep(10);
+    Assert.assertEquals(OParallelClusterScan.getBusyThreads(), 0);
+  }
+
+  public void testConcurrentQueriesWithBusyPool() throws Exception {
+    // MORE QUERIES THAN SCAN THREADS: THE ONES FINDING NO FREE THREAD SCAN SEQUENTIALLY INSTEAD OF WAITING
+    final ExecutorService clients = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 32; ++i)
+        results.add(clients.submit(new Callable<Integer>() {
+          public Integer call() {
+            final ODatabaseDocumentTx clientDb = new ODatabaseDocumentTx(db.getURL()).open("admin", "admin");
+            try {
+              return clientDb.query(new OSQLSynchQuery<ODocument>("select from Scan where group = 7 parallel")).size();
+            } finally {
+              clientDb.close();
+            }
+          }
+        }));
+
+      for (Future<Integer> result : results)
+        Assert.assertEquals(result.get(30, TimeUnit.SECONDS).intValue(), COUNT / 10);
+    } finally {
+      clients.shutdownNow();
+    }
+  }
+}
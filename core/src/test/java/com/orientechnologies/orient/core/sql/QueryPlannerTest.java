@@ -0,0 +1,169 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexMVRBTreeAbstract;
+import com.orientechnologies.orient.core.index.OIndexStatistics;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class QueryPlannerTest {
+  private static final int    COUNT = 2000;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:queryPlannerTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Plan");
+    cls.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    cls.createProperty("group", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    cls.createProperty("flag", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+
+    for (int i = 0; i < COUNT; ++i) {
+      final ODocument doc = new ODocument("Plan");
+      doc.field("id", i);
+      doc.field("group", i % 10);
+      doc.field("flag", (i / 10) % 2);
+      doc.save();
+    }
+
+    for (OIndex<?> index : cls.getIndexes())
+      ((OIndexMVRBTreeAbstract<?>) index.getInternal()).collectStatistics();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testStatistics() {
+    final OIndexStatistics statistics = ((OIndexInternal<?>) db.getMetadata().getIndexManager().getIndex("Plan.group")
+        .getInternal()).getStatistics();
+    Assert.assertEquals(statistics.getKeys(), 10);
+    Assert.assertEquals(statistics.getEntries(), COUNT);
+    Assert.assertEquals(statistics.estimateEquals(), COUNT / 10d);
+
+    final OIndexStatistics idStatistics = ((OIndexInternal<?>) db.getMetadata().getIndexManager().getIndex("Plan.id")
+        .getInternal()).getStatistics();
+    final double range = idStatistics.estimateRange(COUNT / 2, null);
+    Assert.assertTrue(Math.abs(range - COUNT / 2) < COUNT / 10, "Estimated " + range);
+
+    // CHANGES UPDATE THE STATISTICS
+    final ODocument doc = new ODocument("Plan").field("id", COUNT).field("group", 10).field("flag", 0);
+    doc.save();
+    Assert.assertEquals(statistics.getKeys(), 11);
+    Assert.assertEquals(statistics.getEntries(), COUNT + 1);
+
+    doc.delete();
+    Assert.assertEquals(statistics.getKeys(), 10);
+    Assert.assertEquals(statistics.getEntries(), COUNT);
+  }
+
+  public void testStatisticsStoredInConfiguration() {
+    final OIndexMVRBTreeAbstract<?> index = (OIndexMVRBTreeAbstract<?>) db.getMetadata().getIndexManager().getIndex("Plan.id")
+        .getInternal();
+    final ODocument stored = index.updateConfiguration().field("statistics");
+    Assert.assertNotNull(stored);
+
+    final OIndexStatistics loaded = new OIndexStatistics();
+    loaded.fromDocument(stored, COUNT);
+    Assert.assertFalse(loaded.isStale());
+    Assert.assertEquals(loaded.getKeys(), COUNT);
+    Assert.assertEquals(loaded.estimateRange(COUNT / 2, null), index.getStatistics().estimateRange(COUNT / 2, null));
+
+    // THE INDEX CHANGED AFTER THE STATISTICS HAVE BEEN SAVED: THEY ARE USED BUT COLLECTED AGAIN
+    loaded.fromDocument(stored, COUNT + 1);
+    Assert.assertTrue(loaded.isStale());
+    Assert.assertEquals(loaded.getKeys(), COUNT + 1);
+  }
+
+  public void testStatisticsCollectedInBackground() throws InterruptedException {
+    final OClass cls = db.getMetadata().getSchema().createClass("Background");
+    cls.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    for (int i = 0; i < COUNT; ++i)
+      new ODocument("Background").field("id", i).save();
+
+    // THE CHANGES ARE COUNTED BUT THE HISTOGRAM IS MISSING: THE CALLER DOESN'T WAIT FOR IT
+    final OIndexInternal<?> index = (OIndexInternal<?>) cls.getClassIndex("Background.id").getInternal();
+    final OIndexStatistics statistics = index.getStatistics();
+    Assert.assertEquals(statistics.getKeys(), COUNT);
+
+    final long timeout = System.currentTimeMillis() + 10000;
+    while (statistics.isStale() && System.currentTimeMillis() < timeout)
+      Thread.sleep(50);
+
+    Assert.assertFalse(statistics.isStale());
+    Assert.assertEquals(statistics.getKeys(), COUNT);
+    final double range = statistics.estimateRange(COUNT / 2, null);
+    Assert.assertTrue(Math.abs(range - COUNT / 2) < COUNT / 10, "Estimated " + range);
+    Assert.assertNotNull(index.updateConfiguration().field("statistics"));
+  }
+
+  public void testSelectiveEqualsUsesIndex() {
+    final ODocument plan = explain("select from Plan where id = 5");
+    Assert.assertEquals(plan.field("type"), "INDEX");
+    Assert.assertEquals(plan.field("index"), "Plan.id");
+    Assert.assertEquals(plan.field("estimatedRecords"), 1l);
+  }
+
+  public void testUnselectiveRangeUsesFullScan() {
+    Assert.assertEquals(explain("select from Plan where id >= 0").field("type"), "FULL_SCAN");
+    Assert.assertEquals(explain("select from Plan where id >= " + (COUNT - 10)).field("type"), "INDEX");
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Plan where id >= 0"));
+    Assert.assertEquals(result.size(), COUNT);
+  }
+
+  public void testIntersection() {
+    final ODocument plan = explain("select from Plan where group = 3 and flag = 1");
+    Assert.assertEquals(plan.field("type"), "INDEX_INTERSECTION");
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Plan where group = 3 and flag = 1"));
+    Assert.assertEquals(result.size(), COUNT / 20);
+    for (ODocument doc : result) {
+      Assert.assertEquals(doc.field("group"), 3);
+      Assert.assertEquals(doc.field("flag"), 1);
+    }
+  }
+
+  public void testUnion() {
+    final ODocument plan = explain("select from Plan where id = 5 or id = 7 or group = 9");
+    Assert.assertEquals(plan.field("type"), "INDEX_UNION");
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Plan where id = 5 or id = 9 or group = 9"));
+    Assert.assertEquals(result.size(), COUNT / 10 + 1);
+  }
+
+  public void testSameResultWithoutCostBasedPlanner() {
+    final String query = "select from Plan where group = 4 and flag = 0 and id < 1000";
+    final List<ODocument> costBased = db.query(new OSQLSynchQuery<ODocument>(query));
+
+    OGlobalConfiguration.QUERY_INDEX_COST_BASED.setValue(false);
+    try {
+      final List<ODocument> mostSpecific = db.query(new OSQLSynchQuery<ODocument>(query));
+      Assert.assertEquals(costBased.size(), mostSpecific.size());
+      Assert.assertEquals(costBased.size(), COUNT / 40);
+    } finally {
+      OGlobalConfiguration.QUERY_INDEX_COST_BASED.setValue(true);
+    }
+  }
+
+  private ODocument explain(final String iQuery) {
+    final ODocument report = db.command(new OCommandSQL("explain " + iQuery)).execute();
+    return report.field("plan");
+  }
+}
@@ -0,0 +1,152 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class StatementCacheTest {
+  private static final int    COUNT = 100;
+  private ODatabaseDocumentTx db;
+  private OSQLStatementCache  cache;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:statementCacheTest");
+    db.create();
+
+    final OClass cls = db.getMetadata().getSchema().createClass("Cached");
+    cls.createProperty("id", OType.INTEGER);
+    cls.createProperty("group", OType.INTEGER);
+
+    for (int i = 0; i < COUNT; ++i)
+      new ODocument("Cached").field("id", i).field("group", i % 10).save();
+
+    cache = OSQLStatementCache.getInstance(db.getStorage());
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    cache.clear();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testKey() {
+    Assert.assertEquals(OSQLStatementCache.getKey("  select from  Cached\n where name = 'a  b' ", -1),
+        "select from Cached where name = 'a  b'|-1");
+    Assert.assertFalse(OSQLStatementCache.getKey("select from Cached", -1).equals(OSQLStatementCache.getKey("select from Cached", 10)));
+  }
+
+  public void testParametersAreBoundAgain() {
+    final String query = "select from Cached where group = ? order by id desc";
+    final long hits = cache.getHits();
+
+    for (int group = 0; group < 10; ++group) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query), group);
+      Assert.assertEquals(result.size(), COUNT / 10);
+      Assert.assertEquals(result.get(0).field("id"), COUNT - 10 + group);
+      for (ODocument doc : result)
+        Assert.assertEquals(doc.field("group"), group);
+    }
+
+    Assert.assertEquals(cache.getHits() - hits, 9);
+    Assert.assertEquals(cache.getSize(), 1);
+  }
+
+  public void testPooledExecutorsKeepNoState() {
+    final String query = "select from Cached where group = ? order by id desc";
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(query), 3).size(), COUNT / 10);
+
+    final String key = OSQLStatementCache.getKey(query, -1);
+    final long version = cache.getVersion();
+    final OCommandExecutorSQLSelect executor = cache.acquire(key);
+    Assert.assertNotNull(executor);
+    try {
+      // NEITHER THE RESULT NOR THE VALUES BOUND BY THE LAST REQUEST
+      Assert.assertNull(executor.tempResult);
+      Assert.assertNull(executor.request);
+      Assert.assertTrue(executor.compiledFilter.toString().contains("group = ?"), executor.compiledFilter.toString());
+    } finally {
+      cache.release(key, executor, version);
+    }
+  }
+
+  public void testCommandAndLimit() {
+    final long hits = cache.getHits();
+
+    for (int i = 0; i < 3; ++i) {
+      final List<ODocument> result = db.command(new OCommandSQL("select from Cached where id < :max").setLimit(5)).execute(
+          Collections.singletonMap("max", 50));
+      Assert.assertEquals(result.size(), 5);
+    }
+    final List<ODocument> unlimited = db.command(new OCommandSQL("select from Cached where id < :max")).execute(
+        Collections.singletonMap("max", 50));
+    Assert.assertEquals(unlimited.size(), 50);
+
+    Assert.assertEquals(cache.getHits() - hits, 2);
+  }
+
+  public void testSkipAndLimit() {
+    final long hits = cache.getHits();
+
+    for (int i = 0; i < 3; ++i) {
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Cached skip 5")).size(), COUNT - 5);
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Cached skip 5 limit 10")).size(), 10);
+
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Cached where group = 1 skip 8 limit 5"));
+      Assert.assertEquals(result.size(), 2);
+      Assert.assertEquals(result.get(0).field("id"), 81);
+    }
+
+    Assert.assertEquals(cache.getHits() - hits, 6);
+  }
+
+  public void testAggregatesAreNotCached() {
+    for (int i = 0; i < 3; ++i) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select count(*) from Cached where group = 1"));
+      Assert.assertEquals(((Number) result.get(0).field("count")).intValue(), COUNT / 10);
+    }
+    Assert.assertEquals(cache.getSize(), 0);
+  }
+
+  public void testSchemaAndIndexChangesClearTheCache() {
+    final String query = "select from Cached where id = ?";
+    db.query(new OSQLSynchQuery<ODocument>(query), 1);
+    Assert.assertEquals(cache.getSize(), 1);
+
+    db.getMetadata().getSchema().getClass("Cached").getProperty("id").createIndex(OClass.INDEX_TYPE.UNIQUE);
+    Assert.assertEquals(cache.getSize(), 0);
+
+    long hits = cache.getHits();
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(query), 7);
+    Assert.assertEquals(result.size(), 1);
+    Assert.assertEquals(result.get(0).field("id"), 7);
+    Assert.assertEquals(cache.getHits(), hits);
+
+    db.getMetadata().getIndexManager().dropIndex("Cached.id");
+    Assert.assertEquals(cache.getSize(), 0);
+
+    db.query(new OSQLSynchQuery<ODocument>(query), 7);
+    db.getMetadata().getSchema().createClass("Other");
+
+    // THE SCHEMA RELOAD COULD HAVE EXECUTED OTHER QUERIES
+    hits = cache.getHits();
+    db.query(new OSQLSynchQuery<ODocument>(query), 7);
+    Assert.assertEquals(cache.getHits(), hits);
+  }
+}
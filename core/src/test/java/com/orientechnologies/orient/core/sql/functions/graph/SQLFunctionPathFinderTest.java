@@ -0,0 +1,95 @@
+package com.orientechnologies.orient.core.sql.functions.graph;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class SQLFunctionPathFinderTest {
+  private OGraphDatabase db;
+  private ODocument[]    v;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new OGraphDatabase("memory:pathFinderTest");
+    db.create();
+
+    v = new ODocument[6];
+    for (int i = 0; i < v.length; ++i)
+      v[i] = db.createVertex().field("name", i).save();
+
+    edge(0, 1, 1);
+    edge(1, 2, 1);
+    edge(2, 3, 1);
+    edge(0, 3, 10);
+    edge(3, 4, 1);
+    edge(4, 5, 1);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testDijkstraFollowsTheCheapestPath() {
+    Assert.assertEquals(path("dijkstra(@rid, " + v[3].getIdentity() + ", 'weight')", 0), vertices(0, 1, 2, 3));
+    Assert.assertEquals(path("dijkstra(@rid, " + v[5].getIdentity() + ", 'weight')", 0), vertices(0, 1, 2, 3, 4, 5));
+    Assert.assertNull(path("dijkstra(@rid, " + v[0].getIdentity() + ", 'weight')", 5));
+    Assert.assertEquals(path("dijkstra(@rid, " + v[0].getIdentity() + ", 'weight', 'in')", 5), vertices(5, 4, 3, 2, 1, 0));
+  }
+
+  public void testShortestPathFollowsTheFewestEdges() {
+    Assert.assertEquals(path("shortestPath(@rid, " + v[3].getIdentity() + ")", 0), vertices(0, 3));
+    Assert.assertEquals(path("shortestPath(@rid, " + v[5].getIdentity() + ")", 0), vertices(0, 3, 4, 5));
+    Assert.assertEquals(path("shortestPath(@rid, " + v[2].getIdentity() + ")", 4), null);
+    Assert.assertEquals(path("shortestPath(@rid, " + v[2].getIdentity() + ", 'both')", 4), vertices(4, 3, 2));
+    Assert.assertEquals(path("shortestPath(@rid, " + v[0].getIdentity() + ", 'in')", 5), vertices(5, 4, 3, 0));
+    Assert.assertEquals(path("shortestPath(@rid, " + v[1].getIdentity() + ")", 1), vertices(1));
+  }
+
+  public void testLimits() {
+    OGlobalConfiguration.GRAPH_PATH_MAX_DEPTH.setValue(2);
+    try {
+      Assert.assertNull(path("shortestPath(@rid, " + v[5].getIdentity() + ")", 0));
+      Assert.assertEquals(path("dijkstra(@rid, " + v[3].getIdentity() + ", 'weight')", 0), vertices(0, 3));
+      Assert.assertEquals(path("shortestPath(@rid, " + v[4].getIdentity() + ")", 0), vertices(0, 3, 4));
+    } finally {
+      OGlobalConfiguration.GRAPH_PATH_MAX_DEPTH.setValue(-1);
+    }
+
+    OGlobalConfiguration.GRAPH_PATH_MAX_VISITED.setValue(3);
+    try {
+      Assert.assertNull(path("dijkstra(@rid, " + v[5].getIdentity() + ", 'weight')", 0));
+    } finally {
+      OGlobalConfiguration.GRAPH_PATH_MAX_VISITED.setValue(-1);
+    }
+  }
+
+  private void edge(final int iFrom, final int iTo, final int iWeight) {
+    db.createEdge(v[iFrom], v[iTo]).field("weight", iWeight).save();
+  }
+
+  private List<OIdentifiable> path(final String iFunction, final int iFrom) {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select " + iFunction + " as path from "
+        + v[iFrom].getIdentity()));
+    Assert.assertEquals(result.size(), 1);
+    return result.get(0).field("path");
+  }
+
+  private List<OIdentifiable> vertices(final int... iIndexes) {
+    final OIdentifiable[] result = new OIdentifiable[iIndexes.length];
+    for (int i = 0; i < iIndexes.length; ++i)
+      result[i] = v[iIndexes[i]].getIdentity();
+    return Arrays.asList(result);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class StorageLocalConcurrentCommitTest {
+  private static final int    THREAD_COUNT = 8;
+  private static final int    TX_COUNT     = 100;
+
+  private String              url;
+  private ODatabaseDocumentTx db;
+  private ORID                counterRid;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    url = "local:" + buildDirectory + "/StorageLocalConcurrentCommitTest";
+
+    db = new ODatabaseDocumentTx(url);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+      db = new ODatabaseDocumentTx(url);
+    }
+
+    db.create();
+    db.getMetadata().getSchema().createClass("Item");
+
+    final ODocument counter = new ODocument("Counter");
+    counter.field("value", 0);
+    counter.save();
+    counterRid = counter.getIdentity();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testConcurrentCommits() throws Exception {
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+
+    for (int i = 0; i < THREAD_COUNT; i++)
+      futures.add(executorService.submit(new Committer(i, latch)));
+
+    latch.countDown();
+
+    int increments = 0;
+    for (Future<Integer> future : futures)
+      increments += future.get();
+
+    executorService.shutdown();
+
+    db.getLevel1Cache().invalidate();
+    db.getLevel2Cache().clear();
+
+    Assert.assertEquals(db.countClass("Item"), THREAD_COUNT * TX_COUNT * 2);
+
+    final ODocument counter = db.load(counterRid);
+    Assert.assertEquals(counter.field("value"), increments);
+  }
+
+  private final class Committer implements Callable<Integer> {
+    private final int            threadId;
+    private final CountDownLatch latch;
+
+    private Committer(int threadId, CountDownLatch latch) {
+      this.threadId = threadId;
+      this.latch = latch;
+    }
+
+    public Integer call() throws Exception {
+      final ODatabaseDocumentTx database = new ODatabaseDocumentTx(url);
+      database.open("admin", "admin");
+      try {
+        latch.await();
+
+        int increments = 0;
+        for (int i = 0; i < TX_COUNT; i++) {
+          database.begin();
+          try {
+            new ODocument("Item").field("thread", threadId).field("tx", i).save();
+            new ODocument("Item").field("thread", threadId).field("tx", i).save();
+
+            final ODocument counter = database.load(counterRid, null, true);
+            counter.field("value", (Integer) counter.field("value") + 1);
+            counter.save();
+
+            database.commit();
+            increments++;
+          } catch (OConcurrentModificationException e) {
+            // ALL THE CHANGES OF THE TRANSACTION ARE ROLLED BACK, REPEAT IT
+            database.rollback();
+            i--;
+          }
+        }
+
+        return increments;
+      } finally {
+        database.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+@Test
+public class LocalPaginatedStorageTransactionTest {
+  private String              url;
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    url = "plocal:" + buildDirectory + "/localPaginatedStorageTransactionTest";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    db = new ODatabaseDocumentTx(url);
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+      db = new ODatabaseDocumentTx(url);
+    }
+    db.create();
+    db.getMetadata().getSchema().createClass("Item");
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(db);
+    if (db.isClosed())
+      db.open("admin", "admin");
+    db.drop();
+  }
+
+  public void testCommit() {
+    db.begin();
+    final ODocument first = new ODocument("Item").field("name", "first");
+    first.save();
+    final ODocument second = new ODocument("Item").field("name", "second").field("link", first);
+    second.save();
+    db.commit();
+
+    reopen();
+    Assert.assertEquals(db.countClass("Item"), 2);
+    final ODocument loaded = db.load(second.getIdentity());
+    Assert.assertEquals(((ODocument) loaded.field("link")).field("name"), "first");
+  }
+
+  public void testFailedCommitIsReverted() {
+    final ODocument existing = new ODocument("Item").field("name", "existing");
+    existing.save();
+    final ORID rid = existing.getIdentity().copy();
+
+    final ODocument stale = existing.copy();
+    existing.field("name", "updated");
+    existing.save();
+
+    db.begin();
+    new ODocument("Item").field("name", "created").save();
+    stale.field("name", "stale");
+    stale.save();
+    try {
+      // THE CREATED RECORD IS WRITTEN BEFORE THE UPDATE FAILS
+      db.commit();
+      Assert.fail();
+    } catch (OConcurrentModificationException e) {
+    }
+
+    assertNotCommitted(rid);
+
+    // THE REVERTED CHANGES ARE NOT RESTORED WHEN THE STORAGE IS OPENED AGAIN
+    reopen();
+    assertNotCommitted(rid);
+  }
+
+  public void testCommitWithoutWriteAheadLog() {
+    OGlobalConfiguration.USE_WAL.setValue(false);
+    try {
+      // THE STORAGE IS CREATED AGAIN WITH THE SETTING
+      closeStorage();
+      db = new ODatabaseDocumentTx(url);
+      db.open("admin", "admin");
+      Assert.assertNull(((OLocalPaginatedStorage) db.getStorage()).getWriteAheadLog());
+
+      db.begin();
+      new ODocument("Item").field("name", "first").save();
+      new ODocument("Item").field("name", "second").save();
+      db.commit();
+      Assert.assertEquals(db.countClass("Item"), 2);
+
+      closeStorage();
+    } finally {
+      OGlobalConfiguration.USE_WAL.setValue(true);
+    }
+
+    db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+    Assert.assertEquals(db.countClass("Item"), 2);
+  }
+
+  private void assertNotCommitted(final ORID iRid) {
+    Assert.assertEquals(db.countClass("Item"), 1);
+    db.getLevel1Cache().invalidate();
+    final ODocument loaded = db.load(iRid);
+    Assert.assertEquals(loaded.field("name"), "updated");
+  }
+
+  private void reopen() {
+    closeStorage();
+    db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+  }
+
+  private void closeStorage() {
+    final OStorage storage = db.getStorage();
+    db.close();
+    storage.close(true);
+  }
+}
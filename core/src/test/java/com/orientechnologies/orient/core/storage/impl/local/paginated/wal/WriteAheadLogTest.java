@@ -0,0 +1,162 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+
+@Test
+public class WriteAheadLogTest {
+  private String         buildDirectory;
+  private OWriteAheadLog writeAheadLog;
+
+  @BeforeClass
+  public void beforeClass() {
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null || buildDirectory.isEmpty())
+      buildDirectory = ".";
+
+    buildDirectory += "/writeAheadLogTest";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    final File directory = new File(buildDirectory);
+    if (!directory.exists())
+      directory.mkdirs();
+
+    writeAheadLog = new OWriteAheadLog("writeAheadLogTest", buildDirectory);
+    writeAheadLog.open();
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    writeAheadLog.delete();
+  }
+
+  public void testLogAndIterate() throws IOException {
+    final List<OWALRecord> records = new ArrayList<OWALRecord>();
+    final Random random = new Random();
+
+    for (int i = 0; i < 1000; i++) {
+      final byte[] original = new byte[256];
+      final byte[] current = new byte[256];
+      random.nextBytes(current);
+
+      final OWALRecord record;
+      if (i % 10 == 9)
+        record = new OAtomicUnitEndRecord(i, i % 20 == 19);
+      else
+        record = new OUpdatePageRecord(i, "file" + i, i, OPageChanges.calculateChanges(original, current));
+
+      writeAheadLog.log(record);
+      records.add(record);
+    }
+
+    writeAheadLog.flush();
+    assertLogContent(records);
+
+    writeAheadLog.close();
+    writeAheadLog.open();
+
+    assertLogContent(records);
+  }
+
+  public void testBrokenTailIsDiscarded() throws IOException {
+    final OLogSequenceNumber first = writeAheadLog.log(new OFileTruncatedRecord(1, "cluster"));
+    final OLogSequenceNumber second = writeAheadLog.log(new OAtomicUnitEndRecord(1, false));
+    writeAheadLog.close();
+
+    final File segmentFile = new File(buildDirectory, "writeAheadLogTest." + second.getSegment() + OWriteAheadLog.WAL_EXTENSION);
+    final RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+    try {
+      file.setLength(file.length() - 1);
+    } finally {
+      file.close();
+    }
+
+    writeAheadLog.open();
+
+    Assert.assertEquals(writeAheadLog.begin(), first);
+    Assert.assertEquals(writeAheadLog.end(), first);
+    Assert.assertNull(writeAheadLog.next(first));
+  }
+
+  public void testTruncate() throws IOException {
+    for (int i = 0; i < 100; i++)
+      writeAheadLog.log(new OFileTruncatedRecord(i, "cluster" + i));
+
+    writeAheadLog.truncate();
+
+    final OLogSequenceNumber begin = writeAheadLog.begin();
+    Assert.assertTrue(writeAheadLog.read(begin) instanceof OCheckpointRecord);
+    Assert.assertNull(writeAheadLog.next(begin));
+  }
+
+  public void testNestedAtomicUnits() {
+    final OOperationUnit unit = writeAheadLog.startAtomicUnit();
+    Assert.assertSame(writeAheadLog.startAtomicUnit(), unit);
+
+    Assert.assertNull(writeAheadLog.endAtomicUnit(true));
+    Assert.assertSame(writeAheadLog.endAtomicUnit(false), unit);
+    Assert.assertTrue(unit.isRollbackOnly());
+
+    writeAheadLog.releaseAtomicUnit();
+    Assert.assertNull(writeAheadLog.getCurrentUnit());
+  }
+
+  public void testPageChangesApplyAndRevert() {
+    final Random random = new Random();
+    final byte[] original = new byte[1024];
+    random.nextBytes(original);
+
+    final byte[] current = original.clone();
+    for (int i = 0; i < 20; i++)
+      current[random.nextInt(current.length)]++;
+
+    final OPageChanges pageChanges = OPageChanges.calculateChanges(original, current);
+    final byte[] serialized = new byte[pageChanges.serializedSize()];
+    pageChanges.toStream(serialized, 0);
+
+    final OPageChanges restoredChanges = new OPageChanges();
+    restoredChanges.fromStream(serialized, 0);
+
+    final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
+    final long pointer = directMemory.allocate(original);
+    try {
+      restoredChanges.applyChanges(directMemory, pointer);
+      Assert.assertEquals(directMemory.get(pointer, current.length), current);
+
+      restoredChanges.revertChanges(directMemory, pointer);
+      Assert.assertEquals(directMemory.get(pointer, original.length), original);
+    } finally {
+      directMemory.free(pointer);
+    }
+  }
+
+  private void assertLogContent(List<OWALRecord> records) throws IOException {
+    OLogSequenceNumber lsn = writeAheadLog.begin();
+    for (OWALRecord record : records) {
+      Assert.assertNotNull(lsn);
+
+      final OWALRecord storedRecord = writeAheadLog.read(lsn);
+      Assert.assertEquals(storedRecord.toString(), record.toString());
+      Assert.assertEquals(storedRecord.getLsn(), record.getLsn());
+
+      lsn = writeAheadLog.next(lsn);
+    }
+
+    Assert.assertNull(lsn);
+  }
+}
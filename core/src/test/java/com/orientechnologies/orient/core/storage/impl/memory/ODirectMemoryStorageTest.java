@@ -0,0 +1,167 @@
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemory;
+import com.orientechnologies.common.directmemory.ODirectMemoryFactory;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPage;
+import com.orientechnologies.orient.core.version.ORecordVersion;
+
+@Test
+public class ODirectMemoryStorageTest {
+  private final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
+
+  public void testDataSegmentSmallRecords() {
+    final ODataSegmentDirectMemory dataSegment = new ODataSegmentDirectMemory("test", 0, directMemory);
+    try {
+      final List<Long> positions = new ArrayList<Long>();
+      for (int i = 0; i < 10000; i++)
+        positions.add(dataSegment.createRecord(("record" + i).getBytes()));
+
+      Assert.assertEquals(dataSegment.count(), 10000);
+      for (int i = 0; i < 10000; i++)
+        Assert.assertEquals(new String(dataSegment.readRecord(positions.get(i))), "record" + i);
+
+      for (int i = 0; i < 10000; i += 2)
+        dataSegment.deleteRecord(positions.get(i));
+
+      for (int i = 0; i < 10000; i++)
+        if (i % 2 == 0)
+          Assert.assertNull(dataSegment.readRecord(positions.get(i)));
+        else
+          Assert.assertEquals(new String(dataSegment.readRecord(positions.get(i))), "record" + i);
+
+      // FREED POSITIONS AND SPACE ARE REUSED
+      final long allocated = dataSegment.getAllocatedMemory();
+      for (int i = 0; i < 5000; i++)
+        Assert.assertTrue(dataSegment.createRecord(("new" + i).getBytes()) < 10000);
+      Assert.assertEquals(dataSegment.count(), 10000);
+      Assert.assertEquals(dataSegment.getAllocatedMemory(), allocated);
+    } finally {
+      dataSegment.close();
+    }
+  }
+
+  public void testDataSegmentBigRecords() {
+    final ODataSegmentDirectMemory dataSegment = new ODataSegmentDirectMemory("test", 0, directMemory);
+    try {
+      final Random random = new Random(42);
+
+      final byte[] small = new byte[100];
+      random.nextBytes(small);
+      final long position = dataSegment.createRecord(small);
+
+      // GROW OVER THE PAGE SIZE, THEN SHRINK AGAIN
+      final int[] sizes = { OLocalPage.MAX_RECORD_SIZE, 3 * OLocalPage.PAGE_SIZE + 7, 0, 500 };
+      for (int size : sizes) {
+        final byte[] content = new byte[size];
+        random.nextBytes(content);
+
+        dataSegment.updateRecord(position, content);
+        Assert.assertEquals(dataSegment.readRecord(position), content);
+        Assert.assertEquals(dataSegment.getSize(), size);
+      }
+
+      dataSegment.deleteRecord(position);
+      Assert.assertNull(dataSegment.readRecord(position));
+      Assert.assertEquals(dataSegment.getSize(), 0);
+    } finally {
+      dataSegment.close();
+    }
+  }
+
+  public void testClusterRecyclesPositions() throws Exception {
+    final OClusterDirectMemory cluster = new OClusterDirectMemory(directMemory);
+    cluster.configure(null, 1, "test", null, 0);
+    try {
+      for (int i = 0; i < 10000; i++) {
+        final OPhysicalPosition ppos = new OPhysicalPosition(0, i * 10, (byte) 'd');
+        cluster.addPhysicalPosition(ppos);
+        Assert.assertEquals(ppos.clusterPosition.longValue(), i);
+      }
+      Assert.assertEquals(cluster.getEntries(), 10000);
+
+      final OPhysicalPosition ppos = cluster.getPhysicalPosition(new OPhysicalPosition(OClusterPositionFactory.INSTANCE
+          .valueOf(42)));
+      Assert.assertEquals(ppos.dataSegmentPos, 420);
+      Assert.assertEquals(ppos.recordType, (byte) 'd');
+
+      final ORecordVersion version = ppos.recordVersion.copy();
+      version.increment();
+      version.increment();
+      cluster.updateVersion(ppos.clusterPosition, version);
+      cluster.updateDataSegmentPosition(ppos.clusterPosition, 1, 7);
+
+      cluster.removePhysicalPosition(ppos.clusterPosition);
+      Assert.assertNull(cluster.getPhysicalPosition(new OPhysicalPosition(ppos.clusterPosition)));
+      Assert.assertEquals(cluster.getEntries(), 9999);
+      Assert.assertEquals(cluster.higherPositions(new OPhysicalPosition(OClusterPositionFactory.INSTANCE.valueOf(41)))[0].clusterPosition
+          .longValue(), 43);
+      Assert.assertEquals(cluster.lowerPositions(new OPhysicalPosition(OClusterPositionFactory.INSTANCE.valueOf(43)))[0].clusterPosition
+          .longValue(), 41);
+
+      // THE REMOVED POSITION IS RECYCLED WITH A HIGHER VERSION
+      final OPhysicalPosition recycled = new OPhysicalPosition(0, 1, (byte) 'b');
+      cluster.addPhysicalPosition(recycled);
+      Assert.assertEquals(recycled.clusterPosition.longValue(), 42);
+      Assert.assertEquals(recycled.recordVersion.getCounter(), version.getCounter() + 1);
+
+      final OPhysicalPosition loaded = cluster.getPhysicalPosition(new OPhysicalPosition(recycled.clusterPosition));
+      Assert.assertEquals(loaded.recordVersion, recycled.recordVersion);
+      Assert.assertEquals(loaded.recordType, (byte) 'b');
+      Assert.assertEquals(loaded.dataSegmentPos, 1);
+    } finally {
+      cluster.close();
+    }
+  }
+
+  public void testMemoryDatabase() {
+    final boolean oldValue = OGlobalConfiguration.STORAGE_MEMORY_DIRECT.getValueAsBoolean();
+    OGlobalConfiguration.STORAGE_MEMORY_DIRECT.setValue(true);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("memory:ODirectMemoryStorageTest");
+    try {
+      db.create();
+      Assert.assertTrue(db.getStorage().getClusterById(db.getDefaultClusterId()) instanceof OClusterDirectMemory);
+
+      final List<ORID> rids = new ArrayList<ORID>();
+      for (int i = 0; i < 1000; i++)
+        rids.add(new ODocument("Person").field("name", "name" + i).field("index", i).save().getIdentity());
+
+      for (int i = 0; i < 1000; i += 3) {
+        final ODocument doc = db.load(rids.get(i));
+        doc.field("name", "updated" + i).save();
+      }
+      for (int i = 1; i < 1000; i += 3)
+        ((ODocument) db.load(rids.get(i))).delete();
+
+      db.getLevel1Cache().clear();
+      db.getLevel2Cache().clear();
+
+      Assert.assertEquals(db.countClass("Person"), 1000 - 333);
+      for (int i = 0; i < 1000; i++) {
+        final ODocument doc = db.load(rids.get(i));
+        if (i % 3 == 1)
+          Assert.assertNull(doc);
+        else {
+          Assert.assertEquals(doc.field("name"), (i % 3 == 0 ? "updated" : "name") + i);
+          Assert.assertEquals(doc.getVersion(), i % 3 == 0 ? 1 : 0);
+        }
+      }
+    } finally {
+      db.drop();
+      OGlobalConfiguration.STORAGE_MEMORY_DIRECT.setValue(oldValue);
+    }
+  }
+}
@@ -17,7 +17,9 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.LinkedList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -27,19 +29,32 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 
 /**
- * Implementation that supports multiple client requests.
+ * Implementation that supports multiple client requests. Requests are pipelined: the write lock is held only while a request is
+ * sent, then the requester waits for the response with the same session id. The thread that reads the header of a response for
+ * another session hands the channel directly to the thread waiting for it, so many requests can be in flight on the same socket.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
 public class OChannelBinaryAsynch extends OChannelBinary {
-  private final ReentrantLock lockRead      = new ReentrantLock(true);
-  private final Condition     readCondition = lockRead.newCondition();
-  private final ReentrantLock lockWrite     = new ReentrantLock();
-  private boolean             channelRead   = false;
-  private byte                currentStatus;
-  private int                 currentSessionId;
-  private final int           maxUnreadResponses;
+  private final ReentrantLock               lockRead         = new ReentrantLock(true);
+  private final ReentrantLock               lockWrite        = new ReentrantLock();
+  private final LinkedList<OResponseWaiter> waiters          = new LinkedList<OResponseWaiter>();
+  private final AtomicInteger               pendingResponses = new AtomicInteger();
+  private boolean                           channelRead      = false;
+  private byte                              currentStatus;
+  private int                               currentSessionId;
+  private final int                         maxUnreadResponses;
+
+  private static class OResponseWaiter {
+    private final int       sessionId;
+    private final Condition turn;
+
+    private OResponseWaiter(final int iSessionId, final Condition iTurn) {
+      sessionId = iSessionId;
+      turn = iTurn;
+    }
+  }
 
   public OChannelBinaryAsynch(final Socket iSocket, final OContextConfiguration iConfig) throws IOException {
     super(iSocket, iConfig);
@@ -60,107 +75,115 @@ public class OChannelBinaryAsynch extends OChannelBinary {
   }
 
   public void beginResponse(final int iRequesterId, final long iTimeout) throws IOException {
+    final long startClock = iTimeout > 0 ? System.currentTimeMillis() : 0;
+
+    pendingResponses.incrementAndGet();
+    try {
+      if (iTimeout <= 0)
+        lockRead.lock();
+      else if (!lockRead.tryLock(iTimeout, TimeUnit.MILLISECONDS))
+        throw new OTimeoutException("Cannot acquire read lock against channel: " + this);
+    } catch (InterruptedException e) {
+      pendingResponses.decrementAndGet();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the response of the request " + iRequesterId);
+    } catch (OTimeoutException e) {
+      pendingResponses.decrementAndGet();
+      throw e;
+    }
+
+    final OResponseWaiter waiter = new OResponseWaiter(iRequesterId, lockRead.newCondition());
+    waiters.add(waiter);
+
+    boolean owner = false;
     try {
       int unreadResponse = 0;
-      final long startClock = iTimeout > 0 ? System.currentTimeMillis() : 0;
 
       // WAIT FOR THE RESPONSE
       do {
-        if (iTimeout <= 0)
-          lockRead.lock();
-        else if (!lockRead.tryLock(iTimeout, TimeUnit.MILLISECONDS))
-          throw new OTimeoutException("Cannot acquire read lock against channel: " + this);
-
         if (!channelRead) {
+          currentStatus = readByte();
+          currentSessionId = readInt();
           channelRead = true;
 
-          try {
-            currentStatus = readByte();
-            currentSessionId = readInt();
-
-            if (debug)
-              OLogManager.instance().debug(this, "%s - Read response: %d-%d", socket.getLocalAddress(), (int) currentStatus,
-                  currentSessionId);
-
-          } catch (IOException e) {
-            // UNLOCK THE RESOURCE AND PROPAGATES THE EXCEPTION
-            readCondition.signalAll();
-            lockRead.unlock();
-            channelRead = false;
-            throw e;
-          }
+          if (debug)
+            OLogManager.instance().debug(this, "%s - Read response: %d-%d", socket.getLocalAddress(), (int) currentStatus,
+                currentSessionId);
         }
 
-        if (currentSessionId == iRequesterId)
+        if (currentSessionId == iRequesterId && getFirstWaiter(iRequesterId) == waiter) {
           // IT'S FOR ME
+          owner = true;
           break;
+        }
 
-        try {
-          if (debug)
-            OLogManager.instance().debug(this, "%s - Session %d skip response, it is for %d", socket.getLocalAddress(),
-                iRequesterId, currentSessionId);
-
-          if (iTimeout > 0 && (System.currentTimeMillis() - startClock) > iTimeout)
-            throw new OTimeoutException("Timeout on reading response from the server for the request " + iRequesterId);
-
-          if (unreadResponse > maxUnreadResponses) {
-            if (debug)
-              OLogManager.instance().info(this, "Unread responses %d > %d, consider the buffer as dirty: clean it", unreadResponse,
-                  maxUnreadResponses);
-
-            close();
-            throw new IOException("Timeout on reading response");
-          }
-
-          // WAIT 1 SECOND AND RETRY
+        if (debug)
+          OLogManager.instance().debug(this, "%s - Session %d skip response, it is for %d", socket.getLocalAddress(), iRequesterId,
+              currentSessionId);
 
-          readCondition.signalAll();
+        if (iTimeout > 0 && (System.currentTimeMillis() - startClock) > iTimeout)
+          throw new OTimeoutException("Timeout on reading response from the server for the request " + iRequesterId);
 
+        if (unreadResponse > maxUnreadResponses) {
           if (debug)
-            OLogManager.instance().debug(this, "Session %d is going to sleep...", iRequesterId);
-
-          final long start = System.currentTimeMillis();
+            OLogManager.instance().info(this, "Unread responses %d > %d, consider the buffer as dirty: clean it", unreadResponse,
+                maxUnreadResponses);
 
-          readCondition.await(1, TimeUnit.SECONDS);
-          final long now = System.currentTimeMillis();
+          close();
+          throw new IOException("Timeout on reading response");
+        }
 
-          if (debug)
-            OLogManager.instance().debug(this, "Waked up: slept %dms, checking again from %s for session %d", (now - start),
-                socket.getLocalAddress(), iRequesterId);
+        // WAKE UP THE OWNER OF THE RESPONSE, IF ALREADY WAITING, AND WAIT FOR MY TURN
+        signalNextReader();
 
-          if (now - start >= 1000)
-            unreadResponse++;
+        final long start = System.currentTimeMillis();
+        waiter.turn.await(1, TimeUnit.SECONDS);
 
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
+        if (channelRead && System.currentTimeMillis() - start >= 1000)
+          // NOBODY CLAIMED THE RESPONSE IN THE MEANWHILE
+          unreadResponse++;
 
-        } finally {
-          lockRead.unlock();
-        }
       } while (true);
 
       if (debug)
         OLogManager.instance().debug(this, "%s - Session %d handle response", socket.getLocalAddress(), iRequesterId);
 
-      handleStatus(currentStatus, currentSessionId);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
-      // NEVER HAPPENS?
-      e.printStackTrace();
+      throw new IOException("Interrupted while waiting for the response of the request " + iRequesterId);
+
+    } finally {
+      waiters.remove(waiter);
+
+      if (!owner) {
+        // UNLOCK THE RESOURCE AND PROPAGATES THE EXCEPTION
+        pendingResponses.decrementAndGet();
+        signalNextReader();
+        lockRead.unlock();
+      }
     }
+
+    handleStatus(currentStatus, currentSessionId);
   }
 
   public void endResponse() {
+    if (!lockRead.isHeldByCurrentThread())
+      // BEGIN RESPONSE FAILED: ALREADY UNLOCKED
+      return;
+
     channelRead = false;
+    pendingResponses.decrementAndGet();
 
-    // WAKE UP ALL THE WAITING THREADS
+    // WAKE UP THE NEXT THREAD THAT WILL READ THE FOLLOWING RESPONSE
+    signalNextReader();
+    lockRead.unlock();
+  }
 
-    try {
-      readCondition.signalAll();
-      lockRead.unlock();
-    } catch (IllegalMonitorStateException e) {
-      // IGNORE IT
-    }
+  /**
+   * Returns the number of requesters waiting for a response on this channel.
+   */
+  public int getPendingResponses() {
+    return pendingResponses.get();
   }
 
   public ReentrantLock getLockRead() {
@@ -175,7 +198,8 @@ public class OChannelBinaryAsynch extends OChannelBinary {
   public void close() {
     if (lockRead.tryLock())
       try {
-        readCondition.signalAll();
+        for (OResponseWaiter w : waiters)
+          w.turn.signal();
       } finally {
         lockRead.unlock();
       }
@@ -192,4 +216,21 @@ public class OChannelBinaryAsynch extends OChannelBinary {
       lockRead.unlock();
     }
   }
+
+  /**
+   * Signals the requester that must go on: the owner of the response already read, if any, otherwise the first in the queue that
+   * will read the next one. Must be called holding the read lock.
+   */
+  private void signalNextReader() {
+    final OResponseWaiter next = channelRead ? getFirstWaiter(currentSessionId) : waiters.peek();
+    if (next != null)
+      next.turn.signal();
+  }
+
+  private OResponseWaiter getFirstWaiter(final int iSessionId) {
+    for (OResponseWaiter w : waiters)
+      if (w.sessionId == iSessionId)
+        return w;
+    return null;
+  }
 }
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -31,6 +32,11 @@ public class OChannelBinaryClient extends OChannelBinaryAsynch {
   final protected int socketTimeout;     // IN MS
   final private short srvProtocolVersion;
 
+  // FRAMES BIGGER THAN THIS ARE NOT KEPT AS BUFFER FOR THE NEXT REQUESTS
+  private static final int       MAX_FRAME_BUFFER = 64 * 1024;
+  private final DataOutputStream socketOut;
+  private ByteArrayOutputStream  frame;
+
   public OChannelBinaryClient(final String remoteHost, final int remotePort, final OContextConfiguration iConfig,
       final int iProtocolVersion) throws IOException {
     super(new Socket(), iConfig);
@@ -52,7 +58,7 @@ public class OChannelBinaryClient extends OChannelBinaryAsynch {
     outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
 
     in = new DataInputStream(inStream);
-    out = new DataOutputStream(outStream);
+    out = socketOut = new DataOutputStream(outStream);
 
     try {
       srvProtocolVersion = readShort();
@@ -73,6 +79,28 @@ public class OChannelBinaryClient extends OChannelBinaryAsynch {
           + ", server=" + srvProtocolVersion);
     }
 
+    if (srvProtocolVersion >= OChannelBinaryProtocol.PROTOCOL_VERSION_FRAMED)
+      // BUFFER EVERY REQUEST TO SEND IT PREFIXED BY ITS LENGTH
+      newFrame();
+  }
+
+  /**
+   * Sends the request written since the last flush. To servers that support it the request is prefixed by its length, so they can
+   * wait for the whole request before executing it.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (frame != null && frame.size() > 0) {
+      socketOut.writeByte(OChannelBinaryProtocol.REQUEST_FRAMED);
+      socketOut.writeInt(frame.size());
+      frame.writeTo(socketOut);
+
+      if (frame.size() > MAX_FRAME_BUFFER)
+        newFrame();
+      else
+        frame.reset();
+    }
+    super.flush();
   }
 
   public void reconnect() throws IOException {
@@ -99,4 +127,9 @@ public class OChannelBinaryClient extends OChannelBinaryAsynch {
   public short getSrvProtocolVersion() {
     return srvProtocolVersion;
   }
+
+  private void newFrame() {
+    frame = new ByteArrayOutputStream(socketBufferSize);
+    out = new DataOutputStream(frame);
+  }
 }
@@ -67,6 +67,7 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_COUNT                          = 40; // DEPRECATED: USE REQUEST_DATACLUSTER_COUNT
   public static final byte  REQUEST_COMMAND                        = 41;
   public static final byte  REQUEST_POSITIONS_CEILING              = 42; // since 1.3.0
+  public static final byte  REQUEST_RECORD_LOAD_MULTI              = 43; // since 1.4.0
 
   public static final byte  REQUEST_TX_COMMIT                      = 60;
 
@@ -89,6 +90,9 @@ public class OChannelBinaryProtocol {
   public static final byte  REQUEST_DB_FREEZE                      = 94; // SINCE 1.1.0
   public static final byte  REQUEST_DB_RELEASE                     = 95; // SINCE 1.1.0
 
+  // PREFIX OF A REQUEST FOLLOWED BY ITS LENGTH AS INT, SENT TO SERVERS OF PROTOCOL_VERSION_FRAMED OR LATER
+  public static final byte  REQUEST_FRAMED                         = 100; // SINCE 1.4.0
+
   // INCOMING
   public static final byte  RESPONSE_STATUS_OK                     = 0;
   public static final byte  RESPONSE_STATUS_ERROR                  = 1;
@@ -97,7 +101,8 @@ public class OChannelBinaryProtocol {
   // CONSTANTS
   public static final short RECORD_NULL                            = -2;
   public static final short RECORD_RID                             = -3;
-  public static final int   CURRENT_PROTOCOL_VERSION               = 15; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+  public static final int   CURRENT_PROTOCOL_VERSION               = 17; // SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+  public static final int   PROTOCOL_VERSION_FRAMED                = 17;
 
   public static OIdentifiable readIdentifiable(final OChannelBinaryClient network) throws IOException {
     final int classId = network.readShort();
@@ -0,0 +1,218 @@
+package com.orientechnologies.orient.enterprise.channel.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+@Test
+public class ChannelBinaryAsynchTest {
+  private static final int     TIMEOUT = 5000;
+
+  private ServerSocket         serverSocket;
+  private ExecutorService      requesters;
+  private OChannelBinaryAsynch channel;
+  private Socket               server;
+  private DataInputStream      serverIn;
+  private DataOutputStream     serverOut;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress("localhost", 0));
+    requesters = Executors.newCachedThreadPool();
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    requesters.shutdownNow();
+    serverSocket.close();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    final OContextConfiguration configuration = new OContextConfiguration();
+    configuration.setValue(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT, TIMEOUT);
+
+    final Socket client = new Socket("localhost", serverSocket.getLocalPort());
+    channel = new OChannelBinaryAsynch(client, configuration);
+    channel.inStream = new BufferedInputStream(client.getInputStream());
+    channel.outStream = new BufferedOutputStream(client.getOutputStream());
+    channel.in = new DataInputStream(channel.inStream);
+    channel.out = new DataOutputStream(channel.outStream);
+
+    server = serverSocket.accept();
+    server.setSoTimeout(TIMEOUT);
+    serverIn = new DataInputStream(server.getInputStream());
+    serverOut = new DataOutputStream(server.getOutputStream());
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    channel.close();
+    server.close();
+  }
+
+  public void testInterleavedResponses() throws Exception {
+    final int requests = 8;
+    final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < requests; ++i)
+      results.add(requesters.submit(new ORequester(i, 0)));
+
+    final List<Integer> received = new ArrayList<Integer>();
+    for (int i = 0; i < requests; ++i)
+      received.add(serverIn.readInt());
+
+    // THE RESPONSES ARRIVE IN THE REVERSE ORDER OF THE REQUESTS
+    for (int i = received.size() - 1; i >= 0; --i)
+      sendResponse(received.get(i), received.get(i) * 10);
+
+    for (int i = 0; i < requests; ++i)
+      Assert.assertEquals(results.get(i).get(TIMEOUT, TimeUnit.MILLISECONDS).intValue(), i * 10);
+    Assert.assertEquals(channel.getPendingResponses(), 0);
+  }
+
+  public void testTimeoutWaitingForTheChannel() throws Exception {
+    // THE FIRST REQUESTER READS THE CHANNEL WHILE THE SECOND WAITS FOR IT
+    final Future<Integer> reading = requesters.submit(new ORequester(1, 0));
+    serverIn.readInt();
+    waitForPendingResponses(1);
+
+    final Future<Integer> waiting = requesters.submit(new ORequester(2, 300));
+    serverIn.readInt();
+    assertFailure(waiting, OTimeoutException.class);
+
+    sendResponse(1, 10);
+    Assert.assertEquals(reading.get(TIMEOUT, TimeUnit.MILLISECONDS).intValue(), 10);
+    Assert.assertEquals(channel.getPendingResponses(), 0);
+  }
+
+  public void testTimeoutWaitingForTheResponse() throws Exception {
+    final Future<Integer> waiting = requesters.submit(new ORequester(1, 300));
+    serverIn.readInt();
+
+    // NOBODY WAITS FOR THIS RESPONSE
+    sendResponse(2, 20);
+    assertFailure(waiting, OTimeoutException.class);
+    Assert.assertEquals(channel.getPendingResponses(), 0);
+
+    // THE RESPONSE IS STILL THERE FOR ITS REQUESTER
+    final Future<Integer> late = requesters.submit(new ORequester(2, 0));
+    serverIn.readInt();
+    Assert.assertEquals(late.get(TIMEOUT, TimeUnit.MILLISECONDS).intValue(), 20);
+  }
+
+  public void testDisconnectWhileWaiting() throws Exception {
+    final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 3; ++i)
+      results.add(requesters.submit(new ORequester(i, 0)));
+    for (int i = 0; i < 3; ++i)
+      serverIn.readInt();
+    waitForPendingResponses(3);
+
+    server.close();
+
+    // EVERY REQUESTER FAILS, NOBODY WAITS FOR THE SOCKET TIMEOUT
+    final long start = System.currentTimeMillis();
+    for (Future<Integer> result : results)
+      assertFailure(result, IOException.class);
+    Assert.assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+    Assert.assertEquals(channel.getPendingResponses(), 0);
+  }
+
+  public void testCloseWhileWaiting() throws Exception {
+    final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < 3; ++i)
+      results.add(requesters.submit(new ORequester(i, 0)));
+    for (int i = 0; i < 3; ++i)
+      serverIn.readInt();
+    waitForPendingResponses(3);
+
+    channel.close();
+
+    final long start = System.currentTimeMillis();
+    for (Future<Integer> result : results)
+      assertFailure(result, IOException.class);
+    Assert.assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+  }
+
+  /**
+   * Sends its session id as request and returns the int of the response.
+   */
+  private class ORequester implements Callable<Integer> {
+    private final int  sessionId;
+    private final long timeout;
+
+    private ORequester(final int iSessionId, final long iTimeout) {
+      sessionId = iSessionId;
+      timeout = iTimeout;
+    }
+
+    public Integer call() throws Exception {
+      channel.beginRequest();
+      try {
+        channel.writeInt(sessionId);
+      } finally {
+        channel.endRequest();
+      }
+
+      if (timeout > 0)
+        channel.beginResponse(sessionId, timeout);
+      else
+        channel.beginResponse(sessionId);
+      try {
+        return channel.readInt();
+      } finally {
+        channel.endResponse();
+      }
+    }
+  }
+
+  private void sendResponse(final int iSessionId, final int iValue) throws IOException {
+    serverOut.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+    serverOut.writeInt(iSessionId);
+    serverOut.writeInt(iValue);
+    serverOut.flush();
+  }
+
+  private void waitForPendingResponses(final int iPending) throws InterruptedException {
+    final long start = System.currentTimeMillis();
+    while (channel.getPendingResponses() < iPending && System.currentTimeMillis() - start < TIMEOUT)
+      Thread.sleep(10);
+    Assert.assertEquals(channel.getPendingResponses(), iPending);
+  }
+
+  private static void assertFailure(final Future<Integer> iResult, final Class<? extends Throwable> iExpected)
+      throws InterruptedException, TimeoutException {
+    try {
+      iResult.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      Assert.fail("Expected " + iExpected.getSimpleName());
+    } catch (ExecutionException e) {
+      Assert.assertTrue(iExpected.isInstance(e.getCause()), "Unexpected " + e.getCause());
+    }
+  }
+}
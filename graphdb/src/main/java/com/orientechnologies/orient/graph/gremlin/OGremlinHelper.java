@@ -29,12 +29,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 
 import com.orientechnologies.common.concur.resource.OResourcePool;
 import com.orientechnologies.common.concur.resource.OResourcePoolListener;
+import com.orientechnologies.common.util.OCallable;
 import com.orientechnologies.orient.core.command.OCommandManager;
+import com.orientechnologies.orient.core.command.script.OScriptCache;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
@@ -135,7 +138,14 @@ public class OGremlinHelper {
           if (!iBeforeExecution.call(engine, graph))
             return null;
 
-        final Object scriptResult = engine.eval(iText);
+        // THE SCRIPT IS COMPILED ONCE AND EXECUTED WITH THE BINDINGS OF THE ENGINE OF THE CURRENT THREAD
+        final CompiledScript compiledScript = OScriptCache.getInstance(iDatabase.getStorage()).getCompiledScript(engine,
+            "gremlin:" + iText, new OCallable<String, String>() {
+              public String call(final String iKey) {
+                return iText;
+              }
+            });
+        final Object scriptResult = compiledScript != null ? compiledScript.eval(engine.getContext()) : engine.eval(iText);
 
         if (iAfterExecution != null)
           if (!iAfterExecution.call(engine, graph))
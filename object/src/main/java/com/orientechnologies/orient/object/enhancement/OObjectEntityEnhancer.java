@@ -29,7 +29,6 @@ import java.util.Set;
 
 import javassist.util.proxy.MethodHandler;
 import javassist.util.proxy.Proxy;
-import javassist.util.proxy.ProxyFactory;
 import javassist.util.proxy.ProxyObject;
 
 import com.orientechnologies.common.log.OLogManager;
@@ -88,14 +87,7 @@ public class OObjectEntityEnhancer {
     if (Proxy.class.isAssignableFrom(iClass)) {
       c = iClass;
     } else {
-      ProxyFactory f = new ProxyFactory();
-      f.setSuperclass(iClass);
-      if (customMethodFilters.get(iClass) != null) {
-        f.setFilter(customMethodFilters.get(iClass));
-      } else {
-        f.setFilter(defaultMethodFilter);
-      }
-      c = f.createClass();
+      c = (Class<T>) OObjectEntityMapper.getInstance(iClass).getProxyClass();
     }
     MethodHandler mi = new OObjectProxyMethodHandler(doc);
     ((OObjectProxyMethodHandler) mi).setParentObject(parent);
@@ -183,10 +175,12 @@ public class OObjectEntityEnhancer {
 
   public void registerClassMethodFilter(Class<?> iClass, OObjectMethodFilter iMethodFilter) {
     customMethodFilters.put(iClass, iMethodFilter);
+    OObjectEntityMapper.clear();
   }
 
   public void deregisterClassMethodFilter(Class<?> iClass) {
     customMethodFilters.remove(iClass);
+    OObjectEntityMapper.clear();
   }
 
   public static synchronized OObjectEntityEnhancer getInstance() {
@@ -216,7 +210,7 @@ public class OObjectEntityEnhancer {
   protected void initDocument(Class<?> iClass, Object iInstance, ODocument iDocument, ODatabaseObject db)
       throws IllegalArgumentException, IllegalAccessException {
     for (Class<?> currentClass = iClass; currentClass != Object.class;) {
-      for (Field f : currentClass.getDeclaredFields()) {
+      for (Field f : OObjectEntityMapper.getInstance(currentClass).getDeclaredFields()) {
         if (f.getName().equals("this$0"))
           continue;
         if (!f.isAccessible()) {
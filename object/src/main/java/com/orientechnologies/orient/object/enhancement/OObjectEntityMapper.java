@@ -0,0 +1,167 @@
+/*
+ *
+ * Copyright 2026 agent (agent--AT--local)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.object.enhancement;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javassist.util.proxy.ProxyFactory;
+
+/**
+ * Mapping of a class computed once and shared by all its instances: the proxy class, the fields of the class and of its super
+ * classes already made accessible, and the getters and setters intercepted by the proxy with the name of their field. The enhancer,
+ * the serializer and the proxy handler use it in place of creating the proxy class and looking up fields and methods at every call.
+ * The mappings don't keep their classes loaded: the classes are weak keys and, since a mapping refers to its class, the mappings are
+ * softly referenced.
+ *
+ * @author agent
+ *
+ */
+public class OObjectEntityMapper {
+  private static final Map<Class<?>, SoftReference<OObjectEntityMapper>> mappers  = new WeakHashMap<Class<?>, SoftReference<OObjectEntityMapper>>();
+
+  private static final OAccessor                                    NONE     = new OAccessor(false, false, null);
+
+  private final Class<?>                                            mappedClass;
+  private final Field[]                                             declaredFields;
+  private final Map<String, Field>                                  fields   = new HashMap<String, Field>();
+  private final ConcurrentMap<Method, OAccessor>                    accessors = new ConcurrentHashMap<Method, OAccessor>();
+  private volatile Class<?>                                         proxyClass;
+
+  private static class OAccessor {
+    private final boolean getter;
+    private final boolean setter;
+    private final String  fieldName;
+
+    private OAccessor(final boolean iGetter, final boolean iSetter, final String iFieldName) {
+      getter = iGetter;
+      setter = iSetter;
+      fieldName = iFieldName;
+    }
+  }
+
+  private OObjectEntityMapper(final Class<?> iClass) {
+    mappedClass = iClass;
+    declaredFields = iClass.getDeclaredFields();
+    for (Field f : declaredFields)
+      try {
+        if (!f.isAccessible())
+          f.setAccessible(true);
+      } catch (SecurityException e) {
+        // LEFT TO OObjectEntitySerializer.getFieldValue() AND setFieldValue()
+      }
+
+    // THE FIELDS OF THE CLASS HIDE THE ONES OF THE SUPER CLASSES WITH THE SAME NAME
+    for (Field f : declaredFields)
+      fields.put(f.getName(), f);
+    final Class<?> superClass = iClass.getSuperclass();
+    if (superClass != null && superClass != Object.class)
+      for (Map.Entry<String, Field> entry : getInstance(superClass).fields.entrySet())
+        if (!fields.containsKey(entry.getKey()))
+          fields.put(entry.getKey(), entry.getValue());
+  }
+
+  public static OObjectEntityMapper getInstance(final Class<?> iClass) {
+    synchronized (mappers) {
+      final SoftReference<OObjectEntityMapper> ref = mappers.get(iClass);
+      OObjectEntityMapper mapper = ref != null ? ref.get() : null;
+      if (mapper == null) {
+        mapper = new OObjectEntityMapper(iClass);
+        mappers.put(iClass, new SoftReference<OObjectEntityMapper>(mapper));
+      }
+      return mapper;
+    }
+  }
+
+  /**
+   * Removes all the mappings. Called when the method filter of a class changes.
+   */
+  public static void clear() {
+    synchronized (mappers) {
+      mappers.clear();
+    }
+  }
+
+  /**
+   * Returns the proxy class of the mapped class, created the first time with the method filter of the class.
+   */
+  public Class<?> getProxyClass() {
+    if (proxyClass == null)
+      synchronized (this) {
+        if (proxyClass == null) {
+          final ProxyFactory f = new ProxyFactory();
+          f.setSuperclass(mappedClass);
+          f.setFilter(OObjectEntityEnhancer.getInstance().getMethodFilter(mappedClass));
+          proxyClass = f.createClass();
+        }
+      }
+    return proxyClass;
+  }
+
+  /**
+   * Returns the fields declared by the mapped class. The array is shared: don't modify it.
+   */
+  public Field[] getDeclaredFields() {
+    return declaredFields;
+  }
+
+  /**
+   * Returns the field with the given name declared by the mapped class or by its super classes.
+   *
+   * @return The field, or null if not found
+   */
+  public Field getField(final String iFieldName) {
+    return fields.get(iFieldName);
+  }
+
+  public boolean isGetter(final Method iMethod) throws NoSuchFieldException {
+    return getAccessor(iMethod).getter;
+  }
+
+  public boolean isSetter(final Method iMethod) throws NoSuchFieldException {
+    return getAccessor(iMethod).setter;
+  }
+
+  /**
+   * Returns the name of the field bound to a getter or a setter by the method filter of the class.
+   */
+  public String getFieldName(final Method iMethod) {
+    final OAccessor accessor = accessors.get(iMethod);
+    if (accessor != null && accessor != NONE)
+      return accessor.fieldName;
+    return OObjectEntityEnhancer.getInstance().getMethodFilter(mappedClass).getFieldName(iMethod);
+  }
+
+  private OAccessor getAccessor(final Method iMethod) throws NoSuchFieldException {
+    OAccessor accessor = accessors.get(iMethod);
+    if (accessor == null) {
+      final OObjectMethodFilter filter = OObjectEntityEnhancer.getInstance().getMethodFilter(mappedClass);
+      final boolean setter = filter.isSetterMethod(iMethod.getName(), iMethod);
+      final boolean getter = !setter && filter.isGetterMethod(iMethod.getName(), iMethod);
+
+      accessor = setter || getter ? new OAccessor(getter, setter, filter.getFieldName(iMethod)) : NONE;
+      accessors.put(iMethod, accessor);
+    }
+    return accessor;
+  }
+}
@@ -900,13 +900,7 @@ public class OObjectEntitySerializer {
   }
 
   public static Field getField(String fieldName, Class<?> iClass) {
-    for (Field f : iClass.getDeclaredFields()) {
-      if (f.getName().equals(fieldName))
-        return f;
-    }
-    if (iClass.getSuperclass().equals(Object.class))
-      return null;
-    return getField(fieldName, iClass.getSuperclass());
+    return OObjectEntityMapper.getInstance(iClass).getField(fieldName);
   }
 
   /**
@@ -1006,7 +1000,7 @@ public class OObjectEntitySerializer {
     Class<?> currentClass = pojoClass;
 
     while (!currentClass.equals(Object.class) && classes.contains(pojoClass)) {
-      for (Field p : currentClass.getDeclaredFields()) {
+      for (Field p : OObjectEntityMapper.getInstance(currentClass).getDeclaredFields()) {
         if (Modifier.isStatic(p.getModifiers()) || Modifier.isNative(p.getModifiers()) || Modifier.isTransient(p.getModifiers())
             || p.getType().isAnonymousClass())
           continue;
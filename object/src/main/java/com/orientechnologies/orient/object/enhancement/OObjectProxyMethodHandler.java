@@ -104,10 +104,10 @@ public class OObjectProxyMethodHandler implements MethodHandler {
   }
 
   public Object invoke(final Object self, final Method m, final Method proceed, final Object[] args) throws Throwable {
-    final OObjectMethodFilter filter = OObjectEntityEnhancer.getInstance().getMethodFilter(self.getClass());
-    if (filter.isSetterMethod(m.getName(), m)) {
+    final OObjectEntityMapper mapper = OObjectEntityMapper.getInstance(self.getClass());
+    if (mapper.isSetter(m)) {
       return manageSetMethod(self, m, proceed, args);
-    } else if (filter.isGetterMethod(m.getName(), m)) {
+    } else if (mapper.isGetter(m)) {
       return manageGetMethod(self, m, proceed, args);
     }
     return proceed.invoke(self, args);
@@ -193,7 +193,7 @@ public class OObjectProxyMethodHandler implements MethodHandler {
         currentClass = currentClass.getSuperclass();
         continue;
       }
-      for (Field f : currentClass.getDeclaredFields()) {
+      for (Field f : OObjectEntityMapper.getInstance(currentClass).getDeclaredFields()) {
         final String fieldName = f.getName();
         final Class<?> declaringClass = f.getDeclaringClass();
 
@@ -247,7 +247,7 @@ public class OObjectProxyMethodHandler implements MethodHandler {
   protected Object manageGetMethod(final Object self, final Method m, final Method proceed, final Object[] args)
       throws IllegalAccessException, InvocationTargetException, NoSuchMethodException, SecurityException, IllegalArgumentException,
       NoSuchFieldException {
-    final String fieldName = OObjectEntityEnhancer.getInstance().getMethodFilter(self.getClass()).getFieldName(m);
+    final String fieldName = OObjectEntityMapper.getInstance(self.getClass()).getFieldName(m);
 
     final ORID docRID = doc.getIdentity();
 
@@ -639,7 +639,7 @@ public class OObjectProxyMethodHandler implements MethodHandler {
   protected Object manageSetMethod(final Object self, final Method m, final Method proceed, final Object[] args)
       throws IllegalAccessException, InvocationTargetException {
     final String fieldName;
-    fieldName = OObjectEntityEnhancer.getInstance().getMethodFilter(self.getClass()).getFieldName(m);
+    fieldName = OObjectEntityMapper.getInstance(self.getClass()).getFieldName(m);
     args[0] = setValue(self, fieldName, args[0]);
     return proceed.invoke(self, args);
   }
@@ -0,0 +1,45 @@
+package com.orientechnologies.orient.object.enhancement;
+
+import java.lang.reflect.Field;
+
+import javassist.util.proxy.Proxy;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OObjectEntityMapperTest {
+
+  public void testSameMapperAndProxyClass() {
+    final OObjectEntityMapper mapper = OObjectEntityMapper.getInstance(ExactEntity.class);
+    Assert.assertSame(OObjectEntityMapper.getInstance(ExactEntity.class), mapper);
+
+    final Class<?> proxyClass = mapper.getProxyClass();
+    Assert.assertTrue(Proxy.class.isAssignableFrom(proxyClass));
+    Assert.assertEquals(proxyClass.getSuperclass(), ExactEntity.class);
+    Assert.assertSame(mapper.getProxyClass(), proxyClass);
+  }
+
+  public void testFieldsOfTheHierarchy() {
+    final OObjectEntityMapper mapper = OObjectEntityMapper.getInstance(ExactEntity.class);
+
+    Assert.assertEquals(mapper.getDeclaredFields().length, 1);
+    for (Field f : mapper.getDeclaredFields())
+      Assert.assertTrue(f.isAccessible());
+
+    Assert.assertEquals(mapper.getField("before3Called").getDeclaringClass(), ExactEntity.class);
+    Assert.assertEquals(mapper.getField("before1Called").getDeclaringClass(), AbstractEntity.class);
+    Assert.assertNull(mapper.getField("missing"));
+    Assert.assertSame(OObjectEntitySerializer.getField("before1Called", ExactEntity.class), mapper.getField("before1Called"));
+  }
+
+  public void testClearedOnNewMethodFilter() {
+    final OObjectEntityMapper mapper = OObjectEntityMapper.getInstance(AbstractEntity.class);
+    OObjectEntityEnhancer.getInstance().registerClassMethodFilter(AbstractEntity.class, new OObjectMethodFilter());
+    try {
+      Assert.assertNotSame(OObjectEntityMapper.getInstance(AbstractEntity.class), mapper);
+    } finally {
+      OObjectEntityEnhancer.getInstance().deregisterClassMethodFilter(AbstractEntity.class);
+    }
+  }
+}
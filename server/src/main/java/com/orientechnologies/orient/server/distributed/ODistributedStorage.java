@@ -17,6 +17,7 @@ package com.orientechnologies.orient.server.distributed;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -170,6 +171,18 @@ public class ODistributedStorage implements OStorage {
     return new OStorageOperationResult<ORawBuffer>(null);
   }
 
+  public Map<ORecordId, ORawBuffer> readRecords(final Collection<ORecordId> iRids, final String iFetchPlan,
+      final boolean iIgnoreCache) {
+    // EVERY RECORD COULD BE OWNED BY A DIFFERENT NODE: ROUTE THEM ONE BY ONE
+    final Map<ORecordId, ORawBuffer> result = new HashMap<ORecordId, ORawBuffer>();
+    for (ORecordId rid : iRids) {
+      final ORawBuffer buffer = readRecord(rid, iFetchPlan, iIgnoreCache, null, false).getResult();
+      if (buffer != null)
+        result.put(rid, buffer);
+    }
+    return result;
+  }
+
   public OStorageOperationResult<ORecordVersion> updateRecord(final ORecordId iRecordId, final byte[] iContent,
       final ORecordVersion iVersion, final byte iRecordType, final int iMode, final ORecordCallback<ORecordVersion> iCallback) {
     if (ODistributedThreadLocal.INSTANCE.distributedExecution)
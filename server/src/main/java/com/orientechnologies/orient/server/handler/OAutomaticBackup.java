@@ -4,6 +4,7 @@ import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -19,23 +20,34 @@ import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.tool.ODatabaseBackup;
 import com.orientechnologies.orient.core.db.tool.ODatabaseExport;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.OServerMain;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
 
+/**
+ * Backups the databases at regular intervals. By default every backup is a JSON export. With the parameter "incremental" set to
+ * true the local databases are backed up at file level by {@link ODatabaseBackup}, in a directory per database: only the first
+ * backup after the start copies all the files, the next ones copy the pages changed since the previous backup. Set
+ * "incremental.fullEvery" to take a full backup every N backups and keep the chain to restore short.
+ */
 public class OAutomaticBackup extends OServerHandlerAbstract {
   public enum VARIABLES {
     DBNAME, DATE
   }
 
-  private Date        firstTime        = null;
-  private long        delay            = -1;
-  private String      targetDirectory  = "backup";
-  private String      targetFileName;
-  private Set<String> includeDatabases = new HashSet<String>();
-  private Set<String> excludeDatabases = new HashSet<String>();
+  private Date                       firstTime        = null;
+  private long                       delay            = -1;
+  private String                     targetDirectory  = "backup";
+  private String                     targetFileName;
+  private Set<String>                includeDatabases = new HashSet<String>();
+  private Set<String>                excludeDatabases = new HashSet<String>();
+  private boolean                    incremental      = false;
+  private int                        fullEvery        = 0;
+  private final Map<String, Integer> backupCounters   = new HashMap<String, Integer>();
 
   @Override
   public void config(final OServer iServer, final OServerParameterConfiguration[] iParams) {
@@ -62,6 +74,10 @@ public class OAutomaticBackup extends OServerHandlerAbstract {
           excludeDatabases.add(db);
       else if (param.name.equalsIgnoreCase("target.fileName"))
         targetFileName = param.value;
+      else if (param.name.equalsIgnoreCase("incremental"))
+        incremental = Boolean.parseBoolean(param.value);
+      else if (param.name.equalsIgnoreCase("incremental.fullEvery"))
+        fullEvery = Integer.parseInt(param.value);
     }
 
     if (delay <= 0)
@@ -77,8 +93,9 @@ public class OAutomaticBackup extends OServerHandlerAbstract {
       // CREATE BACKUP FOLDER(S) IF ANY
       filePath.mkdirs();
 
-    OLogManager.instance().info(this, "Automatic backup plugin installed and active: delay=%dms, firstTime=%s, targetDirectory=%s",
-        delay, firstTime, targetDirectory);
+    OLogManager.instance().info(this,
+        "Automatic backup plugin installed and active: delay=%dms, firstTime=%s, targetDirectory=%s, incremental=%s", delay,
+        firstTime, targetDirectory, incremental);
 
     final TimerTask timerTask = new TimerTask() {
       @Override
@@ -115,7 +132,7 @@ public class OAutomaticBackup extends OServerHandlerAbstract {
                   }
                 });
 
-            final String exportFilePath = targetDirectory + fileName;
+            String exportFilePath = targetDirectory + fileName;
             ODatabaseDocumentTx db = null;
             try {
 
@@ -126,12 +143,37 @@ public class OAutomaticBackup extends OServerHandlerAbstract {
 
               final long begin = System.currentTimeMillis();
 
-              new ODatabaseExport(db, exportFilePath, new OCommandOutputListener() {
+              final OCommandOutputListener listener = new OCommandOutputListener() {
                 @Override
                 public void onMessage(final String iText) {
 
                 }
-              }).exportDatabase();
+              };
+
+              if (incremental && db.getStorage() instanceof OStorageLocal) {
+                // ALL THE BACKUPS OF A DATABASE IN THE SAME DIRECTORY TO BE RESTORED TOGETHER
+                final File directory = new File(targetDirectory + dbName.getKey());
+                directory.mkdirs();
+                String backupFileName = fileName;
+                if (backupFileName.endsWith(".json"))
+                  backupFileName = backupFileName.substring(0, backupFileName.length() - ".json".length()) + ODatabaseBackup.EXTENSION;
+                exportFilePath = new File(directory, backupFileName).getPath();
+
+                final Integer counter = backupCounters.get(dbName.getKey());
+                final boolean full = fullEvery > 0 && (counter == null || counter >= fullEvery);
+
+                if (new ODatabaseBackup(db, exportFilePath, listener).setIncremental(!full).backup())
+                  backupCounters.put(dbName.getKey(), 1);
+                else
+                  backupCounters.put(dbName.getKey(), counter != null ? counter + 1 : 1);
+              } else {
+                if (incremental)
+                  OLogManager.instance().warn(this,
+                      "[OAutomaticBackup] - Database '%s' is not local: cannot backup it incrementally, exporting it",
+                      dbName.getValue());
+
+                new ODatabaseExport(db, exportFilePath, listener).exportDatabase();
+              }
 
               OLogManager.instance().info(
                   this,
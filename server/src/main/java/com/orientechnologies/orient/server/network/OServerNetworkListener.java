@@ -24,6 +24,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,7 +36,9 @@ import com.orientechnologies.orient.core.serialization.serializer.OStringSeriali
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerCommandConfiguration;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
+import com.orientechnologies.orient.server.network.nio.ONioReactor;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommand;
 
 public class OServerNetworkListener extends Thread {
@@ -49,6 +52,7 @@ public class OServerNetworkListener extends Thread {
   private OContextConfiguration             configuration;
   private OServer                           server;
   private ONetworkProtocol                  protocol;
+  private ONioReactor                       nioReactor;
 
   public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
       final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
@@ -56,11 +60,20 @@ public class OServerNetworkListener extends Thread {
     super(Orient.getThreadGroup(), "OrientDB " + iProtocol.getSimpleName() + " listen at " + iHostName + ":" + iHostPortRange);
     server = iServer;
 
-    listen(iHostName, iHostPortRange, iProtocolName);
     protocolType = iProtocol;
 
     readParameters(iServer.getContextConfiguration(), iParameters);
 
+    if (configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_BINARY_NIO_ENABLED)
+        && OBinaryNetworkProtocolAbstract.class.isAssignableFrom(iProtocol))
+      try {
+        nioReactor = new ONioReactor("OrientDB " + iProtocol.getSimpleName() + " NIO", configuration);
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Unable to start the NIO reactor, using a thread per connection", e);
+      }
+
+    listen(iHostName, iHostPortRange, iProtocolName);
+
     if (iCommands != null) {
       for (int i = 0; i < iCommands.length; ++i) {
         if (iCommands[i].stateful)
@@ -83,6 +96,9 @@ public class OServerNetworkListener extends Thread {
       protocol = null;
     }
 
+    if (nioReactor != null)
+      nioReactor.shutdown();
+
     if (serverSocket != null)
       try {
         serverSocket.close();
@@ -102,7 +118,12 @@ public class OServerNetworkListener extends Thread {
     for (int port : ports) {
       inboundAddr = new InetSocketAddress(iHostName, port);
       try {
-        serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
+        if (nioReactor != null) {
+          // ACCEPTED SOCKETS MUST HAVE A CHANNEL TO BE REGISTERED TO THE SELECTORS
+          serverSocket = ServerSocketChannel.open().socket();
+          serverSocket.bind(new InetSocketAddress(InetAddress.getByName(iHostName), port), 0);
+        } else
+          serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
 
         if (serverSocket.isBound()) {
           OLogManager.instance().info(this,
@@ -110,6 +131,11 @@ public class OServerNetworkListener extends Thread {
           return;
         }
       } catch (BindException be) {
+        if (serverSocket != null)
+          try {
+            serverSocket.close();
+          } catch (IOException e) {
+          }
         OLogManager.instance().info(this, "Port %s:%d busy, trying the next available...", iHostName, port);
       } catch (SocketException se) {
         OLogManager.instance().error(this, "Unable to create socket", se);
@@ -146,7 +172,11 @@ public class OServerNetworkListener extends Thread {
           protocol = protocolType.newInstance();
 
           // CONFIGURE THE PROTOCOL FOR THE INCOMING CONNECTION
-          protocol.config(server, socket, configuration, statelessCommands, statefulCommands);
+          if (nioReactor != null)
+            nioReactor.register(socket, (OBinaryNetworkProtocolAbstract) protocol, server, configuration, statelessCommands,
+                statefulCommands);
+          else
+            protocol.config(server, socket, configuration, statelessCommands, statefulCommands);
 
         } catch (Throwable e) {
           if (active)
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Binary connection served by the NIO reactor. The selector thread buffers the incoming bytes and, as soon as a whole request
+ * has arrived, schedules the connection on a worker that executes the requests until no complete one is left. A connection is never
+ * scheduled twice at the same time, so the requests of one client are still executed in order.
+ * 
+ * @author agent
+ * 
+ */
+public class ONioConnection implements Runnable {
+  private final ONioReactor                    reactor;
+  private final ONioSelectorThread             selectorThread;
+  private final SocketChannel                  socketChannel;
+  private final ONioInputStream                in;
+  private final ONioOutputStream               out;
+  private final AtomicBoolean                  scheduled = new AtomicBoolean();
+  private final AtomicBoolean                  closed    = new AtomicBoolean();
+  private volatile SelectionKey                key;
+  private volatile OBinaryNetworkProtocolAbstract protocol;
+
+  ONioConnection(final ONioReactor iReactor, final ONioSelectorThread iSelectorThread, final SocketChannel iChannel,
+      final int iMaxBuffered, final int iTimeout) {
+    reactor = iReactor;
+    selectorThread = iSelectorThread;
+    socketChannel = iChannel;
+    in = new ONioInputStream(this, iMaxBuffered, iTimeout);
+    out = new ONioOutputStream(this, iChannel, iTimeout);
+  }
+
+  public InputStream getInputStream() {
+    return in;
+  }
+
+  public OutputStream getOutputStream() {
+    return out;
+  }
+
+  public boolean isOpen() {
+    return !closed.get();
+  }
+
+  /**
+   * Executes the buffered requests. Called by a worker thread of the reactor.
+   */
+  public void run() {
+    try {
+      while (isOpen() && in.hasRequest(protocol))
+        protocol.serveRequest();
+    } catch (Throwable t) {
+      OLogManager.instance().error(this, "Error on executing the request of the connection %s", t, this);
+      close();
+    } finally {
+      scheduled.set(false);
+    }
+
+    // BYTES COULD HAVE ARRIVED AFTER THE LAST CHECK BUT BEFORE RESETTING THE FLAG
+    if (isOpen() && in.hasRequest(protocol))
+      schedule();
+  }
+
+  /**
+   * Closes the connection and shutdowns its protocol. Can be called by any thread, more than once.
+   */
+  public void close() {
+    if (!closed.compareAndSet(false, true))
+      return;
+
+    if (key != null)
+      key.cancel();
+
+    try {
+      socketChannel.close();
+    } catch (IOException e) {
+    }
+
+    // WAKE UP THE WORKER BLOCKED ON READING OR WRITING
+    in.close();
+    out.close();
+
+    if (protocol != null)
+      protocol.shutdown();
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(socketChannel.socket().getRemoteSocketAddress());
+  }
+
+  void setProtocol(final OBinaryNetworkProtocolAbstract iProtocol) {
+    protocol = iProtocol;
+  }
+
+  void setKey(final SelectionKey iKey) {
+    key = iKey;
+    if (closed.get())
+      // CLOSED BEFORE THE REGISTRATION
+      iKey.cancel();
+  }
+
+  SocketChannel getSocketChannel() {
+    return socketChannel;
+  }
+
+  /**
+   * Called by the selector thread with the bytes just read.
+   * 
+   * @return the bytes buffered and not consumed yet
+   */
+  int received(final byte[] iChunk) {
+    final int buffered = in.append(iChunk);
+    if (!scheduled.get() && in.hasRequest(protocol))
+      schedule();
+    return buffered;
+  }
+
+  SelectionKey getKey() {
+    return key;
+  }
+
+  void resumeReading() {
+    selectorThread.setInterest(this, SelectionKey.OP_READ, true);
+  }
+
+  void awaitWritable() {
+    selectorThread.setInterest(this, SelectionKey.OP_WRITE, true);
+  }
+
+  void writable() {
+    out.signalWritable();
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true))
+      reactor.execute(this);
+  }
+}
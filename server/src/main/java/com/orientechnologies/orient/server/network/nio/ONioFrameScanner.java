@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Walks the bytes buffered by a connection, without consuming them, to tell if the next request has fully arrived. Reading past
+ * the buffered bytes never blocks nor fails: it returns zeros and records how many bytes the request needs at least, so the
+ * protocol can read the header of a request with plain reads and check {@link #isComplete()} at the end.
+ *
+ * @author agent
+ *
+ */
+public class ONioFrameScanner {
+  private final Iterator<byte[]> chunks;
+  private final long             buffered;
+  private byte[]                 chunk;
+  private int                    chunkOffset;
+  private long                   position;
+
+  ONioFrameScanner(final List<byte[]> iChunks, final int iChunkOffset, final int iBuffered) {
+    chunks = iChunks.iterator();
+    chunk = chunks.hasNext() ? chunks.next() : null;
+    chunkOffset = iChunkOffset;
+    buffered = iBuffered;
+  }
+
+  /**
+   * Tells if all the bytes read so far are buffered.
+   */
+  public boolean isComplete() {
+    return position <= buffered;
+  }
+
+  /**
+   * Returns the bytes read so far: when the request is not complete it's the minimum number of bytes to wait for.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  public byte readByte() {
+    if (position >= buffered) {
+      position++;
+      return 0;
+    }
+
+    while (chunkOffset == chunk.length) {
+      chunk = chunks.next();
+      chunkOffset = 0;
+    }
+    position++;
+    return chunk[chunkOffset++];
+  }
+
+  public int readInt() {
+    return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+  }
+
+  public void skip(final long iBytes) {
+    if (iBytes <= 0)
+      return;
+
+    long toSkip = Math.min(iBytes, Math.max(buffered - position, 0));
+    position += iBytes;
+
+    while (toSkip > 0) {
+      if (chunkOffset == chunk.length) {
+        chunk = chunks.next();
+        chunkOffset = 0;
+      }
+      final int len = (int) Math.min(toSkip, chunk.length - chunkOffset);
+      chunkOffset += len;
+      toSkip -= len;
+    }
+  }
+}
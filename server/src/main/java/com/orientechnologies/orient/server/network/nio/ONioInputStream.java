@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Input stream filled by the selector thread with the bytes read from the socket and consumed by the worker executing the
+ * request. A request prefixed by its length is handed to a worker only once all its bytes are buffered, so a slow client never
+ * holds a worker. Requests without length, sent by old clients, or bigger than the buffer are read as a stream while they arrive:
+ * then reads wait for the missing bytes up to the socket timeout.
+ * 
+ * @author agent
+ * 
+ */
+class ONioInputStream extends InputStream {
+  private final ONioConnection     connection;
+  private final ReentrantLock      lock      = new ReentrantLock();
+  private final Condition          available = lock.newCondition();
+  private final LinkedList<byte[]> chunks    = new LinkedList<byte[]>();
+  private final int                maxBuffered;
+  private final int                resumeThreshold;
+  private final long               timeout;
+  private int                      chunkOffset;
+  private int                      buffered;
+  private long                     required;
+  private boolean                  eof;
+
+  ONioInputStream(final ONioConnection iConnection, final int iMaxBuffered, final int iTimeout) {
+    connection = iConnection;
+    maxBuffered = iMaxBuffered;
+    resumeThreshold = iMaxBuffered / 2;
+    timeout = iTimeout;
+  }
+
+  /**
+   * Appends a chunk read from the socket.
+   * 
+   * @return the total bytes buffered after the append
+   */
+  int append(final byte[] iChunk) {
+    lock.lock();
+    try {
+      chunks.add(iChunk);
+      buffered += iChunk.length;
+      available.signalAll();
+      return buffered;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Tells if the next request can be executed without waiting for more bytes. Requests without length and requests bigger than
+   * the buffer are executed as soon as they start to arrive.
+   */
+  boolean hasRequest(final OBinaryNetworkProtocolAbstract iProtocol) {
+    lock.lock();
+    try {
+      if (buffered == 0)
+        return false;
+      if (required > maxBuffered)
+        // TOO BIG TO WAIT FOR ALL OF IT
+        return true;
+      if (buffered < required)
+        // THE LAST SCAN TOLD THE REQUEST IS LONGER
+        return false;
+
+      final ONioFrameScanner scanner = new ONioFrameScanner(chunks, chunkOffset, buffered);
+      if (!iProtocol.scanRequest(scanner) || scanner.isComplete())
+        return true;
+
+      required = scanner.getPosition();
+      return required > maxBuffered;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    lock.lock();
+    try {
+      if (!waitForData())
+        return -1;
+
+      final byte[] chunk = chunks.getFirst();
+      final int b = chunk[chunkOffset++] & 0xFF;
+      consumed(chunk, 1);
+      return b;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int read(final byte[] iBuffer, final int iOffset, final int iLength) throws IOException {
+    if (iLength == 0)
+      return 0;
+
+    lock.lock();
+    try {
+      if (!waitForData())
+        return -1;
+
+      // COPY FROM THE BUFFERED CHUNKS WITHOUT WAITING FOR MORE DATA, LIKE A SOCKET STREAM DOES
+      int read = 0;
+      while (read < iLength && !chunks.isEmpty()) {
+        final byte[] chunk = chunks.getFirst();
+        final int len = Math.min(iLength - read, chunk.length - chunkOffset);
+        System.arraycopy(chunk, chunkOffset, iBuffer, iOffset + read, len);
+        chunkOffset += len;
+        read += len;
+        consumed(chunk, len);
+      }
+      return read;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int available() {
+    lock.lock();
+    try {
+      return buffered;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Marks the end of the stream: pending and future reads return -1 once the buffered bytes are consumed.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      eof = true;
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean waitForData() throws IOException {
+    try {
+      long left = TimeUnit.MILLISECONDS.toNanos(timeout);
+      while (buffered == 0) {
+        if (eof)
+          return false;
+        if (timeout <= 0)
+          available.await();
+        else if (left <= 0)
+          throw new SocketTimeoutException("Timeout on reading the request from " + connection);
+        else
+          left = available.awaitNanos(left);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for data from " + connection);
+    }
+  }
+
+  private void consumed(final byte[] iChunk, final int iBytes) {
+    final boolean wasAboveThreshold = buffered > resumeThreshold;
+
+    buffered -= iBytes;
+    required = 0;
+    if (chunkOffset == iChunk.length) {
+      chunks.removeFirst();
+      chunkOffset = 0;
+    }
+
+    if (wasAboveThreshold && buffered <= resumeThreshold)
+      // THE SELECTOR COULD HAVE SUSPENDED THE READING: RE-ENABLE IT
+      connection.resumeReading();
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Output stream writing directly to the non-blocking socket channel from the worker thread. When the socket send buffer is full
+ * the worker waits until the selector thread reports the channel as writable again, up to the socket timeout: a client that
+ * doesn't read its responses can't hold a worker forever.
+ * 
+ * @author agent
+ * 
+ */
+class ONioOutputStream extends OutputStream {
+  private final ONioConnection connection;
+  private final SocketChannel  channel;
+  private final Object         writable = new Object();
+  private final long           timeout;
+  private boolean              writableSignaled;
+
+  ONioOutputStream(final ONioConnection iConnection, final SocketChannel iChannel, final int iTimeout) {
+    connection = iConnection;
+    channel = iChannel;
+    timeout = iTimeout;
+  }
+
+  @Override
+  public void write(final int iByte) throws IOException {
+    write(new byte[] { (byte) iByte }, 0, 1);
+  }
+
+  @Override
+  public void write(final byte[] iBuffer, final int iOffset, final int iLength) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(iBuffer, iOffset, iLength);
+    while (buffer.hasRemaining()) {
+      if (channel.write(buffer) == 0)
+        waitForWritable();
+    }
+  }
+
+  /**
+   * Called by the selector thread when the channel can accept more bytes.
+   */
+  void signalWritable() {
+    synchronized (writable) {
+      writableSignaled = true;
+      writable.notifyAll();
+    }
+  }
+
+  @Override
+  public void close() {
+    signalWritable();
+  }
+
+  private void waitForWritable() throws IOException {
+    synchronized (writable) {
+      writableSignaled = false;
+      connection.awaitWritable();
+      try {
+        final long deadline = System.currentTimeMillis() + timeout;
+        while (!writableSignaled) {
+          if (!connection.isOpen())
+            throw new IOException("Connection " + connection + " has been closed");
+
+          if (timeout <= 0)
+            writable.wait();
+          else {
+            final long left = deadline - System.currentTimeMillis();
+            if (left <= 0)
+              throw new SocketTimeoutException("Timeout on writing the response to " + connection);
+            writable.wait(left);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing to " + connection);
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+/**
+ * Serves the binary connections of a listener with a fixed number of selector threads doing the socket I/O and a bounded pool of
+ * workers executing the requests. The number of open connections is therefore independent from the number of threads: idle
+ * clients cost only a selection key and their buffers. When all the workers are busy and their queue is full the connections
+ * wait in a parking queue drained by the workers as they finish, so the selector threads never block.
+ * 
+ * @author agent
+ * 
+ */
+public class ONioReactor {
+  private final ONioSelectorThread[]  selectorThreads;
+  private final ThreadPoolExecutor    workers;
+  private final Queue<ONioConnection> parked       = new ConcurrentLinkedQueue<ONioConnection>();
+  private final AtomicInteger         nextSelector = new AtomicInteger();
+  private final int                   maxBuffered;
+  private final int                   timeout;
+
+  public ONioReactor(final String iName, final OContextConfiguration iConfiguration) throws IOException {
+    final int ioThreads = Math.max(1, iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_NIO_IO_THREADS));
+    final int workerThreads = Math.max(1,
+        iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_NIO_WORKER_THREADS));
+    final int queueSize = Math.max(1, iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_NIO_WORKER_QUEUE));
+    final int readBufferSize = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE);
+    maxBuffered = Math.max(readBufferSize, iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_NIO_MAX_BUFFERED));
+    timeout = iConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT);
+
+    final AtomicInteger workerId = new AtomicInteger();
+    workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+          public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(Orient.getThreadGroup(), r, iName + " worker " + workerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        }) {
+      @Override
+      protected void afterExecute(final Runnable r, final Throwable t) {
+        // A WORKER IS FREE: GIVE IT TO THE CONNECTIONS WAITING FOR ONE
+        executeParked();
+      }
+    };
+    workers.allowCoreThreadTimeOut(true);
+
+    selectorThreads = new ONioSelectorThread[ioThreads];
+    for (int i = 0; i < ioThreads; ++i) {
+      selectorThreads[i] = new ONioSelectorThread(iName + " I/O " + (i + 1), readBufferSize, maxBuffered);
+      selectorThreads[i].start();
+    }
+  }
+
+  /**
+   * Binds an accepted socket to the protocol and starts serving it.
+   * 
+   * @param iSocket
+   *          Accepted socket, it must have been created by a ServerSocketChannel
+   */
+  public ONioConnection register(final Socket iSocket, final OBinaryNetworkProtocolAbstract iProtocol, final OServer iServer,
+      final OContextConfiguration iConfiguration, final List<?> iStatelessCommands, final List<?> iStatefulCommands)
+      throws IOException {
+    final SocketChannel socketChannel = iSocket.getChannel();
+    socketChannel.configureBlocking(false);
+
+    final ONioSelectorThread selectorThread = selectorThreads[(nextSelector.getAndIncrement() & Integer.MAX_VALUE)
+        % selectorThreads.length];
+
+    final ONioConnection connection = new ONioConnection(this, selectorThread, socketChannel, maxBuffered, timeout);
+    connection.setProtocol(iProtocol);
+
+    // CONFIGURE THE PROTOCOL BEFORE READING: THE FIRST REQUEST COULD ARRIVE AS SOON AS THE CONNECTION IS REGISTERED
+    boolean configured = false;
+    try {
+      iProtocol.configNio(connection, iServer, iSocket, iConfiguration, iStatelessCommands, iStatefulCommands);
+      configured = true;
+    } finally {
+      if (!configured)
+        connection.close();
+    }
+    selectorThread.register(connection);
+    return connection;
+  }
+
+  public void shutdown() {
+    for (ONioSelectorThread t : selectorThreads)
+      t.shutdown();
+    workers.shutdownNow();
+  }
+
+  /**
+   * Schedules the connection on a worker. Called also by the selector threads, so it never blocks: if the queue is full the
+   * connection is parked until a worker is free. A parked connection keeps buffering its bytes up to the maximum, then the selector
+   * stops reading it.
+   */
+  void execute(final ONioConnection iConnection) {
+    try {
+      workers.execute(iConnection);
+    } catch (RejectedExecutionException e) {
+      if (workers.isShutdown()) {
+        iConnection.close();
+        return;
+      }
+
+      parked.offer(iConnection);
+      // THE WORKERS COULD HAVE FINISHED BEFORE THE CONNECTION WAS PARKED
+      executeParked();
+    }
+  }
+
+  int getParked() {
+    return parked.size();
+  }
+
+  private void executeParked() {
+    ONioConnection connection;
+    while ((connection = parked.poll()) != null) {
+      try {
+        workers.execute(connection);
+      } catch (RejectedExecutionException e) {
+        if (workers.isShutdown()) {
+          connection.close();
+          continue;
+        }
+
+        parked.offer(connection);
+        if (workers.getQueue().remainingCapacity() == 0)
+          // STILL FULL: THE QUEUED TASKS WILL TRY AGAIN WHEN THEY FINISH
+          return;
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Thread multiplexing the socket I/O of many connections on one selector. It only moves bytes: the requests are executed by the
+ * reactor's workers. Any change to the selection keys is queued as a task and applied by this thread, so other threads never
+ * block on the selector.
+ * 
+ * @author agent
+ * 
+ */
+class ONioSelectorThread extends Thread {
+  private final Selector            selector;
+  private final ByteBuffer          readBuffer;
+  private final int                 maxBuffered;
+  private final Queue<Runnable>     tasks  = new ConcurrentLinkedQueue<Runnable>();
+  private volatile boolean          active = true;
+
+  ONioSelectorThread(final String iName, final int iReadBufferSize, final int iMaxBuffered) throws IOException {
+    super(Orient.getThreadGroup(), iName);
+    setDaemon(true);
+    selector = Selector.open();
+    readBuffer = ByteBuffer.allocateDirect(iReadBufferSize);
+    maxBuffered = iMaxBuffered;
+  }
+
+  void register(final ONioConnection iConnection) {
+    execute(new Runnable() {
+      public void run() {
+        try {
+          iConnection.setKey(iConnection.getSocketChannel().register(selector, SelectionKey.OP_READ, iConnection));
+        } catch (IOException e) {
+          OLogManager.instance().debug(this, "Error on registering the connection %s", e, iConnection);
+          iConnection.close();
+        }
+      }
+    });
+  }
+
+  void setInterest(final ONioConnection iConnection, final int iOperation, final boolean iEnabled) {
+    execute(new Runnable() {
+      public void run() {
+        final SelectionKey key = iConnection.getKey();
+        if (key != null && key.isValid())
+          key.interestOps(iEnabled ? key.interestOps() | iOperation : key.interestOps() & ~iOperation);
+      }
+    });
+  }
+
+  void shutdown() {
+    active = false;
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (active) {
+        selector.select();
+
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+          task.run();
+
+        final Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          final SelectionKey key = it.next();
+          it.remove();
+
+          final ONioConnection connection = (ONioConnection) key.attachment();
+          try {
+            if (key.isValid() && key.isWritable()) {
+              key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+              connection.writable();
+            }
+
+            if (key.isValid() && key.isReadable())
+              read(key, connection);
+
+          } catch (IOException e) {
+            OLogManager.instance().debug(this, "Error on socket I/O of the connection %s", e, connection);
+            connection.close();
+          }
+        }
+      }
+    } catch (ClosedSelectorException e) {
+    } catch (IOException e) {
+      OLogManager.instance().error(this, "Error on selecting the ready connections", e);
+    } finally {
+      for (SelectionKey key : selector.keys())
+        ((ONioConnection) key.attachment()).close();
+      try {
+        selector.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+
+  private void read(final SelectionKey iKey, final ONioConnection iConnection) throws IOException {
+    readBuffer.clear();
+    final int read = iConnection.getSocketChannel().read(readBuffer);
+    if (read < 0) {
+      // REMOTE PEER CLOSED THE CONNECTION
+      iConnection.close();
+      return;
+    }
+
+    if (read == 0)
+      return;
+
+    readBuffer.flip();
+    final byte[] chunk = new byte[read];
+    readBuffer.get(chunk);
+
+    if (iConnection.received(chunk) > maxBuffered)
+      // THE WORKER IS BEHIND: STOP READING UNTIL IT CONSUMES THE BUFFERED BYTES
+      iKey.interestOps(iKey.interestOps() & ~SelectionKey.OP_READ);
+  }
+
+  private void execute(final Runnable iTask) {
+    tasks.offer(iTask);
+    selector.wakeup();
+  }
+}
@@ -52,6 +52,8 @@ import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProt
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
 import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.nio.ONioConnection;
+import com.orientechnologies.orient.server.network.nio.ONioFrameScanner;
 import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 
 /**
@@ -62,6 +64,7 @@ import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
  */
 public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
   protected OChannelBinaryServer channel;
+  protected ONioConnection       nio;
   protected int                  requestType;
   protected int                  clientTxId;
   private final Level            logClientExceptions;
@@ -101,7 +104,61 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
   public void config(final OServer iServer, final Socket iSocket, final OContextConfiguration iConfig,
       final List<?> iStatelessCommands, List<?> iStatefulCommands) throws IOException {
     server = iServer;
-    channel = new OChannelBinaryServer(iSocket, iConfig);
+    if (nio != null)
+      channel = new OChannelBinaryServer(iSocket, nio.getInputStream(), nio.getOutputStream(), iConfig);
+    else
+      channel = new OChannelBinaryServer(iSocket, iConfig);
+  }
+
+  /**
+   * Configures the protocol to be driven by the NIO reactor: the socket I/O goes through the connection's streams and the
+   * requests are executed by the reactor's workers calling {@link #serveRequest()}, so the protocol thread is never started.
+   */
+  public void configNio(final ONioConnection iConnection, final OServer iServer, final Socket iSocket,
+      final OContextConfiguration iConfig, final List<?> iStatelessCommands, List<?> iStatefulCommands) throws IOException {
+    nio = iConnection;
+    config(iServer, iSocket, iConfig, iStatelessCommands, iStatefulCommands);
+  }
+
+  /**
+   * Reads and executes the next request. Used by the NIO workers in place of the protocol thread loop.
+   */
+  public void serveRequest() throws Exception {
+    beforeExecution();
+    execute();
+    afterExecution();
+  }
+
+  /**
+   * Reads the length of the next request from the bytes buffered by the NIO connection without consuming them, so the reactor
+   * hands the request to a worker only once it has fully arrived. It's called by the selector thread too, so it must not block.
+   * 
+   * @return false if the request is not prefixed by its length, as the ones of the clients older than
+   *         {@link OChannelBinaryProtocol#PROTOCOL_VERSION_FRAMED}: the worker will read it as a stream while it arrives
+   */
+  public boolean scanRequest(final ONioFrameScanner iScanner) {
+    if (iScanner.readByte() != OChannelBinaryProtocol.REQUEST_FRAMED)
+      return false;
+
+    final int length = iScanner.readInt();
+    if (!iScanner.isComplete())
+      // THE LENGTH HAS NOT ARRIVED YET
+      return true;
+    if (length < 0)
+      // THE WORKER WILL REFUSE IT
+      return false;
+
+    iScanner.skip(length);
+    return true;
+  }
+
+  @Override
+  public void sendShutdown() {
+    if (nio != null)
+      // NO THREAD TO INTERRUPT: CLOSING THE CONNECTION SHUTDOWNS THE PROTOCOL
+      nio.close();
+    else
+      super.sendShutdown();
   }
 
   @Override
@@ -114,6 +171,13 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
 
     try {
       requestType = channel.readByte();
+      if (requestType == OChannelBinaryProtocol.REQUEST_FRAMED) {
+        // THE LENGTH IS NEEDED ONLY TO BUFFER THE WHOLE REQUEST BEFORE EXECUTING IT: A WRONG ONE CLOSES THE CONNECTION
+        final int length = channel.readInt();
+        if (length < 0)
+          throw new IOException("Invalid length of the request: " + length);
+        requestType = channel.readByte();
+      }
       clientTxId = channel.readInt();
 
       onBeforeRequest();
@@ -223,24 +287,18 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
     }
   }
 
+  /**
+   * Writes a record already serialized, in the same format of {@link #writeIdentifiable(OIdentifiable)}.
+   */
+  protected void writeRecord(final ORecordInternal<?> iRecord, final byte[] iStream) throws IOException {
+    writeRecordHeader(iRecord);
+    writeRecordContent(iStream);
+  }
+
   private void writeRecord(final ORecordInternal<?> iRecord) throws IOException {
-    channel.writeShort((short) 0);
-    channel.writeByte(iRecord.getRecordType());
-    channel.writeRID(iRecord.getIdentity());
-    channel.writeVersion(iRecord.getRecordVersion());
+    writeRecordHeader(iRecord);
     try {
-      final byte[] stream = iRecord.toStream();
-
-      // TRIM TAILING SPACES (DUE TO OVERSIZE)
-      int realLength = stream.length;
-      for (int i = stream.length - 1; i > -1; --i) {
-        if (stream[i] == 32)
-          --realLength;
-        else
-          break;
-      }
-
-      channel.writeBytes(stream, realLength);
+      writeRecordContent(iRecord.toStream());
     } catch (Exception e) {
       channel.writeBytes(null);
       OLogManager.instance().error(this, "Error on unmarshalling record " + iRecord.getIdentity().toString(),
@@ -248,6 +306,26 @@ public abstract class OBinaryNetworkProtocolAbstract extends ONetworkProtocol {
     }
   }
 
+  private void writeRecordHeader(final ORecordInternal<?> iRecord) throws IOException {
+    channel.writeShort((short) 0);
+    channel.writeByte(iRecord.getRecordType());
+    channel.writeRID(iRecord.getIdentity());
+    channel.writeVersion(iRecord.getRecordVersion());
+  }
+
+  private void writeRecordContent(final byte[] iStream) throws IOException {
+    // TRIM TAILING SPACES (DUE TO OVERSIZE)
+    int realLength = iStream.length;
+    for (int i = iStream.length - 1; i > -1; --i) {
+      if (iStream[i] == 32)
+        --realLength;
+      else
+        break;
+    }
+
+    channel.writeBytes(iStream, realLength);
+  }
+
   protected void checkStorageExistence(final String iDatabaseName) {
     for (OStorage stg : Orient.instance().getStorages()) {
       if (stg.getName().equalsIgnoreCase(iDatabaseName) && stg.exists())
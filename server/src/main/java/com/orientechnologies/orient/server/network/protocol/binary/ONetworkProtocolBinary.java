@@ -17,12 +17,11 @@ package com.orientechnologies.orient.server.network.protocol.binary;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.orientechnologies.common.io.OIOException;
@@ -46,11 +45,8 @@ import com.orientechnologies.orient.core.exception.OSecurityAccessException;
 import com.orientechnologies.orient.core.exception.OSecurityException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.exception.OTransactionAbortedException;
-import com.orientechnologies.orient.core.fetch.OFetchContext;
 import com.orientechnologies.orient.core.fetch.OFetchHelper;
-import com.orientechnologies.orient.core.fetch.OFetchListener;
-import com.orientechnologies.orient.core.fetch.remote.ORemoteFetchContext;
-import com.orientechnologies.orient.core.fetch.remote.ORemoteFetchListener;
+import com.orientechnologies.orient.core.fetch.remote.ORemoteFetchWalker;
 import com.orientechnologies.orient.core.id.OClusterPosition;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
@@ -71,6 +67,7 @@ import com.orientechnologies.orient.core.version.ORecordVersion;
 import com.orientechnologies.orient.core.version.OVersionFactory;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
 import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryServer;
+import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
 import com.orientechnologies.orient.server.OClientConnection;
 import com.orientechnologies.orient.server.OClientConnectionManager;
 import com.orientechnologies.orient.server.OServer;
@@ -107,7 +104,11 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
 
     channel.flush();
-    start();
+    if (nio == null)
+      start();
+    else
+      // NIO WORKERS EXECUTE THE REQUESTS: THE THREAD IS NEVER STARTED
+      startup();
 
     setName("OrientDB <- BinaryClient (" + iSocket.getRemoteSocketAddress() + ")");
   }
@@ -267,6 +268,10 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       readRecord();
       break;
 
+    case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI:
+      readRecords();
+      break;
+
     case OChannelBinaryProtocol.REQUEST_RECORD_CREATE:
       createRecord();
       break;
@@ -1113,10 +1118,9 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
       if (asynch) {
         // ASYNCHRONOUS
         final AtomicBoolean empty = new AtomicBoolean(true);
-        final Set<ODocument> recordsToSend = new HashSet<ODocument>();
 
-        final Map<String, Integer> fetchPlan = command != null ? OFetchHelper.buildFetchPlan(command.getFetchPlan()) : null;
-        command.setResultListener(new AsyncResultListener(empty, clientTxId, fetchPlan, recordsToSend));
+        // THE RECORDS OF THE FETCH PLAN ARE SENT ONCE PER COMMAND, RIGHT AFTER THE RESULT THAT LINKS THEM
+        command.setResultListener(new AsyncResultListener(empty, clientTxId, new FetchPlanSender(command.getFetchPlan())));
 
         ((OCommandRequestInternal) connection.database.command(command)).execute();
 
@@ -1126,14 +1130,6 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
           } catch (IOException e1) {
           }
 
-        // SEND RECORDS TO LOAD IN CLIENT CACHE
-        for (ODocument doc : recordsToSend) {
-          channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT
-          // ISN'T PART OF THE
-          // RESULT SET
-          writeIdentifiable(doc);
-        }
-
         channel.writeByte((byte) 0); // NO MORE RECORDS
       } else {
         // SYNCHRONOUS
@@ -1355,29 +1351,9 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
           channel.writeVersion(record.getRecordVersion());
           channel.writeByte(record.getRecordType());
 
-          if (fetchPlanString.length() > 0) {
-            // BUILD THE SERVER SIDE RECORD TO ACCES TO THE FETCH
-            // PLAN
-            if (record instanceof ODocument) {
-              final Map<String, Integer> fetchPlan = OFetchHelper.buildFetchPlan(fetchPlanString);
-
-              final Set<ODocument> recordsToSend = new HashSet<ODocument>();
-              final ODocument doc = (ODocument) record;
-              final OFetchListener listener = new ORemoteFetchListener(recordsToSend);
-              final OFetchContext context = new ORemoteFetchContext();
-              OFetchHelper.fetch(doc, doc, fetchPlan, listener, context);
-
-              // SEND RECORDS TO LOAD IN CLIENT CACHE
-              for (ODocument d : recordsToSend) {
-                if (d.getIdentity().isValid()) {
-                  channel.writeByte((byte) 2); // CLIENT CACHE
-                  // RECORD. IT ISN'T PART OF THE RESULT SET
-                  writeIdentifiable(d);
-                }
-              }
-            }
-
-          }
+          if (fetchPlanString.length() > 0)
+            // SEND THE RECORDS OF THE FETCH PLAN TO LOAD IN CLIENT CACHE AS SOON AS THEY ARE FOUND
+            new FetchPlanSender(fetchPlanString).fetch(record);
         }
         channel.writeByte((byte) 0); // NO MORE RECORDS
 
@@ -1387,6 +1363,65 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  protected void readRecords() throws IOException {
+    setDataCommandInfo("Load records");
+
+    final int count = channel.readInt();
+    final int maxRecords = Math.max(1, OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.getValueAsInteger());
+    if (count < 0 || count > maxRecords) {
+      // READ THE REST OF THE REQUEST WITHOUT KEEPING IT, SO THE CONNECTION CAN SERVE THE NEXT ONE
+      for (int i = 0; i < count; ++i)
+        channel.readRID();
+      channel.readString();
+      channel.readByte();
+      throw new ONetworkProtocolException("Invalid number of records to load: " + count + ". The maximum is " + maxRecords);
+    }
+
+    final List<ORecordId> rids = new ArrayList<ORecordId>(count);
+    for (int i = 0; i < count; ++i)
+      rids.add(channel.readRID());
+    final String fetchPlanString = channel.readString();
+    final boolean ignoreCache = channel.readByte() == 1;
+
+    final Map<ORID, ORecordInternal<?>> records = connection.database.loadRecords(rids, fetchPlanString, ignoreCache);
+
+    beginResponse();
+    try {
+      sendOk(clientTxId);
+
+      final FetchPlanSender fetchPlanSender = fetchPlanString.length() > 0 ? new FetchPlanSender(fetchPlanString) : null;
+
+      // SEND THE RECORDS IN THE SAME ORDER OF THE REQUEST
+      for (ORecordId rid : rids) {
+        final ORecordInternal<?> record = records.get(rid);
+        if (record == null) {
+          channel.writeByte((byte) 0); // NOT FOUND
+          continue;
+        }
+
+        channel.writeByte((byte) 1); // HAS RECORD
+        channel.writeBytes(record.toStream());
+        channel.writeVersion(record.getRecordVersion());
+        channel.writeByte(record.getRecordType());
+
+        if (fetchPlanSender != null)
+          fetchPlanSender.skip(record);
+      }
+
+      // SEND THE RECORDS OF THE FETCH PLAN AFTER ALL THE REQUESTED ONES: EACH ONE IS SENT ONCE EVEN IF SHARED BY MORE RECORDS
+      if (fetchPlanSender != null)
+        for (ORecordId rid : rids) {
+          final ORecordInternal<?> record = records.get(rid);
+          if (record != null)
+            fetchPlanSender.fetch(record);
+        }
+      channel.writeByte((byte) 0); // NO MORE RECORDS
+
+    } finally {
+      endResponse();
+    }
+  }
+
   protected void endResponse() throws IOException {
     channel.flush();
     channel.releaseExclusiveLock();
@@ -1558,18 +1593,31 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
     }
   }
 
+  /**
+   * Sends the records of the fetch plan to load in client cache. They aren't part of the result set.
+   */
+  protected class FetchPlanSender extends ORemoteFetchWalker {
+    public FetchPlanSender(final String iFetchPlan) {
+      super(iFetchPlan);
+    }
+
+    @Override
+    protected void sendRecord(final ODocument iRecord, final byte[] iStream) throws IOException {
+      channel.writeByte((byte) 2); // CLIENT CACHE RECORD
+      writeRecord(iRecord, iStream);
+    }
+  }
+
   public class AsyncResultListener implements OCommandResultListener {
 
-    private final AtomicBoolean        empty;
-    private final int                  txId;
-    private final Map<String, Integer> fetchPlan;
-    private final Set<ODocument>       recordsToSend;
+    private final AtomicBoolean   empty;
+    private final int             txId;
+    private final FetchPlanSender fetchPlanSender;
 
-    public AsyncResultListener(AtomicBoolean empty, int txId, Map<String, Integer> fetchPlan, Set<ODocument> recordsToSend) {
+    public AsyncResultListener(AtomicBoolean empty, int txId, FetchPlanSender fetchPlanSender) {
       this.empty = empty;
       this.txId = txId;
-      this.fetchPlan = fetchPlan;
-      this.recordsToSend = recordsToSend;
+      this.fetchPlanSender = fetchPlanSender;
     }
 
     @Override
@@ -1581,15 +1629,11 @@ public class ONetworkProtocolBinary extends OBinaryNetworkProtocolAbstract {
         }
 
       try {
+        final ORecordInternal<?> record = ((OIdentifiable) iRecord).getRecord();
         channel.writeByte((byte) 1); // ONE MORE RECORD
-        writeIdentifiable((ORecordInternal<?>) ((OIdentifiable) iRecord).getRecord());
+        writeIdentifiable(record);
 
-        if (fetchPlan != null && iRecord instanceof ODocument) {
-          final ODocument doc = (ODocument) iRecord;
-          final OFetchListener listener = new ORemoteFetchListener(recordsToSend);
-          final OFetchContext context = new ORemoteFetchContext();
-          OFetchHelper.fetch(doc, iRecord, fetchPlan, listener, context);
-        }
+        fetchPlanSender.fetch(record);
 
       } catch (IOException e) {
         return false;
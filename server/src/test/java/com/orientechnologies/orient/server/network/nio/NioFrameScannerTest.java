@@ -0,0 +1,102 @@
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.ONetworkProtocolBinary;
+
+@Test
+public class NioFrameScannerTest {
+  private final ONetworkProtocolBinary protocol = new ONetworkProtocolBinary();
+
+  public void testRecordLoad() throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(buffer);
+    out.writeByte(OChannelBinaryProtocol.REQUEST_RECORD_LOAD);
+    out.writeInt(1);
+    writeRID(out);
+    writeString(out, "*:-1");
+    out.writeByte(0);
+    out.writeByte(0);
+
+    assertFrame(frame(buffer.toByteArray()));
+  }
+
+  public void testEmptyFrame() throws IOException {
+    assertFrame(frame(new byte[0]));
+  }
+
+  public void testUnframedRequest() {
+    final List<byte[]> chunks = new ArrayList<byte[]>();
+    chunks.add(new byte[] { OChannelBinaryProtocol.REQUEST_RECORD_LOAD, 0, 0, 0, 1 });
+    Assert.assertFalse(protocol.scanRequest(new ONioFrameScanner(chunks, 0, 5)));
+  }
+
+  public void testNegativeLength() {
+    final List<byte[]> chunks = new ArrayList<byte[]>();
+    chunks.add(new byte[] { OChannelBinaryProtocol.REQUEST_FRAMED, -1, -1, -1, -1 });
+    Assert.assertFalse(protocol.scanRequest(new ONioFrameScanner(chunks, 0, 5)));
+  }
+
+  /**
+   * Checks that the frame is complete only when all its bytes are buffered, however they are split in chunks.
+   */
+  private void assertFrame(final byte[] iFrame) {
+    for (int chunkSize : new int[] { 1, 3, iFrame.length }) {
+      for (int length = 1; length <= iFrame.length; ++length) {
+        final List<byte[]> chunks = new ArrayList<byte[]>();
+        // A CONSUMED PREFIX IN THE FIRST CHUNK
+        byte[] chunk = new byte[2 + Math.min(chunkSize, length)];
+        System.arraycopy(iFrame, 0, chunk, 2, chunk.length - 2);
+        chunks.add(chunk);
+        for (int i = chunk.length - 2; i < length; i += chunkSize) {
+          chunk = new byte[Math.min(chunkSize, length - i)];
+          System.arraycopy(iFrame, i, chunk, 0, chunk.length);
+          chunks.add(chunk);
+        }
+
+        final ONioFrameScanner scanner = new ONioFrameScanner(chunks, 2, length);
+        Assert.assertTrue(protocol.scanRequest(scanner));
+        if (length < iFrame.length) {
+          Assert.assertFalse(scanner.isComplete(), "Frame complete with " + length + " bytes of " + iFrame.length);
+          Assert.assertTrue(scanner.getPosition() > length);
+        } else {
+          Assert.assertTrue(scanner.isComplete());
+          Assert.assertEquals(scanner.getPosition(), iFrame.length);
+        }
+      }
+    }
+  }
+
+  private static byte[] frame(final byte[] iRequest) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(buffer);
+    out.writeByte(OChannelBinaryProtocol.REQUEST_FRAMED);
+    out.writeInt(iRequest.length);
+    out.write(iRequest);
+    return buffer.toByteArray();
+  }
+
+  private static void writeRID(final DataOutputStream iOut) throws IOException {
+    iOut.writeShort(9);
+    iOut.write(new byte[OClusterPositionFactory.INSTANCE.getSerializedSize()]);
+  }
+
+  private static void writeString(final DataOutputStream iOut, final String iValue) throws IOException {
+    if (iValue == null) {
+      iOut.writeInt(-1);
+      return;
+    }
+    final byte[] bytes = iValue.getBytes();
+    iOut.writeInt(bytes.length);
+    iOut.write(bytes);
+  }
+}
@@ -0,0 +1,252 @@
+package com.orientechnologies.orient.server.network.nio;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+import com.orientechnologies.orient.server.network.protocol.binary.OBinaryNetworkProtocolAbstract;
+
+@Test
+public class NioReactorTest {
+  private static final int      TIMEOUT      = 3000;
+  private static final int      MAX_BUFFERED = 8192;
+
+  private static final byte     ECHO         = 1;
+  private static final byte     PAYLOAD      = 2;
+  private static final byte     STREAMED     = 3;
+
+  private OContextConfiguration configuration;
+  private ServerSocketChannel   serverChannel;
+  private ONioReactor           reactor;
+
+  /**
+   * Answers with the int argument of ECHO and STREAMED or the length of the bytes of PAYLOAD. STREAMED has no known layout, so
+   * it's given to the worker as soon as it starts to arrive.
+   */
+  private static class OTestProtocol extends OBinaryNetworkProtocolAbstract {
+    private OTestProtocol() {
+      super("NIO test protocol");
+    }
+
+    @Override
+    public boolean scanRequest(final ONioFrameScanner iScanner) {
+      final byte type = iScanner.readByte();
+      iScanner.readInt();
+
+      switch (type) {
+      case ECHO:
+        iScanner.skip(4);
+        return true;
+      case PAYLOAD:
+        iScanner.skip(Math.max(iScanner.readInt(), 0));
+        return true;
+      default:
+        return false;
+      }
+    }
+
+    @Override
+    protected boolean executeRequest() throws IOException {
+      final int result;
+      switch (requestType) {
+      case ECHO:
+      case STREAMED:
+        result = channel.readInt();
+        break;
+      case PAYLOAD:
+        result = channel.readBytes().length;
+        break;
+      default:
+        return false;
+      }
+
+      channel.acquireExclusiveLock();
+      try {
+        sendOk(clientTxId);
+        channel.writeInt(result);
+      } finally {
+        channel.flush();
+        channel.releaseExclusiveLock();
+      }
+      return true;
+    }
+
+    @Override
+    public String getType() {
+      return "test";
+    }
+  }
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    configuration = new OContextConfiguration();
+    configuration.setValue(OGlobalConfiguration.NETWORK_BINARY_NIO_IO_THREADS, 1);
+    configuration.setValue(OGlobalConfiguration.NETWORK_BINARY_NIO_WORKER_THREADS, 1);
+    configuration.setValue(OGlobalConfiguration.NETWORK_BINARY_NIO_WORKER_QUEUE, 1);
+    configuration.setValue(OGlobalConfiguration.NETWORK_BINARY_NIO_MAX_BUFFERED, MAX_BUFFERED);
+    configuration.setValue(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE, 4096);
+    configuration.setValue(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT, TIMEOUT);
+
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().bind(new InetSocketAddress("localhost", 0));
+    reactor = new ONioReactor("NIO test", configuration);
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    reactor.shutdown();
+    serverChannel.close();
+  }
+
+  public void testPipelinedRequests() throws IOException {
+    final Socket client = connect();
+    final DataOutputStream out = new DataOutputStream(client.getOutputStream());
+    for (int i = 0; i < 50; ++i) {
+      out.writeByte(ECHO);
+      out.writeInt(i);
+      out.writeInt(i * 10);
+    }
+    out.flush();
+
+    for (int i = 0; i < 50; ++i)
+      Assert.assertEquals(readResponse(client, i), i * 10);
+    client.close();
+  }
+
+  public void testIncompleteRequestDoesNotHoldTheWorker() throws IOException {
+    final Socket slow = connect();
+    final Socket fast = connect();
+
+    // HALF OF THE ARGUMENT
+    final DataOutputStream slowOut = new DataOutputStream(slow.getOutputStream());
+    slowOut.writeByte(ECHO);
+    slowOut.writeInt(1);
+    slowOut.writeShort(0);
+    slowOut.flush();
+    pause(100);
+
+    final long start = System.currentTimeMillis();
+    sendEcho(fast, 2, 42);
+    Assert.assertEquals(readResponse(fast, 2), 42);
+    Assert.assertTrue(System.currentTimeMillis() - start < TIMEOUT / 2);
+
+    slowOut.writeShort(7);
+    slowOut.flush();
+    Assert.assertEquals(readResponse(slow, 1), 7);
+
+    slow.close();
+    fast.close();
+  }
+
+  public void testSaturatedWorkersDoNotBlockTheSelector() throws IOException {
+    final Socket streamed = connect();
+    final Socket[] others = new Socket[4];
+    for (int i = 0; i < others.length; ++i)
+      others[i] = connect();
+
+    // THE ONLY WORKER WAITS FOR THE REST OF A REQUEST
+    final DataOutputStream streamedOut = new DataOutputStream(streamed.getOutputStream());
+    streamedOut.writeByte(STREAMED);
+    streamedOut.writeInt(1);
+    streamedOut.writeShort(0);
+    streamedOut.flush();
+    pause(100);
+
+    // ONE CONNECTION IN THE QUEUE, THE OTHERS PARKED
+    for (int i = 0; i < others.length; ++i)
+      sendEcho(others[i], 1, i);
+    pause(100);
+    Assert.assertTrue(reactor.getParked() > 0);
+
+    // THE SELECTOR IS STILL READING: THE WORKER RECEIVES THE REST OF ITS REQUEST
+    final long start = System.currentTimeMillis();
+    streamedOut.writeShort(5);
+    streamedOut.flush();
+    Assert.assertEquals(readResponse(streamed, 1), 5);
+    Assert.assertTrue(System.currentTimeMillis() - start < TIMEOUT / 2);
+
+    for (int i = 0; i < others.length; ++i)
+      Assert.assertEquals(readResponse(others[i], 1), i);
+    Assert.assertEquals(reactor.getParked(), 0);
+
+    streamed.close();
+    for (Socket s : others)
+      s.close();
+  }
+
+  public void testStreamedRequestTimeout() throws IOException {
+    final Socket client = connect();
+    final DataOutputStream out = new DataOutputStream(client.getOutputStream());
+    out.writeByte(STREAMED);
+    out.writeInt(1);
+    out.flush();
+
+    // THE REQUEST NEVER COMPLETES: THE CONNECTION IS CLOSED
+    Assert.assertEquals(client.getInputStream().read(), -1);
+    client.close();
+
+    // THE WORKER IS FREE AGAIN
+    final Socket other = connect();
+    sendEcho(other, 3, 9);
+    Assert.assertEquals(readResponse(other, 3), 9);
+    other.close();
+  }
+
+  public void testRequestBiggerThanTheBuffer() throws IOException {
+    final Socket client = connect();
+    final DataOutputStream out = new DataOutputStream(client.getOutputStream());
+    final byte[] payload = new byte[MAX_BUFFERED * 12];
+    out.writeByte(PAYLOAD);
+    out.writeInt(1);
+    out.writeInt(payload.length);
+    out.write(payload);
+    out.flush();
+
+    Assert.assertEquals(readResponse(client, 1), payload.length);
+
+    sendEcho(client, 2, 3);
+    Assert.assertEquals(readResponse(client, 2), 3);
+    client.close();
+  }
+
+  private Socket connect() throws IOException {
+    final Socket client = new Socket("localhost", serverChannel.socket().getLocalPort());
+    client.setSoTimeout(TIMEOUT * 3);
+    reactor.register(serverChannel.accept().socket(), new OTestProtocol(), null, configuration, null, null);
+    return client;
+  }
+
+  private static void sendEcho(final Socket iClient, final int iTxId, final int iValue) throws IOException {
+    final DataOutputStream out = new DataOutputStream(iClient.getOutputStream());
+    out.writeByte(ECHO);
+    out.writeInt(iTxId);
+    out.writeInt(iValue);
+    out.flush();
+  }
+
+  private static int readResponse(final Socket iClient, final int iTxId) throws IOException {
+    final DataInputStream in = new DataInputStream(iClient.getInputStream());
+    Assert.assertEquals(in.readByte(), OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+    Assert.assertEquals(in.readInt(), iTxId);
+    return in.readInt();
+  }
+
+  private static void pause(final long iTime) {
+    try {
+      Thread.sleep(iTime);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.orientechnologies.orient.server.network.protocol.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordLazyList;
+import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolException;
+import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerMain;
+
+@Test
+public class LoadRecordsBatchTest {
+  private static final int            LINKS    = 25;
+  private static final int            BATCH    = 10;
+  private static final AtomicInteger  requests = new AtomicInteger();
+  private static volatile int         serverMaxRecords;
+  private OServer                     server;
+  private String                      url;
+  private ORID                        rootRid;
+  private int                         maxRecords;
+
+  /**
+   * Counts the requests that load more records.
+   */
+  public static class OCountingProtocol extends ONetworkProtocolBinary {
+    @Override
+    protected void readRecords() throws IOException {
+      requests.incrementAndGet();
+      if (serverMaxRecords == 0) {
+        super.readRecords();
+        return;
+      }
+
+      // THE SERVER ALLOWS LESS RECORDS THAN THE CLIENT
+      OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.setValue(serverMaxRecords);
+      try {
+        super.readRecords();
+      } finally {
+        OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.setValue(BATCH);
+      }
+    }
+  }
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    server = OServerMain.create();
+    server.startup("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><orient-server><network><protocols>"
+        + "<protocol implementation=\"" + OCountingProtocol.class.getName() + "\" name=\"binary\"/></protocols><listeners>"
+        + "<listener protocol=\"binary\" port-range=\"2524-2534\" ip-address=\"127.0.0.1\"/></listeners></network><storages>"
+        + "<storage loaded-at-startup=\"true\" userPassword=\"admin\" userName=\"admin\" path=\"memory:loadRecordsBatchTest\""
+        + " name=\"loadRecordsBatchTest\"/></storages><users><user resources=\"*\" password=\"root\" name=\"root\"/></users>"
+        + "</orient-server>");
+    server.activate();
+    url = "remote:127.0.0.1:" + server.getListenerByProtocol(OCountingProtocol.class).getInboundAddr().getPort()
+        + "/loadRecordsBatchTest";
+
+    maxRecords = OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.getValueAsInteger();
+    OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.setValue(BATCH);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+    try {
+      final List<ODocument> items = new ArrayList<ODocument>();
+      for (int i = 0; i < LINKS; ++i)
+        items.add(new ODocument().field("id", i).save());
+      rootRid = new ODocument().field("items", items).save().getIdentity();
+    } finally {
+      db.close();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.NETWORK_BINARY_LOAD_MAX_RECORDS.setValue(maxRecords);
+    server.shutdown();
+  }
+
+  public void testLinksLoadedInBatches() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+    try {
+      db.getLevel1Cache().invalidate();
+      db.getLevel2Cache().clear();
+
+      final ODocument root = db.load(rootRid);
+      final ORecordLazyList items = root.field("items");
+
+      requests.set(0);
+      items.convertLinks2Records();
+
+      // ONE REQUEST EVERY BATCH OF LINKS
+      Assert.assertEquals(requests.get(), (LINKS + BATCH - 1) / BATCH);
+
+      int i = 0;
+      for (OIdentifiable item : items) {
+        Assert.assertTrue(item instanceof ODocument);
+        Assert.assertEquals(((ODocument) item).field("id"), i++);
+      }
+      Assert.assertEquals(requests.get(), (LINKS + BATCH - 1) / BATCH);
+    } finally {
+      db.close();
+    }
+  }
+
+  public void testTooManyRecordsRefused() {
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+    try {
+      db.getLevel1Cache().invalidate();
+      db.getLevel2Cache().clear();
+
+      final ODocument root = db.load(rootRid);
+      final ORecordLazyList items = root.field("items");
+
+      serverMaxRecords = BATCH - 1;
+      try {
+        items.convertLinks2Records();
+        Assert.fail("Load of " + BATCH + " records accepted");
+      } catch (ODatabaseException e) {
+        Assert.assertTrue(e.getCause() instanceof ONetworkProtocolException);
+      } finally {
+        serverMaxRecords = 0;
+      }
+
+      // THE CONNECTION IS STILL USABLE
+      Assert.assertEquals(db.load(rootRid).getIdentity(), rootRid);
+    } finally {
+      db.close();
+    }
+  }
+}
@@ -1411,7 +1411,8 @@ public class OConsoleDatabaseApp extends OrientConsole implements OCommandOutput
   }
 
   @ConsoleCommand(description = "Export a database", splitInWords = false)
-  public void exportDatabase(@ConsoleParameter(name = "options", description = "Export options") final String iText)
+  public void exportDatabase(
+      @ConsoleParameter(name = "options", description = "Export options. With -parallel=true the records are exported by many threads (-parallelThreads=<n>) and local databases are frozen until all the records are exported") final String iText)
       throws IOException {
     checkForDatabase();
 